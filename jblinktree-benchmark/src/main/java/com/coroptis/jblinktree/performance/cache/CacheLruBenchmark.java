@@ -66,6 +66,12 @@ public class CacheLruBenchmark {
                 return (Node<Integer, T>) node;
             }
 
+            @Override
+            public <T> Node<Integer, T> makeNodeView(Integer idNode,
+                    byte[] field) {
+                return (Node<Integer, T>) node;
+            }
+
             @Override
             public <T> Node<Integer, T> makeNode(Integer idNode, byte[] field,
                     JbNodeDef<Integer, T> jbNodeDef) {
@@ -91,6 +97,13 @@ public class CacheLruBenchmark {
                  */
             }
 
+            @Override
+            public void onFlush(Node<Integer, Integer> node) {
+                /**
+                 * Do nothing.
+                 */
+            }
+
         };
         NodeLoader<Integer, Integer> nodeLoader = new NodeLoader<Integer, Integer>() {
 
@@ -0,0 +1,85 @@
+package com.coroptis.jblinktree.performance.locking;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.coroptis.jblinktree.JbNodeLockProviderStriped;
+import com.coroptis.jblinktree.TreeBuilder;
+import com.coroptis.jblinktree.type.Types;
+
+/**
+ * Measure throughput of {@link Map#put(Object, Object)} with different node
+ * lock providers.
+ *
+ * @author jajir
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class NodeLockingBenchmark {
+
+    /**
+     * Node lock provider, <code>node</code> means lock per node and
+     * <code>striped</code> means fixed size lock table.
+     */
+    @Param({ "node", "striped" })
+    private String locking;
+
+    private Map<Integer, Integer> map;
+
+    @Setup
+    public void setup() {
+        final TreeBuilder builder = TreeBuilder.builder().setL(100)
+                .setKeyType(Types.integer()).setValueType(Types.integer());
+        if ("striped".equals(locking)) {
+            builder.setNodeLockStripes(
+                    JbNodeLockProviderStriped.DEFAULT_NUMBER_OF_STRIPES);
+        }
+        map = builder.build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.out.println("tear down count: " + map.size());
+        map = null;
+    }
+
+    @Benchmark
+    public void insert() {
+        final Integer j = ThreadLocalRandom.current().nextInt();
+        map.put(j, -j);
+    }
+
+}
@@ -0,0 +1,79 @@
+package com.coroptis.jblinktree.performance.locking;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import com.coroptis.jblinktree.performance.tool.MergeTestResults;
+
+/**
+ * Run {@link NodeLockingBenchmark} with 1 up to 64 threads.
+ *
+ * @author jajir
+ *
+ */
+public class RunnerNodeLockingBenchmark {
+
+    /**
+     * Numbers of threads inserting into tree.
+     */
+    private final static int[] THREADS = { 1, 2, 4, 8, 16, 32, 64 };
+
+    /**
+     * How many times is separate measuring executed.
+     */
+    private final static int MEASURE_ITERATIONS = 10;
+
+    /**
+     * How many times is new JVM forked from main test process. Whole test is
+     * executed in each fork.
+     */
+    private final static int JVM_FORKS = 2;
+
+    private static Options getOptions(final int threads) {
+        return new OptionsBuilder()
+                .include(NodeLockingBenchmark.class.getSimpleName())
+                .warmupIterations(3).warmupTime(TimeValue.seconds(1))
+                .threads(threads).verbosity(VerboseMode.NORMAL)
+                .forks(JVM_FORKS).measurementIterations(MEASURE_ITERATIONS)
+                .measurementTime(TimeValue.seconds(1))
+                .result("./target/result-"
+                        + NodeLockingBenchmark.class.getSimpleName() + "-t"
+                        + threads + ".csv")
+                .resultFormat(ResultFormatType.CSV)
+                .jvmArgsAppend("-server", "-dsa", "-Xmx1024m").build();
+    }
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        for (final int threads : THREADS) {
+            new Runner(getOptions(threads)).run();
+        }
+        new MergeTestResults("./target/").merge();
+    }
+}
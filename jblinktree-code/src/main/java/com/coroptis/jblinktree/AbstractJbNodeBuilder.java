@@ -86,6 +86,35 @@ public abstract class AbstractJbNodeBuilder<K, V>
         }
     }
 
+    @SuppressWarnings({ "unchecked" })
+    @Override
+    public final <T> Node<K, T> makeNodeView(final Integer idNode,
+            final byte[] field) {
+        if (field[0] == Node.FLAG_LEAF_NODE) {
+            return (Node<K, T>) makeNodeView(idNode, field,
+                    treeData.getLeafNodeDescriptor());
+        } else {
+            return (Node<K, T>) makeNodeView(idNode, field,
+                    treeData.getNonLeafNodeDescriptor());
+        }
+    }
+
+    /**
+     * Create read-only node backed by given array.
+     *
+     * @param idNode
+     *            required node id
+     * @param field
+     *            required byte array, it's not copied
+     * @param jbNodeDef
+     *            required node data definition
+     * @param <T>
+     *            specific node value type
+     * @return read-only node
+     */
+    protected abstract <T> Node<K, T> makeNodeView(Integer idNode,
+            byte[] field, JbNodeDef<K, T> jbNodeDef);
+
     @Override
     public final Node<K, V> makeEmptyLeafNode(final Integer idNode) {
         Objects.requireNonNull(idNode);
@@ -0,0 +1,120 @@
+package com.coroptis.jblinktree;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Objects;
+
+import com.coroptis.jblinktree.util.JblinktreeException;
+
+/**
+ * Implementation of {@link IntTreeMap}. Reading methods search tree directly,
+ * changes are delegated to {@link TreeMap}.
+ *
+ * @author jajir
+ *
+ */
+public final class IntTreeMapImpl implements IntTreeMap {
+
+    /**
+     * Map backed by tree.
+     */
+    private final TreeMap<Integer, Integer> map;
+
+    /**
+     * Search by primitive key.
+     */
+    private final JbTreePrimitiveSearch<Integer, Integer> search;
+
+    /**
+     * When it's <code>true</code> than tree is closed.
+     */
+    private boolean isClosed;
+
+    /**
+     * Simple constructor.
+     *
+     * @param initMap
+     *            required map backed by tree
+     * @param initSearch
+     *            required search in the same tree
+     */
+    IntTreeMapImpl(final TreeMap<Integer, Integer> initMap,
+            final JbTreePrimitiveSearch<Integer, Integer> initSearch) {
+        this.map = Objects.requireNonNull(initMap);
+        this.search = Objects.requireNonNull(initSearch);
+    }
+
+    @Override
+    public int get(final int key, final int defaultValue) {
+        checkIsClosed();
+        final Node<Integer, Integer> node = search.findLeafNode(key);
+        final int position = search.findKeyIndex(node, key);
+        if (position < 0) {
+            return defaultValue;
+        }
+        return (int) search.loadValue(node, position);
+    }
+
+    @Override
+    public boolean containsKey(final int key) {
+        checkIsClosed();
+        return search.findKeyIndex(search.findLeafNode(key), key) >= 0;
+    }
+
+    @Override
+    public void put(final int key, final int value) {
+        checkIsClosed();
+        map.put(key, value);
+    }
+
+    @Override
+    public boolean remove(final int key) {
+        checkIsClosed();
+        return map.remove(key) != null;
+    }
+
+    @Override
+    public int size() {
+        checkIsClosed();
+        return map.size();
+    }
+
+    @Override
+    public TreeMap<Integer, Integer> asMap() {
+        return map;
+    }
+
+    @Override
+    public void close() {
+        map.close();
+        isClosed = true;
+    }
+
+    /**
+     * Check that tree was not closed.
+     */
+    private void checkIsClosed() {
+        if (isClosed) {
+            throw new JblinktreeException("Attempt to work with closed tree.");
+        }
+    }
+
+}
@@ -114,13 +114,13 @@ public abstract class JbAbstractNode<K, V> implements Node<K, V> {
     }
 
     @Override
-    public final void setKey(final int position, final Wrapper<K> value) {
+    public void setKey(final int position, final Wrapper<K> value) {
         getNodeDef().getKeyTypeDescriptor().save(getFieldBytes(),
                 getNodeDef().getKeyPosition(position), value);
     }
 
     @Override
-    public final void setValue(final int position, final V value) {
+    public void setValue(final int position, final V value) {
         getNodeDef().getValueTypeDescriptor().save(getFieldBytes(),
                 getNodeDef().getValuePosition(position), value);
     }
@@ -169,7 +169,7 @@ public abstract class JbAbstractNode<K, V> implements Node<K, V> {
     }
 
     @Override
-    public final void setFlag(final byte flag) {
+    public void setFlag(final byte flag) {
         getFieldBytes()[FLAG_BYTE_POSITION] = flag;
     }
 
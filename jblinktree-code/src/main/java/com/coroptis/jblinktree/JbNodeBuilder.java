@@ -66,6 +66,21 @@ public interface JbNodeBuilder<K, V> {
      */
     <T> Node<K, T> makeNode(Integer idNode, byte[] field);
 
+    /**
+     * Create read-only node backed by given array, array is not copied. Node
+     * definition will be assigned based on field flag. Given array must not be
+     * changed while node is used.
+     *
+     * @param <T>
+     *            node value type
+     * @param idNode
+     *            required node id
+     * @param field
+     *            required byte array
+     * @return read-only node
+     */
+    <T> Node<K, T> makeNodeView(Integer idNode, byte[] field);
+
     /**
      * Create new node by copying array to new node.
      *
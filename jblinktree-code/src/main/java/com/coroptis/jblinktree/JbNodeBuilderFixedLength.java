@@ -49,6 +49,15 @@ public final class JbNodeBuilderFixedLength<K, V>
         return new NodeFixedLength<K, T>(idNode, field, jbNodeDef);
     }
 
+    /**
+     * Fixed length node has different layout, so data are copied.
+     */
+    @Override
+    protected <T> Node<K, T> makeNodeView(final Integer idNode,
+            final byte[] field, final JbNodeDef<K, T> jbNodeDef) {
+        return makeNode(idNode, field, jbNodeDef);
+    }
+
     @Override
     public <T> Node<K, T> makeNode(final Integer nodeId,
             final boolean isLeafNode, final JbNodeDef<K, T> jbNodeDef) {
@@ -49,6 +49,12 @@ public final class JbNodeBuilderShort<K, V>
         return new NodeShort<K, T>(idNode, field, jbNodeDef);
     }
 
+    @Override
+    protected <T> Node<K, T> makeNodeView(final Integer idNode,
+            final byte[] field, final JbNodeDef<K, T> jbNodeDef) {
+        return new NodeShortView<K, T>(idNode, field, jbNodeDef);
+    }
+
     @Override
     public <T> Node<K, T> makeNode(final Integer nodeId,
             final boolean isLeafNode, final JbNodeDef<K, T> jbNodeDef) {
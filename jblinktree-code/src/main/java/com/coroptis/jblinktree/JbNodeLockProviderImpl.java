@@ -52,21 +52,31 @@ public final class JbNodeLockProviderImpl implements JbNodeLockProvider {
     @Override
     public void lockNode(final Integer nodeId) {
         Objects.requireNonNull(nodeId);
-        Lock lock = locks.get(nodeId);
-        if (lock == null) {
+        while (true) {
+            Lock lock = locks.get(nodeId);
+            if (lock == null) {
+                /**
+                 * Following construction prevent store from creating more lock
+                 * instances for same nodeId.
+                 */
+                synchronized (this) {
+                    lock = locks.get(nodeId);
+                    if (lock == null) {
+                        lock = new ReentrantLock(false);
+                        locks.put(nodeId, lock);
+                    }
+                }
+            }
+            lock.lock();
             /**
-             * Following construction prevent store from creating more lock
-             * instances for same nodeId.
+             * Lock could be removed before it was locked, in that case try it
+             * again with current lock.
              */
-            synchronized (this) {
-                lock = locks.get(nodeId);
-                if (lock == null) {
-                    lock = new ReentrantLock(false);
-                    locks.put(nodeId, lock);
-                }
+            if (locks.get(nodeId) == lock) {
+                return;
             }
+            lock.unlock();
         }
-        lock.lock();
     }
 
     @Override
@@ -103,8 +113,12 @@ public final class JbNodeLockProviderImpl implements JbNodeLockProvider {
              * I'm not sure, if it's necessary bad state. Node will be later
              * loaded and unloaded it allows to remove lock next time.
              */
-            if (!l.isLocked()) {
-                locks.remove(nodeId);
+            if (!l.isLocked() && l.tryLock()) {
+                try {
+                    locks.remove(nodeId, l);
+                } finally {
+                    l.unlock();
+                }
             }
         }
     }
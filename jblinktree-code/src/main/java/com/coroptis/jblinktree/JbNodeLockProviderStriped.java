@@ -0,0 +1,232 @@
+package com.coroptis.jblinktree;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import com.coroptis.jblinktree.util.JblinktreeException;
+
+/**
+ * Implementation of {@link JbNodeLockProvider} with fixed number of stripes.
+ * Node id is mapped to stripe and stripe remembers which of its nodes are
+ * locked. Memory consumption doesn't depend on number of nodes in tree, just
+ * locked nodes are remembered.
+ * <p>
+ * Thread waiting for a node doesn't hold stripe. So two nodes in the same
+ * stripe don't block each other and locking order of tree nodes can't lead to
+ * dead lock.
+ * </p>
+ *
+ * @author jajir
+ *
+ */
+public final class JbNodeLockProviderStriped implements JbNodeLockProvider {
+
+    /**
+     * Default number of stripes.
+     */
+    public static final int DEFAULT_NUMBER_OF_STRIPES = 1024;
+
+    /**
+     * Stripes, each stripe guards locks of nodes mapped to it.
+     */
+    private final Stripe[] stripes;
+
+    /**
+     * Mask used to compute stripe index from node id.
+     */
+    private final int mask;
+
+    /**
+     * Create lock provider with default number of stripes.
+     */
+    public JbNodeLockProviderStriped() {
+        this(DEFAULT_NUMBER_OF_STRIPES);
+    }
+
+    /**
+     * Create lock provider with given number of stripes.
+     *
+     * @param numberOfStripes
+     *            required number of stripes, it have to be power of two
+     */
+    public JbNodeLockProviderStriped(final int numberOfStripes) {
+        if (!isValidNumberOfStripes(numberOfStripes)) {
+            throw new JblinktreeException("Number of stripes '"
+                    + numberOfStripes + "' should be power of two.");
+        }
+        stripes = new Stripe[numberOfStripes];
+        for (int i = 0; i < numberOfStripes; i++) {
+            stripes[i] = new Stripe();
+        }
+        mask = numberOfStripes - 1;
+    }
+
+    /**
+     * Verify that given number of stripes could be used.
+     *
+     * @param numberOfStripes
+     *            number of stripes
+     * @return return <code>true</code> when it's positive power of two
+     */
+    public static boolean isValidNumberOfStripes(final int numberOfStripes) {
+        return numberOfStripes > 0 && Integer.bitCount(numberOfStripes) == 1;
+    }
+
+    @Override
+    public void lockNode(final Integer nodeId) {
+        Objects.requireNonNull(nodeId);
+        final Stripe stripe = getStripe(nodeId);
+        final Thread current = Thread.currentThread();
+        boolean interrupted = false;
+        synchronized (stripe) {
+            while (true) {
+                final NodeLock lock = stripe.lockedNodes.get(nodeId);
+                if (lock == null) {
+                    stripe.lockedNodes.put(nodeId, new NodeLock(current));
+                    break;
+                } else if (lock.owner == current) {
+                    lock.holdCount++;
+                    break;
+                }
+                stripe.waitingThreads++;
+                try {
+                    stripe.wait();
+                } catch (InterruptedException e) {
+                    /**
+                     * Node lock is not interruptible, interruption is
+                     * restored when node is locked.
+                     */
+                    interrupted = true;
+                } finally {
+                    stripe.waitingThreads--;
+                }
+            }
+        }
+        if (interrupted) {
+            current.interrupt();
+        }
+    }
+
+    @Override
+    public void unlockNode(final Integer nodeId) {
+        Objects.requireNonNull(nodeId);
+        final Stripe stripe = getStripe(nodeId);
+        synchronized (stripe) {
+            final NodeLock lock = stripe.lockedNodes.get(nodeId);
+            if (lock == null) {
+                throw new IllegalMonitorStateException(
+                        "Attempt to unlock not locked node '" + nodeId + "'");
+            }
+            if (lock.owner != Thread.currentThread()) {
+                throw new IllegalMonitorStateException("Node '" + nodeId
+                        + "' is locked by another thread.");
+            }
+            lock.holdCount--;
+            if (lock.holdCount == 0) {
+                stripe.lockedNodes.remove(nodeId);
+                if (stripe.waitingThreads > 0) {
+                    stripe.notifyAll();
+                }
+            }
+        }
+    }
+
+    @Override
+    public int countLockedThreads() {
+        int out = 0;
+        for (final Stripe stripe : stripes) {
+            synchronized (stripe) {
+                out += stripe.lockedNodes.size();
+            }
+        }
+        return out;
+    }
+
+    @Override
+    public void removeLock(final Integer nodeId) {
+        /**
+         * Unlocked nodes are not remembered, there is nothing to remove.
+         */
+    }
+
+    /**
+     * Find stripe for given node id.
+     *
+     * @param nodeId
+     *            required node id
+     * @return stripe
+     */
+    private Stripe getStripe(final Integer nodeId) {
+        final int h = nodeId;
+        return stripes[(h ^ (h >>> 16)) & mask];
+    }
+
+    /**
+     * Stripe holds locks of currently locked nodes. All fields are guarded by
+     * stripe monitor.
+     */
+    private static final class Stripe {
+
+        /**
+         * Locked node ids and their locks.
+         */
+        private final Map<Integer, NodeLock> lockedNodes =
+                new HashMap<Integer, NodeLock>();
+
+        /**
+         * Number of threads waiting for some node from this stripe.
+         */
+        private int waitingThreads;
+
+    }
+
+    /**
+     * Lock of one node. Lock is reentrant.
+     */
+    private static final class NodeLock {
+
+        /**
+         * Thread holding lock.
+         */
+        private final Thread owner;
+
+        /**
+         * How many times was node locked by owner.
+         */
+        private int holdCount;
+
+        /**
+         * Create lock held once by given thread.
+         *
+         * @param initOwner
+         *            required thread holding lock
+         */
+        NodeLock(final Thread initOwner) {
+            this.owner = initOwner;
+            this.holdCount = 1;
+        }
+
+    }
+
+}
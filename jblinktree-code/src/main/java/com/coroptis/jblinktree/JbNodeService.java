@@ -79,6 +79,28 @@ public interface JbNodeService<K, V> {
      */
     <S> S insert(Node<K, S> node, Wrapper<K> key, S value);
 
+    /**
+     * Insert pointer to node created by split into non-leaf node. Split node
+     * keeps keys up to separator and right node contains higher keys.
+     * <p>
+     * Pointer to split node is found by node id and it's moved to right
+     * node, split node is inserted under separator. So pointer is placed next
+     * to split node even when neighbour nodes are split concurrently and
+     * pointers are inserted in any order.
+     * </p>
+     *
+     * @param node
+     *            required non-leaf node, it could be full
+     * @param separator
+     *            required max key of split node
+     * @param splitNodeId
+     *            required id of split node
+     * @param rightNode
+     *            required node containing keys bigger than separator
+     */
+    void insertSplitNode(Node<K, Integer> node, Wrapper<K> separator,
+            Integer splitNodeId, Node<K, ?> rightNode);
+
     /**
      * For non-leaf tree it update key of some tree. It's useful for update
      * sub-node max key.
@@ -118,6 +118,34 @@ public final class JbNodeServiceImpl<K, V> implements JbNodeService<K, V> {
         }
     }
 
+    @Override
+    public void insertSplitNode(final Node<K, Integer> node,
+            final Wrapper<K> separator, final Integer splitNodeId,
+            final Node<K, ?> rightNode) {
+        Objects.requireNonNull(splitNodeId);
+        if (node.isLeafNode() || node.isEmpty()) {
+            throw new JblinktreeException("Node '" + node.getId()
+                    + "' is leaf node or it's empty.");
+        }
+        final int position = getNodeIds(node).indexOf(splitNodeId);
+        if (position < 0) {
+            throw new JblinktreeException("Node '" + node.getId()
+                    + "' doesn't contain pointer to node '" + splitNodeId
+                    + "'.");
+        }
+        if (node.compareKey(position, separator) < 0) {
+            /**
+             * It's last pointer of rightmost node, it covers all bigger keys.
+             */
+            node.setKey(position, separator);
+            node.insertAtPosition(rightNode.getMaxKey(), rightNode.getId(),
+                    position + 1);
+        } else {
+            node.setValue(position, rightNode.getId());
+            node.insertAtPosition(separator, splitNodeId, position);
+        }
+    }
+
     /**
      * When new value can't be inserted into this node it throws
      * {@link JblinktreeException}.
@@ -143,7 +171,7 @@ public final class JbNodeServiceImpl<K, V> implements JbNodeService<K, V> {
         }
         for (int i = 0; i < node.getKeyCount(); i++) {
             if (node.getValue(i).equals(valueToUpdate)) {
-                if (node.getKey(i).equals(keyToSet)) {
+                if (node.compareKey(i, keyToSet) == 0) {
                     return false;
                 } else {
                     node.setKey(i, keyToSet);
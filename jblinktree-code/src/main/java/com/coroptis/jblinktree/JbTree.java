@@ -1,5 +1,9 @@
 package com.coroptis.jblinktree;
 
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
 import com.coroptis.jblinktree.type.Wrapper;
 
 /*
@@ -66,7 +70,9 @@ public interface JbTree<K, V> {
     V search(Wrapper<K> key);
 
     /**
-     * Count all keys stored in tree.
+     * Count all keys stored in tree. Method visit all leaf nodes, actual
+     * number of keys is also available from
+     * {@link JbTreeData#getValueCount()}.
      *
      * @return number of all keys in tree.
      */
@@ -131,4 +137,112 @@ public interface JbTree<K, V> {
      */
     void visit(JbDataVisitor<K, V> dataVisitor);
 
+    /**
+     * Traverse key value pairs in given key range in ascending order. Method
+     * descend through tree just once and than follows leaf node links.
+     * <p>
+     * Method doesn't use node locking.
+     * </p>
+     *
+     * @param fromKey
+     *            optional lower key bound, bound is inclusive. When it's
+     *            <code>null</code> than range starts with smallest key.
+     * @param toKey
+     *            optional upper key bound, bound is exclusive. When it's
+     *            <code>null</code> than range ends with biggest key.
+     * @param dataVisitor
+     *            required data visitor
+     */
+    void scan(Wrapper<K> fromKey, Wrapper<K> toKey,
+            JbDataVisitor<K, V> dataVisitor);
+
+    /**
+     * Create lazy iterator over key value pairs in ascending key order.
+     * Iterator follows leaf node links and load nodes when they are needed.
+     * <p>
+     * Iterator doesn't use node locking and it's weakly consistent.
+     * </p>
+     *
+     * @param fromKey
+     *            optional lower key bound. When it's <code>null</code> than
+     *            iterating starts with smallest key.
+     * @param inclusive
+     *            when it's <code>true</code> than key equal to lower bound is
+     *            returned
+     * @return key value pairs iterator
+     */
+    Iterator<Map.Entry<K, V>> iterator(Wrapper<K> fromKey, boolean inclusive);
+
+    /**
+     * Find key value pair with biggest key which is smaller than given key.
+     * <p>
+     * Method doesn't use node locking.
+     * </p>
+     *
+     * @param key
+     *            optional key, when it's <code>null</code> than pair with
+     *            biggest key in tree is returned
+     * @param inclusive
+     *            when it's <code>true</code> than pair with key equal to given
+     *            key could be returned
+     * @return found key value pair or <code>null</code> when there is no such
+     *         pair
+     */
+    Map.Entry<K, V> floorEntry(Wrapper<K> key, boolean inclusive);
+
+    /**
+     * Insert value and key into tree only when key is not in tree. Operation
+     * is atomic.
+     *
+     * @param key
+     *            required key
+     * @param value
+     *            required value
+     * @return value which is already associated with given key or
+     *         <code>null</code> when value was inserted
+     */
+    V insertIfAbsent(Wrapper<K> key, V value);
+
+    /**
+     * Replace value associated with key. Value is replaced just when key is in
+     * tree and when current value is equal to expected value. Operation is
+     * atomic.
+     *
+     * @param key
+     *            required key
+     * @param expectedValue
+     *            optional expected value, when it's <code>null</code> than any
+     *            value is replaced
+     * @param value
+     *            required new value
+     * @return value associated with key before method call or
+     *         <code>null</code> when key is not in tree
+     */
+    V replace(Wrapper<K> key, V expectedValue, V value);
+
+    /**
+     * Remove key from tree only when key is associated with expected value.
+     * Operation is atomic.
+     *
+     * @param key
+     *            required key
+     * @param expectedValue
+     *            optional expected value, when it's <code>null</code> than key
+     *            is removed with any value
+     * @return value associated with key before method call or
+     *         <code>null</code> when key is not in tree
+     */
+    V remove(Wrapper<K> key, V expectedValue);
+
+    /**
+     * Insert all given key value pairs. Keys have to be sorted in ascending
+     * order and each key could be in list just once. Keys that falls into same
+     * leaf node are inserted during one descent and one lock acquisition. Each
+     * single pair is inserted atomically, whole batch is not atomic.
+     *
+     * @param entries
+     *            required sorted list of key value pairs
+     */
+    void insertAll(List<Map.Entry<Wrapper<K>, V>> entries);
+
 }
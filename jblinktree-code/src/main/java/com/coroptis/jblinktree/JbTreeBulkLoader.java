@@ -0,0 +1,205 @@
+package com.coroptis.jblinktree;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import com.coroptis.jblinktree.type.TypeDescriptor;
+import com.coroptis.jblinktree.type.Wrapper;
+import com.coroptis.jblinktree.util.JblinktreeException;
+
+/**
+ * Build tree from sorted key value pairs. Leaf nodes are filled up to fill
+ * factor and written in ascending order, than non-leaf levels are built bottom
+ * up. Loader doesn't lock nodes and doesn't split them, so it could be used
+ * just on newly created tree which is not accessible by another thread.
+ *
+ * @author jajir
+ *
+ * @param <K>
+ *            key type
+ * @param <V>
+ *            value type
+ */
+final class JbTreeBulkLoader<K, V> {
+
+    /**
+     * Node store.
+     */
+    private final NodeStore<K> nodeStore;
+
+    /**
+     * Node builder.
+     */
+    private final JbNodeBuilder<K, V> nodeBuilder;
+
+    /**
+     * Tree data definition.
+     */
+    private final JbTreeData<K, V> treeData;
+
+    /**
+     * Maximal number of keys in loaded leaf node.
+     */
+    private final int leafCapacity;
+
+    /**
+     * Maximal number of keys in loaded non-leaf node.
+     */
+    private final int nonLeafCapacity;
+
+    /**
+     * Simple constructor.
+     *
+     * @param initNodeStore
+     *            required node store
+     * @param initNodeBuilder
+     *            required node builder
+     * @param initTreeData
+     *            required tree data definition
+     * @param fillFactor
+     *            required ratio of used keys in loaded nodes, value is from
+     *            interval (0, 1]
+     */
+    JbTreeBulkLoader(final NodeStore<K> initNodeStore,
+            final JbNodeBuilder<K, V> initNodeBuilder,
+            final JbTreeData<K, V> initTreeData, final double fillFactor) {
+        this.nodeStore = Objects.requireNonNull(initNodeStore);
+        this.nodeBuilder = Objects.requireNonNull(initNodeBuilder);
+        this.treeData = Objects.requireNonNull(initTreeData);
+        final int capacity = (int) Math.round(treeData.getL() * fillFactor);
+        this.leafCapacity = Math.max(1, capacity);
+        this.nonLeafCapacity = Math.max(2, capacity);
+    }
+
+    /**
+     * Load all key value pairs into tree and set new root node id.
+     *
+     * @param entries
+     *            required iterator over key value pairs sorted by key in
+     *            ascending order
+     * @throws JblinktreeException
+     *             when keys are not sorted or some key is there twice
+     */
+    public void load(final Iterator<? extends Map.Entry<K, V>> entries) {
+        Objects.requireNonNull(entries);
+        final TypeDescriptor<K> keyTd =
+                treeData.getLeafNodeDescriptor().getKeyTypeDescriptor();
+        final List<Integer> nodeIds = new ArrayList<Integer>();
+        final List<Wrapper<K>> maxKeys = new ArrayList<Wrapper<K>>();
+        Node<K, V> node = nodeBuilder.makeEmptyLeafNode(treeData.getNextId());
+        Wrapper<K> previousKey = null;
+        long count = 0;
+        while (entries.hasNext()) {
+            final Map.Entry<K, V> entry = entries.next();
+            final Wrapper<K> key = Wrapper.make(
+                    Objects.requireNonNull(entry.getKey()), keyTd);
+            if (previousKey != null
+                    && keyTd.cmp(previousKey.getBytes(), 0, key) >= 0) {
+                throw new JblinktreeException("Key '" + entry.getKey()
+                        + "' is not bigger than previous key '"
+                        + previousKey.getValue() + "'.");
+            }
+            if (node.getKeyCount() >= leafCapacity) {
+                node = closeNode(node,
+                        nodeBuilder.makeEmptyLeafNode(treeData.getNextId()),
+                        nodeIds, maxKeys);
+            }
+            node.insertAtPosition(key,
+                    Objects.requireNonNull(entry.getValue()),
+                    node.getKeyCount());
+            previousKey = key;
+            count++;
+        }
+        nodeStore.writeNode(node);
+        nodeIds.add(node.getId());
+        maxKeys.add(node.getMaxKey());
+        treeData.setRootNodeId(buildNonLeafLevels(nodeIds, maxKeys));
+        treeData.setValueCount(count);
+    }
+
+    /**
+     * Build non-leaf levels from given nodes until there is just one node.
+     *
+     * @param nodeIds
+     *            required ids of nodes at lowest level
+     * @param maxKeys
+     *            required max keys of nodes at lowest level
+     * @return root node id
+     */
+    private Integer buildNonLeafLevels(final List<Integer> nodeIds,
+            final List<Wrapper<K>> maxKeys) {
+        List<Integer> levelIds = nodeIds;
+        List<Wrapper<K>> levelKeys = maxKeys;
+        while (levelIds.size() > 1) {
+            final List<Integer> upperIds = new ArrayList<Integer>();
+            final List<Wrapper<K>> upperKeys = new ArrayList<Wrapper<K>>();
+            Node<K, Integer> node =
+                    nodeBuilder.makeEmptyNonLeafNode(treeData.getNextId());
+            for (int i = 0; i < levelIds.size(); i++) {
+                if (node.getKeyCount() >= nonLeafCapacity) {
+                    node = closeNode(node, nodeBuilder
+                            .makeEmptyNonLeafNode(treeData.getNextId()),
+                            upperIds, upperKeys);
+                }
+                node.insertAtPosition(levelKeys.get(i), levelIds.get(i),
+                        node.getKeyCount());
+            }
+            nodeStore.writeNode(node);
+            upperIds.add(node.getId());
+            upperKeys.add(node.getMaxKey());
+            levelIds = upperIds;
+            levelKeys = upperKeys;
+        }
+        return levelIds.get(0);
+    }
+
+    /**
+     * Link full node to following node, store it and remember its id and max
+     * key for upper level.
+     *
+     * @param node
+     *            required full node
+     * @param nextNode
+     *            required following node at same level
+     * @param nodeIds
+     *            required list of node ids at level
+     * @param maxKeys
+     *            required list of max keys at level
+     * @param <S>
+     *            node value type
+     * @return following node
+     */
+    private <S> Node<K, S> closeNode(final Node<K, S> node,
+            final Node<K, S> nextNode, final List<Integer> nodeIds,
+            final List<Wrapper<K>> maxKeys) {
+        node.setLink(nextNode.getId());
+        nodeStore.writeNode(node);
+        nodeIds.add(node.getId());
+        maxKeys.add(node.getMaxKey());
+        return nextNode;
+    }
+
+}
@@ -20,6 +20,8 @@ package com.coroptis.jblinktree;
  * #L%
  */
 
+import java.util.List;
+
 /**
  * Holds tree meta data. Like id of first node and tree data definition.
  *
@@ -32,6 +34,12 @@ package com.coroptis.jblinktree;
  */
 public interface JbTreeData<K, V> {
 
+    /**
+     * Value count marking that number of values stored in tree is not known
+     * and have to be counted.
+     */
+    long UNKNOWN_VALUE_COUNT = -1;
+
     /**
      * Holds root node id.
      *
@@ -86,4 +94,81 @@ public interface JbTreeData<K, V> {
      */
     void setMaxNodeId(Integer maxNodeId);
 
+    /**
+     * Get number of key value pairs stored in tree.
+     *
+     * @return number of stored values or {@link #UNKNOWN_VALUE_COUNT}
+     */
+    long getValueCount();
+
+    /**
+     * Allows to set number of key value pairs stored in tree.
+     *
+     * @param valueCount
+     *            required number of stored values
+     */
+    void setValueCount(long valueCount);
+
+    /**
+     * Inform that one key value pair was added to tree.
+     */
+    void incrementValueCount();
+
+    /**
+     * Inform that one key value pair was removed from tree.
+     */
+    void decrementValueCount();
+
+    /**
+     * Register running tree operation. Ids of nodes removed from tree are not
+     * reused until all operations registered before removal are finished.
+     *
+     * @return epoch of registered operation, it have to be passed to
+     *         {@link #exitOperation(long)}
+     */
+    long enterOperation();
+
+    /**
+     * Unregister finished tree operation.
+     *
+     * @param epoch
+     *            required epoch returned by {@link #enterOperation()}
+     */
+    void exitOperation(long epoch);
+
+    /**
+     * Inform that node was removed from tree. Node id will be returned by
+     * {@link #getNextId()} when no running operation could read removed node.
+     *
+     * @param nodeId
+     *            required id of removed node
+     */
+    void freeNodeId(Integer nodeId);
+
+    /**
+     * Decide if node with given id was removed from tree and wasn't reused
+     * yet.
+     *
+     * @param nodeId
+     *            required node id
+     * @return return <code>true</code> when node was removed from tree
+     */
+    boolean isFreeNodeId(Integer nodeId);
+
+    /**
+     * Get ids of removed nodes which are not reused yet.
+     *
+     * @return list of free node ids
+     */
+    List<Integer> getFreeNodeIds();
+
+    /**
+     * Allows to set free node ids loaded with tree. They could be reused
+     * immediately.
+     *
+     * @param freeNodeIds
+     *            required list of free node ids
+     */
+    void setFreeNodeIds(List<Integer> freeNodeIds);
+
 }
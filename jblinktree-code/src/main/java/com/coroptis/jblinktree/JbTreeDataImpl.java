@@ -1,7 +1,16 @@
 package com.coroptis.jblinktree;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
 
 /*
  * #%L
@@ -25,6 +34,13 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Simple {@link JbTreeData} implementations.
+ * <p>
+ * Removed node ids are reused with drain technique. Running operations are
+ * counted separately for even and odd epoch. Id removed in some epoch is
+ * reused when epoch was increased twice, epoch could be increased just when
+ * there is no operation registered in previous epoch. So all operations which
+ * could read removed node are finished before its id is reused.
+ * </p>
  *
  * @author jajir
  *
@@ -36,9 +52,10 @@ import java.util.concurrent.atomic.AtomicInteger;
 public final class JbTreeDataImpl<K, V> implements JbTreeData<K, V> {
 
     /**
-     * Root node id. Points to tree root node.
+     * Root node id. Points to tree root node. Root is changed by thread
+     * splitting root node and read by all others.
      */
-    private Integer rootNodeId;
+    private volatile Integer rootNodeId;
 
     /**
      * Maximal number of keys in node.
@@ -60,6 +77,45 @@ public final class JbTreeDataImpl<K, V> implements JbTreeData<K, V> {
      */
     private final AtomicInteger nextId;
 
+    /**
+     * Number of key value pairs stored in tree. It's striped counter, so
+     * concurrent inserts and removes doesn't compete for single field.
+     */
+    private final LongAdder valueCount;
+
+    /**
+     * Number of counters of running operations in each epoch.
+     */
+    private static final int OPERATION_STRIPES = 16;
+
+    /**
+     * Distance between two counters, it keeps counters in different cache
+     * lines.
+     */
+    private static final int OPERATION_PADDING = 8;
+
+    /**
+     * Current epoch.
+     */
+    private final AtomicLong epoch;
+
+    /**
+     * Counters of running operations. Thread always use the same counter, so
+     * counter can't be lower than number of operations registered by threads
+     * using it.
+     */
+    private final AtomicLongArray operations;
+
+    /**
+     * Free node ids in order in which they were freed. Guarded by itself.
+     */
+    private final Deque<FreeNodeId> freeNodeIds;
+
+    /**
+     * Set of free node ids.
+     */
+    private final Set<Integer> freeNodeIdSet;
+
     /**
      * Basic constructor.
      *
@@ -76,6 +132,12 @@ public final class JbTreeDataImpl<K, V> implements JbTreeData<K, V> {
             final JbNodeDef<K, V> leafNodeDescriptor,
             final JbNodeDef<K, Integer> nonLeafNodeDescriptor) {
         this.nextId = new AtomicInteger(NodeStore.FIRST_NODE_ID);
+        this.valueCount = new LongAdder();
+        this.epoch = new AtomicLong();
+        this.operations = new AtomicLongArray(
+                2 * OPERATION_STRIPES * OPERATION_PADDING);
+        this.freeNodeIds = new ArrayDeque<FreeNodeId>();
+        this.freeNodeIdSet = ConcurrentHashMap.newKeySet();
         this.rootNodeId = Objects.requireNonNull(startNodeId);
         this.l = initL;
         this.leafNodeDef = Objects.requireNonNull(leafNodeDescriptor);
@@ -114,9 +176,39 @@ public final class JbTreeDataImpl<K, V> implements JbTreeData<K, V> {
 
     @Override
     public Integer getNextId() {
+        if (!freeNodeIdSet.isEmpty()) {
+            final Integer nodeId = reuseNodeId();
+            if (nodeId != null) {
+                return nodeId;
+            }
+        }
         return nextId.getAndIncrement();
     }
 
+    /**
+     * Take oldest free node id when it could be reused.
+     *
+     * @return free node id or <code>null</code> when there is no free node id
+     *         which could be reused
+     */
+    private Integer reuseNodeId() {
+        synchronized (freeNodeIds) {
+            final FreeNodeId first = freeNodeIds.peekFirst();
+            if (first == null) {
+                return null;
+            }
+            if (first.epoch + 2 > epoch.get()) {
+                tryAdvanceEpoch();
+                if (first.epoch + 2 > epoch.get()) {
+                    return null;
+                }
+            }
+            freeNodeIds.removeFirst();
+            freeNodeIdSet.remove(first.nodeId);
+            return first.nodeId;
+        }
+    }
+
     @Override
     public Integer getMaxNodeId() {
         return nextId.get();
@@ -135,4 +227,160 @@ public final class JbTreeDataImpl<K, V> implements JbTreeData<K, V> {
         return l;
     }
 
+    @Override
+    public long getValueCount() {
+        return valueCount.sum();
+    }
+
+    @Override
+    public void setValueCount(final long count) {
+        valueCount.reset();
+        valueCount.add(count);
+    }
+
+    @Override
+    public void incrementValueCount() {
+        valueCount.increment();
+    }
+
+    @Override
+    public void decrementValueCount() {
+        valueCount.decrement();
+    }
+
+    @Override
+    public long enterOperation() {
+        final int stripe = getStripe();
+        while (true) {
+            final long current = epoch.get();
+            final int index = getCounterIndex(current, stripe);
+            operations.incrementAndGet(index);
+            if (epoch.get() == current) {
+                return current;
+            }
+            /**
+             * Epoch was increased in meantime, operation have to be
+             * registered in current epoch.
+             */
+            operations.decrementAndGet(index);
+        }
+    }
+
+    @Override
+    public void exitOperation(final long operationEpoch) {
+        operations.decrementAndGet(
+                getCounterIndex(operationEpoch, getStripe()));
+    }
+
+    @Override
+    public void freeNodeId(final Integer nodeId) {
+        Objects.requireNonNull(nodeId);
+        synchronized (freeNodeIds) {
+            freeNodeIdSet.add(nodeId);
+            freeNodeIds.addLast(new FreeNodeId(nodeId, epoch.get()));
+            tryAdvanceEpoch();
+        }
+    }
+
+    @Override
+    public boolean isFreeNodeId(final Integer nodeId) {
+        return freeNodeIdSet.contains(nodeId);
+    }
+
+    @Override
+    public List<Integer> getFreeNodeIds() {
+        synchronized (freeNodeIds) {
+            final List<Integer> out =
+                    new ArrayList<Integer>(freeNodeIds.size());
+            for (final FreeNodeId freeNodeId : freeNodeIds) {
+                out.add(freeNodeId.nodeId);
+            }
+            return out;
+        }
+    }
+
+    @Override
+    public void setFreeNodeIds(final List<Integer> nodeIds) {
+        Objects.requireNonNull(nodeIds);
+        synchronized (freeNodeIds) {
+            freeNodeIds.clear();
+            freeNodeIdSet.clear();
+            /**
+             * Loaded ids are not used by any operation.
+             */
+            final long reusableEpoch = epoch.get() - 2;
+            for (final Integer nodeId : nodeIds) {
+                freeNodeIdSet.add(nodeId);
+                freeNodeIds.addLast(new FreeNodeId(nodeId, reusableEpoch));
+            }
+        }
+    }
+
+    /**
+     * Increase epoch when all operations registered in previous epoch are
+     * finished.
+     */
+    private void tryAdvanceEpoch() {
+        final long current = epoch.get();
+        for (int i = 0; i < OPERATION_STRIPES; i++) {
+            if (operations.get(getCounterIndex(current - 1, i)) != 0) {
+                return;
+            }
+        }
+        epoch.compareAndSet(current, current + 1);
+    }
+
+    /**
+     * Get stripe of operation counters used by current thread.
+     *
+     * @return stripe index
+     */
+    private int getStripe() {
+        return (int) (Thread.currentThread().getId() & (OPERATION_STRIPES - 1));
+    }
+
+    /**
+     * Get index of counter of operations running in given epoch.
+     *
+     * @param operationEpoch
+     *            required epoch
+     * @param stripe
+     *            required stripe index
+     * @return index in {@link #operations}
+     */
+    private int getCounterIndex(final long operationEpoch, final int stripe) {
+        return ((int) (operationEpoch & 1) * OPERATION_STRIPES + stripe)
+                * OPERATION_PADDING;
+    }
+
+    /**
+     * Free node id with epoch in which node was removed.
+     */
+    private static final class FreeNodeId {
+
+        /**
+         * Node id.
+         */
+        private final Integer nodeId;
+
+        /**
+         * Epoch in which was node removed from tree.
+         */
+        private final long epoch;
+
+        /**
+         * Simple constructor.
+         *
+         * @param initNodeId
+         *            required node id
+         * @param initEpoch
+         *            epoch of node removal
+         */
+        FreeNodeId(final Integer initNodeId, final long initEpoch) {
+            this.nodeId = initNodeId;
+            this.epoch = initEpoch;
+        }
+
+    }
+
 }
@@ -1,5 +1,8 @@
 package com.coroptis.jblinktree;
 
+import java.util.Iterator;
+import java.util.Map;
+
 import com.coroptis.jblinktree.type.Wrapper;
 import com.coroptis.jblinktree.util.JbStack;
 
@@ -59,6 +62,38 @@ public interface JbTreeHelper<K, V> {
     V insertToLeafNode(Node<K, V> currentNode, Wrapper<K> key, V value,
             JbStack stack);
 
+    /**
+     * Empty leaf node doesn't know it's max key. When given locked leaf node
+     * is empty than parent node is used to decide if key belongs to node.
+     * When key belongs to some next node than method moves right.
+     *
+     * @param node
+     *            required locked leaf node
+     * @param key
+     *            required key
+     * @param stack
+     *            required stack with visited non-leaf nodes, it's not changed
+     * @return locked leaf node where key belongs
+     */
+    Node<K, V> moveRightEmptyLeafNode(Node<K, V> node, Wrapper<K> key,
+            JbStack stack);
+
+    /**
+     * Update max key of given node in parent node. Parent nodes keeps max key
+     * of each child node. When max key of child node is changed parent node
+     * have to be updated. When child node is last node in parent than also
+     * parent's parent is updated.
+     * <p>
+     * Given node have to be locked and stored. Method unlock it.
+     * </p>
+     *
+     * @param node
+     *            required locked node with changed max key
+     * @param stack
+     *            required stack useful for back tracing through tree
+     */
+    void updateMaxKey(Node<K, ?> node, JbStack stack);
+
     /**
      * Traverse through all tree key value pairs in tree.
      *
@@ -67,4 +102,43 @@ public interface JbTreeHelper<K, V> {
      */
     void visit(JbDataVisitor<K, V> dataVisitor);
 
+    /**
+     * Traverse key value pairs in given key range. Method find leaf node where
+     * lower bound belongs and than follows leaf node links.
+     *
+     * @param fromKey
+     *            optional inclusive lower key bound
+     * @param toKey
+     *            optional exclusive upper key bound
+     * @param dataVisitor
+     *            required data visitor
+     */
+    void scan(Wrapper<K> fromKey, Wrapper<K> toKey,
+            JbDataVisitor<K, V> dataVisitor);
+
+    /**
+     * Create lazy iterator over key value pairs in ascending key order.
+     *
+     * @param fromKey
+     *            optional lower key bound
+     * @param inclusive
+     *            when it's <code>true</code> than key equal to lower bound is
+     *            returned
+     * @return key value pairs iterator
+     */
+    Iterator<Map.Entry<K, V>> iterator(Wrapper<K> fromKey, boolean inclusive);
+
+    /**
+     * Find key value pair with biggest key which is smaller than given key.
+     *
+     * @param key
+     *            optional key, when it's <code>null</code> than pair with
+     *            biggest key in tree is returned
+     * @param inclusive
+     *            when it's <code>true</code> than pair with key equal to given
+     *            key could be returned
+     * @return found key value pair or <code>null</code>
+     */
+    Map.Entry<K, V> floorEntry(Wrapper<K> key, boolean inclusive);
+
 }
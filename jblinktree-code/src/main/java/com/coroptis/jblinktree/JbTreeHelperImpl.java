@@ -1,5 +1,8 @@
 package com.coroptis.jblinktree;
 
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.Objects;
 
 /*
@@ -22,12 +25,9 @@ import java.util.Objects;
  * #L%
  */
 
-import java.util.concurrent.locks.ReentrantLock;
-
 import com.coroptis.jblinktree.type.Wrapper;
 import com.coroptis.jblinktree.util.JbStack;
 import com.coroptis.jblinktree.util.JbStackArrayList;
-import com.coroptis.jblinktree.util.Validation;
 
 /**
  * Immutable implementation of {@link JbTreeHelper}.
@@ -61,6 +61,11 @@ public final class JbTreeHelperImpl<K, V> implements JbTreeHelper<K, V> {
      */
     private final JbTreeData<K, V> treeData;
 
+    /**
+     * Node service.
+     */
+    private final JbNodeService<K, V> nodeService;
+
     /**
      * Simple constructor.
      *
@@ -72,15 +77,19 @@ public final class JbTreeHelperImpl<K, V> implements JbTreeHelper<K, V> {
      *            required tree service
      * @param initTreeData
      *            required tree data definition
+     * @param initNodeService
+     *            required node service
      */
     public JbTreeHelperImpl(final NodeStore<K> initNodeStore,
             final JbTreeTool<K, V> initTreeTool,
             final JbTreeService<K, V> initTreeService,
-            final JbTreeData<K, V> initTreeData) {
+            final JbTreeData<K, V> initTreeData,
+            final JbNodeService<K, V> initNodeService) {
         this.nodeStore = Objects.requireNonNull(initNodeStore);
         this.treeTool = Objects.requireNonNull(initTreeTool);
         this.treeService = Objects.requireNonNull(initTreeService);
         this.treeData = Objects.requireNonNull(initTreeData);
+        this.nodeService = Objects.requireNonNull(initNodeService);
     }
 
     @Override
@@ -98,64 +107,230 @@ public final class JbTreeHelperImpl<K, V> implements JbTreeHelper<K, V> {
         if (currentNode.getKeyCount() >= treeData.getL()) {
             final Node<K, V> newNode = storeSplitLeafNode(currentNode, key,
                     value);
-            if (stack.isEmpty()) {
+            if (stack.isEmpty() && isRootNode(currentNode)) {
                 splitRootNode(currentNode, newNode);
                 return null;
             } else {
-                Integer tmpValue = newNode.getId();
-                Wrapper<K> tmpKey = newNode.getMaxKey();
-                final Integer previousCurrentNodeId = currentNode.getId();
-                Node<K, Integer> previousNode = treeService
-                        .loadParentNode(currentNode, tmpKey, stack.pop());
-                nodeStore.unlockNode(previousCurrentNodeId);
-                return insertNonLeaf(previousNode, tmpKey, tmpValue, stack);
+                nodeStore.writeNode(currentNode);
+                final Node<K, Integer> parentNode =
+                        lockParentNode(currentNode, 0, stack);
+                nodeStore.unlockNode(currentNode.getId());
+                return insertNonLeaf(parentNode, currentNode.getMaxKey(),
+                        currentNode.getId(), newNode, stack);
             }
+        } else if (currentNode.isEmpty()
+                && !Node.EMPTY_INT.equals(currentNode.getLink())) {
+            /**
+             * Parent node could contains old max key of empty node.
+             */
+            nodeService.insert(currentNode, key, value);
+            nodeStore.writeNode(currentNode);
+            updateMaxKey(currentNode, stack);
+            return null;
         } else {
             treeService.storeValueIntoNode(currentNode, key, value);
             return null;
         }
     }
 
+    @Override
+    public Node<K, V> moveRightEmptyLeafNode(final Node<K, V> node,
+            final Wrapper<K> key, final JbStack stack) {
+        Node<K, V> current = node;
+        while (current.isEmpty()
+                && !Node.EMPTY_INT.equals(current.getLink())
+                && !isInEmptyNodeRange(current, key, stack)) {
+            current = treeTool.moveToNextNode(current, current.getLink());
+            while (treeTool.canMoveToNextNode(current, key)) {
+                current = treeTool.moveToNextNode(current, current.getLink());
+            }
+        }
+        return current;
+    }
+
     /**
-     * Write given key value pair into non-leaf node.
+     * Decide if key belongs to given empty leaf node. Key of node in parent
+     * node is never smaller than keys stored in node. So when key is bigger
+     * than key in parent node it belongs to some next node.
      *
      * @param node
-     *            required leaf node
+     *            required locked empty leaf node
      * @param key
      *            required key
-     * @param value
-     *            required value
+     * @param stack
+     *            required stack with visited non-leaf nodes
+     * @return return <code>true</code> when key belongs to given node
+     *         otherwise return <code>false</code>
+     */
+    private boolean isInEmptyNodeRange(final Node<K, V> node,
+            final Wrapper<K> key, final JbStack stack) {
+        final Integer parentNodeId;
+        if (stack.isEmpty()) {
+            final JbStack tmpStack = new JbStackArrayList();
+            treeTool.findLeafNodeId(key, tmpStack, treeData.getRootNodeId());
+            if (tmpStack.isEmpty()) {
+                return true;
+            }
+            parentNodeId = tmpStack.pop();
+        } else {
+            parentNodeId = stack.pop();
+            stack.push(parentNodeId);
+        }
+        final Node<K, Integer> parentNode =
+                lockParentNodeOf(node.getId(), parentNodeId);
+        if (parentNode == null) {
+            /**
+             * Pointer to node created by split is not in parent node yet.
+             */
+            return true;
+        }
+        final int position =
+                nodeService.getNodeIds(parentNode).indexOf(node.getId());
+        final boolean out = (position == parentNode.getMaxKeyIndex()
+                && Node.EMPTY_INT.equals(parentNode.getLink()))
+                || parentNode.compareKey(position, key) >= 0;
+        nodeStore.unlockNode(parentNode.getId());
+        return out;
+    }
+
+    @Override
+    public void updateMaxKey(final Node<K, ?> node, final JbStack stack) {
+        Node<K, ?> currentNode = node;
+        int level = 0;
+        while (!Node.EMPTY_INT.equals(currentNode.getLink())) {
+            final Node<K, Integer> parentNode =
+                    lockParentNode(currentNode, level, stack);
+            if (nodeService.updateKeyForValue(parentNode,
+                    currentNode.getId(), currentNode.getMaxKey())) {
+                nodeStore.writeNode(parentNode);
+            }
+            nodeStore.unlockNode(currentNode.getId());
+            if (!currentNode.getId().equals(
+                    parentNode.getValue(parentNode.getMaxKeyIndex()))) {
+                /**
+                 * Max key of parent node wasn't changed.
+                 */
+                nodeStore.unlockNode(parentNode.getId());
+                return;
+            }
+            currentNode = parentNode;
+            level++;
+        }
+        nodeStore.unlockNode(currentNode.getId());
+    }
+
+    /**
+     * Lock non-leaf node containing pointer to given node. New max key of
+     * given node could be bigger than key in parent node, so parent node is
+     * found by node id, not by key. Locking starts at given node and moves to
+     * the right.
+     *
+     * @param nodeId
+     *            required child node id
+     * @param parentNodeId
+     *            required id of node where searching starts
+     * @return locked parent node or <code>null</code> when it wasn't found
+     */
+    private Node<K, Integer> lockParentNodeOf(final Integer nodeId,
+            final Integer parentNodeId) {
+        Node<K, Integer> parentNode = nodeStore.getAndLock(parentNodeId);
+        while (!nodeService.getNodeIds(parentNode).contains(nodeId)) {
+            if (Node.EMPTY_INT.equals(parentNode.getLink())) {
+                nodeStore.unlockNode(parentNode.getId());
+                return null;
+            }
+            parentNode =
+                    treeTool.moveToNextNode(parentNode, parentNode.getLink());
+        }
+        return parentNode;
+    }
+
+    /**
+     * Lock parent node of given node. Stack could be empty when tree grows
+     * after it was filled and pointer to split node could be inserted into
+     * parent node by concurrent thread which split left neighbour of split
+     * node. In both cases stack is filled again from root and searching is
+     * repeated until pointer is found.
+     *
+     * @param node
+     *            required locked node with link to next node
+     * @param level
+     *            level of given node, leaf nodes are at level 0
+     * @param stack
+     *            required stack useful for back tracing through tree
+     * @return locked parent node
+     */
+    private Node<K, Integer> lockParentNode(final Node<K, ?> node,
+            final int level, final JbStack stack) {
+        if (stack.isEmpty()) {
+            fillParentStack(node, level, stack);
+        }
+        Node<K, Integer> parentNode =
+                lockParentNodeOf(node.getId(), stack.pop());
+        while (parentNode == null) {
+            while (!stack.isEmpty()) {
+                stack.pop();
+            }
+            Thread.yield();
+            fillParentStack(node, level, stack);
+            parentNode = lockParentNodeOf(node.getId(), stack.pop());
+        }
+        return parentNode;
+    }
+
+    /**
+     * Insert pointer to node created by split into non-leaf node.
+     *
+     * @param node
+     *            required locked non-leaf node
+     * @param separator
+     *            required max key of split node
+     * @param splitNodeId
+     *            required id of split node
+     * @param rightNode
+     *            required node created by split
      * @param stack
      *            required stack useful for back tracing through tree
      * @return <code>null</code> when it's new key otherwise return old value
      */
     @SuppressWarnings("unchecked")
-    private V insertNonLeaf(final Node<K, Integer> node, final Wrapper<K> key,
-            final Integer value, final JbStack stack) {
+    private V insertNonLeaf(final Node<K, Integer> node,
+            final Wrapper<K> separator, final Integer splitNodeId,
+            final Node<K, ?> rightNode, final JbStack stack) {
         Node<K, Integer> currentNode = node;
         /**
-         * Key and value have to be inserted
+         * Separator and node have to be inserted
          */
-        Integer tmpValue = value;
-        Wrapper<K> tmpKey = key;
+        Node<K, ?> tmpNode = rightNode;
+        Wrapper<K> tmpKey = separator;
+        Integer tmpSplitNodeId = splitNodeId;
+        /**
+         * Level of current node, leaf nodes are at level 0.
+         */
+        int level = 1;
         while (true) {
             if (currentNode.getKeyCount() >= treeData.getL()) {
                 final Node<K, Integer> newNode = storeSplitNonLeafNode(
-                        currentNode, tmpKey, tmpValue);
-                if (stack.isEmpty()) {
+                        currentNode, tmpKey, tmpSplitNodeId, tmpNode);
+                if (stack.isEmpty() && isRootNode(currentNode)) {
                     splitRootNode((Node<K, V>) currentNode,
                             (Node<K, V>) newNode);
                     return null;
                 } else {
-                    tmpValue = newNode.getId();
-                    tmpKey = newNode.getMaxKey();
-                    final Integer previousCurrentNodeId = currentNode.getId();
-                    currentNode = treeService.loadParentNode(currentNode,
-                            tmpKey, stack.pop());
-                    nodeStore.unlockNode(previousCurrentNodeId);
+                    nodeStore.writeNode(currentNode);
+                    tmpNode = newNode;
+                    tmpKey = currentNode.getMaxKey();
+                    tmpSplitNodeId = currentNode.getId();
+                    currentNode = lockParentNode(currentNode,
+                            level, stack);
+                    nodeStore.unlockNode(tmpSplitNodeId);
+                    level++;
                 }
             } else {
-                treeService.storeValueIntoNode(currentNode, tmpKey, tmpValue);
+                nodeService.insertSplitNode(currentNode, tmpKey,
+                        tmpSplitNodeId, tmpNode);
+                nodeStore.writeNode(currentNode);
+                nodeStore.unlockNode(currentNode.getId());
                 return null;
             }
         }
@@ -164,7 +339,8 @@ public final class JbTreeHelperImpl<K, V> implements JbTreeHelper<K, V> {
     // FIXME pair methods move to separate typed class
 
     /**
-     * Split node and store new and old node.
+     * Split node and store new node. Split node have to be stored by caller,
+     * when root node is split than new root have to be set before.
      *
      * @param currentNode
      *            required node which will be split
@@ -179,58 +355,80 @@ public final class JbTreeHelperImpl<K, V> implements JbTreeHelper<K, V> {
         final Node<K, V> newNode = treeTool.splitLeafNode(currentNode, key,
                 value);
         nodeStore.writeNode(newNode);
-        nodeStore.writeNode(currentNode);
         return newNode;
     }
 
     /**
-     * Split node and store new and old node.
+     * Split node and store new node. Split node have to be stored by caller,
+     * when root node is split than new root have to be set before.
      *
      * @param currentNode
      *            required node which will be split
-     * @param key
-     *            required inserted key
-     * @param value
-     *            required inserted value
+     * @param separator
+     *            required max key of split child node
+     * @param splitNodeId
+     *            required id of split child node
+     * @param rightNode
+     *            required child node created by split
      * @return newly created node, this node contains higher part of keys.
      */
     private Node<K, Integer> storeSplitNonLeafNode(
-            final Node<K, Integer> currentNode, final Wrapper<K> key,
-            final Integer value) {
+            final Node<K, Integer> currentNode, final Wrapper<K> separator,
+            final Integer splitNodeId, final Node<K, ?> rightNode) {
         final Node<K, Integer> newNode = treeTool.splitNonLeafNode(currentNode,
-                key, value);
+                separator, splitNodeId, rightNode);
         nodeStore.writeNode(newNode);
-        nodeStore.writeNode(currentNode);
         return newNode;
     }
 
     /**
-     * Split node.
+     * Decide if given node is tree root node. When current thread holds lock
+     * of given node than result can't be changed by another thread.
+     *
+     * @param node
+     *            required node
+     * @return return <code>true</code> when given node is root node
+     */
+    private boolean isRootNode(final Node<K, ?> node) {
+        return treeData.getRootNodeId().equals(node.getId());
+    }
+
+    /**
+     * When node was root during tree descent but in meantime root was split
+     * than there are no parent nodes in stack. Parent nodes are found again
+     * from current root node.
+     *
+     * @param node
+     *            required split node
+     * @param level
+     *            required level of split node, leaf nodes are at level 0
+     * @param stack
+     *            required empty stack, it's filled with parent nodes
+     */
+    private void fillParentStack(final Node<K, ?> node, final int level,
+            final JbStack stack) {
+        treeTool.findLeafNodeId(node.getMaxKey(), stack,
+                treeData.getRootNodeId());
+        for (int i = 0; i < level; i++) {
+            stack.pop();
+        }
+    }
+
+    /**
+     * Split root node. New root node is created and set to tree data. Split
+     * root node is stored after that, so node created by split can't be
+     * reached through link before new root is set.
      *
      * @param currentNode
-     *            required node which will be split
+     *            required locked root node which was split
      * @param newNode
-     *            required node to which will moved data from current node
-     * @return id of new tree root node
+     *            required node to which were moved data from current node
      */
-    private Integer splitRootNode(final Node<K, V> currentNode,
+    private void splitRootNode(final Node<K, V> currentNode,
             final Node<K, V> newNode) {
-        ReentrantLock lock = new ReentrantLock(false);
-        lock.lock();
-        try {
-            if (treeData.getRootNodeId().equals(currentNode.getId())) {
-                Validation.checkArgument(
-                        treeData.getRootNodeId().equals(currentNode.getId()));
-                treeData.setRootNodeId(
-                        treeTool.splitRootNode(currentNode, newNode));
-                nodeStore.unlockNode(currentNode.getId());
-            } else {
-                nodeStore.unlockNode(currentNode.getId());
-            }
-        } finally {
-            lock.unlock();
-        }
-        return treeData.getRootNodeId();
+        treeData.setRootNodeId(treeTool.splitRootNode(currentNode, newNode));
+        nodeStore.writeNode(currentNode);
+        nodeStore.unlockNode(currentNode.getId());
     }
 
     @Override
@@ -246,6 +444,166 @@ public final class JbTreeHelperImpl<K, V> implements JbTreeHelper<K, V> {
             }
             if (Node.EMPTY_INT.equals(currentNode.getLink())) {
                 return;
+            } else {
+                currentNode = nodeStore.getForScan(currentNode.getLink());
+            }
+        }
+    }
+
+    @Override
+    public void scan(final Wrapper<K> fromKey, final Wrapper<K> toKey,
+            final JbDataVisitor<K, V> dataVisitor) {
+        Objects.requireNonNull(dataVisitor);
+        Node<K, V> currentNode;
+        if (fromKey == null) {
+            currentNode = treeService.findSmallerNode(treeData.getRootNodeId());
+        } else {
+            currentNode = nodeStore.get(treeTool.findLeafNodeId(fromKey,
+                    new JbStackArrayList(), treeData.getRootNodeId()));
+        }
+        while (true) {
+            for (int i = 0; i < currentNode.getKeyCount(); i++) {
+                if (fromKey != null && currentNode.compareKey(i, fromKey) < 0) {
+                    continue;
+                }
+                if (toKey != null && currentNode.compareKey(i, toKey) >= 0) {
+                    return;
+                }
+                if (!dataVisitor.visited(currentNode.getKey(i),
+                        currentNode.getValue(i))) {
+                    return;
+                }
+            }
+            if (Node.EMPTY_INT.equals(currentNode.getLink())) {
+                return;
+            } else {
+                currentNode = nodeStore.getForScan(currentNode.getLink());
+            }
+        }
+    }
+
+    @Override
+    public Iterator<Map.Entry<K, V>> iterator(final Wrapper<K> fromKey,
+            final boolean inclusive) {
+        Node<K, V> firstNode;
+        if (fromKey == null) {
+            firstNode = treeService.findSmallerNode(treeData.getRootNodeId());
+        } else {
+            firstNode = nodeStore.get(treeTool.findLeafNodeId(fromKey,
+                    new JbStackArrayList(), treeData.getRootNodeId()));
+        }
+        return new JbTreeLeafIterator<K, V>(nodeStore,
+                treeData.getLeafNodeDescriptor().getKeyTypeDescriptor(),
+                firstNode, fromKey, inclusive);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Map.Entry<K, V> floorEntry(final Wrapper<K> key,
+            final boolean inclusive) {
+        /**
+         * During descending are remembered sub trees on the left side of
+         * path. All keys in such sub tree are smaller than given key.
+         */
+        final JbStack leftSubTrees = new JbStackArrayList();
+        Node<K, V> node = nodeStore.get(treeData.getRootNodeId());
+        while (!node.isLeafNode()) {
+            final Node<K, Integer> n = (Node<K, Integer>) node;
+            final int keyCount = n.getKeyCount();
+            if (n.isEmpty()) {
+                /**
+                 * Node was removed from tree, keys are in next nodes.
+                 */
+                node = nodeStore.get(n.getLink());
+            } else if (!Node.EMPTY_INT.equals(n.getLink()) && (key == null
+                    || n.compareKey(n.getMaxKeyIndex(), key) < 0)) {
+                leftSubTrees.push(n.getValue(n.getMaxKeyIndex()));
+                node = nodeStore.get(n.getLink());
+            } else {
+                int i = keyCount - 1;
+                if (key != null) {
+                    i = 0;
+                    while (i < keyCount - 1 && n.compareKey(i, key) < 0) {
+                        i++;
+                    }
+                }
+                if (i > 0) {
+                    leftSubTrees.push(n.getValue(i - 1));
+                }
+                node = nodeStore.get(n.getValue(i));
+            }
+        }
+        Map.Entry<K, V> out = floorEntry(node, key, inclusive);
+        while (out == null && !leftSubTrees.isEmpty()) {
+            out = floorEntry(findBiggerNode(leftSubTrees.pop()), key,
+                    inclusive);
+        }
+        if (out == null) {
+            /**
+             * Sub trees on the left side could contains just empty nodes.
+             */
+            out = floorEntry(
+                    treeService.findSmallerNode(treeData.getRootNodeId()), key,
+                    inclusive);
+        }
+        return out;
+    }
+
+    /**
+     * Find leaf node with biggest keys in sub tree. Method doesn't follow
+     * links.
+     *
+     * @param nodeId
+     *            required sub tree root node id
+     * @return leaf node
+     */
+    private Node<K, V> findBiggerNode(final Integer nodeId) {
+        Node<K, V> node = nodeStore.get(nodeId);
+        while (!node.isLeafNode()) {
+            if (node.isEmpty()) {
+                /**
+                 * Sub tree was removed, following leaf nodes are searched.
+                 */
+                node = nodeStore.get(node.getLink());
+            } else {
+                node = nodeStore
+                        .get((Integer) node.getValue(node.getMaxKeyIndex()));
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Walk from given leaf node through leaf node links and find key value
+     * pair with biggest key smaller than given key.
+     *
+     * @param leafNode
+     *            required leaf node where searching starts
+     * @param key
+     *            optional key, when it's <code>null</code> than last pair is
+     *            returned
+     * @param inclusive
+     *            when it's <code>true</code> than pair with key equal to given
+     *            key could be returned
+     * @return found key value pair or <code>null</code>
+     */
+    private Map.Entry<K, V> floorEntry(final Node<K, V> leafNode,
+            final Wrapper<K> key, final boolean inclusive) {
+        Node<K, V> currentNode = leafNode;
+        Map.Entry<K, V> out = null;
+        while (true) {
+            for (int i = 0; i < currentNode.getKeyCount(); i++) {
+                if (key != null) {
+                    final int cmp = currentNode.compareKey(i, key);
+                    if (cmp > 0 || (cmp == 0 && !inclusive)) {
+                        return out;
+                    }
+                }
+                out = new AbstractMap.SimpleImmutableEntry<K, V>(
+                        currentNode.getKey(i), currentNode.getValue(i));
+            }
+            if (Node.EMPTY_INT.equals(currentNode.getLink())) {
+                return out;
             } else {
                 currentNode = nodeStore.get(currentNode.getLink());
             }
@@ -1,5 +1,8 @@
 package com.coroptis.jblinktree;
 
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 import com.coroptis.jblinktree.type.Wrapper;
@@ -77,6 +80,18 @@ public final class JbTreeImpl<K, V> implements JbTree<K, V> {
      */
     private final JbNodeService<K, V> nodeService;
 
+    /**
+     * Optional tree merger. When it's <code>null</code> than empty nodes stay
+     * in tree.
+     */
+    private final JbTreeMerger<K, V> treeMerger;
+
+    /**
+     * Optional background re-packing of sparse leaf nodes. It's stopped when
+     * tree is closed.
+     */
+    private final JbTreeRepacker<K, V> treeRepacker;
+
     /**
      * Create and initialize tree.
      *
@@ -102,6 +117,44 @@ public final class JbTreeImpl<K, V> implements JbTree<K, V> {
             final JbTreeTraversingService<K, V> jbTreeTraversingService,
             final JbTreeService<K, V> jbTreeService,
             final JbNodeService<K, V> jbNodeService) {
+        this(jbNodeStore, jbTreeTool, jbTreeHelper, initTreeData,
+                jbTreeTraversingService, jbTreeService, jbNodeService, null,
+                null);
+    }
+
+    /**
+     * Create and initialize tree which removes empty nodes.
+     *
+     * @param jbNodeStore
+     *            required {@link NodeStore} object
+     * @param jbTreeTool
+     *            required {@link JbTreeTool} object
+     * @param jbTreeHelper
+     *            required {@link JbTreeHelper} object
+     * @param initTreeData
+     *            required {@link JbTreeData} object
+     * @param jbTreeTraversingService
+     *            required {@link JbTreeTraversingService} object
+     * @param jbTreeService
+     *            required {@link JbTreeService} object
+     * @param jbNodeService
+     *            required {@link JbNodeService} object
+     * @param jbTreeMerger
+     *            optional {@link JbTreeMerger} object, when it's
+     *            <code>null</code> empty nodes are not removed
+     * @param jbTreeRepacker
+     *            optional {@link JbTreeRepacker} object, when it's not
+     *            <code>null</code> it's stopped when tree is closed
+     */
+    JbTreeImpl(final NodeStore<K> jbNodeStore,
+            final JbTreeTool<K, V> jbTreeTool,
+            final JbTreeHelper<K, V> jbTreeHelper,
+            final JbTreeData<K, V> initTreeData,
+            final JbTreeTraversingService<K, V> jbTreeTraversingService,
+            final JbTreeService<K, V> jbTreeService,
+            final JbNodeService<K, V> jbNodeService,
+            final JbTreeMerger<K, V> jbTreeMerger,
+            final JbTreeRepacker<K, V> jbTreeRepacker) {
         this.nodeStore = Objects.requireNonNull(jbNodeStore);
         this.treeTool = Objects.requireNonNull(jbTreeTool);
         this.treeHelper = Objects.requireNonNull(jbTreeHelper);
@@ -110,6 +163,8 @@ public final class JbTreeImpl<K, V> implements JbTree<K, V> {
                 Objects.requireNonNull(jbTreeTraversingService);
         this.treeService = Objects.requireNonNull(jbTreeService);
         this.nodeService = Objects.requireNonNull(jbNodeService);
+        this.treeMerger = jbTreeMerger;
+        this.treeRepacker = jbTreeRepacker;
     }
 
     @Override
@@ -117,12 +172,10 @@ public final class JbTreeImpl<K, V> implements JbTree<K, V> {
         Objects.requireNonNull(key);
         Objects.requireNonNull(value);
         final JbStack stack = new JbStackArrayList();
-        final Integer currentNodeId =
-                treeTool.findLeafNodeId(key, stack, treeData.getRootNodeId());
-        Node<K, V> currentNode = nodeStore.getAndLock(currentNodeId);
-        currentNode = treeTraversingService.moveRightLeafNode(currentNode, key);
+        final Node<K, V> currentNode = findAndLockLeafNode(key, stack);
         final V oldValue = nodeService.getValueByKey(currentNode, key);
         if (oldValue == null) {
+            treeData.incrementValueCount();
             return treeHelper.insertToLeafNode(currentNode, key, value, stack);
         } else {
             /**
@@ -134,26 +187,161 @@ public final class JbTreeImpl<K, V> implements JbTree<K, V> {
     }
 
     @Override
-    public V remove(final Wrapper<K> key) {
+    public V insertIfAbsent(final Wrapper<K> key, final V value) {
         Objects.requireNonNull(key);
+        Objects.requireNonNull(value);
         final JbStack stack = new JbStackArrayList();
-        Integer currentNodeId =
+        final Node<K, V> currentNode = findAndLockLeafNode(key, stack);
+        final V oldValue = nodeService.getValueByKey(currentNode, key);
+        if (oldValue == null) {
+            treeData.incrementValueCount();
+            return treeHelper.insertToLeafNode(currentNode, key, value, stack);
+        } else {
+            nodeStore.unlockNode(currentNode.getId());
+            return oldValue;
+        }
+    }
+
+    @Override
+    public V replace(final Wrapper<K> key, final V expectedValue,
+            final V value) {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(value);
+        final Node<K, V> currentNode =
+                findAndLockLeafNode(key, new JbStackArrayList());
+        final V oldValue = nodeService.getValueByKey(currentNode, key);
+        if (oldValue == null
+                || (expectedValue != null && !expectedValue.equals(oldValue))) {
+            nodeStore.unlockNode(currentNode.getId());
+        } else {
+            treeService.storeValueIntoNode(currentNode, key, value);
+        }
+        return oldValue;
+    }
+
+    @Override
+    public void insertAll(final List<Map.Entry<Wrapper<K>, V>> entries) {
+        Objects.requireNonNull(entries);
+        int index = 0;
+        while (index < entries.size()) {
+            final JbStack stack = new JbStackArrayList();
+            final Node<K, V> currentNode = findAndLockLeafNode(
+                    Objects.requireNonNull(entries.get(index).getKey()), stack);
+            final int first = index;
+            boolean isLocked = true;
+            while (isLocked && index < entries.size()) {
+                final Wrapper<K> key =
+                        Objects.requireNonNull(entries.get(index).getKey());
+                final V value =
+                        Objects.requireNonNull(entries.get(index).getValue());
+                if (index > first && !isInLeafRange(currentNode, key)) {
+                    break;
+                }
+                if (nodeService.getValueByKey(currentNode, key) != null) {
+                    nodeService.insert(currentNode, key, value);
+                } else if (currentNode.getKeyCount() < treeData.getL()
+                        && (!currentNode.isEmpty() || Node.EMPTY_INT
+                                .equals(currentNode.getLink()))) {
+                    treeData.incrementValueCount();
+                    nodeService.insert(currentNode, key, value);
+                } else {
+                    /**
+                     * Node have to be split or parent node have to be
+                     * updated. Standard insert store and unlock node.
+                     */
+                    treeData.incrementValueCount();
+                    treeHelper.insertToLeafNode(currentNode, key, value, stack);
+                    isLocked = false;
+                }
+                index++;
+            }
+            if (isLocked) {
+                nodeStore.writeNode(currentNode);
+                nodeStore.unlockNode(currentNode.getId());
+            }
+        }
+    }
+
+    /**
+     * Decide if key could be stored into given leaf node without changing
+     * node's max key.
+     *
+     * @param node
+     *            required leaf node
+     * @param key
+     *            required key
+     * @return return <code>true</code> when key belongs to given node
+     *         otherwise return <code>false</code>
+     */
+    private boolean isInLeafRange(final Node<K, V> node, final Wrapper<K> key) {
+        if (Node.EMPTY_INT.equals(node.getLink())) {
+            return true;
+        }
+        return !node.isEmpty()
+                && node.compareKey(node.getMaxKeyIndex(), key) >= 0;
+    }
+
+    /**
+     * Find leaf node where given key belongs and lock it.
+     *
+     * @param key
+     *            required key
+     * @param stack
+     *            required stack, it's filled with visited non-leaf nodes
+     * @return locked leaf node
+     */
+    private Node<K, V> findAndLockLeafNode(final Wrapper<K> key,
+            final JbStack stack) {
+        final Integer currentNodeId =
                 treeTool.findLeafNodeId(key, stack, treeData.getRootNodeId());
-        Node<K, V> currentNode = nodeStore.getAndLock(currentNodeId);
-        currentNode = treeTraversingService.moveRightLeafNode(currentNode, key);
-        if (nodeService.getValueByKey(currentNode, key) == null) {
+        final Node<K, V> currentNode = nodeStore.getAndLock(currentNodeId);
+        return treeHelper.moveRightEmptyLeafNode(
+                treeTraversingService.moveRightLeafNode(currentNode, key), key,
+                stack);
+    }
+
+    @Override
+    public V remove(final Wrapper<K> key) {
+        return remove(key, null);
+    }
+
+    @Override
+    public V remove(final Wrapper<K> key, final V expectedValue) {
+        Objects.requireNonNull(key);
+        final JbStack stack = new JbStackArrayList();
+        final Node<K, V> currentNode = findAndLockLeafNode(key, stack);
+        final V currentValue = nodeService.getValueByKey(currentNode, key);
+        if (currentValue == null) {
             /**
              * Node doesn't contains key, there is nothing to delete
              */
             nodeStore.unlockNode(currentNode.getId());
             return null;
+        } else if (expectedValue != null
+                && !expectedValue.equals(currentValue)) {
+            /**
+             * Key is associated with different value.
+             */
+            nodeStore.unlockNode(currentNode.getId());
+            return currentValue;
         } else {
             /**
              * Leaf node contains key so remove it.
              */
+            final boolean isMaxKey = currentNode
+                    .compareKey(currentNode.getMaxKeyIndex(), key) == 0;
             final V oldValue = nodeService.remove(currentNode, key);
             nodeStore.writeNode(currentNode);
-            nodeStore.unlockNode(currentNode.getId());
+            treeData.decrementValueCount();
+            if (isMaxKey && !currentNode.isEmpty()) {
+                treeHelper.updateMaxKey(currentNode, stack);
+            } else {
+                nodeStore.unlockNode(currentNode.getId());
+                if (treeMerger != null && currentNode.isEmpty()
+                        && !Node.EMPTY_INT.equals(currentNode.getLink())) {
+                    treeMerger.removeEmptyNode(currentNode.getId(), key);
+                }
+            }
             return oldValue;
         }
     }
@@ -221,7 +409,7 @@ public final class JbTreeImpl<K, V> implements JbTree<K, V> {
             if (nodeId == null) {
                 throw new JblinktreeException("some node id was null");
             } else {
-                final Node<K, V> node = nodeStore.get(nodeId);
+                final Node<K, V> node = nodeStore.getForScan(nodeId);
                 if (node.isLeafNode()) {
                     if (!treeVisitor.visitedLeaf(node)) {
                         return;
@@ -267,7 +455,7 @@ public final class JbTreeImpl<K, V> implements JbTree<K, V> {
             if (leafNode.getLink() < 0) {
                 return;
             } else {
-                leafNode = nodeStore.get(leafNode.getLink());
+                leafNode = nodeStore.getForScan(leafNode.getLink());
             }
         }
     }
@@ -279,6 +467,12 @@ public final class JbTreeImpl<K, V> implements JbTree<K, V> {
 
     @Override
     public void close() {
+        if (treeRepacker != null) {
+            /**
+             * Background thread have to stop before nodes are closed.
+             */
+            treeRepacker.close();
+        }
         nodeStore.close();
     }
 
@@ -287,4 +481,22 @@ public final class JbTreeImpl<K, V> implements JbTree<K, V> {
         treeHelper.visit(dataVisitor);
     }
 
+    @Override
+    public Iterator<Map.Entry<K, V>> iterator(final Wrapper<K> fromKey,
+            final boolean inclusive) {
+        return treeHelper.iterator(fromKey, inclusive);
+    }
+
+    @Override
+    public Map.Entry<K, V> floorEntry(final Wrapper<K> key,
+            final boolean inclusive) {
+        return treeHelper.floorEntry(key, inclusive);
+    }
+
+    @Override
+    public void scan(final Wrapper<K> fromKey, final Wrapper<K> toKey,
+            final JbDataVisitor<K, V> dataVisitor) {
+        treeHelper.scan(fromKey, toKey, dataVisitor);
+    }
+
 }
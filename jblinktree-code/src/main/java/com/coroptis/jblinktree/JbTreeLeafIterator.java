@@ -0,0 +1,154 @@
+package com.coroptis.jblinktree;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+import com.coroptis.jblinktree.type.TypeDescriptor;
+import com.coroptis.jblinktree.type.Wrapper;
+
+/**
+ * Lazy iterator over key value pairs stored in leaf nodes. Iterator loads leaf
+ * nodes one by one when they are needed. It follows leaf node links so it
+ * never goes back to root node.
+ * <p>
+ * Iterator is weakly consistent. It never returns same key twice and returned
+ * keys are always in ascending order, but changes made after iterator was
+ * created doesn't have to be visible.
+ * </p>
+ *
+ * @author jajir
+ *
+ * @param <K>
+ *            key type
+ * @param <V>
+ *            value type
+ */
+final class JbTreeLeafIterator<K, V> implements Iterator<Map.Entry<K, V>> {
+
+    /**
+     * Node store.
+     */
+    private final NodeStore<K> nodeStore;
+
+    /**
+     * Key type descriptor.
+     */
+    private final TypeDescriptor<K> keyTypeDescriptor;
+
+    /**
+     * Currently iterated leaf node. It's <code>null</code> when there are no
+     * more leaf nodes.
+     */
+    private Node<K, V> currentNode;
+
+    /**
+     * Position of next key in current node.
+     */
+    private int position;
+
+    /**
+     * Entry which will be returned by next call of {@link #next()}.
+     */
+    private Map.Entry<K, V> nextEntry;
+
+    /**
+     * Create iterator.
+     *
+     * @param initNodeStore
+     *            required node store
+     * @param initKeyTypeDescriptor
+     *            required key type descriptor
+     * @param firstNode
+     *            required leaf node where iterating starts
+     * @param fromKey
+     *            optional lower key bound, when it's <code>null</code> all
+     *            keys from first node are returned
+     * @param inclusive
+     *            when it's <code>true</code> than key equal to lower bound is
+     *            returned
+     */
+    JbTreeLeafIterator(final NodeStore<K> initNodeStore,
+            final TypeDescriptor<K> initKeyTypeDescriptor,
+            final Node<K, V> firstNode, final Wrapper<K> fromKey,
+            final boolean inclusive) {
+        this.nodeStore = Objects.requireNonNull(initNodeStore);
+        this.keyTypeDescriptor = Objects.requireNonNull(initKeyTypeDescriptor);
+        this.currentNode = Objects.requireNonNull(firstNode);
+        this.position = 0;
+        this.nextEntry = findNext(fromKey, inclusive);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return nextEntry != null;
+    }
+
+    @Override
+    public Map.Entry<K, V> next() {
+        if (nextEntry == null) {
+            throw new NoSuchElementException();
+        }
+        final Map.Entry<K, V> out = nextEntry;
+        nextEntry = findNext(Wrapper.make(out.getKey(), keyTypeDescriptor),
+                false);
+        return out;
+    }
+
+    /**
+     * Find next key value pair which is bigger than given bound.
+     *
+     * @param bound
+     *            optional lower key bound
+     * @param inclusive
+     *            when it's <code>true</code> than key equal to bound could be
+     *            returned
+     * @return found entry or <code>null</code> when there is no more keys
+     */
+    private Map.Entry<K, V> findNext(final Wrapper<K> bound,
+            final boolean inclusive) {
+        while (currentNode != null) {
+            while (position < currentNode.getKeyCount()) {
+                final int i = position++;
+                if (bound != null) {
+                    final int cmp = currentNode.compareKey(i, bound);
+                    if (cmp < 0 || (cmp == 0 && !inclusive)) {
+                        continue;
+                    }
+                }
+                return new AbstractMap.SimpleImmutableEntry<K, V>(
+                        currentNode.getKey(i), currentNode.getValue(i));
+            }
+            if (Node.EMPTY_INT.equals(currentNode.getLink())) {
+                currentNode = null;
+            } else {
+                currentNode = nodeStore.getForScan(currentNode.getLink());
+                position = 0;
+            }
+        }
+        return null;
+    }
+
+}
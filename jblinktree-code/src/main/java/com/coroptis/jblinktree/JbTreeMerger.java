@@ -0,0 +1,468 @@
+package com.coroptis.jblinktree;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Objects;
+
+import com.coroptis.jblinktree.type.TypeDescriptor;
+import com.coroptis.jblinktree.type.Wrapper;
+
+/**
+ * Removes empty nodes from tree. Removal follows Lanin and Shasha. Left
+ * neighbour, empty node and parent node are locked in this order, it's the
+ * same order in which all writers lock nodes, from left to right and from
+ * bottom to top. Pointer to empty node is removed from parent node, link of
+ * left neighbour skips empty node and id of empty node is freed.
+ * <p>
+ * Removed node stays unchanged in store, so operation which read its id
+ * before removal moves through its link to the right. Node id is reused when
+ * no such operation could exist, see {@link JbTreeData#freeNodeId(Integer)}.
+ * Parent node which become empty is removed in the same way. Leftmost and
+ * rightmost nodes are never removed.
+ * </p>
+ * <p>
+ * When last pointer of parent node is removed, keys of removed node belong to
+ * next node. Key of parent node in its own parent node is lowered to new max
+ * key of parent node, so key ranges of subtrees don't overlap and keys in
+ * non-leaf nodes stay sorted.
+ * </p>
+ * <p>
+ * Sparse leaf node could be merged with next leaf node in the same way, its
+ * keys are moved to next node before pointer to it is removed.
+ * </p>
+ *
+ * @author jajir
+ *
+ * @param <K>
+ *            key type
+ * @param <V>
+ *            value type
+ */
+final class JbTreeMerger<K, V> {
+
+    /**
+     * Node store.
+     */
+    private final NodeStore<K> nodeStore;
+
+    /**
+     * Tree tool.
+     */
+    private final JbTreeTool<K, V> treeTool;
+
+    /**
+     * Tree data definition.
+     */
+    private final JbTreeData<K, V> treeData;
+
+    /**
+     * Simple constructor.
+     *
+     * @param initNodeStore
+     *            required node store
+     * @param initTreeTool
+     *            required tree tool
+     * @param initTreeData
+     *            required tree data definition
+     */
+    JbTreeMerger(final NodeStore<K> initNodeStore,
+            final JbTreeTool<K, V> initTreeTool,
+            final JbTreeData<K, V> initTreeData) {
+        this.nodeStore = Objects.requireNonNull(initNodeStore);
+        this.treeTool = Objects.requireNonNull(initTreeTool);
+        this.treeData = Objects.requireNonNull(initTreeData);
+    }
+
+    /**
+     * Remove empty node from tree. When node is not empty anymore or when it
+     * can't be safely removed nothing happens.
+     *
+     * @param nodeId
+     *            required id of empty node
+     * @param key
+     *            required key which belongs to empty node, usually it's last
+     *            removed key
+     */
+    void removeEmptyNode(final Integer nodeId, final Wrapper<K> key) {
+        Objects.requireNonNull(key);
+        Integer removedNodeId = Objects.requireNonNull(nodeId);
+        while (removedNodeId != null) {
+            removedNodeId = removeNode(removedNodeId, key);
+        }
+    }
+
+    /**
+     * Remove one empty node from tree.
+     *
+     * @param nodeId
+     *            required id of empty node
+     * @param key
+     *            required key which belongs to empty node
+     * @return id of parent node when it become empty otherwise
+     *         <code>null</code>
+     */
+    private Integer removeNode(final Integer nodeId, final Wrapper<K> key) {
+        final Integer[] neighbours = findNeighbours(nodeId, key);
+        if (neighbours == null || neighbours[0] == null) {
+            return null;
+        }
+        final Node<K, ?> leftNode = lockLeftNode(neighbours[0], nodeId);
+        if (leftNode == null) {
+            return null;
+        }
+        final Node<K, ?> node = nodeStore.getAndLock(nodeId);
+        if (!node.isEmpty() || Node.EMPTY_INT.equals(node.getLink())
+                || treeData.isFreeNodeId(nodeId)) {
+            /**
+             * Node was changed in meantime.
+             */
+            nodeStore.unlockNode(nodeId);
+            nodeStore.unlockNode(leftNode.getId());
+            return null;
+        }
+        final Node<K, Integer> parentNode =
+                lockParentNode(neighbours[1], nodeId);
+        if (parentNode == null) {
+            nodeStore.unlockNode(nodeId);
+            nodeStore.unlockNode(leftNode.getId());
+            return null;
+        }
+        final int position = findPosition(parentNode, nodeId);
+        if (position == parentNode.getMaxKeyIndex()
+                && Node.EMPTY_INT.equals(parentNode.getLink())) {
+            /**
+             * Last pointer of rightmost node have to cover all bigger keys.
+             */
+            nodeStore.unlockNode(parentNode.getId());
+            nodeStore.unlockNode(nodeId);
+            nodeStore.unlockNode(leftNode.getId());
+            return null;
+        }
+        parentNode.removeAtPosition(position);
+        nodeStore.writeNode(parentNode);
+        leftNode.setLink(node.getLink());
+        nodeStore.writeNode(leftNode);
+        treeData.freeNodeId(nodeId);
+        nodeStore.unlockNode(nodeId);
+        nodeStore.unlockNode(leftNode.getId());
+        if (position == parentNode.getKeyCount() && !parentNode.isEmpty()) {
+            updateParentKeys(parentNode, key);
+        } else {
+            nodeStore.unlockNode(parentNode.getId());
+        }
+        if (parentNode.isEmpty()) {
+            return parentNode.getId();
+        }
+        return null;
+    }
+
+    /**
+     * Lower key of given node in its parent node to max key of given node.
+     * When it's last pointer of parent node which isn't rightmost node than
+     * key of parent node is lowered in the same way. Nodes are locked from
+     * bottom to top and each node is unlocked after its parent node is
+     * written.
+     *
+     * @param lockedNode
+     *            required locked non-leaf node which max key was lowered, it's
+     *            unlocked by this method
+     * @param key
+     *            required key which belongs to given node
+     */
+    private void updateParentKeys(final Node<K, Integer> lockedNode,
+            final Wrapper<K> key) {
+        Node<K, Integer> node = lockedNode;
+        while (true) {
+            final Integer[] neighbours = findNeighbours(node.getId(), key);
+            Node<K, Integer> parentNode = null;
+            if (neighbours != null) {
+                parentNode = lockParentNode(neighbours[1], node.getId());
+            }
+            if (parentNode == null) {
+                /**
+                 * Node was created by split and pointer to it is not in
+                 * parent node yet.
+                 */
+                Thread.yield();
+                continue;
+            }
+            final int position = findPosition(parentNode, node.getId());
+            final Wrapper<K> maxKey = node.getMaxKey();
+            if (parentNode.compareKey(position, maxKey) <= 0) {
+                nodeStore.unlockNode(node.getId());
+                nodeStore.unlockNode(parentNode.getId());
+                return;
+            }
+            parentNode.setKey(position, maxKey);
+            nodeStore.writeNode(parentNode);
+            nodeStore.unlockNode(node.getId());
+            if (position < parentNode.getMaxKeyIndex()
+                    || Node.EMPTY_INT.equals(parentNode.getLink())) {
+                nodeStore.unlockNode(parentNode.getId());
+                return;
+            }
+            node = parentNode;
+        }
+    }
+
+    /**
+     * Move all keys of given leaf node to next leaf node and remove given node
+     * from tree. Nodes are merged just when they have same parent node, so
+     * moved keys stay in key range of parent node. Left neighbour, given
+     * node, next node and parent node are locked in this order. Next node is
+     * written before pointer to given node is removed from parent node, so
+     * unlocked reader always finds moved keys.
+     *
+     * @param nodeId
+     *            required leaf node id
+     * @param capacity
+     *            required maximal number of keys in merged node
+     * @return <code>true</code> when nodes were merged
+     */
+    boolean mergeWithNextNode(final Integer nodeId, final int capacity) {
+        Objects.requireNonNull(nodeId);
+        final Node<K, V> readNode = nodeStore.get(nodeId);
+        if (readNode.isEmpty()) {
+            return false;
+        }
+        final Integer[] neighbours =
+                findNeighbours(nodeId, readNode.getMaxKey());
+        if (neighbours == null || neighbours[0] == null) {
+            return false;
+        }
+        final Node<K, ?> leftNode = lockLeftNode(neighbours[0], nodeId);
+        if (leftNode == null) {
+            return false;
+        }
+        final Node<K, V> node = nodeStore.getAndLock(nodeId);
+        if (node.isEmpty() || Node.EMPTY_INT.equals(node.getLink())
+                || treeData.isFreeNodeId(nodeId)) {
+            nodeStore.unlockNode(nodeId);
+            nodeStore.unlockNode(leftNode.getId());
+            return false;
+        }
+        final Node<K, V> nextNode = nodeStore.getAndLock(node.getLink());
+        if (node.getKeyCount() + nextNode.getKeyCount() > capacity) {
+            nodeStore.unlockNode(nextNode.getId());
+            nodeStore.unlockNode(nodeId);
+            nodeStore.unlockNode(leftNode.getId());
+            return false;
+        }
+        final Node<K, Integer> parentNode =
+                lockParentNode(neighbours[1], nodeId);
+        if (parentNode == null) {
+            nodeStore.unlockNode(nextNode.getId());
+            nodeStore.unlockNode(nodeId);
+            nodeStore.unlockNode(leftNode.getId());
+            return false;
+        }
+        final int position = findPosition(parentNode, nodeId);
+        if (position + 1 >= parentNode.getKeyCount() || !nextNode.getId()
+                .equals(parentNode.getValue(position + 1))) {
+            /**
+             * Next node belongs to another parent node.
+             */
+            nodeStore.unlockNode(parentNode.getId());
+            nodeStore.unlockNode(nextNode.getId());
+            nodeStore.unlockNode(nodeId);
+            nodeStore.unlockNode(leftNode.getId());
+            return false;
+        }
+        final TypeDescriptor<K> keyTd =
+                treeData.getLeafNodeDescriptor().getKeyTypeDescriptor();
+        for (int i = 0; i < node.getKeyCount(); i++) {
+            nextNode.insertAtPosition(Wrapper.make(node.getKey(i), keyTd),
+                    node.getValue(i), i);
+        }
+        nodeStore.writeNode(nextNode);
+        parentNode.removeAtPosition(position);
+        nodeStore.writeNode(parentNode);
+        leftNode.setLink(nextNode.getId());
+        nodeStore.writeNode(leftNode);
+        /**
+         * Removed node is emptied, so operation which read its id before
+         * moves through its link to next node.
+         */
+        while (!node.isEmpty()) {
+            node.removeAtPosition(node.getMaxKeyIndex());
+        }
+        treeData.freeNodeId(nodeId);
+        nodeStore.writeNode(node);
+        nodeStore.unlockNode(parentNode.getId());
+        nodeStore.unlockNode(nextNode.getId());
+        nodeStore.unlockNode(nodeId);
+        nodeStore.unlockNode(leftNode.getId());
+        return true;
+    }
+
+    /**
+     * Find left neighbour and parent of given node. Tree is traversed from
+     * root without locking, so found nodes have to be verified when they are
+     * locked.
+     *
+     * @param nodeId
+     *            required node id
+     * @param key
+     *            required key which belongs to node
+     * @return array with left neighbour id and parent node id or
+     *         <code>null</code> when parent node was not found, left
+     *         neighbour id is <code>null</code> when it's not known
+     */
+    private Integer[] findNeighbours(final Integer nodeId,
+            final Wrapper<K> key) {
+        Node<K, Integer> node = nodeStore.get(treeData.getRootNodeId());
+        /**
+         * Node on the left side of current node at the same tree level.
+         */
+        Integer leftNodeId = null;
+        while (!node.isLeafNode()) {
+            final int position = findPosition(node, nodeId);
+            if (position >= 0) {
+                final Integer leftChildId;
+                if (position > 0) {
+                    leftChildId = node.getValue(position - 1);
+                } else {
+                    leftChildId = findLastChild(leftNodeId);
+                }
+                return new Integer[] { leftChildId, node.getId() };
+            }
+            int i = 0;
+            while (i < node.getKeyCount() && node.compareKey(i, key) < 0) {
+                i++;
+            }
+            if (i == node.getKeyCount()
+                    && Node.EMPTY_INT.equals(node.getLink())) {
+                /**
+                 * Last pointer of rightmost node covers all bigger keys.
+                 */
+                i = node.getMaxKeyIndex();
+            }
+            if (i < 0) {
+                return null;
+            } else if (i == node.getKeyCount()) {
+                leftNodeId = node.getId();
+                node = nodeStore.get(node.getLink());
+            } else {
+                if (i > 0) {
+                    leftNodeId = node.getValue(i - 1);
+                } else {
+                    leftNodeId = findLastChild(leftNodeId);
+                }
+                node = nodeStore.get(node.getValue(i));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Find last child of given non-leaf node.
+     *
+     * @param nodeId
+     *            optional node id
+     * @return id of last child or <code>null</code> when it's not known
+     */
+    private Integer findLastChild(final Integer nodeId) {
+        if (nodeId == null) {
+            return null;
+        }
+        final Node<K, Integer> node = nodeStore.get(nodeId);
+        if (node.isEmpty()) {
+            return null;
+        }
+        return node.getValue(node.getMaxKeyIndex());
+    }
+
+    /**
+     * Lock node which link points to given node. Locking starts at given
+     * node and moves to the right.
+     *
+     * @param leftNodeId
+     *            required id of node where searching starts
+     * @param nodeId
+     *            required id of node which left neighbour is locked
+     * @return locked left neighbour or <code>null</code> when it wasn't
+     *         found
+     */
+    private Node<K, ?> lockLeftNode(final Integer leftNodeId,
+            final Integer nodeId) {
+        Node<K, ?> node = nodeStore.getAndLock(leftNodeId);
+        while (!nodeId.equals(node.getLink())) {
+            if (Node.EMPTY_INT.equals(node.getLink())
+                    || nodeId.equals(node.getId())) {
+                nodeStore.unlockNode(node.getId());
+                return null;
+            }
+            node = treeTool.moveToNextNode(node, node.getLink());
+        }
+        if (treeData.isFreeNodeId(node.getId())) {
+            /**
+             * Removed node could still point to given node.
+             */
+            nodeStore.unlockNode(node.getId());
+            return null;
+        }
+        return node;
+    }
+
+    /**
+     * Lock non-leaf node containing pointer to given node. Locking starts at
+     * given node and moves to the right.
+     *
+     * @param parentNodeId
+     *            required id of node where searching starts
+     * @param nodeId
+     *            required child node id
+     * @return locked parent node or <code>null</code> when it wasn't found
+     */
+    private Node<K, Integer> lockParentNode(final Integer parentNodeId,
+            final Integer nodeId) {
+        Node<K, Integer> node = nodeStore.getAndLock(parentNodeId);
+        while (findPosition(node, nodeId) < 0) {
+            if (Node.EMPTY_INT.equals(node.getLink())) {
+                nodeStore.unlockNode(node.getId());
+                return null;
+            }
+            node = treeTool.moveToNextNode(node, node.getLink());
+        }
+        return node;
+    }
+
+    /**
+     * Find position of pointer to given node.
+     *
+     * @param node
+     *            required non-leaf node
+     * @param nodeId
+     *            required child node id
+     * @return position of pointer or <code>-1</code> when node doesn't
+     *         contain it
+     */
+    private int findPosition(final Node<K, Integer> node,
+            final Integer nodeId) {
+        for (int i = 0; i < node.getKeyCount(); i++) {
+            if (nodeId.equals(node.getValue(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+}
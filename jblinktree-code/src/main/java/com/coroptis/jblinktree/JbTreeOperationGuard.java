@@ -0,0 +1,337 @@
+package com.coroptis.jblinktree;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import com.coroptis.jblinktree.type.Wrapper;
+
+/**
+ * Wrap {@link JbTree} and register each tree operation in
+ * {@link JbTreeData}. It's required when empty nodes are removed from tree,
+ * id of removed node is not reused while some operation could read it.
+ * <p>
+ * Returned iterators register each call separately. Iterator holds leaf node
+ * between calls, so when epoch was changed it's link could point to reused
+ * node. In such case iterator is opened again after last returned key.
+ * </p>
+ *
+ * @author jajir
+ *
+ * @param <K>
+ *            key type
+ * @param <V>
+ *            value type
+ */
+final class JbTreeOperationGuard<K, V> implements JbTree<K, V> {
+
+    /**
+     * Wrapped tree.
+     */
+    private final JbTree<K, V> tree;
+
+    /**
+     * Tree data definition.
+     */
+    private final JbTreeData<K, V> treeData;
+
+    /**
+     * Simple constructor.
+     *
+     * @param jbTree
+     *            required wrapped tree
+     * @param jbTreeData
+     *            required tree data definition
+     */
+    JbTreeOperationGuard(final JbTree<K, V> jbTree,
+            final JbTreeData<K, V> jbTreeData) {
+        this.tree = Objects.requireNonNull(jbTree);
+        this.treeData = Objects.requireNonNull(jbTreeData);
+    }
+
+    @Override
+    public V insert(final Wrapper<K> key, final V value) {
+        final long epoch = treeData.enterOperation();
+        try {
+            return tree.insert(key, value);
+        } finally {
+            treeData.exitOperation(epoch);
+        }
+    }
+
+    @Override
+    public V remove(final Wrapper<K> key) {
+        final long epoch = treeData.enterOperation();
+        try {
+            return tree.remove(key);
+        } finally {
+            treeData.exitOperation(epoch);
+        }
+    }
+
+    @Override
+    public V search(final Wrapper<K> key) {
+        final long epoch = treeData.enterOperation();
+        try {
+            return tree.search(key);
+        } finally {
+            treeData.exitOperation(epoch);
+        }
+    }
+
+    @Override
+    public int countValues() {
+        final long epoch = treeData.enterOperation();
+        try {
+            return tree.countValues();
+        } finally {
+            treeData.exitOperation(epoch);
+        }
+    }
+
+    @Override
+    public boolean containsKey(final Wrapper<K> key) {
+        final long epoch = treeData.enterOperation();
+        try {
+            return tree.containsKey(key);
+        } finally {
+            treeData.exitOperation(epoch);
+        }
+    }
+
+    @Override
+    public int countLockedNodes() {
+        return tree.countLockedNodes();
+    }
+
+    @Override
+    public void visit(final JbTreeVisitor<K, V> treeVisitor) {
+        final long epoch = treeData.enterOperation();
+        try {
+            tree.visit(treeVisitor);
+        } finally {
+            treeData.exitOperation(epoch);
+        }
+    }
+
+    @Override
+    public void visitLeafNodes(final JbTreeVisitor<K, V> treeVisitor) {
+        final long epoch = treeData.enterOperation();
+        try {
+            tree.visitLeafNodes(treeVisitor);
+        } finally {
+            treeData.exitOperation(epoch);
+        }
+    }
+
+    @Override
+    public void close() {
+        tree.close();
+    }
+
+    @Override
+    public void visit(final JbDataVisitor<K, V> dataVisitor) {
+        final long epoch = treeData.enterOperation();
+        try {
+            tree.visit(dataVisitor);
+        } finally {
+            treeData.exitOperation(epoch);
+        }
+    }
+
+    @Override
+    public void scan(final Wrapper<K> fromKey, final Wrapper<K> toKey,
+            final JbDataVisitor<K, V> dataVisitor) {
+        final long epoch = treeData.enterOperation();
+        try {
+            tree.scan(fromKey, toKey, dataVisitor);
+        } finally {
+            treeData.exitOperation(epoch);
+        }
+    }
+
+    @Override
+    public Iterator<Map.Entry<K, V>> iterator(final Wrapper<K> fromKey,
+            final boolean inclusive) {
+        return new GuardedIterator(fromKey, inclusive);
+    }
+
+    @Override
+    public Map.Entry<K, V> floorEntry(final Wrapper<K> key,
+            final boolean inclusive) {
+        final long epoch = treeData.enterOperation();
+        try {
+            return tree.floorEntry(key, inclusive);
+        } finally {
+            treeData.exitOperation(epoch);
+        }
+    }
+
+    @Override
+    public V insertIfAbsent(final Wrapper<K> key, final V value) {
+        final long epoch = treeData.enterOperation();
+        try {
+            return tree.insertIfAbsent(key, value);
+        } finally {
+            treeData.exitOperation(epoch);
+        }
+    }
+
+    @Override
+    public V replace(final Wrapper<K> key, final V expectedValue,
+            final V value) {
+        final long epoch = treeData.enterOperation();
+        try {
+            return tree.replace(key, expectedValue, value);
+        } finally {
+            treeData.exitOperation(epoch);
+        }
+    }
+
+    @Override
+    public V remove(final Wrapper<K> key, final V expectedValue) {
+        final long epoch = treeData.enterOperation();
+        try {
+            return tree.remove(key, expectedValue);
+        } finally {
+            treeData.exitOperation(epoch);
+        }
+    }
+
+    @Override
+    public void insertAll(final List<Map.Entry<Wrapper<K>, V>> entries) {
+        final long epoch = treeData.enterOperation();
+        try {
+            tree.insertAll(entries);
+        } finally {
+            treeData.exitOperation(epoch);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return tree.toString();
+    }
+
+    /**
+     * Iterator registering each call as tree operation.
+     */
+    private final class GuardedIterator
+            implements Iterator<Map.Entry<K, V>> {
+
+        /**
+         * Lower bound of first iterator.
+         */
+        private final Wrapper<K> fromKey;
+
+        /**
+         * Is lower bound of first iterator inclusive.
+         */
+        private final boolean inclusive;
+
+        /**
+         * Current wrapped iterator.
+         */
+        private Iterator<Map.Entry<K, V>> iterator;
+
+        /**
+         * Epoch in which was wrapped iterator used last time.
+         */
+        private long iteratorEpoch;
+
+        /**
+         * Last returned entry or <code>null</code>.
+         */
+        private Map.Entry<K, V> lastEntry;
+
+        /**
+         * Open iterator.
+         *
+         * @param initFromKey
+         *            optional lower key bound
+         * @param isInclusive
+         *            when it's <code>true</code> than key equal to lower
+         *            bound is returned
+         */
+        GuardedIterator(final Wrapper<K> initFromKey,
+                final boolean isInclusive) {
+            this.fromKey = initFromKey;
+            this.inclusive = isInclusive;
+            final long epoch = treeData.enterOperation();
+            try {
+                iterator = tree.iterator(fromKey, inclusive);
+                iteratorEpoch = epoch;
+            } finally {
+                treeData.exitOperation(epoch);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            final long epoch = treeData.enterOperation();
+            try {
+                return getIterator(epoch).hasNext();
+            } finally {
+                treeData.exitOperation(epoch);
+            }
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            final long epoch = treeData.enterOperation();
+            try {
+                lastEntry = getIterator(epoch).next();
+                return lastEntry;
+            } finally {
+                treeData.exitOperation(epoch);
+            }
+        }
+
+        /**
+         * Get wrapped iterator which could be used in operation with given
+         * epoch.
+         *
+         * @param epoch
+         *            required epoch of current operation
+         * @return wrapped iterator
+         */
+        private Iterator<Map.Entry<K, V>> getIterator(final long epoch) {
+            if (epoch != iteratorEpoch) {
+                if (lastEntry == null) {
+                    iterator = tree.iterator(fromKey, inclusive);
+                } else {
+                    iterator = tree.iterator(
+                            Wrapper.make(lastEntry.getKey(),
+                                    treeData.getLeafNodeDescriptor()
+                                            .getKeyTypeDescriptor()),
+                            false);
+                }
+                iteratorEpoch = epoch;
+            }
+            return iterator;
+        }
+
+    }
+
+}
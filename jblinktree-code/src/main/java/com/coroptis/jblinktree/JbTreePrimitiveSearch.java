@@ -0,0 +1,307 @@
+package com.coroptis.jblinktree;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Objects;
+
+import com.coroptis.jblinktree.type.TypeDescriptor;
+import com.coroptis.jblinktree.type.TypeDescriptorPrimitive;
+import com.coroptis.jblinktree.util.JblinktreeException;
+
+/**
+ * Search tree by key represented by primitive number. Keys are compared
+ * directly with node byte arrays, so no key wrapper, key byte array or boxed
+ * key is created. Search is not allocation free, node ids are passed to node
+ * store as {@link Integer} and node store could create node objects. Search
+ * is not locking and reads published nodes in the same way as
+ * {@link JbTree#search(com.coroptis.jblinktree.type.Wrapper)}.
+ *
+ * @author jajir
+ *
+ * @param <K>
+ *            key type
+ * @param <V>
+ *            value type
+ */
+final class JbTreePrimitiveSearch<K, V> {
+
+    /**
+     * Node store.
+     */
+    private final NodeStore<K> nodeStore;
+
+    /**
+     * Tree data definition.
+     */
+    private final JbTreeData<K, V> treeData;
+
+    /**
+     * Key type descriptor.
+     */
+    private final TypeDescriptorPrimitive<K> keyTypeDescriptor;
+
+    /**
+     * Leaf node value type descriptor.
+     */
+    private final TypeDescriptorPrimitive<V> valueTypeDescriptor;
+
+    /**
+     * When it's <code>true</code> than search is registered as tree
+     * operation, because ids of removed nodes are reused.
+     */
+    private final boolean isRegisteringOperations;
+
+    /**
+     * Simple constructor.
+     *
+     * @param initNodeStore
+     *            required node store
+     * @param initTreeData
+     *            required tree data definition, key and value type have to be
+     *            primitive
+     */
+    JbTreePrimitiveSearch(final NodeStore<K> initNodeStore,
+            final JbTreeData<K, V> initTreeData) {
+        this(initNodeStore, initTreeData, false);
+    }
+
+    /**
+     * Constructor allowing to register searches as tree operations.
+     *
+     * @param initNodeStore
+     *            required node store
+     * @param initTreeData
+     *            required tree data definition, key and value type have to be
+     *            primitive
+     * @param isRemovingEmptyNodes
+     *            when it's <code>true</code> than tree removes empty nodes
+     *            and each search have to be registered
+     */
+    JbTreePrimitiveSearch(final NodeStore<K> initNodeStore,
+            final JbTreeData<K, V> initTreeData,
+            final boolean isRemovingEmptyNodes) {
+        this.isRegisteringOperations = isRemovingEmptyNodes;
+        this.nodeStore = Objects.requireNonNull(initNodeStore);
+        this.treeData = Objects.requireNonNull(initTreeData);
+        this.keyTypeDescriptor = toPrimitive(
+                treeData.getLeafNodeDescriptor().getKeyTypeDescriptor());
+        this.valueTypeDescriptor = toPrimitive(
+                treeData.getLeafNodeDescriptor().getValueTypeDescriptor());
+    }
+
+    /**
+     * Verify that given type descriptor is primitive.
+     *
+     * @param typeDescriptor
+     *            required type descriptor
+     * @param <T>
+     *            described type
+     * @return primitive type descriptor
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> TypeDescriptorPrimitive<T> toPrimitive(
+            final TypeDescriptor<T> typeDescriptor) {
+        if (!(typeDescriptor instanceof TypeDescriptorPrimitive)) {
+            throw new JblinktreeException("Type descriptor '" + typeDescriptor
+                    + "' doesn't describe primitive type.");
+        }
+        return (TypeDescriptorPrimitive<T>) typeDescriptor;
+    }
+
+    /**
+     * Find leaf node where given key belongs.
+     *
+     * @param key
+     *            key
+     * @return leaf node
+     */
+    Node<K, V> findLeafNode(final long key) {
+        if (!isRegisteringOperations) {
+            return searchLeafNode(key);
+        }
+        final long epoch = treeData.enterOperation();
+        try {
+            return searchLeafNode(key);
+        } finally {
+            treeData.exitOperation(epoch);
+        }
+    }
+
+    /**
+     * Traverse tree from root to leaf node where given key belongs.
+     *
+     * @param key
+     *            key
+     * @return leaf node
+     */
+    @SuppressWarnings("unchecked")
+    private Node<K, V> searchLeafNode(final long key) {
+        Node<K, ?> node = nodeStore.get(treeData.getRootNodeId());
+        while (!node.isLeafNode()) {
+            node = nodeStore.get(findChildNodeId(node, key));
+        }
+        Node<K, V> leaf = (Node<K, V>) node;
+        while (canMoveToNextNode(leaf, key)) {
+            leaf = nodeStore.get(leaf.getLink());
+        }
+        return leaf;
+    }
+
+    /**
+     * Find position of given key in leaf node.
+     *
+     * @param node
+     *            required leaf node
+     * @param key
+     *            key
+     * @return key position or <code>-1</code> when there is no such key
+     */
+    int findKeyIndex(final Node<K, V> node, final long key) {
+        int start = 0;
+        int end = node.getKeyCount() - 1;
+        while (start <= end) {
+            final int half = start + (end - start) / 2;
+            final int cmp = compareKey(node, half, key);
+            if (cmp < 0) {
+                start = half + 1;
+            } else if (cmp > 0) {
+                end = half - 1;
+            } else {
+                return half;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Load value at given position of leaf node.
+     *
+     * @param node
+     *            required leaf node
+     * @param position
+     *            required key value pair position
+     * @return loaded value
+     */
+    long loadValue(final Node<K, V> node, final int position) {
+        return valueTypeDescriptor.loadPrimitive(node.getFieldBytes(),
+                node.getNodeDef().getValuePosition(position));
+    }
+
+    /**
+     * Find id of child node which could contains given key. It's same logic
+     * as {@link JbTreeTool#findLeafNodeId}.
+     *
+     * @param node
+     *            required non-leaf node
+     * @param key
+     *            key
+     * @return child node id or id of next node
+     */
+    private Integer findChildNodeId(final Node<K, ?> node, final long key) {
+        final int last = node.getKeyCount() - 1;
+        if (last < 0) {
+            return node.getLink();
+        }
+        if (compareKey(node, last, key) < 0) {
+            if (Node.EMPTY_INT.equals(node.getLink())) {
+                /**
+                 * Rightmost node, use node id associated with bigger key.
+                 */
+                return loadNodeId(node, last);
+            }
+            return node.getLink();
+        }
+        int start = 0;
+        int end = last;
+        while (start < end) {
+            final int half = start + (end - start) / 2;
+            if (compareKey(node, half, key) < 0) {
+                start = half + 1;
+            } else {
+                end = half;
+            }
+        }
+        return loadNodeId(node, start);
+    }
+
+    /**
+     * Decide if key could be in some following leaf node.
+     *
+     * @param node
+     *            required leaf node
+     * @param key
+     *            key
+     * @return return <code>true</code> when searching should continue in next
+     *         node
+     */
+    private boolean canMoveToNextNode(final Node<K, V> node, final long key) {
+        if (Node.EMPTY_INT.equals(node.getLink())) {
+            return false;
+        }
+        if (node.isEmpty()) {
+            /**
+             * Empty node doesn't know it's max key.
+             */
+            Node<K, V> next = nodeStore.get(node.getLink());
+            while (next.isEmpty()) {
+                if (Node.EMPTY_INT.equals(next.getLink())) {
+                    return false;
+                }
+                next = nodeStore.get(next.getLink());
+            }
+            return compareKey(next, 0, key) <= 0;
+        }
+        return compareKey(node, node.getMaxKeyIndex(), key) < 0;
+    }
+
+    /**
+     * Compare key at given position with given key.
+     *
+     * @param node
+     *            required node
+     * @param position
+     *            required key value pair position
+     * @param key
+     *            key
+     * @return comparison result
+     */
+    private int compareKey(final Node<K, ?> node, final int position,
+            final long key) {
+        return Long.compare(
+                keyTypeDescriptor.loadPrimitive(node.getFieldBytes(),
+                        node.getNodeDef().getKeyPosition(position)),
+                key);
+    }
+
+    /**
+     * Load child node id from non-leaf node.
+     *
+     * @param node
+     *            required non-leaf node
+     * @param position
+     *            required key value pair position
+     * @return child node id
+     */
+    private Integer loadNodeId(final Node<K, ?> node, final int position) {
+        return (Integer) node.getValue(position);
+    }
+
+}
@@ -0,0 +1,214 @@
+package com.coroptis.jblinktree;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Objects;
+
+import com.coroptis.jblinktree.type.Wrapper;
+import com.coroptis.jblinktree.util.JbStackArrayList;
+import com.coroptis.jblinktree.util.JblinktreeException;
+import com.coroptis.jblinktree.util.PeriodicTask;
+
+/**
+ * Background re-packing of sparse leaf nodes. Background thread walks leaf
+ * node chain and when two neighbouring leaf nodes fit into one node up to fill
+ * factor, they are merged by
+ * {@link JbTreeMerger#mergeWithNextNode(Integer, int)} under normal node
+ * locks. Nodes found during walk are just candidates, they are verified again
+ * when they are locked.
+ * <p>
+ * Each pass visits limited number of leaf nodes and next pass continues where
+ * previous pass stopped. Thread has low priority and waits between passes, so
+ * it can't starve tree operations. Failed pass is logged and next pass
+ * continues where it failed.
+ * </p>
+ *
+ * @author jajir
+ *
+ * @param <K>
+ *            key type
+ * @param <V>
+ *            value type
+ */
+final class JbTreeRepacker<K, V> {
+
+    /**
+     * Name of background thread.
+     */
+    private static final String THREAD_NAME = "jblinktree-repack";
+
+    /**
+     * Maximal number of leaf nodes visited in one pass.
+     */
+    private static final int NODES_PER_PASS = 256;
+
+    /**
+     * Node store.
+     */
+    private final NodeStore<K> nodeStore;
+
+    /**
+     * Tree tool.
+     */
+    private final JbTreeTool<K, V> treeTool;
+
+    /**
+     * Tree data definition.
+     */
+    private final JbTreeData<K, V> treeData;
+
+    /**
+     * Merges sparse leaf nodes.
+     */
+    private final JbTreeMerger<K, V> treeMerger;
+
+    /**
+     * Maximal number of keys in merged node.
+     */
+    private final int capacity;
+
+    /**
+     * Background thread periodically re-packing leaf nodes.
+     */
+    private final PeriodicTask repackTask;
+
+    /**
+     * Key where next pass starts, when it's <code>null</code> than pass
+     * starts at first leaf node. It's used just by background thread.
+     */
+    private Wrapper<K> nextKey;
+
+    /**
+     * Simple constructor. Background thread is not started.
+     *
+     * @param initNodeStore
+     *            required node store
+     * @param initTreeTool
+     *            required tree tool
+     * @param initTreeData
+     *            required tree data definition
+     * @param initTreeMerger
+     *            required tree merger
+     * @param fillFactor
+     *            required ratio of used keys in merged nodes, value is from
+     *            interval (0, 1]
+     * @param repackInterval
+     *            required interval in milliseconds between two passes, it
+     *            have to be positive
+     */
+    JbTreeRepacker(final NodeStore<K> initNodeStore,
+            final JbTreeTool<K, V> initTreeTool,
+            final JbTreeData<K, V> initTreeData,
+            final JbTreeMerger<K, V> initTreeMerger, final double fillFactor,
+            final long repackInterval) {
+        this.nodeStore = Objects.requireNonNull(initNodeStore);
+        this.treeTool = Objects.requireNonNull(initTreeTool);
+        this.treeData = Objects.requireNonNull(initTreeData);
+        this.treeMerger = Objects.requireNonNull(initTreeMerger);
+        if (repackInterval < 1) {
+            throw new JblinktreeException(
+                    "Repack interval should be positive.");
+        }
+        this.capacity =
+                Math.max(1, (int) Math.round(treeData.getL() * fillFactor));
+        repackTask = new PeriodicTask(THREAD_NAME, Thread.MIN_PRIORITY,
+                repackInterval, new Runnable() {
+                    @Override
+                    public void run() {
+                        doPass();
+                    }
+                });
+    }
+
+    /**
+     * Start background thread. It should be called when tree is initialized.
+     */
+    void start() {
+        repackTask.start();
+    }
+
+    /**
+     * Visit limited number of leaf nodes and merge sparse neighbours. Pass is
+     * registered as tree operation, so ids of visited nodes are not reused
+     * during pass.
+     */
+    private void doPass() {
+        final long epoch = treeData.enterOperation();
+        try {
+            Integer nodeId;
+            if (nextKey == null) {
+                nodeId = findFirstLeafNodeId();
+            } else {
+                nodeId = treeTool.findLeafNodeId(nextKey,
+                        new JbStackArrayList(), treeData.getRootNodeId());
+            }
+            for (int i = 0; i < NODES_PER_PASS; i++) {
+                final Node<K, V> node = nodeStore.getForScan(nodeId);
+                if (Node.EMPTY_INT.equals(node.getLink())) {
+                    nextKey = null;
+                    return;
+                }
+                if (!node.isEmpty()) {
+                    nextKey = node.getMaxKey();
+                    final Node<K, V> next =
+                            nodeStore.getForScan(node.getLink());
+                    if (!treeData.isFreeNodeId(nodeId) && node.getKeyCount()
+                            + next.getKeyCount() <= capacity) {
+                        treeMerger.mergeWithNextNode(nodeId, capacity);
+                    }
+                }
+                nodeId = node.getLink();
+            }
+        } finally {
+            treeData.exitOperation(epoch);
+        }
+    }
+
+    /**
+     * Find leftmost leaf node. Leftmost nodes are never removed.
+     *
+     * @return leftmost leaf node id
+     */
+    private Integer findFirstLeafNodeId() {
+        Integer nodeId = treeData.getRootNodeId();
+        Node<K, Integer> node = nodeStore.get(nodeId);
+        while (!node.isLeafNode()) {
+            nodeId = node.getValue(0);
+            node = nodeStore.get(nodeId);
+        }
+        return nodeId;
+    }
+
+    /**
+     * Stop background thread and wait until it ends.
+     *
+     * @throws JblinktreeException
+     *             when last background pass failed
+     */
+    void close() {
+        final RuntimeException failure = repackTask.stop();
+        if (failure != null) {
+            throw new JblinktreeException("Background repacking failed.",
+                    failure);
+        }
+    }
+
+}
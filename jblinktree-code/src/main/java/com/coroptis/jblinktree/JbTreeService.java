@@ -53,6 +53,18 @@ public interface JbTreeService<K, V> {
     <S> Node<K, Integer> loadParentNode(Node<K, S> currentNode, Wrapper<K> key,
             Integer nextNodeId);
 
+    /**
+     * Lock parent node covering given key. When it's necessary to move to next
+     * node than method move to next node. Parent node is not changed.
+     *
+     * @param key
+     *            required key
+     * @param nextNodeId
+     *            required next node id
+     * @return locked parent node instance
+     */
+    Node<K, Integer> lockParentNode(Wrapper<K> key, Integer nextNodeId);
+
     /**
      * Store value into node under the key.
      *
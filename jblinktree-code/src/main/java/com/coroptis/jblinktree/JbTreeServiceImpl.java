@@ -84,6 +84,13 @@ public final class JbTreeServiceImpl<K, V> implements JbTreeService<K, V> {
         return parentNode;
     }
 
+    @Override
+    public Node<K, Integer> lockParentNode(final Wrapper<K> key,
+            final Integer nextNodeId) {
+        final Node<K, Integer> parentNode = nodeStore.getAndLock(nextNodeId);
+        return treeTraversingService.moveRightNonLeafNode(parentNode, key);
+    }
+
     @Override
     public <S> void storeValueIntoNode(final Node<K, S> currentNode,
             final Wrapper<K> key, final S value) {
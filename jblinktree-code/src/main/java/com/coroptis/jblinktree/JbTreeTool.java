@@ -77,14 +77,17 @@ public interface JbTreeTool<K, V> {
      *
      * @param currentNode
      *            required node which will be split
-     * @param key
-     *            required inserted key
-     * @param value
-     *            required inserted value
+     * @param separator
+     *            required max key of split child node
+     * @param splitNodeId
+     *            required id of split child node
+     * @param rightNode
+     *            required child node created by split
      * @return newly created node, this node contains higher part of keys.
+     * @see JbNodeService#insertSplitNode(Node, Wrapper, Integer, Node)
      */
     Node<K, Integer> splitNonLeafNode(Node<K, Integer> currentNode,
-            Wrapper<K> key, Integer value);
+            Wrapper<K> separator, Integer splitNodeId, Node<K, ?> rightNode);
 
     /**
      * It get already existing node, new node a create new root node pointing on
@@ -59,7 +59,14 @@ public final class JbTreeToolImpl<K, V> implements JbTreeTool<K, V> {
     private final JbNodeService<K, V> nodeService;
 
     /**
-     * Default constructor.
+     * Number of keys which stay in rightmost node when it's split by
+     * inserting bigger key than all keys in node. When it's zero than node is
+     * always split in half.
+     */
+    private final int appendSplitKeys;
+
+    /**
+     * Default constructor. Nodes are always split in half.
      *
      * @param initNodeStore
      *            required node store service
@@ -74,20 +81,75 @@ public final class JbTreeToolImpl<K, V> implements JbTreeTool<K, V> {
             final JbTreeData<K, V> jbTreeData,
             final JbNodeBuilder<K, V> initNodeBuilder,
             final JbNodeService<K, V> jbNodeService) {
+        this(initNodeStore, jbTreeData, initNodeBuilder, jbNodeService, 0);
+    }
+
+    /**
+     * Constructor allowing sequential split. When key bigger than all keys in
+     * rightmost node is inserted into full rightmost node, than node keeps
+     * keys up to fill factor and rest of keys is moved to new node. Trees
+     * filled with increasing keys than have nodes filled up to fill factor.
+     *
+     * @param initNodeStore
+     *            required node store service
+     * @param jbTreeData
+     *            required tree data descriptor
+     * @param initNodeBuilder
+     *            required node builder
+     * @param jbNodeService
+     *            node service
+     * @param appendFillFactor
+     *            ratio of keys which stay in rightmost node, value is from
+     *            interval (0, 1], zero means that nodes are always split in
+     *            half
+     */
+    public JbTreeToolImpl(final NodeStore<K> initNodeStore,
+            final JbTreeData<K, V> jbTreeData,
+            final JbNodeBuilder<K, V> initNodeBuilder,
+            final JbNodeService<K, V> jbNodeService,
+            final double appendFillFactor) {
         this.nodeStore = Objects.requireNonNull(initNodeStore);
         this.treeData = Objects.requireNonNull(jbTreeData);
         this.nodeBuilder = Objects.requireNonNull(initNodeBuilder);
         this.nodeService = Objects.requireNonNull(jbNodeService);
+        if (appendFillFactor < 0 || appendFillFactor > 1) {
+            throw new JblinktreeException(
+                    "Fill factor should be in interval (0, 1].");
+        }
+        if (appendFillFactor > 0) {
+            this.appendSplitKeys = Math.max(1,
+                    (int) Math.round(treeData.getL() * appendFillFactor));
+        } else {
+            this.appendSplitKeys = 0;
+        }
     }
 
     @Override
     public boolean canMoveToNextNode(final Node<K, ?> node,
             final Wrapper<K> key) {
-        if (NodeShort.EMPTY_INT.equals(node.getLink())) {
+        final Integer link = node.getLink();
+        if (NodeShort.EMPTY_INT.equals(link)) {
             return false;
         }
         if (node.isEmpty()) {
-            return true;
+            if (treeData.isFreeNodeId(node.getId())) {
+                /**
+                 * Node was removed from tree, its keys belongs to next nodes.
+                 */
+                return true;
+            }
+            /**
+             * Empty node doesn't know it's max key. Key belongs to next node
+             * just when next node contains smaller or same key.
+             */
+            Node<K, ?> next = nodeStore.get(link);
+            while (next.isEmpty()) {
+                if (NodeShort.EMPTY_INT.equals(next.getLink())) {
+                    return false;
+                }
+                next = nodeStore.get(next.getLink());
+            }
+            return next.compareKey(0, key) <= 0;
         }
         return node.getMaxKey() != null
                 && node.compareKey(node.getMaxKeyIndex(), key) < 0;
@@ -98,8 +160,7 @@ public final class JbTreeToolImpl<K, V> implements JbTreeTool<K, V> {
             final Wrapper<K> key) {
         Node<K, V> current = node;
         if (current.isLeafNode()) {
-            while (!Node.EMPTY_INT.equals(current.getLink())
-                    && current.compareKey(current.getMaxKeyIndex(), key) < 0) {
+            while (canMoveToNextNode(current, key)) {
                 current = nodeStore.get(current.getLink());
             }
             return current;
@@ -146,15 +207,58 @@ public final class JbTreeToolImpl<K, V> implements JbTreeTool<K, V> {
             final Wrapper<K> key, final V value) {
         final Node<K, V> newNode = nodeBuilder
                 .makeEmptyLeafNode(treeData.getNextId());
+        if (isSequentialSplit(currentNode) && currentNode
+                .compareKey(currentNode.getMaxKeyIndex(), key) < 0) {
+            /**
+             * Key is appended, so just few keys are moved to new node.
+             */
+            currentNode.moveDataTo(newNode,
+                    Math.min(appendSplitKeys, currentNode.getKeyCount()));
+            nodeService.insert(newNode, key, value);
+            return newNode;
+        }
         return splitNode(currentNode, newNode, key, value);
     }
 
     @Override
     public Node<K, Integer> splitNonLeafNode(final Node<K, Integer> currentNode,
-            final Wrapper<K> key, final Integer value) {
+            final Wrapper<K> separator, final Integer splitNodeId,
+            final Node<K, ?> rightNode) {
         final Node<K, Integer> newNode = nodeBuilder
                 .makeEmptyNonLeafNode(treeData.getNextId());
-        return splitNode(currentNode, newNode, key, value);
+        if (isSequentialSplit(currentNode) && splitNodeId.equals(
+                currentNode.getValue(currentNode.getMaxKeyIndex()))) {
+            /**
+             * Last child was split. Pointer to split node is moved to new
+             * node, otherwise new pointer wouldn't fit into current node.
+             */
+            currentNode.moveDataTo(newNode,
+                    Math.min(appendSplitKeys, currentNode.getKeyCount() - 1));
+            nodeService.insertSplitNode(newNode, separator, splitNodeId,
+                    rightNode);
+            return newNode;
+        }
+        currentNode.moveTopHalfOfDataTo(newNode);
+        if (nodeService.getNodeIds(currentNode).contains(splitNodeId)) {
+            nodeService.insertSplitNode(currentNode, separator, splitNodeId,
+                    rightNode);
+        } else {
+            nodeService.insertSplitNode(newNode, separator, splitNodeId,
+                    rightNode);
+        }
+        return newNode;
+    }
+
+    /**
+     * Decide if node should be split by sequential split.
+     *
+     * @param node
+     *            required node
+     * @return <code>true</code> when sequential split is allowed and node is
+     *         rightmost node at it's level
+     */
+    private boolean isSequentialSplit(final Node<K, ?> node) {
+        return appendSplitKeys > 0 && Node.EMPTY_INT.equals(node.getLink());
     }
 
     /**
@@ -6,6 +6,9 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 import com.coroptis.jblinktree.type.Wrapper;
@@ -355,4 +358,92 @@ public final class JbTreeWrapper<K, V> implements JbTree<K, V> {
         tree.visit(dataVisitor);
     }
 
+    @SuppressWarnings("unchecked")
+    @Override
+    public V remove(final Wrapper<K> key, final V expectedValue) {
+        return (V) saveExecution(new Execute() {
+
+            @Override
+            public Object execute() {
+                return tree.remove(key, expectedValue);
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V insertIfAbsent(final Wrapper<K> key, final V value) {
+        return (V) saveExecution(new Execute() {
+
+            @Override
+            public Object execute() {
+                return tree.insertIfAbsent(key, value);
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V replace(final Wrapper<K> key, final V expectedValue,
+            final V value) {
+        return (V) saveExecution(new Execute() {
+
+            @Override
+            public Object execute() {
+                return tree.replace(key, expectedValue, value);
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Iterator<Map.Entry<K, V>> iterator(final Wrapper<K> fromKey,
+            final boolean inclusive) {
+        return (Iterator<Map.Entry<K, V>>) saveExecution(new Execute() {
+
+            @Override
+            public Object execute() {
+                return tree.iterator(fromKey, inclusive);
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Map.Entry<K, V> floorEntry(final Wrapper<K> key,
+            final boolean inclusive) {
+        return (Map.Entry<K, V>) saveExecution(new Execute() {
+
+            @Override
+            public Object execute() {
+                return tree.floorEntry(key, inclusive);
+            }
+        });
+    }
+
+    @Override
+    public void scan(final Wrapper<K> fromKey, final Wrapper<K> toKey,
+            final JbDataVisitor<K, V> dataVisitor) {
+        saveExecution(new Execute() {
+
+            @Override
+            public Object execute() {
+                tree.scan(fromKey, toKey, dataVisitor);
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public void insertAll(final List<Map.Entry<Wrapper<K>, V>> entries) {
+        saveExecution(new Execute() {
+
+            @Override
+            public Object execute() {
+                tree.insertAll(entries);
+                return null;
+            }
+        });
+    }
+
 }
@@ -0,0 +1,95 @@
+package com.coroptis.jblinktree;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Tree with <code>long</code> keys and values. Reading methods don't create key
+ * wrappers or boxed keys, keys are compared directly with stored node data.
+ * Nodes are read from node store in the same way as by other tree operations.
+ * <p>
+ * Whole {@link java.util.Map} API is available through {@link #asMap()}.
+ * </p>
+ *
+ * @author jajir
+ *
+ */
+public interface LongTreeMap {
+
+    /**
+     * Get value stored under given key.
+     *
+     * @param key
+     *            key
+     * @param defaultValue
+     *            value returned when key is not in tree
+     * @return stored value or default value
+     */
+    long get(long key, long defaultValue);
+
+    /**
+     * Decide if key is in tree.
+     *
+     * @param key
+     *            key
+     * @return return <code>true</code> when key is in tree
+     */
+    boolean containsKey(long key);
+
+    /**
+     * Store value under given key. When key is already in tree value is
+     * replaced.
+     *
+     * @param key
+     *            key
+     * @param value
+     *            value
+     */
+    void put(long key, long value);
+
+    /**
+     * Remove key from tree.
+     *
+     * @param key
+     *            key
+     * @return return <code>true</code> when key was in tree
+     */
+    boolean remove(long key);
+
+    /**
+     * Return number of key value pairs in tree.
+     *
+     * @return number of key value pairs
+     */
+    int size();
+
+    /**
+     * Get map view of this tree. Changes in map are visible in this tree.
+     *
+     * @return map backed by this tree
+     */
+    TreeMap<Long, Long> asMap();
+
+    /**
+     * Free all resources. Should be called when all work with tree is done.
+     */
+    void close();
+
+}
@@ -0,0 +1,120 @@
+package com.coroptis.jblinktree;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Objects;
+
+import com.coroptis.jblinktree.util.JblinktreeException;
+
+/**
+ * Implementation of {@link LongTreeMap}. Reading methods search tree directly,
+ * changes are delegated to {@link TreeMap}.
+ *
+ * @author jajir
+ *
+ */
+public final class LongTreeMapImpl implements LongTreeMap {
+
+    /**
+     * Map backed by tree.
+     */
+    private final TreeMap<Long, Long> map;
+
+    /**
+     * Search by primitive key.
+     */
+    private final JbTreePrimitiveSearch<Long, Long> search;
+
+    /**
+     * When it's <code>true</code> than tree is closed.
+     */
+    private boolean isClosed;
+
+    /**
+     * Simple constructor.
+     *
+     * @param initMap
+     *            required map backed by tree
+     * @param initSearch
+     *            required search in the same tree
+     */
+    LongTreeMapImpl(final TreeMap<Long, Long> initMap,
+            final JbTreePrimitiveSearch<Long, Long> initSearch) {
+        this.map = Objects.requireNonNull(initMap);
+        this.search = Objects.requireNonNull(initSearch);
+    }
+
+    @Override
+    public long get(final long key, final long defaultValue) {
+        checkIsClosed();
+        final Node<Long, Long> node = search.findLeafNode(key);
+        final int position = search.findKeyIndex(node, key);
+        if (position < 0) {
+            return defaultValue;
+        }
+        return search.loadValue(node, position);
+    }
+
+    @Override
+    public boolean containsKey(final long key) {
+        checkIsClosed();
+        return search.findKeyIndex(search.findLeafNode(key), key) >= 0;
+    }
+
+    @Override
+    public void put(final long key, final long value) {
+        checkIsClosed();
+        map.put(key, value);
+    }
+
+    @Override
+    public boolean remove(final long key) {
+        checkIsClosed();
+        return map.remove(key) != null;
+    }
+
+    @Override
+    public int size() {
+        checkIsClosed();
+        return map.size();
+    }
+
+    @Override
+    public TreeMap<Long, Long> asMap() {
+        return map;
+    }
+
+    @Override
+    public void close() {
+        map.close();
+        isClosed = true;
+    }
+
+    /**
+     * Check that tree was not closed.
+     */
+    private void checkIsClosed() {
+        if (isClosed) {
+            throw new JblinktreeException("Attempt to work with closed tree.");
+        }
+    }
+
+}
@@ -104,6 +104,21 @@ public interface Node<K, V> {
      */
     void moveTopHalfOfDataTo(Node<K, V> node);
 
+    /**
+     * Keys from given position to the end will be moved to
+     * <code>node</code>. When position is equal to key count than no keys are
+     * moved.
+     * <p>
+     * From this node will be created structure: thisNode ---&gt; node
+     * </p>
+     *
+     * @param node
+     *            required empty node
+     * @param position
+     *            position of first moved key
+     */
+    void moveDataTo(Node<K, V> node, int position);
+
     /**
      * Return max key, that could be use for representing this node.
      *
@@ -247,13 +247,21 @@ public final class NodeFixedLength<K, V> extends JbAbstractNode<K, V> {
 
     @Override
     public void moveTopHalfOfDataTo(final Node<K, V> nodea) {
-        final NodeFixedLength<K, V> node = (NodeFixedLength<K, V>) nodea;
-        Validation.checkArgument(node.isEmpty());
         if (getKeyCount() < 1) {
             throw new JblinktreeException(
                     "In node " + getId() + " are no values to move.");
         }
-        final int startIndex = getKeyCount() / 2;
+        moveDataTo(nodea, getKeyCount() / 2);
+    }
+
+    @Override
+    public void moveDataTo(final Node<K, V> nodea, final int startIndex) {
+        final NodeFixedLength<K, V> node = (NodeFixedLength<K, V>) nodea;
+        Validation.checkArgument(node.isEmpty());
+        if (startIndex < 0 || startIndex > getKeyCount()) {
+            throw new JblinktreeException("Position " + startIndex
+                    + " is out of range of node " + getId() + ".");
+        }
         final int length = getKeyCount() - startIndex;
 
         System.arraycopy(field,
@@ -268,13 +268,21 @@ public final class NodeShort<K, V> extends JbAbstractNode<K, V> {
 
     @Override
     public void moveTopHalfOfDataTo(final Node<K, V> nodea) {
-        final NodeShort<K, V> node = (NodeShort<K, V>) nodea;
-        Validation.checkArgument(node.isEmpty());
         if (getKeyCount() < 1) {
             throw new JblinktreeException(
                     "In node " + getId() + " are no values to move.");
         }
-        final int startIndex = getKeyCount() / 2;
+        moveDataTo(nodea, getKeyCount() / 2);
+    }
+
+    @Override
+    public void moveDataTo(final Node<K, V> nodea, final int startIndex) {
+        final NodeShort<K, V> node = (NodeShort<K, V>) nodea;
+        Validation.checkArgument(node.isEmpty());
+        if (startIndex < 0 || startIndex > getKeyCount()) {
+            throw new JblinktreeException("Position " + startIndex
+                    + " is out of range of node " + getId() + ".");
+        }
         final int length = getKeyCount() - startIndex;
 
         // copy top half to empty node
@@ -301,17 +309,17 @@ public final class NodeShort<K, V> extends JbAbstractNode<K, V> {
                 getId(), field });
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public boolean equals(final Object obj) {
         if (obj == null) {
             return false;
         }
-        if (!(obj instanceof NodeShort)) {
+        if (!(obj instanceof NodeShort || obj instanceof NodeShortView)) {
             return false;
         }
-        final NodeShort<K, V> n = (NodeShort<K, V>) obj;
-        return equal(getId(), n.getId()) && fieldEquals(n.field, field);
+        final Node<?, ?> n = (Node<?, ?>) obj;
+        return equal(getId(), n.getId())
+                && fieldEquals(n.getFieldBytes(), field);
     }
 
     @Override
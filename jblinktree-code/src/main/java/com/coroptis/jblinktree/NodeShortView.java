@@ -0,0 +1,165 @@
+package com.coroptis.jblinktree;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Arrays;
+
+import com.coroptis.jblinktree.type.Wrapper;
+import com.coroptis.jblinktree.util.JblinktreeException;
+
+/**
+ * Read-only node backed directly by given byte array. Node data are not copied,
+ * so it's useful for reading published nodes from node store. Data layout is
+ * same as in {@link NodeShort}.
+ * <p>
+ * Any attempt to change node data throws {@link JblinktreeException}. Node
+ * which should be changed have to be obtained by
+ * {@link NodeStore#getAndLock(Integer)}.
+ * </p>
+ *
+ * @author jajir
+ *
+ * @param <K>
+ *            key type
+ * @param <V>
+ *            value type
+ */
+public final class NodeShortView<K, V> extends JbAbstractNode<K, V> {
+
+    /**
+     * Shared byte array with node data, it's never changed.
+     */
+    private final byte[] field;
+
+    /**
+     * Number of key value pairs stored in node.
+     */
+    private final int keyCount;
+
+    /**
+     * Create node view.
+     *
+     * @param nodeId
+     *            required node id
+     * @param sourceField
+     *            required node data field, it's not copied
+     * @param jbNodeDef
+     *            required node data definition
+     */
+    public NodeShortView(final Integer nodeId, final byte[] sourceField,
+            final JbNodeDef<K, V> jbNodeDef) {
+        super(nodeId, jbNodeDef);
+        this.field = sourceField;
+        this.keyCount = (field.length - JbNodeDef.FLAGS_LENGTH
+                - jbNodeDef.getLinkTypeDescriptor().getMaxLength())
+                / jbNodeDef.getKeyAndValueSize();
+    }
+
+    @Override
+    public Integer getLink() {
+        return getNodeDef().getLinkTypeDescriptor().load(field, field.length
+                - getNodeDef().getLinkTypeDescriptor().getMaxLength());
+    }
+
+    @Override
+    public int getKeyCount() {
+        return keyCount;
+    }
+
+    @Override
+    public byte[] getFieldBytes() {
+        return field;
+    }
+
+    @Override
+    public void setLink(final Integer link) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setKey(final int position, final Wrapper<K> value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setValue(final int position, final V value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setFlag(final byte flag) {
+        throw readOnly();
+    }
+
+    @Override
+    public void insertAtPosition(final Wrapper<K> key, final V value,
+            final int targetIndex) {
+        throw readOnly();
+    }
+
+    @Override
+    public void removeAtPosition(final int position) {
+        throw readOnly();
+    }
+
+    @Override
+    public void moveTopHalfOfDataTo(final Node<K, V> node) {
+        throw readOnly();
+    }
+
+    @Override
+    public void moveDataTo(final Node<K, V> node, final int position) {
+        throw readOnly();
+    }
+
+    /**
+     * Create exception for attempt to change read-only node.
+     *
+     * @return exception
+     */
+    private JblinktreeException readOnly() {
+        return new JblinktreeException(
+                "Node '" + getId() + "' is read-only view.");
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(new Object[] {
+                /**
+                 * Just comment to split field
+                 */
+                getId(), field });
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (obj == null) {
+            return false;
+        }
+        if (!(obj instanceof NodeShort || obj instanceof NodeShortView)) {
+            return false;
+        }
+        final Node<?, ?> n = (Node<?, ?>) obj;
+        return equal(getId(), n.getId())
+                && fieldEquals(n.getFieldBytes(), field);
+    }
+
+}
@@ -21,8 +21,14 @@ package com.coroptis.jblinktree;
  */
 
 /**
- * Allows to read &amp; write nodes. Main methods are thread safe. Get method
- * returns always new node instance with same data.
+ * Allows to read &amp; write nodes. Main methods are thread safe.
+ * <p>
+ * Written node data are never changed in place. Node returned from
+ * {@link #get(Integer)} could share published data, so it doesn't need any
+ * lock and must not be changed. Node returned from
+ * {@link #getAndLock(Integer)} owns private copy of data, changes are visible
+ * to others after {@link #writeNode(Node)} is called.
+ * </p>
  *
  * @author jajir
  *
@@ -53,20 +59,36 @@ public interface NodeStore<K> {
     void unlockNode(Integer nodeId);
 
     /**
-     * Return defensive copy of node instance.
+     * Return read only node instance. Node data could be shared with store,
+     * so returned node must not be changed.
      *
      * @param <S>
      *            node value type
      * @param nodeId
      *            required node id
-     * @return copy of node from store
+     * @return node from store
      * @throws com.coroptis.jblinktree.util.JblinktreeException
      *             is thrown when nodeIs is invalid
      */
     <S> Node<K, S> get(Integer nodeId);
 
     /**
-     * Return defensive copy of node instance and lock it.
+     * Return read only node instance for sequential scan. It's hint for store
+     * that node is read just once, store could avoid caching it.
+     *
+     * @param <S>
+     *            node value type
+     * @param nodeId
+     *            required node id
+     * @return node from store
+     * @throws com.coroptis.jblinktree.util.JblinktreeException
+     *             is thrown when nodeIs is invalid
+     */
+    <S> Node<K, S> getForScan(Integer nodeId);
+
+    /**
+     * Lock node and return copy of node instance. Copy could be changed and
+     * later written with {@link #writeNode(Node)}.
      *
      * @param <S>
      *            node value type
@@ -79,7 +101,8 @@ public interface NodeStore<K> {
     <S> Node<K, S> getAndLock(Integer nodeId);
 
     /**
-     * Persist node into node store.
+     * Persist node into node store. Node data are published to readers, so
+     * node must not be changed after writing.
      * <p>
      * Method doens't work with locks.
      * </p>
@@ -1,6 +1,8 @@
 package com.coroptis.jblinktree;
 
 import java.io.File;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.Objects;
 
 /*
@@ -24,19 +26,31 @@ import java.util.Objects;
  */
 
 import com.coroptis.jblinktree.store.Cache;
+import com.coroptis.jblinktree.store.CacheBudget;
+import com.coroptis.jblinktree.store.CacheCheckpoint;
+import com.coroptis.jblinktree.store.CacheClock;
 import com.coroptis.jblinktree.store.CacheListener;
-import com.coroptis.jblinktree.store.CacheLru;
+import com.coroptis.jblinktree.store.CacheLruBytes;
+import com.coroptis.jblinktree.store.CacheOffHeap;
+import com.coroptis.jblinktree.store.CachePinnedNonLeaf;
+import com.coroptis.jblinktree.store.CacheTinyLfu;
+import com.coroptis.jblinktree.store.CacheWriteBack;
 import com.coroptis.jblinktree.store.KeyValueFileStorage;
+import com.coroptis.jblinktree.store.KeyValueMappedFileStorage;
+import com.coroptis.jblinktree.store.MetaDataStore;
+import com.coroptis.jblinktree.store.MetaDataStoreImpl;
 import com.coroptis.jblinktree.store.NodeConverter;
 import com.coroptis.jblinktree.store.NodeConverterImpl;
 import com.coroptis.jblinktree.store.NodeFileStorage;
 import com.coroptis.jblinktree.store.NodeFileStorageImpl;
-import com.coroptis.jblinktree.store.NodeFileStorageLockDecorator;
 import com.coroptis.jblinktree.store.NodeFileStorageMetaDataValidaror;
 import com.coroptis.jblinktree.store.NodeStoreInFile;
 import com.coroptis.jblinktree.store.NodeStoreInMem;
+import com.coroptis.jblinktree.store.NodeStoreOffHeap;
+import com.coroptis.jblinktree.store.WriteAheadLog;
 import com.coroptis.jblinktree.type.TypeDescriptor;
 import com.coroptis.jblinktree.type.TypeDescriptorInteger;
+import com.coroptis.jblinktree.type.Types;
 import com.coroptis.jblinktree.util.JblinktreeException;
 
 /**
@@ -53,6 +67,11 @@ public final class TreeBuilder {
      */
     private static final int DEFAULT_MAX_NUMBER_OF_KEYS_IN_NODE = 5;
 
+    /**
+     * Default ratio of used keys in nodes created by bulk load.
+     */
+    private static final double DEFAULT_FILL_FACTOR = 0.9;
+
     /**
      * Actual max number of keys in node.
      */
@@ -78,6 +97,41 @@ public final class TreeBuilder {
      */
     private NodeStoreInFileBuilder nodeStoreInFileBuilder;
 
+    /**
+     * Ratio of used keys in nodes created by bulk load and by re-packing.
+     */
+    private double fillFactor;
+
+    /**
+     * Number of node lock stripes, when it's <code>null</code> than each node
+     * has own lock.
+     */
+    private Integer nodeLockStripes;
+
+    /**
+     * When it's <code>true</code> than in memory nodes are stored out of java
+     * heap.
+     */
+    private boolean offHeapNodeStore;
+
+    /**
+     * When it's <code>true</code> than empty nodes are removed from tree and
+     * their ids are reused.
+     */
+    private boolean removeEmptyNodes;
+
+    /**
+     * Interval in milliseconds between passes of background re-packing of
+     * sparse leaf nodes, zero means that nodes are not re-packed.
+     */
+    private long repackInterval;
+
+    /**
+     * When it's <code>true</code> than rightmost node is split near
+     * insertion point when bigger key is appended.
+     */
+    private boolean sequentialSplit;
+
     /**
      * Builder for parameters for storing to file system.
      *
@@ -96,6 +150,67 @@ public final class TreeBuilder {
          */
         private int noOfCachedNodes;
 
+        /**
+         * When it's <code>true</code> than nodes are stored in memory mapped
+         * file.
+         */
+        private boolean memoryMapped;
+
+        /**
+         * When it's <code>true</code> than cache with W-TinyLFU admission
+         * policy is used.
+         */
+        private boolean tinyLfuCache;
+
+        /**
+         * When it's <code>false</code> than nodes read during scans are not
+         * put into cache.
+         */
+        private boolean cacheScannedNodes = true;
+
+        /**
+         * When it's <code>true</code> than non-leaf nodes are never evicted
+         * from cache.
+         */
+        private boolean pinNonLeafNodes;
+
+        /**
+         * When it's <code>true</code> than cached node data are stored out of
+         * java heap.
+         */
+        private boolean offHeapCache;
+
+        /**
+         * When it's not <code>null</code> than node cache is limited by this
+         * byte budget.
+         */
+        private CacheBudget cacheBudget;
+
+        /**
+         * When it's <code>true</code> than written nodes are logged to write
+         * ahead log.
+         */
+        private boolean writeAheadLog;
+
+        /**
+         * How long in microseconds could group commit wait for another
+         * writers.
+         */
+        private long groupCommitDelay;
+
+        /**
+         * Interval in milliseconds between passes of background write back,
+         * zero means that changed nodes are written just when they are
+         * evicted.
+         */
+        private long writeBackInterval;
+
+        /**
+         * Interval in milliseconds between checkpoints, zero means that
+         * checkpoints are not made.
+         */
+        private long checkpointInterval;
+
         /**
          * Allow to set directory where will be tree stored.
          * <p>
@@ -128,6 +243,207 @@ public final class TreeBuilder {
             return this;
         }
 
+        /**
+         * Allow to store nodes in memory mapped file. Node reads from mapped
+         * file don't do any system call, it's useful when tree is much bigger
+         * than node cache. File is mapped in chunks and grows as new nodes are
+         * stored.
+         *
+         * @param isMemoryMapped
+         *            when it's <code>true</code> than memory mapped file will
+         *            be used
+         * @return return {@link NodeStoreInFileBuilder}
+         */
+        public final NodeStoreInFileBuilder setMemoryMapped(
+                final boolean isMemoryMapped) {
+            this.memoryMapped = isMemoryMapped;
+            return this;
+        }
+
+        /**
+         * Allow to use node cache with W-TinyLFU admission policy. Nodes used
+         * just once, for example during scan of whole tree, don't evict
+         * frequently used nodes from such cache.
+         *
+         * @param isTinyLfuCache
+         *            when it's <code>true</code> than W-TinyLFU cache will be
+         *            used
+         * @return return {@link NodeStoreInFileBuilder}
+         */
+        public final NodeStoreInFileBuilder setTinyLfuCache(
+                final boolean isTinyLfuCache) {
+            this.tinyLfuCache = isTinyLfuCache;
+            return this;
+        }
+
+        /**
+         * Allow to disable caching of nodes read during scans, like visiting
+         * all key value pairs or iterating through map. Scanned nodes which
+         * are not in cache are read from file and they are not put into cache.
+         * By default scanned nodes are cached.
+         *
+         * @param isCachingScannedNodes
+         *            when it's <code>false</code> than scanned nodes will not
+         *            be put into cache
+         * @return return {@link NodeStoreInFileBuilder}
+         */
+        public final NodeStoreInFileBuilder setCacheScannedNodes(
+                final boolean isCachingScannedNodes) {
+            this.cacheScannedNodes = isCachingScannedNodes;
+            return this;
+        }
+
+        /**
+         * Allow to keep non-leaf nodes in separate cache tier where they are
+         * never evicted. Number of cached nodes than limits just leaf nodes.
+         * Non-leaf nodes are a small part of tree and each operation goes
+         * through them.
+         *
+         * @param isPinningNonLeafNodes
+         *            when it's <code>true</code> than non-leaf nodes will be
+         *            pinned in memory
+         * @return return {@link NodeStoreInFileBuilder}
+         */
+        public final NodeStoreInFileBuilder setPinNonLeafNodes(
+                final boolean isPinningNonLeafNodes) {
+            this.pinNonLeafNodes = isPinningNonLeafNodes;
+            return this;
+        }
+
+        /**
+         * Allow to keep cached node data in direct memory out of java heap.
+         * Big cache than doesn't make garbage collection longer. Cache holds
+         * number of cached nodes, each node takes space of the biggest
+         * possible node.
+         *
+         * @param isOffHeapCache
+         *            when it's <code>true</code> than off-heap cache will be
+         *            used
+         * @return return {@link NodeStoreInFileBuilder}
+         */
+        public final NodeStoreInFileBuilder setOffHeapCache(
+                final boolean isOffHeapCache) {
+            this.offHeapCache = isOffHeapCache;
+            return this;
+        }
+
+        /**
+         * Allow to limit node cache by number of bytes occupied by cached
+         * nodes instead of number of nodes. Node size depends on key and value
+         * types and on L, so budget in bytes make easier to plan memory
+         * usage. Budget could be changed and it reports current occupancy
+         * while tree is used. When budget is set than number of cached nodes,
+         * off-heap and W-TinyLFU settings are ignored.
+         *
+         * @param budget
+         *            required cache budget, it could be used just by one
+         *            opened tree at the time
+         * @return return {@link NodeStoreInFileBuilder}
+         */
+        public final NodeStoreInFileBuilder setCacheBudget(
+                final CacheBudget budget) {
+            this.cacheBudget = Objects.requireNonNull(budget);
+            return this;
+        }
+
+        /**
+         * Allow to log each written node to append only write ahead log. Node
+         * write returns when node is forced to disk, concurrent writers share
+         * one <code>fsync</code>. When tree wasn't correctly closed than log
+         * is replayed at next opening, so nodes and root node id are not lost
+         * and number of values is counted again.
+         * <p>
+         * Log is shortened just by checkpoints, see
+         * {@link #setCheckpointInterval(long)}. Without them log keeps every
+         * written node until tree is closed, so it grows with each change and
+         * all of it is replayed after crash.
+         * </p>
+         *
+         * @param isWriteAheadLog
+         *            when it's <code>true</code> than write ahead log will be
+         *            used
+         * @return return {@link NodeStoreInFileBuilder}
+         */
+        public final NodeStoreInFileBuilder setWriteAheadLog(
+                final boolean isWriteAheadLog) {
+            this.writeAheadLog = isWriteAheadLog;
+            return this;
+        }
+
+        /**
+         * Allow to set how long could write ahead log wait for another
+         * writers before forcing group of nodes to disk. Longer delay makes
+         * bigger groups but each write waits longer. By default it's zero,
+         * group than contains writers which came during previous
+         * <code>fsync</code>.
+         *
+         * @param maxDelayMicros
+         *            required maximal delay in microseconds, it can't be
+         *            negative
+         * @return return {@link NodeStoreInFileBuilder}
+         */
+        public final NodeStoreInFileBuilder setGroupCommitDelay(
+                final long maxDelayMicros) {
+            if (maxDelayMicros < 0) {
+                throw new JblinktreeException(
+                        "Group commit delay can't be negative.");
+            }
+            this.groupCommitDelay = maxDelayMicros;
+            return this;
+        }
+
+        /**
+         * Allow to write changed nodes in background thread. Thread
+         * periodically writes all changed nodes from cache in order of node
+         * ids. Evicted nodes are than usually unchanged and thread which
+         * evicts them, often reader, doesn't wait for disk write. By default
+         * changed nodes are written when they are evicted.
+         *
+         * @param interval
+         *            required interval in milliseconds between two passes of
+         *            background thread, zero disables background writing
+         * @return return {@link NodeStoreInFileBuilder}
+         */
+        public final NodeStoreInFileBuilder setWriteBackInterval(
+                final long interval) {
+            if (interval < 0) {
+                throw new JblinktreeException(
+                        "Write back interval can't be negative.");
+            }
+            this.writeBackInterval = interval;
+            return this;
+        }
+
+        /**
+         * Allow to make periodic checkpoints in background thread. Checkpoint
+         * writes all changed nodes in order of node ids, forces them to disk
+         * and than writes root node id and max node id to one of two
+         * alternating meta data slots. Write ahead log is shortened at each
+         * checkpoint.
+         * <p>
+         * Checkpoints require {@link #setWriteAheadLog(boolean)}, tree can't
+         * be built without it. Nodes are written in place also between
+         * checkpoints, so node file alone could contain mix of old and new
+         * nodes after crash. When tree wasn't correctly closed than it's
+         * opened from last checkpoint and log records written after it are
+         * replayed, so each finished write survives crash.
+         * </p>
+         *
+         * @param interval
+         *            required interval in milliseconds between two
+         *            checkpoints, zero disables checkpoints
+         * @return return {@link NodeStoreInFileBuilder}
+         */
+        public final NodeStoreInFileBuilder setCheckpointInterval(
+                final long interval) {
+            if (interval < 0) {
+                throw new JblinktreeException(
+                        "Checkpoint interval can't be negative.");
+            }
+            this.checkpointInterval = interval;
+            return this;
+        }
+
         /**
          * @return the fileName
          */
@@ -142,6 +458,76 @@ public final class TreeBuilder {
             return noOfCachedNodes;
         }
 
+        /**
+         * @return the memoryMapped
+         */
+        public final boolean isMemoryMapped() {
+            return memoryMapped;
+        }
+
+        /**
+         * @return the tinyLfuCache
+         */
+        public final boolean isTinyLfuCache() {
+            return tinyLfuCache;
+        }
+
+        /**
+         * @return the cacheScannedNodes
+         */
+        public final boolean isCacheScannedNodes() {
+            return cacheScannedNodes;
+        }
+
+        /**
+         * @return the pinNonLeafNodes
+         */
+        public final boolean isPinNonLeafNodes() {
+            return pinNonLeafNodes;
+        }
+
+        /**
+         * @return the offHeapCache
+         */
+        public final boolean isOffHeapCache() {
+            return offHeapCache;
+        }
+
+        /**
+         * @return the cacheBudget
+         */
+        public final CacheBudget getCacheBudget() {
+            return cacheBudget;
+        }
+
+        /**
+         * @return the writeAheadLog
+         */
+        public final boolean isWriteAheadLog() {
+            return writeAheadLog;
+        }
+
+        /**
+         * @return the groupCommitDelay
+         */
+        public final long getGroupCommitDelay() {
+            return groupCommitDelay;
+        }
+
+        /**
+         * @return the writeBackInterval
+         */
+        public final long getWriteBackInterval() {
+            return writeBackInterval;
+        }
+
+        /**
+         * @return the checkpointInterval
+         */
+        public final long getCheckpointInterval() {
+            return checkpointInterval;
+        }
+
     }
 
     /**
@@ -170,6 +556,7 @@ public final class TreeBuilder {
      */
     private TreeBuilder(final Integer initL) {
         this.l = initL;
+        this.fillFactor = DEFAULT_FILL_FACTOR;
         treeWrapperFileName = null;
     }
 
@@ -197,6 +584,133 @@ public final class TreeBuilder {
         return this;
     }
 
+    /**
+     * Allow to set fill factor of nodes created by
+     * {@link #bulkLoad(Iterator)}, by {@link #setRepackInterval(long)} and
+     * by {@link #setSequentialSplit(boolean)}. It's ratio of used keys in
+     * node. Lower value leaves space for later inserts without splitting
+     * nodes. Default value is 0.9.
+     *
+     * @param newFillFactor
+     *            required fill factor from interval (0, 1]
+     * @return current tree builder instance
+     */
+    public TreeBuilder setFillFactor(final double newFillFactor) {
+        if (newFillFactor <= 0 || newFillFactor > 1) {
+            throw new JblinktreeException(
+                    "Fill factor should be in interval (0, 1].");
+        }
+        this.fillFactor = newFillFactor;
+        return this;
+    }
+
+    /**
+     * Allow to use fixed size table of node locks. Node ids are spread into
+     * given number of stripes. Memory used by locks doesn't grow with number
+     * of nodes in tree. By default each node has own lock.
+     *
+     * @param numberOfStripes
+     *            required number of stripes, it have to be power of two
+     * @return current tree builder instance
+     * @see JbNodeLockProviderStriped
+     */
+    public TreeBuilder setNodeLockStripes(final int numberOfStripes) {
+        if (!JbNodeLockProviderStriped
+                .isValidNumberOfStripes(numberOfStripes)) {
+            throw new JblinktreeException(
+                    "Number of node lock stripes should be power of two.");
+        }
+        this.nodeLockStripes = numberOfStripes;
+        return this;
+    }
+
+    /**
+     * Allow to keep nodes of in memory tree in direct memory out of java heap.
+     * Heap then doesn't contain any object per node, so big trees don't make
+     * garbage collection longer. It's ignored when tree is stored in file.
+     * Memory of removed nodes is reused just when
+     * {@link #setRemoveEmptyNodes(boolean)} is enabled.
+     *
+     * @param isOffHeapNodeStore
+     *            when it's <code>true</code> than nodes will be stored out of
+     *            java heap
+     * @return current tree builder instance
+     * @see NodeStoreOffHeap
+     */
+    public TreeBuilder setOffHeapNodeStore(final boolean isOffHeapNodeStore) {
+        this.offHeapNodeStore = isOffHeapNodeStore;
+        return this;
+    }
+
+    /**
+     * Allow to remove leaf node which become empty after remove. Pointer to
+     * node is removed from parent, node is skipped in leaf node chain and its
+     * id is later reused for new node. Parent node which become empty is
+     * removed too. Each tree operation is then registered, so removed node id
+     * is not reused while some operation could read it. By default empty
+     * nodes stay in tree.
+     *
+     * @param isRemoveEmptyNodes
+     *            when it's <code>true</code> than empty nodes are removed
+     * @return current tree builder instance
+     * @see JbTreeMerger
+     */
+    public TreeBuilder setRemoveEmptyNodes(final boolean isRemoveEmptyNodes) {
+        this.removeEmptyNodes = isRemoveEmptyNodes;
+        return this;
+    }
+
+    /**
+     * Allow to re-pack sparse leaf nodes in background. Background thread
+     * periodically walks part of leaf node chain and when two neighbouring
+     * leaf nodes fit into one node up to fill factor, they are merged. Merged
+     * node is removed as with {@link #setRemoveEmptyNodes(boolean)}, which is
+     * enabled too. Thread has low priority and visits limited number of nodes
+     * in each pass. By default nodes are not re-packed.
+     *
+     * @param newRepackInterval
+     *            interval in milliseconds between two passes, zero disables
+     *            re-packing
+     * @return current tree builder instance
+     * @see JbTreeRepacker
+     */
+    public TreeBuilder setRepackInterval(final long newRepackInterval) {
+        if (newRepackInterval < 0) {
+            throw new JblinktreeException(
+                    "Repack interval can't be negative.");
+        }
+        this.repackInterval = newRepackInterval;
+        return this;
+    }
+
+    /**
+     * Allow to split nodes near insertion point when keys are inserted in
+     * increasing order. When key bigger than all keys in full rightmost node
+     * is inserted, than node keeps keys up to fill factor and new key is
+     * stored into new node. Nodes of tree filled with increasing keys are
+     * than filled up to fill factor instead of half. Other nodes are still
+     * split in half. By default all nodes are split in half.
+     *
+     * @param isSequentialSplit
+     *            when it's <code>true</code> than rightmost nodes are split
+     *            near insertion point
+     * @return current tree builder instance
+     * @see #setFillFactor(double)
+     */
+    public TreeBuilder setSequentialSplit(final boolean isSequentialSplit) {
+        this.sequentialSplit = isSequentialSplit;
+        return this;
+    }
+
+    /**
+     * Are empty nodes removed from tree.
+     *
+     * @return <code>true</code> when empty nodes are removed
+     */
+    private boolean isRemovingEmptyNodes() {
+        return removeEmptyNodes || repackInterval > 0;
+    }
+
     /**
      * Allow to set tree wrapper instance. Wrapper store tree nodes into file.
      * It'd debug tool and never should be used in production.
@@ -257,6 +771,8 @@ public final class TreeBuilder {
      *            required tree data
      * @param nodeBuilder
      *            required node builder
+     * @param directory
+     *            required directory where is tree stored
      * @param <K>
      *            key type
      * @param <V>
@@ -265,7 +781,7 @@ public final class TreeBuilder {
      */
     private <K, V> NodeFileStorage<K, V> makeNodeFileStorage(
             final JbTreeData<K, V> treeData,
-            final JbNodeBuilder<K, V> nodeBuilder) {
+            final JbNodeBuilder<K, V> nodeBuilder, final String directory) {
         NodeFileStorage<K, V> nodeFileStorage;
         if (treeData.getNonLeafNodeDescriptor().getValueTypeDescriptor()
                 .getMaxLength() == treeData.getNonLeafNodeDescriptor()
@@ -274,23 +790,25 @@ public final class TreeBuilder {
              * When value max length is same as length of node id than value
              * could be saved to node id space.
              */
-            nodeFileStorage = new KeyValueFileStorage<K, V>(
-                    new File(nodeStoreInFileBuilder.getFileName()
-                            + File.separator + NodeFileStorageImpl.FILE_KEYS),
-                    treeData, nodeBuilder);
+            final File file = new File(
+                    directory + File.separator + NodeFileStorageImpl.FILE_KEYS);
+            if (nodeStoreInFileBuilder.isMemoryMapped()) {
+                nodeFileStorage = new KeyValueMappedFileStorage<K, V>(file,
+                        treeData, nodeBuilder);
+            } else {
+                nodeFileStorage = new KeyValueFileStorage<K, V>(file,
+                        treeData, nodeBuilder);
+            }
         } else {
             final NodeConverter<K, V> nodeConverter =
                     new NodeConverterImpl<K, V>(treeData, nodeBuilder);
             nodeFileStorage = new NodeFileStorageImpl<K, V>(treeData,
-                    nodeBuilder, nodeStoreInFileBuilder.getFileName(),
-                    nodeConverter);
-        }
-        final NodeFileStorage<K, V> metaDataValidator =
-                new NodeFileStorageMetaDataValidaror<K, V>(treeData,
-                        nodeStoreInFileBuilder.getFileName(), nodeFileStorage);
-        final NodeFileStorage<K, V> fileStorage =
-                new NodeFileStorageLockDecorator<K, V>(metaDataValidator);
-        return fileStorage;
+                    nodeBuilder, directory, nodeConverter);
+        }
+        /**
+         * File storages use positional I/O, so there is no global lock.
+         */
+        return nodeFileStorage;
     }
 
     /**
@@ -302,6 +820,10 @@ public final class TreeBuilder {
      *            required node builder
      * @param jbNodeLockProvider
      *            required node lock provider
+     * @param directory
+     *            required directory where is tree stored
+     * @param cacheBudget
+     *            optional budget of node cache
      * @param <K>
      *            key type
      * @param <V>
@@ -311,12 +833,65 @@ public final class TreeBuilder {
     private <K, V> NodeStore<K> makeNodeStoreInFile(
             final JbTreeData<K, V> treeData,
             final JbNodeBuilder<K, V> nodeBuilder,
-            final JbNodeLockProvider jbNodeLockProvider) {
+            final JbNodeLockProvider jbNodeLockProvider,
+            final String directory, final CacheBudget cacheBudget) {
+        if (nodeStoreInFileBuilder.getCheckpointInterval() > 0
+                && !nodeStoreInFileBuilder.isWriteAheadLog()) {
+            throw new JblinktreeException(
+                    "Checkpoints can't be used without write ahead log.");
+        }
 
+        final NodeFileStorage<K, V> nodeStorage =
+                makeNodeFileStorage(treeData, nodeBuilder, directory);
+        final MetaDataStore metaDataStore = new MetaDataStoreImpl<K, V>(
+                new File(directory + File.separator
+                        + NodeFileStorageImpl.FILE_META_DATA),
+                treeData);
         final NodeFileStorage<K, V> nodeFileStorage =
-                makeNodeFileStorage(treeData, nodeBuilder);
-        final Cache<K, V> nodeCache = new CacheLru<K, V>(nodeBuilder,
-                nodeStoreInFileBuilder.getNoOfCachedNodes(), nodeFileStorage);
+                new NodeFileStorageMetaDataValidaror<K, V>(metaDataStore,
+                        nodeStorage);
+        WriteAheadLog<K, V> writeAheadLog = null;
+        if (nodeStoreInFileBuilder.isWriteAheadLog()) {
+            writeAheadLog = new WriteAheadLog<K, V>(
+                    new File(directory), treeData,
+                    nodeBuilder,
+                    nodeStoreInFileBuilder.getGroupCommitDelay());
+            /**
+             * Nodes logged before crash are stored before cache is used.
+             */
+            writeAheadLog.replay(nodeFileStorage);
+        }
+        if (metaDataStore.isRecoveredFromCheckpoint()) {
+            /**
+             * Nodes with ids given after last checkpoint could be already
+             * stored, their ids can't be given again.
+             */
+            treeData.setMaxNodeId(Math.max(treeData.getMaxNodeId(),
+                    nodeFileStorage.getMaxNodeId()));
+        }
+        final Cache<K, V> leafCache;
+        if (cacheBudget != null) {
+            leafCache = new CacheLruBytes<K, V>(nodeBuilder, cacheBudget,
+                    nodeFileStorage);
+        } else if (nodeStoreInFileBuilder.isOffHeapCache()) {
+            leafCache = new CacheOffHeap<K, V>(treeData, nodeBuilder,
+                    nodeStoreInFileBuilder.getNoOfCachedNodes(),
+                    nodeFileStorage);
+        } else if (nodeStoreInFileBuilder.isTinyLfuCache()) {
+            leafCache = new CacheTinyLfu<K, V>(nodeBuilder,
+                    nodeStoreInFileBuilder.getNoOfCachedNodes(),
+                    nodeFileStorage);
+        } else {
+            leafCache = new CacheClock<K, V>(nodeBuilder,
+                    nodeStoreInFileBuilder.getNoOfCachedNodes(),
+                    nodeFileStorage);
+        }
+        Cache<K, V> nodeCache;
+        if (nodeStoreInFileBuilder.isPinNonLeafNodes()) {
+            nodeCache = new CachePinnedNonLeaf<K, V>(nodeBuilder, leafCache);
+        } else {
+            nodeCache = leafCache;
+        }
         nodeCache.addCacheListener(new CacheListener<K, V>() {
 
             @Override
@@ -327,6 +902,11 @@ public final class TreeBuilder {
                 }
             }
 
+            @Override
+            public void onFlush(final Node<K, V> node) {
+                nodeFileStorage.store(node);
+            }
+
         });
 
         nodeCache.addCacheListener(new CacheListener<K, V>() {
@@ -337,10 +917,30 @@ public final class TreeBuilder {
                 jbNodeLockProvider.removeLock(node.getId());
             }
 
+            @Override
+            public void onFlush(final Node<K, V> node) {
+                /**
+                 * Node stays in cache, so lock is still used.
+                 */
+            }
+
         });
 
+        if (nodeStoreInFileBuilder.getWriteBackInterval() > 0) {
+            /**
+             * Background thread starts after listeners are registered.
+             */
+            nodeCache = new CacheWriteBack<K, V>(nodeCache,
+                    nodeStoreInFileBuilder.getWriteBackInterval());
+        }
+        if (nodeStoreInFileBuilder.getCheckpointInterval() > 0) {
+            nodeCache = new CacheCheckpoint<K, V>(nodeCache, nodeFileStorage,
+                    metaDataStore, treeData, writeAheadLog,
+                    nodeStoreInFileBuilder.getCheckpointInterval());
+        }
         final NodeStore<K> nodeStore = new NodeStoreInFile<K, V>(nodeCache,
-                nodeFileStorage, jbNodeLockProvider);
+                nodeFileStorage, jbNodeLockProvider, nodeBuilder,
+                nodeStoreInFileBuilder.isCacheScannedNodes(), writeAheadLog);
         return nodeStore;
     }
 
@@ -387,6 +987,177 @@ public final class TreeBuilder {
      * @return {@link TreeMap} instance
      */
     public <K, V> TreeMap<K, V> build() {
+        return build(null);
+    }
+
+    /**
+     * Build tree with <code>int</code> keys and values. Key and value types
+     * are set to integer.
+     *
+     * @return {@link IntTreeMap} instance
+     */
+    public IntTreeMap buildIntTreeMap() {
+        setKeyType(Types.integer());
+        setValueType(Types.integer());
+        final JbTreeData<Integer, Integer> treeData = buildTreeData();
+        final JbNodeBuilder<Integer, Integer> nodeBuilder =
+                new JbNodeBuilderShort<Integer, Integer>(treeData);
+        final NodeStore<Integer> nodeStore =
+                makeNodeStore(treeData, nodeBuilder);
+        final TreeMap<Integer, Integer> map =
+                new TreeMapImpl<Integer, Integer>(
+                        buildTree(null, treeData, nodeBuilder, nodeStore),
+                        treeData);
+        return new IntTreeMapImpl(map,
+                new JbTreePrimitiveSearch<Integer, Integer>(nodeStore,
+                        treeData, isRemovingEmptyNodes()));
+    }
+
+    /**
+     * Build tree with <code>long</code> keys and values. Key and value types
+     * are set to long.
+     *
+     * @return {@link LongTreeMap} instance
+     */
+    public LongTreeMap buildLongTreeMap() {
+        setKeyType(Types.longType());
+        setValueType(Types.longType());
+        final JbTreeData<Long, Long> treeData = buildTreeData();
+        final JbNodeBuilder<Long, Long> nodeBuilder =
+                new JbNodeBuilderShort<Long, Long>(treeData);
+        final NodeStore<Long> nodeStore =
+                makeNodeStore(treeData, nodeBuilder);
+        final TreeMap<Long, Long> map =
+                new TreeMapImpl<Long, Long>(
+                        buildTree(null, treeData, nodeBuilder, nodeStore),
+                        treeData);
+        return new LongTreeMapImpl(map,
+                new JbTreePrimitiveSearch<Long, Long>(nodeStore,
+                        treeData, isRemovingEmptyNodes()));
+    }
+
+    /**
+     * Build new tree and fill it with given key value pairs. Leaf nodes are
+     * filled up to fill factor and written one by one, upper levels are built
+     * bottom up. There are no splits and no locking so it's much faster than
+     * putting pairs one by one.
+     * <p>
+     * Key value pairs have to be sorted by key in ascending order and each key
+     * could be there just once. Stored tree have to be empty. When loading
+     * fails, node store is closed. Tree stored in file is left incomplete and
+     * its directory should be deleted before it's used again.
+     * </p>
+     *
+     * @param entries
+     *            required iterator over sorted key value pairs
+     * @param <K>
+     *            key type
+     * @param <V>
+     *            value type
+     * @return {@link TreeMap} instance
+     * @throws JblinktreeException
+     *             when keys are not sorted or when tree already exists
+     */
+    public <K, V> TreeMap<K, V> bulkLoad(
+            final Iterator<? extends Map.Entry<K, V>> entries) {
+        return build(Objects.requireNonNull(entries));
+    }
+
+    /**
+     * Rewrite tree stored in file into new directory. Key value pairs are read
+     * in key order through leaf node chain and bulk loaded into new tree, so
+     * leaf nodes are filled up to fill factor, they have consecutive ids and
+     * they are stored in key order. Scanning of new tree reads files
+     * sequentially. Space of removed nodes is not copied.
+     * <p>
+     * Source tree is set by {@link #setNodeStoreInFileBuilder} and it's closed
+     * at the end. It shouldn't be opened by anyone else during compaction.
+     * Target directory have to be empty, all other settings of target tree are
+     * same as source tree settings.
+     * </p>
+     *
+     * @param targetDirectory
+     *            required directory where will be compacted tree stored
+     * @param <K>
+     *            key type
+     * @param <V>
+     *            value type
+     * @return compacted {@link TreeMap} instance
+     * @throws JblinktreeException
+     *             when source tree doesn't exist or when target tree already
+     *             exists
+     */
+    public <K, V> TreeMap<K, V> compact(final String targetDirectory) {
+        Objects.requireNonNull(targetDirectory);
+        Objects.requireNonNull(nodeStoreInFileBuilder,
+                "source tree is not set, use .setNodeStoreInFileBuilder");
+        final File sourceDirectory =
+                new File(nodeStoreInFileBuilder.getFileName());
+        if (!new File(sourceDirectory, NodeFileStorageImpl.FILE_META_DATA)
+                .exists()) {
+            throw new JblinktreeException("There is no tree in directory '"
+                    + sourceDirectory.getAbsolutePath() + "'.");
+        }
+        if (sourceDirectory.getAbsoluteFile()
+                .equals(new File(targetDirectory).getAbsoluteFile())) {
+            throw new JblinktreeException(
+                    "Tree can't be compacted into same directory.");
+        }
+        CacheBudget sourceBudget = null;
+        if (getCacheBudget() != null) {
+            /**
+             * Budget could be used just by one cache, source tree gets own
+             * budget of the same size.
+             */
+            sourceBudget = new CacheBudget(getCacheBudget().getMaxBytes());
+        }
+        final TreeMap<K, V> source =
+                build(null, sourceDirectory.getPath(), sourceBudget);
+        try {
+            return build(source.entrySet().iterator(), targetDirectory,
+                    getCacheBudget());
+        } finally {
+            source.close();
+        }
+    }
+
+    /**
+     * Build {@link java.util.Map} instance with previously given parameters.
+     *
+     * @param entries
+     *            optional key value pairs for bulk load, when it's
+     *            <code>null</code> empty tree is created
+     * @param <K>
+     *            key type
+     * @param <V>
+     *            value type
+     * @return {@link TreeMap} instance
+     */
+    private <K, V> TreeMap<K, V> build(
+            final Iterator<? extends Map.Entry<K, V>> entries) {
+        return build(entries, getDirectory(), getCacheBudget());
+    }
+
+    /**
+     * Build {@link java.util.Map} instance stored in given directory.
+     *
+     * @param entries
+     *            optional key value pairs for bulk load, when it's
+     *            <code>null</code> empty tree is created
+     * @param directory
+     *            optional directory where is tree stored, when it's
+     *            <code>null</code> tree is stored in memory
+     * @param cacheBudget
+     *            optional budget of node cache
+     * @param <K>
+     *            key type
+     * @param <V>
+     *            value type
+     * @return {@link TreeMap} instance
+     */
+    private <K, V> TreeMap<K, V> build(
+            final Iterator<? extends Map.Entry<K, V>> entries,
+            final String directory, final CacheBudget cacheBudget) {
         Objects.requireNonNull(keyTypeDescriptor,
                 "key TypeDescriptor is null, use .setKeyType in builder");
         Objects.requireNonNull(valueTypeDescriptor,
@@ -394,43 +1165,187 @@ public final class TreeBuilder {
         final JbTreeData<K, V> treeData = buildTreeData();
         final JbNodeBuilder<K, V> nodeBuilder =
                 new JbNodeBuilderShort<K, V>(treeData);
-        final JbNodeLockProvider jbNodeLockProvider =
-                new JbNodeLockProviderImpl();
-        final NodeStore<K> nodeStore;
+        final NodeStore<K> nodeStore =
+                makeNodeStore(treeData, nodeBuilder, directory, cacheBudget);
+        return new TreeMapImpl<K, V>(
+                buildTree(entries, treeData, nodeBuilder, nodeStore),
+                treeData);
+    }
+
+    /**
+     * Create node store with previously given parameters.
+     *
+     * @param treeData
+     *            required tree data
+     * @param nodeBuilder
+     *            required node builder
+     * @param <K>
+     *            key type
+     * @param <V>
+     *            value type
+     * @return node store
+     */
+    private <K, V> NodeStore<K> makeNodeStore(final JbTreeData<K, V> treeData,
+            final JbNodeBuilder<K, V> nodeBuilder) {
+        return makeNodeStore(treeData, nodeBuilder, getDirectory(),
+                getCacheBudget());
+    }
+
+    /**
+     * Get directory where is tree stored.
+     *
+     * @return directory or <code>null</code> when tree is stored in memory
+     */
+    private String getDirectory() {
+        if (nodeStoreInFileBuilder == null) {
+            return null;
+        }
+        return nodeStoreInFileBuilder.getFileName();
+    }
+
+    /**
+     * Get budget of node cache.
+     *
+     * @return cache budget or <code>null</code> when it's not set
+     */
+    private CacheBudget getCacheBudget() {
         if (nodeStoreInFileBuilder == null) {
-            nodeStore =
-                    new NodeStoreInMem<K, V>(nodeBuilder, jbNodeLockProvider);
+            return null;
+        }
+        return nodeStoreInFileBuilder.getCacheBudget();
+    }
+
+    /**
+     * Create node store in given directory.
+     *
+     * @param treeData
+     *            required tree data
+     * @param nodeBuilder
+     *            required node builder
+     * @param directory
+     *            optional directory where is tree stored, when it's
+     *            <code>null</code> nodes are stored in memory
+     * @param cacheBudget
+     *            optional budget of node cache
+     * @param <K>
+     *            key type
+     * @param <V>
+     *            value type
+     * @return node store
+     */
+    private <K, V> NodeStore<K> makeNodeStore(final JbTreeData<K, V> treeData,
+            final JbNodeBuilder<K, V> nodeBuilder, final String directory,
+            final CacheBudget cacheBudget) {
+        final JbNodeLockProvider jbNodeLockProvider;
+        if (nodeLockStripes == null) {
+            jbNodeLockProvider = new JbNodeLockProviderImpl();
+        } else {
+            jbNodeLockProvider =
+                    new JbNodeLockProviderStriped(nodeLockStripes);
+        }
+        final NodeStore<K> nodeStore;
+        if (directory == null) {
+            if (offHeapNodeStore) {
+                nodeStore = new NodeStoreOffHeap<K, V>(treeData, nodeBuilder,
+                        jbNodeLockProvider);
+            } else {
+                nodeStore = new NodeStoreInMem<K, V>(nodeBuilder,
+                        jbNodeLockProvider);
+            }
         } else {
             nodeStore = makeNodeStoreInFile(treeData, nodeBuilder,
-                    jbNodeLockProvider);
+                    jbNodeLockProvider, directory, cacheBudget);
         }
+        return nodeStore;
+    }
+
+    /**
+     * Create tree in given node store.
+     *
+     * @param entries
+     *            optional key value pairs for bulk load, when it's
+     *            <code>null</code> empty tree is created
+     * @param treeData
+     *            required tree data
+     * @param nodeBuilder
+     *            required node builder
+     * @param nodeStore
+     *            required node store
+     * @param <K>
+     *            key type
+     * @param <V>
+     *            value type
+     * @return tree
+     */
+    private <K, V> JbTree<K, V> buildTree(
+            final Iterator<? extends Map.Entry<K, V>> entries,
+            final JbTreeData<K, V> treeData,
+            final JbNodeBuilder<K, V> nodeBuilder,
+            final NodeStore<K> nodeStore) {
         final JbNodeService<K, V> jbNodeService = new JbNodeServiceImpl<K, V>();
         final JbTreeTool<K, V> jbTreeTool = new JbTreeToolImpl<K, V>(nodeStore,
-                treeData, nodeBuilder, jbNodeService);
+                treeData, nodeBuilder, jbNodeService,
+                sequentialSplit ? fillFactor : 0);
         final JbTreeTraversingService<K, V> treeLockingTool =
                 new JbTreeTraversingServiceImpl<K, V>(jbTreeTool,
                         jbNodeService);
         final JbTreeService<K, V> treeService = new JbTreeServiceImpl<K, V>(
                 nodeStore, treeLockingTool, jbNodeService);
         final JbTreeHelper<K, V> jbTreeHelper = new JbTreeHelperImpl<K, V>(
-                nodeStore, jbTreeTool, treeService, treeData);
-        final JbTree<K, V> tree =
-                new JbTreeImpl<K, V>(nodeStore, jbTreeTool, jbTreeHelper,
-                        treeData, treeLockingTool, treeService, jbNodeService);
+                nodeStore, jbTreeTool, treeService, treeData, jbNodeService);
+        JbTree<K, V> tree;
+        JbTreeRepacker<K, V> treeRepacker = null;
+        if (isRemovingEmptyNodes()) {
+            final JbTreeMerger<K, V> treeMerger =
+                    new JbTreeMerger<K, V>(nodeStore, jbTreeTool, treeData);
+            if (repackInterval > 0) {
+                treeRepacker = new JbTreeRepacker<K, V>(nodeStore, jbTreeTool,
+                        treeData, treeMerger, fillFactor, repackInterval);
+            }
+            tree = new JbTreeOperationGuard<K, V>(
+                    new JbTreeImpl<K, V>(nodeStore, jbTreeTool, jbTreeHelper,
+                            treeData, treeLockingTool, treeService,
+                            jbNodeService, treeMerger, treeRepacker),
+                    treeData);
+        } else {
+            tree = new JbTreeImpl<K, V>(nodeStore, jbTreeTool, jbTreeHelper,
+                    treeData, treeLockingTool, treeService, jbNodeService);
+        }
 
-        if (nodeStore.isNewlyCreated()) {
+        if (entries != null) {
+            if (!nodeStore.isNewlyCreated()) {
+                nodeStore.close();
+                throw new JblinktreeException(
+                        "Bulk load could be used just for new tree.");
+            }
+            try {
+                new JbTreeBulkLoader<K, V>(nodeStore, nodeBuilder, treeData,
+                        fillFactor).load(entries);
+            } catch (RuntimeException e) {
+                nodeStore.close();
+                throw e;
+            }
+        } else if (nodeStore.isNewlyCreated()) {
             /**
              * Initialize tree, create first node.
              */
             jbTreeTool.createRootNode();
+        } else if (treeData
+                .getValueCount() == JbTreeData.UNKNOWN_VALUE_COUNT) {
+            /**
+             * Tree was stored without number of values, count them.
+             */
+            treeData.setValueCount(tree.countValues());
+        }
+        if (treeRepacker != null) {
+            treeRepacker.start();
         }
 
         if (treeWrapperFileName == null) {
-            return new TreeMapImpl<K, V>(tree, treeData);
+            return tree;
         } else {
-            return new TreeMapImpl<K, V>(new JbTreeWrapper<K, V>(tree, treeData,
-                    nodeStore, treeWrapperFileName, jbNodeService), treeData);
-
+            return new JbTreeWrapper<K, V>(tree, treeData, nodeStore,
+                    treeWrapperFileName, jbNodeService);
         }
     }
 }
@@ -0,0 +1,207 @@
+package com.coroptis.jblinktree;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.AbstractSet;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.SortedSet;
+import java.util.concurrent.ConcurrentNavigableMap;
+
+/**
+ * Navigable key set backed by navigable map. All changes made through key set
+ * are written to map.
+ *
+ * @author jajir
+ *
+ * @param <K>
+ *            key type
+ */
+final class TreeKeySet<K> extends AbstractSet<K> implements NavigableSet<K> {
+
+    /**
+     * Backing map.
+     */
+    private final ConcurrentNavigableMap<K, ?> map;
+
+    /**
+     * Simple constructor.
+     *
+     * @param navigableMap
+     *            required backing map
+     */
+    TreeKeySet(final ConcurrentNavigableMap<K, ?> navigableMap) {
+        this.map = Objects.requireNonNull(navigableMap);
+    }
+
+    @Override
+    public int size() {
+        return map.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return map.isEmpty();
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+        return map.containsKey(o);
+    }
+
+    @Override
+    public boolean remove(final Object o) {
+        return map.remove(o) != null;
+    }
+
+    @Override
+    public void clear() {
+        map.clear();
+    }
+
+    @Override
+    public K lower(final K e) {
+        return map.lowerKey(e);
+    }
+
+    @Override
+    public K floor(final K e) {
+        return map.floorKey(e);
+    }
+
+    @Override
+    public K ceiling(final K e) {
+        return map.ceilingKey(e);
+    }
+
+    @Override
+    public K higher(final K e) {
+        return map.higherKey(e);
+    }
+
+    @Override
+    public Comparator<? super K> comparator() {
+        return map.comparator();
+    }
+
+    @Override
+    public K first() {
+        return map.firstKey();
+    }
+
+    @Override
+    public K last() {
+        return map.lastKey();
+    }
+
+    @Override
+    public K pollFirst() {
+        return keyOrNull(map.pollFirstEntry());
+    }
+
+    @Override
+    public K pollLast() {
+        return keyOrNull(map.pollLastEntry());
+    }
+
+    /**
+     * Return key of given entry.
+     *
+     * @param entry
+     *            optional entry
+     * @return key or <code>null</code> when entry is <code>null</code>
+     */
+    private K keyOrNull(final Map.Entry<K, ?> entry) {
+        return entry == null ? null : entry.getKey();
+    }
+
+    @Override
+    public Iterator<K> iterator() {
+        final Iterator<? extends Map.Entry<K, ?>> iterator =
+                map.entrySet().iterator();
+        return new Iterator<K>() {
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public K next() {
+                return iterator.next().getKey();
+            }
+
+            @Override
+            public void remove() {
+                iterator.remove();
+            }
+        };
+    }
+
+    @Override
+    public NavigableSet<K> descendingSet() {
+        return new TreeKeySet<K>(map.descendingMap());
+    }
+
+    @Override
+    public Iterator<K> descendingIterator() {
+        return descendingSet().iterator();
+    }
+
+    @Override
+    public NavigableSet<K> subSet(final K fromElement,
+            final boolean fromInclusive, final K toElement,
+            final boolean toInclusive) {
+        return new TreeKeySet<K>(
+                map.subMap(fromElement, fromInclusive, toElement, toInclusive));
+    }
+
+    @Override
+    public NavigableSet<K> headSet(final K toElement,
+            final boolean inclusive) {
+        return new TreeKeySet<K>(map.headMap(toElement, inclusive));
+    }
+
+    @Override
+    public NavigableSet<K> tailSet(final K fromElement,
+            final boolean inclusive) {
+        return new TreeKeySet<K>(map.tailMap(fromElement, inclusive));
+    }
+
+    @Override
+    public SortedSet<K> subSet(final K fromElement, final K toElement) {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public SortedSet<K> headSet(final K toElement) {
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public SortedSet<K> tailSet(final K fromElement) {
+        return tailSet(fromElement, true);
+    }
+
+}
@@ -20,10 +20,14 @@ package com.coroptis.jblinktree;
  * #L%
  */
 
-import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
 
 /**
- * {@link Map} extension add Jbtree specific features.
+ * {@link ConcurrentNavigableMap} extension add Jbtree specific features.
+ * <p>
+ * Navigation methods, iterators and views are backed by leaf node links. They
+ * are weakly consistent, see {@link ConcurrentNavigableMap}.
+ * </p>
  *
  * @author jajir
  *
@@ -32,7 +36,7 @@ import java.util.Map;
  * @param <V>
  *            value type
  */
-public interface TreeMap<K, V> extends Map<K, V> {
+public interface TreeMap<K, V> extends ConcurrentNavigableMap<K, V> {
 
     /**
      * Traverse through all tree key value pairs in tree.
@@ -42,6 +46,22 @@ public interface TreeMap<K, V> extends Map<K, V> {
      */
     void visit(JbDataVisitor<K, V> dataVisitor);
 
+    /**
+     * Traverse key value pairs in given key range in ascending key order.
+     * Traversing doesn't walk through whole tree, it starts at leaf node where
+     * lower bound belongs.
+     *
+     * @param fromKey
+     *            optional lower key bound, bound is inclusive. When it's
+     *            <code>null</code> than range starts with smallest key.
+     * @param toKey
+     *            optional upper key bound, bound is exclusive. When it's
+     *            <code>null</code> than range ends with biggest key.
+     * @param dataVisitor
+     *            required data visitor
+     */
+    void scan(K fromKey, K toKey, JbDataVisitor<K, V> dataVisitor);
+
     /**
      * return number of nodes that are currently locked.
      * <p>
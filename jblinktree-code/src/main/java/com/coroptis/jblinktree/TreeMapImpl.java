@@ -20,18 +20,26 @@ package com.coroptis.jblinktree;
  * #L%
  */
 
+import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
 
 import com.coroptis.jblinktree.type.TypeDescriptor;
+import com.coroptis.jblinktree.type.TypeDescriptorComparator;
 import com.coroptis.jblinktree.type.Wrapper;
 import com.coroptis.jblinktree.util.JblinktreeException;
 
 /**
- * {@link Map} Implementation. Wrap JBtree map. Not all methods are fully
- * implemented.
+ * {@link ConcurrentNavigableMap} Implementation. Wrap JBtree map. Navigation
+ * methods and views are implemented in {@link TreeSubMap}.
  * <p>
  * Working with closed tree could leads to exceptions.
  * </p>
@@ -50,6 +58,11 @@ public final class TreeMapImpl<K, V> implements TreeMap<K, V> {
      */
     private final JbTree<K, V> tree;
 
+    /**
+     * Tree data, holds number of stored values.
+     */
+    private final JbTreeData<K, V> treeData;
+
     /**
      * Key type descriptor.
      */
@@ -60,6 +73,16 @@ public final class TreeMapImpl<K, V> implements TreeMap<K, V> {
      */
     private final TypeDescriptor<V> valueTypeDescriptor;
 
+    /**
+     * Key comparator, keys are ordered in same way as in tree.
+     */
+    private final Comparator<K> keyComparator;
+
+    /**
+     * Unbounded ascending view. Navigation methods are delegated to it.
+     */
+    private final TreeSubMap<K, V> view;
+
     /**
      * Is <code>true</code> when tree is closed.
      */
@@ -70,15 +93,20 @@ public final class TreeMapImpl<K, V> implements TreeMap<K, V> {
      *
      * @param jbTree
      *            required tree
-     * @param treeData
+     * @param initTreeData
      *            required tree data descriptor
      */
-    TreeMapImpl(final JbTree<K, V> jbTree, final JbTreeData<K, V> treeData) {
+    TreeMapImpl(final JbTree<K, V> jbTree,
+            final JbTreeData<K, V> initTreeData) {
         this.tree = Objects.requireNonNull(jbTree);
+        this.treeData = Objects.requireNonNull(initTreeData);
         this.keyTypeDescriptor = Objects.requireNonNull(
                 treeData.getLeafNodeDescriptor().getKeyTypeDescriptor());
         this.valueTypeDescriptor = Objects.requireNonNull(
                 treeData.getLeafNodeDescriptor().getValueTypeDescriptor());
+        this.keyComparator =
+                new TypeDescriptorComparator<K>(keyTypeDescriptor);
+        this.view = new TreeSubMap<K, V>(this, null, false, null, false, false);
         isClosed = false;
     }
 
@@ -90,7 +118,7 @@ public final class TreeMapImpl<K, V> implements TreeMap<K, V> {
      * @return typed key
      */
     @SuppressWarnings("unchecked")
-    private K verifyKey(final Object object) {
+    K verifyKey(final Object object) {
         Objects.requireNonNull(object, "key can't be null.");
         keyTypeDescriptor.verifyType(object);
         return (K) object;
@@ -110,9 +138,59 @@ public final class TreeMapImpl<K, V> implements TreeMap<K, V> {
         return (V) object;
     }
 
+    /**
+     * Compare two keys in same way as they are compared in tree.
+     *
+     * @param key1
+     *            required key
+     * @param key2
+     *            required key
+     * @return comparison result
+     */
+    int compareKeys(final K key1, final K key2) {
+        return keyComparator.compare(key1, key2);
+    }
+
+    /**
+     * Find entry with biggest key smaller than given key.
+     *
+     * @param key
+     *            optional key, when it's <code>null</code> than last entry is
+     *            returned
+     * @param inclusive
+     *            when it's <code>true</code> than entry with given key could
+     *            be returned
+     * @return entry or <code>null</code>
+     */
+    Map.Entry<K, V> floor(final K key, final boolean inclusive) {
+        checkIsClosed();
+        return tree.floorEntry(makeBound(key), inclusive);
+    }
+
+    /**
+     * Create ascending entry iterator.
+     *
+     * @param fromKey
+     *            optional lower key bound
+     * @param inclusive
+     *            when it's <code>true</code> than entry with lower bound key
+     *            is returned
+     * @return entry iterator
+     */
+    Iterator<Map.Entry<K, V>> entryIterator(final K fromKey,
+            final boolean inclusive) {
+        checkIsClosed();
+        return tree.iterator(makeBound(fromKey), inclusive);
+    }
+
     @Override
     public void clear() {
-        throw new UnsupportedOperationException();
+        checkIsClosed();
+        final Iterator<Map.Entry<K, V>> iterator = tree.iterator(null, true);
+        while (iterator.hasNext()) {
+            tree.remove(Wrapper.make(iterator.next().getKey(),
+                    keyTypeDescriptor));
+        }
     }
 
     @Override
@@ -124,12 +202,14 @@ public final class TreeMapImpl<K, V> implements TreeMap<K, V> {
 
     @Override
     public boolean containsValue(final Object value) {
-        throw new UnsupportedOperationException();
+        checkIsClosed();
+        return view.containsValue(value);
     }
 
     @Override
     public Set<Map.Entry<K, V>> entrySet() {
-        throw new UnsupportedOperationException();
+        checkIsClosed();
+        return view.entrySet();
     }
 
     @Override
@@ -140,12 +220,14 @@ public final class TreeMapImpl<K, V> implements TreeMap<K, V> {
 
     @Override
     public boolean isEmpty() {
-        throw new UnsupportedOperationException();
+        checkIsClosed();
+        return !tree.iterator(null, true).hasNext();
     }
 
     @Override
-    public Set<K> keySet() {
-        throw new UnsupportedOperationException();
+    public NavigableSet<K> keySet() {
+        checkIsClosed();
+        return view.navigableKeySet();
     }
 
     @Override
@@ -157,7 +239,25 @@ public final class TreeMapImpl<K, V> implements TreeMap<K, V> {
 
     @Override
     public void putAll(final Map<? extends K, ? extends V> m) {
-        throw new UnsupportedOperationException();
+        checkIsClosed();
+        /**
+         * Sort keys in tree order, when key is in map more than once than
+         * last value wins.
+         */
+        final java.util.TreeMap<K, V> sorted =
+                new java.util.TreeMap<K, V>(keyComparator);
+        for (final Map.Entry<? extends K, ? extends V> entry : m.entrySet()) {
+            sorted.put(verifyKey(entry.getKey()),
+                    verifyValue(entry.getValue()));
+        }
+        final List<Map.Entry<Wrapper<K>, V>> entries =
+                new ArrayList<Map.Entry<Wrapper<K>, V>>(sorted.size());
+        for (final Map.Entry<K, V> entry : sorted.entrySet()) {
+            entries.add(new AbstractMap.SimpleImmutableEntry<Wrapper<K>, V>(
+                    Wrapper.make(entry.getKey(), keyTypeDescriptor),
+                    entry.getValue()));
+        }
+        tree.insertAll(entries);
     }
 
     @Override
@@ -169,12 +269,175 @@ public final class TreeMapImpl<K, V> implements TreeMap<K, V> {
     @Override
     public int size() {
         checkIsClosed();
-        return tree.countValues();
+        final long count = treeData.getValueCount();
+        return count > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) count;
     }
 
     @Override
     public Collection<V> values() {
-        throw new UnsupportedOperationException();
+        checkIsClosed();
+        return view.values();
+    }
+
+    @Override
+    public V putIfAbsent(final K key, final V value) {
+        checkIsClosed();
+        return tree.insertIfAbsent(
+                Wrapper.make(verifyKey(key), keyTypeDescriptor),
+                verifyValue(value));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public boolean remove(final Object key, final Object value) {
+        checkIsClosed();
+        final Wrapper<K> wrapper =
+                Wrapper.make(verifyKey(key), keyTypeDescriptor);
+        if (value == null) {
+            return false;
+        }
+        return value.equals(tree.remove(wrapper, (V) value));
+    }
+
+    @Override
+    public boolean replace(final K key, final V oldValue, final V newValue) {
+        checkIsClosed();
+        Objects.requireNonNull(oldValue, "value can't be null.");
+        return oldValue.equals(
+                tree.replace(Wrapper.make(verifyKey(key), keyTypeDescriptor),
+                        oldValue, verifyValue(newValue)));
+    }
+
+    @Override
+    public V replace(final K key, final V value) {
+        checkIsClosed();
+        return tree.replace(Wrapper.make(verifyKey(key), keyTypeDescriptor),
+                null, verifyValue(value));
+    }
+
+    @Override
+    public Comparator<? super K> comparator() {
+        return keyComparator;
+    }
+
+    @Override
+    public K firstKey() {
+        return view.firstKey();
+    }
+
+    @Override
+    public K lastKey() {
+        return view.lastKey();
+    }
+
+    @Override
+    public Map.Entry<K, V> lowerEntry(final K key) {
+        return view.lowerEntry(key);
+    }
+
+    @Override
+    public K lowerKey(final K key) {
+        return view.lowerKey(key);
+    }
+
+    @Override
+    public Map.Entry<K, V> floorEntry(final K key) {
+        return view.floorEntry(key);
+    }
+
+    @Override
+    public K floorKey(final K key) {
+        return view.floorKey(key);
+    }
+
+    @Override
+    public Map.Entry<K, V> ceilingEntry(final K key) {
+        return view.ceilingEntry(key);
+    }
+
+    @Override
+    public K ceilingKey(final K key) {
+        return view.ceilingKey(key);
+    }
+
+    @Override
+    public Map.Entry<K, V> higherEntry(final K key) {
+        return view.higherEntry(key);
+    }
+
+    @Override
+    public K higherKey(final K key) {
+        return view.higherKey(key);
+    }
+
+    @Override
+    public Map.Entry<K, V> firstEntry() {
+        return view.firstEntry();
+    }
+
+    @Override
+    public Map.Entry<K, V> lastEntry() {
+        return view.lastEntry();
+    }
+
+    @Override
+    public Map.Entry<K, V> pollFirstEntry() {
+        return view.pollFirstEntry();
+    }
+
+    @Override
+    public Map.Entry<K, V> pollLastEntry() {
+        return view.pollLastEntry();
+    }
+
+    @Override
+    public ConcurrentNavigableMap<K, V> subMap(final K fromKey,
+            final boolean fromInclusive, final K toKey,
+            final boolean toInclusive) {
+        return view.subMap(fromKey, fromInclusive, toKey, toInclusive);
+    }
+
+    @Override
+    public ConcurrentNavigableMap<K, V> headMap(final K toKey,
+            final boolean inclusive) {
+        return view.headMap(toKey, inclusive);
+    }
+
+    @Override
+    public ConcurrentNavigableMap<K, V> tailMap(final K fromKey,
+            final boolean inclusive) {
+        return view.tailMap(fromKey, inclusive);
+    }
+
+    @Override
+    public ConcurrentNavigableMap<K, V> subMap(final K fromKey,
+            final K toKey) {
+        return view.subMap(fromKey, toKey);
+    }
+
+    @Override
+    public ConcurrentNavigableMap<K, V> headMap(final K toKey) {
+        return view.headMap(toKey);
+    }
+
+    @Override
+    public ConcurrentNavigableMap<K, V> tailMap(final K fromKey) {
+        return view.tailMap(fromKey);
+    }
+
+    @Override
+    public ConcurrentNavigableMap<K, V> descendingMap() {
+        return view.descendingMap();
+    }
+
+    @Override
+    public NavigableSet<K> navigableKeySet() {
+        return view.navigableKeySet();
+    }
+
+    @Override
+    public NavigableSet<K> descendingKeySet() {
+        return view.descendingKeySet();
     }
 
     /**
@@ -202,6 +465,27 @@ public final class TreeMapImpl<K, V> implements TreeMap<K, V> {
         tree.visit(dataVisitor);
     }
 
+    @Override
+    public void scan(final K fromKey, final K toKey,
+            final JbDataVisitor<K, V> dataVisitor) {
+        checkIsClosed();
+        tree.scan(makeBound(fromKey), makeBound(toKey), dataVisitor);
+    }
+
+    /**
+     * Convert optional range bound to wrapper.
+     *
+     * @param key
+     *            optional key
+     * @return wrapped key or <code>null</code> when key is <code>null</code>
+     */
+    private Wrapper<K> makeBound(final K key) {
+        if (key == null) {
+            return null;
+        }
+        return Wrapper.make(verifyKey(key), keyTypeDescriptor);
+    }
+
     @Override
     public int countLockedNodes() {
         checkIsClosed();
@@ -0,0 +1,746 @@
+package com.coroptis.jblinktree;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+
+/**
+ * View of key range in {@link TreeMapImpl}. View could be ascending or
+ * descending. All changes made through view are written to tree and all
+ * changes in tree are visible in view.
+ * <p>
+ * Ascending iteration follows leaf node links. Descending iteration finds
+ * each previous key from tree root.
+ * </p>
+ *
+ * @author jajir
+ *
+ * @param <K>
+ *            key type
+ * @param <V>
+ *            value type
+ */
+final class TreeSubMap<K, V> extends AbstractMap<K, V>
+        implements ConcurrentNavigableMap<K, V> {
+
+    /**
+     * Underlying tree map.
+     */
+    private final TreeMapImpl<K, V> map;
+
+    /**
+     * Lower bound key, when it's <code>null</code> than range is not bounded
+     * from below.
+     */
+    private final K lo;
+
+    /**
+     * Is <code>true</code> when lower bound key is in range.
+     */
+    private final boolean loInclusive;
+
+    /**
+     * Upper bound key, when it's <code>null</code> than range is not bounded
+     * from above.
+     */
+    private final K hi;
+
+    /**
+     * Is <code>true</code> when upper bound key is in range.
+     */
+    private final boolean hiInclusive;
+
+    /**
+     * Is <code>true</code> when view is in descending order.
+     */
+    private final boolean isDescending;
+
+    /**
+     * Create view.
+     *
+     * @param treeMap
+     *            required underlying tree map
+     * @param fromKey
+     *            optional lower bound key
+     * @param fromInclusive
+     *            when it's <code>true</code> than lower bound key is in range
+     * @param toKey
+     *            optional upper bound key
+     * @param toInclusive
+     *            when it's <code>true</code> than upper bound key is in range
+     * @param descending
+     *            when it's <code>true</code> than view is in descending order
+     */
+    TreeSubMap(final TreeMapImpl<K, V> treeMap, final K fromKey,
+            final boolean fromInclusive, final K toKey,
+            final boolean toInclusive, final boolean descending) {
+        this.map = Objects.requireNonNull(treeMap);
+        if (fromKey != null && toKey != null
+                && map.compareKeys(fromKey, toKey) > 0) {
+            throw new IllegalArgumentException("inconsistent range");
+        }
+        this.lo = fromKey;
+        this.loInclusive = fromInclusive;
+        this.hi = toKey;
+        this.hiInclusive = toInclusive;
+        this.isDescending = descending;
+    }
+
+    /**
+     * Verify that key is smaller than range.
+     *
+     * @param key
+     *            required key
+     * @return <code>true</code> when key is smaller than lower bound
+     */
+    private boolean tooLow(final K key) {
+        if (lo == null) {
+            return false;
+        }
+        final int cmp = map.compareKeys(key, lo);
+        return cmp < 0 || (cmp == 0 && !loInclusive);
+    }
+
+    /**
+     * Verify that key is bigger than range.
+     *
+     * @param key
+     *            required key
+     * @return <code>true</code> when key is bigger than upper bound
+     */
+    private boolean tooHigh(final K key) {
+        if (hi == null) {
+            return false;
+        }
+        final int cmp = map.compareKeys(key, hi);
+        return cmp > 0 || (cmp == 0 && !hiInclusive);
+    }
+
+    /**
+     * Verify that key is in range.
+     *
+     * @param key
+     *            required key
+     * @return <code>true</code> when key is in range
+     */
+    private boolean inBounds(final K key) {
+        return !tooLow(key) && !tooHigh(key);
+    }
+
+    /**
+     * Verify key type and that key is in range.
+     *
+     * @param key
+     *            required key
+     * @return typed key
+     * @throws IllegalArgumentException
+     *             when key is out of range
+     */
+    private K checkKeyBounds(final Object key) {
+        final K k = map.verifyKey(key);
+        if (!inBounds(k)) {
+            throw new IllegalArgumentException("key out of range");
+        }
+        return k;
+    }
+
+    /**
+     * Return entry with smallest key in range.
+     *
+     * @return entry or <code>null</code> when range is empty
+     */
+    private Map.Entry<K, V> lowestEntry() {
+        return firstInRange(map.entryIterator(lo, lo == null || loInclusive));
+    }
+
+    /**
+     * Return entry with biggest key in range.
+     *
+     * @return entry or <code>null</code> when range is empty
+     */
+    private Map.Entry<K, V> highestEntry() {
+        return checkLow(map.floor(hi, hi == null || hiInclusive));
+    }
+
+    /**
+     * Find entry with biggest key smaller than given key in range.
+     *
+     * @param key
+     *            required key
+     * @param inclusive
+     *            when it's <code>true</code> than entry with given key could
+     *            be returned
+     * @return entry or <code>null</code>
+     */
+    private Map.Entry<K, V> absFloor(final Object key,
+            final boolean inclusive) {
+        final K k = map.verifyKey(key);
+        if (tooHigh(k)) {
+            return highestEntry();
+        }
+        return checkLow(map.floor(k, inclusive));
+    }
+
+    /**
+     * Find entry with smallest key bigger than given key in range.
+     *
+     * @param key
+     *            required key
+     * @param inclusive
+     *            when it's <code>true</code> than entry with given key could
+     *            be returned
+     * @return entry or <code>null</code>
+     */
+    private Map.Entry<K, V> absCeiling(final Object key,
+            final boolean inclusive) {
+        final K k = map.verifyKey(key);
+        if (tooLow(k)) {
+            return lowestEntry();
+        }
+        return firstInRange(map.entryIterator(k, inclusive));
+    }
+
+    /**
+     * Return first entry from iterator when it's in range.
+     *
+     * @param iterator
+     *            required ascending iterator
+     * @return entry or <code>null</code>
+     */
+    private Map.Entry<K, V> firstInRange(
+            final Iterator<Map.Entry<K, V>> iterator) {
+        if (!iterator.hasNext()) {
+            return null;
+        }
+        final Map.Entry<K, V> entry = iterator.next();
+        return tooHigh(entry.getKey()) ? null : entry;
+    }
+
+    /**
+     * Return given entry when it's not smaller than range.
+     *
+     * @param entry
+     *            optional entry
+     * @return entry or <code>null</code>
+     */
+    private Map.Entry<K, V> checkLow(final Map.Entry<K, V> entry) {
+        if (entry == null || tooLow(entry.getKey())) {
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Return key of given entry.
+     *
+     * @param entry
+     *            optional entry
+     * @return key or <code>null</code> when entry is <code>null</code>
+     */
+    private K keyOrNull(final Map.Entry<K, V> entry) {
+        return entry == null ? null : entry.getKey();
+    }
+
+    /**
+     * Return key of given entry.
+     *
+     * @param entry
+     *            optional entry
+     * @return key
+     * @throws NoSuchElementException
+     *             when entry is <code>null</code>
+     */
+    private K keyOrException(final Map.Entry<K, V> entry) {
+        if (entry == null) {
+            throw new NoSuchElementException();
+        }
+        return entry.getKey();
+    }
+
+    /**
+     * Remove and return given entry.
+     *
+     * @param isFirst
+     *            when it's <code>true</code> than first entry is removed
+     *            otherwise last one is removed
+     * @return removed entry or <code>null</code> when view is empty
+     */
+    private Map.Entry<K, V> pollEntry(final boolean isFirst) {
+        while (true) {
+            final Map.Entry<K, V> entry =
+                    isFirst ? firstEntry() : lastEntry();
+            if (entry == null) {
+                return null;
+            }
+            if (map.remove(entry.getKey(), entry.getValue())) {
+                return entry;
+            }
+        }
+    }
+
+    /**
+     * Create new view with given bounds. New bounds have to be in current
+     * range.
+     *
+     * @param fromKey
+     *            optional lower bound key
+     * @param fromInclusive
+     *            when it's <code>true</code> than lower bound key is in range
+     * @param toKey
+     *            optional upper bound key
+     * @param toInclusive
+     *            when it's <code>true</code> than upper bound key is in range
+     * @return new view
+     */
+    private TreeSubMap<K, V> newSubMap(final K fromKey,
+            final boolean fromInclusive, final K toKey,
+            final boolean toInclusive) {
+        K newLo = fromKey;
+        boolean newLoInclusive = fromInclusive;
+        K newHi = toKey;
+        boolean newHiInclusive = toInclusive;
+        if (isDescending) {
+            newLo = toKey;
+            newLoInclusive = toInclusive;
+            newHi = fromKey;
+            newHiInclusive = fromInclusive;
+        }
+        if (lo != null) {
+            if (newLo == null) {
+                newLo = lo;
+                newLoInclusive = loInclusive;
+            } else {
+                final int cmp = map.compareKeys(newLo, lo);
+                if (cmp < 0 || (cmp == 0 && !loInclusive && newLoInclusive)) {
+                    throw new IllegalArgumentException("key out of range");
+                }
+            }
+        }
+        if (hi != null) {
+            if (newHi == null) {
+                newHi = hi;
+                newHiInclusive = hiInclusive;
+            } else {
+                final int cmp = map.compareKeys(newHi, hi);
+                if (cmp > 0 || (cmp == 0 && !hiInclusive && newHiInclusive)) {
+                    throw new IllegalArgumentException("key out of range");
+                }
+            }
+        }
+        return new TreeSubMap<K, V>(map, newLo, newLoInclusive, newHi,
+                newHiInclusive, isDescending);
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        final K k = map.verifyKey(key);
+        return inBounds(k) && map.containsKey(k);
+    }
+
+    @Override
+    public V get(final Object key) {
+        final K k = map.verifyKey(key);
+        return inBounds(k) ? map.get(k) : null;
+    }
+
+    @Override
+    public V put(final K key, final V value) {
+        return map.put(checkKeyBounds(key), value);
+    }
+
+    @Override
+    public V remove(final Object key) {
+        final K k = map.verifyKey(key);
+        return inBounds(k) ? map.remove(k) : null;
+    }
+
+    @Override
+    public int size() {
+        if (lo == null && hi == null) {
+            return map.size();
+        }
+        long count = 0;
+        final Iterator<Map.Entry<K, V>> iterator = new EntryIterator();
+        while (iterator.hasNext()) {
+            iterator.next();
+            count++;
+        }
+        return count < Integer.MAX_VALUE ? (int) count : Integer.MAX_VALUE;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return lowestEntry() == null;
+    }
+
+    @Override
+    public boolean containsValue(final Object value) {
+        Objects.requireNonNull(value);
+        final Iterator<Map.Entry<K, V>> iterator = new EntryIterator();
+        while (iterator.hasNext()) {
+            if (value.equals(iterator.next().getValue())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void clear() {
+        final Iterator<Map.Entry<K, V>> iterator = new EntryIterator();
+        while (iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    @Override
+    public V putIfAbsent(final K key, final V value) {
+        return map.putIfAbsent(checkKeyBounds(key), value);
+    }
+
+    @Override
+    public boolean remove(final Object key, final Object value) {
+        final K k = map.verifyKey(key);
+        return inBounds(k) && map.remove(k, value);
+    }
+
+    @Override
+    public boolean replace(final K key, final V oldValue, final V newValue) {
+        return map.replace(checkKeyBounds(key), oldValue, newValue);
+    }
+
+    @Override
+    public V replace(final K key, final V value) {
+        return map.replace(checkKeyBounds(key), value);
+    }
+
+    @Override
+    public Comparator<? super K> comparator() {
+        if (isDescending) {
+            return Collections.reverseOrder(map.comparator());
+        }
+        return map.comparator();
+    }
+
+    @Override
+    public K firstKey() {
+        return keyOrException(firstEntry());
+    }
+
+    @Override
+    public K lastKey() {
+        return keyOrException(lastEntry());
+    }
+
+    @Override
+    public Map.Entry<K, V> lowerEntry(final K key) {
+        return isDescending ? absCeiling(key, false) : absFloor(key, false);
+    }
+
+    @Override
+    public K lowerKey(final K key) {
+        return keyOrNull(lowerEntry(key));
+    }
+
+    @Override
+    public Map.Entry<K, V> floorEntry(final K key) {
+        return isDescending ? absCeiling(key, true) : absFloor(key, true);
+    }
+
+    @Override
+    public K floorKey(final K key) {
+        return keyOrNull(floorEntry(key));
+    }
+
+    @Override
+    public Map.Entry<K, V> ceilingEntry(final K key) {
+        return isDescending ? absFloor(key, true) : absCeiling(key, true);
+    }
+
+    @Override
+    public K ceilingKey(final K key) {
+        return keyOrNull(ceilingEntry(key));
+    }
+
+    @Override
+    public Map.Entry<K, V> higherEntry(final K key) {
+        return isDescending ? absFloor(key, false) : absCeiling(key, false);
+    }
+
+    @Override
+    public K higherKey(final K key) {
+        return keyOrNull(higherEntry(key));
+    }
+
+    @Override
+    public Map.Entry<K, V> firstEntry() {
+        return isDescending ? highestEntry() : lowestEntry();
+    }
+
+    @Override
+    public Map.Entry<K, V> lastEntry() {
+        return isDescending ? lowestEntry() : highestEntry();
+    }
+
+    @Override
+    public Map.Entry<K, V> pollFirstEntry() {
+        return pollEntry(true);
+    }
+
+    @Override
+    public Map.Entry<K, V> pollLastEntry() {
+        return pollEntry(false);
+    }
+
+    @Override
+    public ConcurrentNavigableMap<K, V> subMap(final K fromKey,
+            final boolean fromInclusive, final K toKey,
+            final boolean toInclusive) {
+        Objects.requireNonNull(fromKey);
+        Objects.requireNonNull(toKey);
+        return newSubMap(fromKey, fromInclusive, toKey, toInclusive);
+    }
+
+    @Override
+    public ConcurrentNavigableMap<K, V> headMap(final K toKey,
+            final boolean inclusive) {
+        Objects.requireNonNull(toKey);
+        return newSubMap(null, false, toKey, inclusive);
+    }
+
+    @Override
+    public ConcurrentNavigableMap<K, V> tailMap(final K fromKey,
+            final boolean inclusive) {
+        Objects.requireNonNull(fromKey);
+        return newSubMap(fromKey, inclusive, null, false);
+    }
+
+    @Override
+    public ConcurrentNavigableMap<K, V> subMap(final K fromKey,
+            final K toKey) {
+        return subMap(fromKey, true, toKey, false);
+    }
+
+    @Override
+    public ConcurrentNavigableMap<K, V> headMap(final K toKey) {
+        return headMap(toKey, false);
+    }
+
+    @Override
+    public ConcurrentNavigableMap<K, V> tailMap(final K fromKey) {
+        return tailMap(fromKey, true);
+    }
+
+    @Override
+    public ConcurrentNavigableMap<K, V> descendingMap() {
+        return new TreeSubMap<K, V>(map, lo, loInclusive, hi, hiInclusive,
+                !isDescending);
+    }
+
+    @Override
+    public NavigableSet<K> navigableKeySet() {
+        return new TreeKeySet<K>(this);
+    }
+
+    @Override
+    public NavigableSet<K> keySet() {
+        return navigableKeySet();
+    }
+
+    @Override
+    public NavigableSet<K> descendingKeySet() {
+        return descendingMap().navigableKeySet();
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<Map.Entry<K, V>>() {
+
+            @Override
+            public Iterator<Map.Entry<K, V>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return TreeSubMap.this.size();
+            }
+
+            @Override
+            public boolean isEmpty() {
+                return TreeSubMap.this.isEmpty();
+            }
+
+            @Override
+            public boolean contains(final Object o) {
+                if (!(o instanceof Map.Entry)) {
+                    return false;
+                }
+                final Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+                final V value = get(e.getKey());
+                return value != null && value.equals(e.getValue());
+            }
+
+            @Override
+            public boolean remove(final Object o) {
+                if (!(o instanceof Map.Entry)) {
+                    return false;
+                }
+                final Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+                return TreeSubMap.this.remove(e.getKey(), e.getValue());
+            }
+
+            @Override
+            public void clear() {
+                TreeSubMap.this.clear();
+            }
+        };
+    }
+
+    @Override
+    public Collection<V> values() {
+        return new AbstractCollection<V>() {
+
+            @Override
+            public Iterator<V> iterator() {
+                final Iterator<Map.Entry<K, V>> iterator = new EntryIterator();
+                return new Iterator<V>() {
+
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public V next() {
+                        return iterator.next().getValue();
+                    }
+
+                    @Override
+                    public void remove() {
+                        iterator.remove();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return TreeSubMap.this.size();
+            }
+
+            @Override
+            public boolean isEmpty() {
+                return TreeSubMap.this.isEmpty();
+            }
+
+            @Override
+            public boolean contains(final Object o) {
+                return containsValue(o);
+            }
+
+            @Override
+            public void clear() {
+                TreeSubMap.this.clear();
+            }
+        };
+    }
+
+    /**
+     * Iterator over entries in view order. Ascending iterator follows leaf
+     * node links, descending one search for each previous key.
+     *
+     * @author jajir
+     *
+     */
+    private final class EntryIterator implements Iterator<Map.Entry<K, V>> {
+
+        /**
+         * Tree iterator, it's used in ascending view.
+         */
+        private final Iterator<Map.Entry<K, V>> ascending;
+
+        /**
+         * Entry returned by next call of {@link #next()}.
+         */
+        private Map.Entry<K, V> nextEntry;
+
+        /**
+         * Entry which was returned by last call of {@link #next()}.
+         */
+        private Map.Entry<K, V> lastReturned;
+
+        /**
+         * Create iterator at first entry of view.
+         */
+        EntryIterator() {
+            if (isDescending) {
+                ascending = null;
+                nextEntry = highestEntry();
+            } else {
+                ascending = map.entryIterator(lo, lo == null || loInclusive);
+                nextEntry = firstInRange(ascending);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextEntry != null;
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            if (nextEntry == null) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = nextEntry;
+            if (isDescending) {
+                nextEntry = checkLow(map.floor(lastReturned.getKey(), false));
+            } else {
+                nextEntry = firstInRange(ascending);
+            }
+            return lastReturned;
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned == null) {
+                throw new IllegalStateException();
+            }
+            map.remove(lastReturned.getKey());
+            lastReturned = null;
+        }
+
+    }
+
+}
@@ -62,6 +62,24 @@ public interface Cache<K, V> {
      */
     Node<K, V> get(Integer idNode);
 
+    /**
+     * Get node without changing cache content. It should be used when node is
+     * read just once, for example during scan of all leaf nodes. When node is
+     * not in cache than it's loaded with {@link NodeLoader#load(Integer)} but
+     * it's not put into cache.
+     *
+     * @param idNode
+     *            required id node
+     * @return node
+     */
+    Node<K, V> getForScan(Integer idNode);
+
+    /**
+     * Pass all changed nodes to {@link CacheListener#onFlush(Node)}. Nodes stay
+     * in cache and they are marked as unchanged.
+     */
+    void flush();
+
     /**
      * Evict all cached data.
      */
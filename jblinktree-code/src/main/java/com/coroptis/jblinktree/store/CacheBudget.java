@@ -0,0 +1,185 @@
+package com.coroptis.jblinktree.store;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.coroptis.jblinktree.util.JblinktreeException;
+
+/**
+ * Byte budget of node cache. It defines how many bytes could be occupied by
+ * cached nodes and reports current cache occupancy. Budget could be changed
+ * while tree is used, when it's decreased than nodes over new budget are
+ * immediately evicted.
+ * <p>
+ * Budget could be used just by one cache at the time. It's released when
+ * cache is closed, so it could be used again by reopened tree.
+ * </p>
+ *
+ * @author jajir
+ *
+ */
+public final class CacheBudget {
+
+    /**
+     * Maximal number of bytes occupied by cached nodes.
+     */
+    private volatile long maxBytes;
+
+    /**
+     * Number of bytes occupied by cached nodes.
+     */
+    private final AtomicLong usedBytes = new AtomicLong();
+
+    /**
+     * Number of cached nodes.
+     */
+    private final AtomicInteger numberOfNodes = new AtomicInteger();
+
+    /**
+     * Cache using this budget.
+     */
+    private volatile CacheLruBytes<?, ?> cache;
+
+    /**
+     * Create budget.
+     *
+     * @param initMaxBytes
+     *            required maximal number of bytes occupied by cached nodes
+     */
+    public CacheBudget(final long initMaxBytes) {
+        this.maxBytes = validate(initMaxBytes);
+    }
+
+    /**
+     * Change maximal number of bytes occupied by cached nodes. When cache
+     * occupies more bytes than nodes are evicted.
+     *
+     * @param newMaxBytes
+     *            required maximal number of bytes occupied by cached nodes
+     */
+    public void setMaxBytes(final long newMaxBytes) {
+        this.maxBytes = validate(newMaxBytes);
+        final CacheLruBytes<?, ?> c = cache;
+        if (c != null) {
+            c.evictOverBudget();
+        }
+    }
+
+    /**
+     * @return maximal number of bytes occupied by cached nodes
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Get estimated number of bytes occupied by cached nodes. It includes node
+     * data and estimated overhead of cache entry.
+     *
+     * @return number of bytes occupied by cached nodes
+     */
+    public long getUsedBytes() {
+        return usedBytes.get();
+    }
+
+    /**
+     * @return number of cached nodes
+     */
+    public int getNumberOfNodes() {
+        return numberOfNodes.get();
+    }
+
+    /**
+     * Attach budget to cache.
+     *
+     * @param budgetedCache
+     *            required cache
+     */
+    synchronized void attach(final CacheLruBytes<?, ?> budgetedCache) {
+        if (cache != null) {
+            throw new JblinktreeException("Cache budget is already used by "
+                    + "another opened tree, each tree needs own budget.");
+        }
+        cache = budgetedCache;
+    }
+
+    /**
+     * Release budget used by given cache.
+     *
+     * @param budgetedCache
+     *            required closed cache
+     */
+    synchronized void detach(final CacheLruBytes<?, ?> budgetedCache) {
+        if (cache == budgetedCache) {
+            cache = null;
+        }
+    }
+
+    /**
+     * Record added node.
+     *
+     * @param bytes
+     *            node size in bytes
+     */
+    void onAdded(final long bytes) {
+        usedBytes.addAndGet(bytes);
+        numberOfNodes.incrementAndGet();
+    }
+
+    /**
+     * Record removed node.
+     *
+     * @param bytes
+     *            node size in bytes
+     */
+    void onRemoved(final long bytes) {
+        usedBytes.addAndGet(-bytes);
+        numberOfNodes.decrementAndGet();
+    }
+
+    /**
+     * Record changed node size.
+     *
+     * @param deltaBytes
+     *            difference of node size in bytes
+     */
+    void onResized(final long deltaBytes) {
+        usedBytes.addAndGet(deltaBytes);
+    }
+
+    /**
+     * Verify budget.
+     *
+     * @param bytes
+     *            budget
+     * @return verified budget
+     */
+    private static long validate(final long bytes) {
+        if (bytes < 1) {
+            throw new JblinktreeException(
+                    "Cache budget '" + bytes + "' should be positive.");
+        }
+        return bytes;
+    }
+
+}
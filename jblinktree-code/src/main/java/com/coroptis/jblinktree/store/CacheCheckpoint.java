@@ -0,0 +1,197 @@
+package com.coroptis.jblinktree.store;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import java.util.Objects;
+
+import com.coroptis.jblinktree.JbTreeData;
+import com.coroptis.jblinktree.Node;
+import com.coroptis.jblinktree.util.JblinktreeException;
+import com.coroptis.jblinktree.util.PeriodicTask;
+
+/**
+ * Cache decorator which periodically makes checkpoints in background thread.
+ * Checkpoint writes all changed nodes from cache in order of node ids, forces
+ * node file storage to disk and than publishes root node id and max node id
+ * to meta data checkpoint slot. Write ahead log is rotated before cache is
+ * flushed and older log files are deleted after checkpoint.
+ * <p>
+ * Writers are not stopped during checkpoint and nodes are written in place
+ * also between checkpoints, so node file itself is not consistent after
+ * crash. Tree is opened from last checkpoint and log records written after
+ * it are replayed, they contain each node written since checkpoint started.
+ * Because of that checkpoints can't be used without write ahead log. After
+ * crash max node id is computed again from length of node file, so ids of
+ * written nodes are not given again.
+ * </p>
+ * <p>
+ * Failed checkpoint is logged and it's made again after next interval.
+ * </p>
+ *
+ * @author jajir
+ *
+ * @param <K>
+ *            key type
+ * @param <V>
+ *            value type
+ */
+public final class CacheCheckpoint<K, V> implements Cache<K, V> {
+
+    /**
+     * Name of background thread.
+     */
+    private static final String THREAD_NAME = "jblinktree-checkpoint";
+
+    /**
+     * Cache to which will be operations delegated.
+     */
+    private final Cache<K, V> next;
+
+    /**
+     * Node file storage where are changed nodes written.
+     */
+    private final NodeFileStorage<K, V> nodeFileStorage;
+
+    /**
+     * Meta data store where is checkpoint published.
+     */
+    private final MetaDataStore metaDataStore;
+
+    /**
+     * Tree definition.
+     */
+    private final JbTreeData<K, V> treeData;
+
+    /**
+     * Write ahead log.
+     */
+    private final WriteAheadLog<K, V> writeAheadLog;
+
+    /**
+     * Just one checkpoint could be done in the same time.
+     */
+    private final Object checkpointLock = new Object();
+
+    /**
+     * Background thread periodically making checkpoints.
+     */
+    private final PeriodicTask checkpointTask;
+
+    /**
+     * Create cache and start background thread.
+     *
+     * @param cache
+     *            required cache to which will be operations delegated
+     * @param initNodeFileStorage
+     *            required node file storage where are changed nodes written
+     * @param initMetaDataStore
+     *            required meta data store
+     * @param jbTreeData
+     *            required tree definition
+     * @param wal
+     *            required write ahead log
+     * @param checkpointInterval
+     *            required interval in milliseconds between two checkpoints,
+     *            it have to be positive
+     */
+    public CacheCheckpoint(final Cache<K, V> cache,
+            final NodeFileStorage<K, V> initNodeFileStorage,
+            final MetaDataStore initMetaDataStore,
+            final JbTreeData<K, V> jbTreeData, final WriteAheadLog<K, V> wal,
+            final long checkpointInterval) {
+        this.next = Objects.requireNonNull(cache);
+        this.nodeFileStorage = Objects.requireNonNull(initNodeFileStorage);
+        this.metaDataStore = Objects.requireNonNull(initMetaDataStore);
+        this.treeData = Objects.requireNonNull(jbTreeData);
+        this.writeAheadLog = Objects.requireNonNull(wal);
+        if (checkpointInterval < 1) {
+            throw new JblinktreeException(
+                    "Checkpoint interval should be positive.");
+        }
+        checkpointTask = new PeriodicTask(THREAD_NAME, Thread.NORM_PRIORITY,
+                checkpointInterval, new Runnable() {
+                    @Override
+                    public void run() {
+                        checkpoint();
+                    }
+                });
+        checkpointTask.start();
+    }
+
+    /**
+     * Make checkpoint. Root node id is read before nodes are written, so
+     * published root node is already in cache. Max node id is read after
+     * nodes are written, so it's bigger than id of any written node.
+     */
+    public void checkpoint() {
+        synchronized (checkpointLock) {
+            final Integer rootNodeId = treeData.getRootNodeId();
+            writeAheadLog.rotate();
+            next.flush();
+            nodeFileStorage.sync();
+            final Integer maxNodeId = treeData.getMaxNodeId();
+            metaDataStore.checkpoint(rootNodeId, maxNodeId);
+            writeAheadLog.deletePreviousGenerations();
+        }
+    }
+
+    @Override
+    public void put(final Node<K, V> node) {
+        next.put(node);
+    }
+
+    @Override
+    public void remove(final Integer idNode) {
+        next.remove(idNode);
+    }
+
+    @Override
+    public Node<K, V> get(final Integer idNode) {
+        return next.get(idNode);
+    }
+
+    @Override
+    public Node<K, V> getForScan(final Integer idNode) {
+        return next.getForScan(idNode);
+    }
+
+    @Override
+    public void flush() {
+        next.flush();
+    }
+
+    @Override
+    public void close() {
+        final RuntimeException failure = checkpointTask.stop();
+        next.close();
+        if (failure != null) {
+            throw new JblinktreeException("Background checkpoint failed.",
+                    failure);
+        }
+    }
+
+    @Override
+    public void addCacheListener(final CacheListener<K, V> cacheListener) {
+        next.addCacheListener(cacheListener);
+    }
+
+}
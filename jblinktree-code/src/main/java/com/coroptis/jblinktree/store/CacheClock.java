@@ -0,0 +1,440 @@
+package com.coroptis.jblinktree.store;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.coroptis.jblinktree.JbNodeBuilder;
+import com.coroptis.jblinktree.Node;
+import com.coroptis.jblinktree.util.JblinktreeException;
+
+/**
+ * Thread safe node cache. Nodes are split into stripes by node id, each stripe
+ * has own CLOCK eviction. Cache hit doesn't take any lock, it just marks node
+ * as recently used. Cache miss, put, remove and eviction lock just stripe of
+ * the node.
+ * <p>
+ * Node is loaded and evicted node is passed to
+ * {@link CacheListener#onUnload(Node, boolean)} while stripe is locked, so
+ * node can't be loaded from storage before changed data are written.
+ * </p>
+ *
+ * @author jajir
+ *
+ * @param <K>
+ *            key type
+ * @param <V>
+ *            value type
+ */
+public final class CacheClock<K, V> implements Cache<K, V> {
+
+    /**
+     * Default maximal number of stripes.
+     */
+    public static final int DEFAULT_NUMBER_OF_STRIPES = 64;
+
+    /**
+     * Cached node data.
+     */
+    private static final class Entry {
+
+        /**
+         * Node id.
+         */
+        private final Integer nodeId;
+
+        /**
+         * Node data.
+         */
+        private volatile byte[] nodeData;
+
+        /**
+         * Is <code>true</code> when node was changed and have to be persisted.
+         */
+        private volatile boolean changed;
+
+        /**
+         * Is <code>true</code> when node was used since last pass of clock
+         * hand.
+         */
+        private volatile boolean referenced;
+
+        /**
+         * Position of entry in clock.
+         */
+        private int slot;
+
+        /**
+         * Simple constructor.
+         *
+         * @param initNodeId
+         *            required node id
+         * @param initNodeData
+         *            required node data
+         * @param wasChanged
+         *            if node was changed
+         */
+        Entry(final Integer initNodeId, final byte[] initNodeData,
+                final boolean wasChanged) {
+            this.nodeId = initNodeId;
+            this.nodeData = initNodeData;
+            this.changed = wasChanged;
+        }
+
+    }
+
+    /**
+     * Part of cache with own CLOCK. All changes are guarded by stripe monitor.
+     */
+    private static final class Stripe {
+
+        /**
+         * Cached entries.
+         */
+        private final ConcurrentHashMap<Integer, Entry> entries =
+                new ConcurrentHashMap<Integer, Entry>();
+
+        /**
+         * Clock slots.
+         */
+        private final Entry[] slots;
+
+        /**
+         * Indexes of empty slots.
+         */
+        private final int[] freeSlots;
+
+        /**
+         * Number of empty slots.
+         */
+        private int freeSlotCount;
+
+        /**
+         * Clock hand position.
+         */
+        private int hand;
+
+        /**
+         * Simple constructor.
+         *
+         * @param capacity
+         *            required maximal number of nodes in stripe
+         */
+        Stripe(final int capacity) {
+            slots = new Entry[capacity];
+            freeSlots = new int[capacity];
+            for (int i = 0; i < capacity; i++) {
+                freeSlots[i] = capacity - 1 - i;
+            }
+            freeSlotCount = capacity;
+        }
+
+    }
+
+    /**
+     * Node builder factory.
+     */
+    private final JbNodeBuilder<K, V> nodeBuilder;
+
+    /**
+     * Loader used when node is not in cache.
+     */
+    private final NodeLoader<K, V> nodeLoader;
+
+    /**
+     * Cache listeners.
+     */
+    private final List<CacheListener<K, V>> cacheListeners;
+
+    /**
+     * Cache stripes.
+     */
+    private final Stripe[] stripes;
+
+    /**
+     * Mask used to compute stripe index from node id.
+     */
+    private final int mask;
+
+    /**
+     * Create cache with default number of stripes.
+     *
+     * @param jbNodeBuilder
+     *            required node builder factory
+     * @param maxNumberOfNodesInCache
+     *            required maximal number of cached nodes
+     * @param loader
+     *            required node loader
+     */
+    public CacheClock(final JbNodeBuilder<K, V> jbNodeBuilder,
+            final int maxNumberOfNodesInCache, final NodeLoader<K, V> loader) {
+        this(jbNodeBuilder, maxNumberOfNodesInCache, loader,
+                DEFAULT_NUMBER_OF_STRIPES);
+    }
+
+    /**
+     * Create cache.
+     *
+     * @param jbNodeBuilder
+     *            required node builder factory
+     * @param maxNumberOfNodesInCache
+     *            required maximal number of cached nodes
+     * @param loader
+     *            required node loader
+     * @param maxNumberOfStripes
+     *            required maximal number of stripes, it have to be power of
+     *            two. Each stripe holds at least one node so for small caches
+     *            is used less stripes.
+     */
+    public CacheClock(final JbNodeBuilder<K, V> jbNodeBuilder,
+            final int maxNumberOfNodesInCache, final NodeLoader<K, V> loader,
+            final int maxNumberOfStripes) {
+        this.nodeBuilder = Objects.requireNonNull(jbNodeBuilder);
+        this.nodeLoader = Objects.requireNonNull(loader);
+        this.cacheListeners = new CopyOnWriteArrayList<CacheListener<K, V>>();
+        if (maxNumberOfNodesInCache < 1) {
+            throw new JblinktreeException(
+                    "Cache should hold at least one node.");
+        }
+        if (maxNumberOfStripes < 1
+                || Integer.bitCount(maxNumberOfStripes) != 1) {
+            throw new JblinktreeException("Number of stripes '"
+                    + maxNumberOfStripes + "' should be power of two.");
+        }
+        final int numberOfStripes = Math.min(maxNumberOfStripes,
+                Integer.highestOneBit(maxNumberOfNodesInCache));
+        final int stripeCapacity = maxNumberOfNodesInCache / numberOfStripes;
+        final int remainder = maxNumberOfNodesInCache % numberOfStripes;
+        stripes = new Stripe[numberOfStripes];
+        for (int i = 0; i < numberOfStripes; i++) {
+            if (i < remainder) {
+                stripes[i] = new Stripe(stripeCapacity + 1);
+            } else {
+                stripes[i] = new Stripe(stripeCapacity);
+            }
+        }
+        mask = numberOfStripes - 1;
+    }
+
+    @Override
+    public void put(final Node<K, V> node) {
+        final Integer idNode = Objects.requireNonNull(node.getId());
+        final Stripe stripe = getStripe(idNode);
+        synchronized (stripe) {
+            final Entry entry = stripe.entries.get(idNode);
+            if (entry == null) {
+                insert(stripe, new Entry(idNode, node.getFieldBytes(), true));
+            } else {
+                entry.nodeData = node.getFieldBytes();
+                entry.changed = true;
+                entry.referenced = true;
+            }
+        }
+    }
+
+    @Override
+    public void remove(final Integer idNode) {
+        final Stripe stripe = getStripe(idNode);
+        synchronized (stripe) {
+            final Entry entry = stripe.entries.remove(idNode);
+            if (entry != null) {
+                releaseSlot(stripe, entry);
+                onUnload(entry);
+            }
+        }
+    }
+
+    @Override
+    public Node<K, V> get(final Integer idNode) {
+        final Stripe stripe = getStripe(idNode);
+        Entry entry = stripe.entries.get(idNode);
+        if (entry == null) {
+            synchronized (stripe) {
+                entry = stripe.entries.get(idNode);
+                if (entry == null) {
+                    final Node<K, V> node = nodeLoader.load(idNode);
+                    insert(stripe,
+                            new Entry(idNode, node.getFieldBytes(), false));
+                    return node;
+                }
+            }
+        }
+        if (!entry.referenced) {
+            entry.referenced = true;
+        }
+        return nodeBuilder.makeNode(idNode, entry.nodeData);
+    }
+
+    @Override
+    public Node<K, V> getForScan(final Integer idNode) {
+        final Stripe stripe = getStripe(idNode);
+        Entry entry = stripe.entries.get(idNode);
+        if (entry == null) {
+            synchronized (stripe) {
+                entry = stripe.entries.get(idNode);
+                if (entry == null) {
+                    return nodeLoader.load(idNode);
+                }
+            }
+        }
+        return nodeBuilder.makeNode(idNode, entry.nodeData);
+    }
+
+    @Override
+    public void addCacheListener(final CacheListener<K, V> cacheListener) {
+        this.cacheListeners.add(Objects.requireNonNull(cacheListener));
+    }
+
+    @Override
+    public void flush() {
+        /**
+         * Changed nodes are written in order of node ids. Each node is written
+         * while just stripe of the node is locked, so other threads are not
+         * blocked until whole stripe is written.
+         */
+        final List<Integer> ids = new ArrayList<Integer>();
+        for (final Stripe stripe : stripes) {
+            synchronized (stripe) {
+                for (final Entry entry : stripe.entries.values()) {
+                    if (entry.changed) {
+                        ids.add(entry.nodeId);
+                    }
+                }
+            }
+        }
+        Collections.sort(ids);
+        for (final Integer idNode : ids) {
+            final Stripe stripe = getStripe(idNode);
+            synchronized (stripe) {
+                final Entry entry = stripe.entries.get(idNode);
+                if (entry != null && entry.changed) {
+                    final Node<K, V> node =
+                            nodeBuilder.makeNode(idNode, entry.nodeData);
+                    for (final CacheListener<K, V> cacheListener
+                            : cacheListeners) {
+                        cacheListener.onFlush(node);
+                    }
+                    entry.changed = false;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        for (final Stripe stripe : stripes) {
+            synchronized (stripe) {
+                final List<Entry> entries =
+                        new ArrayList<Entry>(stripe.entries.values());
+                for (final Entry entry : entries) {
+                    stripe.entries.remove(entry.nodeId);
+                    releaseSlot(stripe, entry);
+                    onUnload(entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * Insert new entry into stripe. When stripe is full than some node is
+     * evicted. Stripe have to be locked.
+     *
+     * @param stripe
+     *            required locked stripe
+     * @param entry
+     *            required new entry
+     */
+    private void insert(final Stripe stripe, final Entry entry) {
+        if (stripe.freeSlotCount == 0) {
+            evict(stripe);
+        }
+        final int slot = stripe.freeSlots[--stripe.freeSlotCount];
+        entry.slot = slot;
+        stripe.slots[slot] = entry;
+        stripe.entries.put(entry.nodeId, entry);
+    }
+
+    /**
+     * Move clock hand to first not recently used node and evict it. Stripe
+     * have to be locked.
+     *
+     * @param stripe
+     *            required locked full stripe
+     */
+    private void evict(final Stripe stripe) {
+        while (true) {
+            final Entry entry = stripe.slots[stripe.hand];
+            stripe.hand = (stripe.hand + 1) % stripe.slots.length;
+            if (entry.referenced) {
+                entry.referenced = false;
+            } else {
+                stripe.entries.remove(entry.nodeId);
+                releaseSlot(stripe, entry);
+                onUnload(entry);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Return slot of removed entry to free slots. Stripe have to be locked.
+     *
+     * @param stripe
+     *            required locked stripe
+     * @param entry
+     *            required removed entry
+     */
+    private void releaseSlot(final Stripe stripe, final Entry entry) {
+        stripe.slots[entry.slot] = null;
+        stripe.freeSlots[stripe.freeSlotCount++] = entry.slot;
+    }
+
+    /**
+     * Notify listeners about unloaded node.
+     *
+     * @param entry
+     *            required unloaded entry
+     */
+    private void onUnload(final Entry entry) {
+        final Node<K, V> node =
+                nodeBuilder.makeNode(entry.nodeId, entry.nodeData);
+        for (final CacheListener<K, V> cacheListener : cacheListeners) {
+            cacheListener.onUnload(node, entry.changed);
+        }
+    }
+
+    /**
+     * Find stripe for node.
+     *
+     * @param nodeId
+     *            required node id
+     * @return stripe
+     */
+    private Stripe getStripe(final Integer nodeId) {
+        return stripes[nodeId & mask];
+    }
+
+}
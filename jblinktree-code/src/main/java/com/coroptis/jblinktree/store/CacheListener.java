@@ -47,4 +47,12 @@ public interface CacheListener<K, V> {
      */
     void onUnload(Node<K, V> node, boolean wasChanged);
 
+    /**
+     * Called when changed node stays in cache but it should be persisted.
+     *
+     * @param node
+     *            required changed node
+     */
+    void onFlush(Node<K, V> node);
+
 }
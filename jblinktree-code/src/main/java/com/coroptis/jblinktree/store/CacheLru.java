@@ -25,6 +25,7 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 
@@ -164,6 +165,16 @@ public final class CacheLru<K, V> implements Cache<K, V> {
         }
     }
 
+    @Override
+    public Node<K, V> getForScan(final Integer idNode) {
+        if (cache.containsKey(idNode)) {
+            final CacheItem cacheItem = cache.get(idNode);
+            return nodeBuilder.makeNode(idNode, cacheItem.getNodeData());
+        } else {
+            return nodeLoader.load(idNode);
+        }
+    }
+
     @Override
     public void addCacheListener(final CacheListener<K, V> cacheListener) {
         this.cacheListeners.add(Objects.requireNonNull(cacheListener));
@@ -184,6 +195,21 @@ public final class CacheLru<K, V> implements Cache<K, V> {
 
     }
 
+    @Override
+    public void flush() {
+        for (final Map.Entry<Integer, CacheItem> entry : cache.entrySet()) {
+            final CacheItem cacheItem = entry.getValue();
+            if (cacheItem.isChanged()) {
+                final Node<K, V> node = nodeBuilder.makeNode(entry.getKey(),
+                        cacheItem.getNodeData());
+                for (final CacheListener<K, V> cacheListener : cacheListeners) {
+                    cacheListener.onFlush(node);
+                }
+                cacheItem.setChanged(false);
+            }
+        }
+    }
+
     @Override
     public void close() {
         Set<Integer> ids = new HashSet<Integer>();
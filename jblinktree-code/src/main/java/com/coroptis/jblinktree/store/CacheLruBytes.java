@@ -0,0 +1,388 @@
+package com.coroptis.jblinktree.store;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.coroptis.jblinktree.JbNodeBuilder;
+import com.coroptis.jblinktree.Node;
+import com.coroptis.jblinktree.util.JblinktreeException;
+
+/**
+ * Thread safe LRU node cache limited by {@link CacheBudget}. Each cached node
+ * occupies its data length plus estimated entry overhead, so nodes with long
+ * keys or values take bigger part of budget than small nodes.
+ * <p>
+ * Nodes are split into stripes by node id, each stripe has own LRU list, lock
+ * and equal part of budget. Number of stripes is set when cache is created
+ * and it's not changed when budget is changed. Each stripe holds at least the
+ * most recently used node even if it's bigger than stripe budget.
+ * </p>
+ *
+ * @author jajir
+ *
+ * @param <K>
+ *            key type
+ * @param <V>
+ *            value type
+ */
+public final class CacheLruBytes<K, V> implements Cache<K, V> {
+
+    /**
+     * Default maximal number of stripes.
+     */
+    public static final int DEFAULT_NUMBER_OF_STRIPES = 16;
+
+    /**
+     * Estimated heap size of map entry, node id and {@link CacheItem} without
+     * node data.
+     */
+    public static final int ENTRY_OVERHEAD = 96;
+
+    /**
+     * Stripes budget is not smaller than this number of bytes.
+     */
+    private static final long MIN_STRIPE_BYTES = 64 * 1024;
+
+    /**
+     * Part of cache with own LRU list. Map is in insertion order, most
+     * recently used node is moved to the end. All operations are guarded by
+     * stripe monitor.
+     */
+    private static final class Stripe {
+
+        /**
+         * Cached nodes.
+         */
+        private final LinkedHashMap<Integer, CacheItem> items =
+                new LinkedHashMap<Integer, CacheItem>();
+
+        /**
+         * Number of bytes occupied by nodes in stripe.
+         */
+        private long usedBytes;
+
+    }
+
+    /**
+     * Node builder factory.
+     */
+    private final JbNodeBuilder<K, V> nodeBuilder;
+
+    /**
+     * Loader used when node is not in cache.
+     */
+    private final NodeLoader<K, V> nodeLoader;
+
+    /**
+     * Cache budget.
+     */
+    private final CacheBudget budget;
+
+    /**
+     * Cache listeners.
+     */
+    private final List<CacheListener<K, V>> cacheListeners;
+
+    /**
+     * Cache stripes.
+     */
+    private final Stripe[] stripes;
+
+    /**
+     * Mask used to compute stripe index from node id.
+     */
+    private final int mask;
+
+    /**
+     * Create cache with default number of stripes.
+     *
+     * @param jbNodeBuilder
+     *            required node builder factory
+     * @param cacheBudget
+     *            required cache budget
+     * @param loader
+     *            required node loader
+     */
+    public CacheLruBytes(final JbNodeBuilder<K, V> jbNodeBuilder,
+            final CacheBudget cacheBudget, final NodeLoader<K, V> loader) {
+        this(jbNodeBuilder, cacheBudget, loader, DEFAULT_NUMBER_OF_STRIPES);
+    }
+
+    /**
+     * Create cache.
+     *
+     * @param jbNodeBuilder
+     *            required node builder factory
+     * @param cacheBudget
+     *            required cache budget
+     * @param loader
+     *            required node loader
+     * @param maxNumberOfStripes
+     *            required maximal number of stripes, it have to be power of
+     *            two. For small budgets is used less stripes.
+     */
+    public CacheLruBytes(final JbNodeBuilder<K, V> jbNodeBuilder,
+            final CacheBudget cacheBudget, final NodeLoader<K, V> loader,
+            final int maxNumberOfStripes) {
+        this.nodeBuilder = Objects.requireNonNull(jbNodeBuilder);
+        this.budget = Objects.requireNonNull(cacheBudget);
+        this.nodeLoader = Objects.requireNonNull(loader);
+        this.cacheListeners = new CopyOnWriteArrayList<CacheListener<K, V>>();
+        if (maxNumberOfStripes < 1
+                || Integer.bitCount(maxNumberOfStripes) != 1) {
+            throw new JblinktreeException("Number of stripes '"
+                    + maxNumberOfStripes + "' should be power of two.");
+        }
+        final long bytesStripes = Math.max(1L,
+                Math.min(maxNumberOfStripes,
+                        budget.getMaxBytes() / MIN_STRIPE_BYTES));
+        final int numberOfStripes = Integer.highestOneBit((int) bytesStripes);
+        stripes = new Stripe[numberOfStripes];
+        for (int i = 0; i < numberOfStripes; i++) {
+            stripes[i] = new Stripe();
+        }
+        mask = numberOfStripes - 1;
+        budget.attach(this);
+    }
+
+    @Override
+    public void put(final Node<K, V> node) {
+        final Integer idNode = Objects.requireNonNull(node.getId());
+        final Stripe stripe = getStripe(idNode);
+        synchronized (stripe) {
+            final CacheItem cacheItem = stripe.items.remove(idNode);
+            if (cacheItem == null) {
+                add(stripe, idNode, CacheItem.make(node.getFieldBytes(), true));
+            } else {
+                final int oldLength = cacheItem.getNodeData().length;
+                cacheItem.setNodeData(node.getFieldBytes());
+                cacheItem.setChanged(true);
+                stripe.items.put(idNode, cacheItem);
+                final long delta =
+                        cacheItem.getNodeData().length - oldLength;
+                stripe.usedBytes += delta;
+                budget.onResized(delta);
+            }
+            evict(stripe);
+        }
+    }
+
+    @Override
+    public void remove(final Integer idNode) {
+        final Stripe stripe = getStripe(idNode);
+        synchronized (stripe) {
+            final CacheItem cacheItem = stripe.items.remove(idNode);
+            if (cacheItem != null) {
+                unload(stripe, idNode, cacheItem);
+            }
+        }
+    }
+
+    @Override
+    public Node<K, V> get(final Integer idNode) {
+        final Stripe stripe = getStripe(idNode);
+        final byte[] nodeData;
+        synchronized (stripe) {
+            final CacheItem cacheItem = stripe.items.remove(idNode);
+            if (cacheItem == null) {
+                final Node<K, V> node = nodeLoader.load(idNode);
+                add(stripe, idNode, CacheItem.make(node.getFieldBytes()));
+                evict(stripe);
+                return node;
+            }
+            /**
+             * Move node to the end of LRU list.
+             */
+            stripe.items.put(idNode, cacheItem);
+            nodeData = cacheItem.getNodeData();
+        }
+        return nodeBuilder.makeNode(idNode, nodeData);
+    }
+
+    @Override
+    public Node<K, V> getForScan(final Integer idNode) {
+        final Stripe stripe = getStripe(idNode);
+        final byte[] nodeData;
+        synchronized (stripe) {
+            final CacheItem cacheItem = stripe.items.get(idNode);
+            if (cacheItem == null) {
+                return nodeLoader.load(idNode);
+            }
+            nodeData = cacheItem.getNodeData();
+        }
+        return nodeBuilder.makeNode(idNode, nodeData);
+    }
+
+    @Override
+    public void addCacheListener(final CacheListener<K, V> cacheListener) {
+        cacheListeners.add(Objects.requireNonNull(cacheListener));
+    }
+
+    @Override
+    public void flush() {
+        /**
+         * Changed nodes are written in order of node ids, stripe is locked
+         * just while one of its nodes is written.
+         */
+        final List<Integer> ids = new ArrayList<Integer>();
+        for (final Stripe stripe : stripes) {
+            synchronized (stripe) {
+                for (final Map.Entry<Integer, CacheItem> entry : stripe.items
+                        .entrySet()) {
+                    if (entry.getValue().isChanged()) {
+                        ids.add(entry.getKey());
+                    }
+                }
+            }
+        }
+        Collections.sort(ids);
+        for (final Integer idNode : ids) {
+            final Stripe stripe = getStripe(idNode);
+            synchronized (stripe) {
+                final CacheItem cacheItem = stripe.items.get(idNode);
+                if (cacheItem != null && cacheItem.isChanged()) {
+                    final Node<K, V> node = nodeBuilder.makeNode(idNode,
+                            cacheItem.getNodeData());
+                    for (final CacheListener<K, V> cacheListener
+                            : cacheListeners) {
+                        cacheListener.onFlush(node);
+                    }
+                    cacheItem.setChanged(false);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        for (final Stripe stripe : stripes) {
+            synchronized (stripe) {
+                final List<Integer> ids =
+                        new ArrayList<Integer>(stripe.items.keySet());
+                for (final Integer idNode : ids) {
+                    unload(stripe, idNode, stripe.items.remove(idNode));
+                }
+            }
+        }
+        budget.detach(this);
+    }
+
+    /**
+     * Evict least recently used nodes from all stripes until they fit into
+     * budget. It's called when budget was changed.
+     */
+    void evictOverBudget() {
+        for (final Stripe stripe : stripes) {
+            synchronized (stripe) {
+                evict(stripe);
+            }
+        }
+    }
+
+    /**
+     * Add node at the end of LRU list.
+     *
+     * @param stripe
+     *            required locked stripe
+     * @param idNode
+     *            required node id
+     * @param cacheItem
+     *            required cache item
+     */
+    private void add(final Stripe stripe, final Integer idNode,
+            final CacheItem cacheItem) {
+        final long bytes = sizeOf(cacheItem);
+        stripe.items.put(idNode, cacheItem);
+        stripe.usedBytes += bytes;
+        budget.onAdded(bytes);
+    }
+
+    /**
+     * Evict least recently used nodes until stripe fits into its budget. The
+     * most recently used node is never evicted.
+     *
+     * @param stripe
+     *            required locked stripe
+     */
+    private void evict(final Stripe stripe) {
+        final long stripeBytes = budget.getMaxBytes() / stripes.length;
+        final Iterator<Map.Entry<Integer, CacheItem>> iterator =
+                stripe.items.entrySet().iterator();
+        while (stripe.usedBytes > stripeBytes && stripe.items.size() > 1) {
+            final Map.Entry<Integer, CacheItem> eldest = iterator.next();
+            iterator.remove();
+            unload(stripe, eldest.getKey(), eldest.getValue());
+        }
+    }
+
+    /**
+     * Update occupancy and pass node removed from stripe to listeners.
+     *
+     * @param stripe
+     *            required locked stripe
+     * @param idNode
+     *            required node id
+     * @param cacheItem
+     *            required removed cache item
+     */
+    private void unload(final Stripe stripe, final Integer idNode,
+            final CacheItem cacheItem) {
+        final long bytes = sizeOf(cacheItem);
+        stripe.usedBytes -= bytes;
+        budget.onRemoved(bytes);
+        final Node<K, V> node =
+                nodeBuilder.makeNode(idNode, cacheItem.getNodeData());
+        for (final CacheListener<K, V> cacheListener : cacheListeners) {
+            cacheListener.onUnload(node, cacheItem.isChanged());
+        }
+    }
+
+    /**
+     * Compute number of bytes occupied by cached node.
+     *
+     * @param cacheItem
+     *            required cache item
+     * @return number of occupied bytes
+     */
+    private static long sizeOf(final CacheItem cacheItem) {
+        return ENTRY_OVERHEAD + cacheItem.getNodeData().length;
+    }
+
+    /**
+     * Get stripe for node.
+     *
+     * @param nodeId
+     *            required node id
+     * @return stripe
+     */
+    private Stripe getStripe(final Integer nodeId) {
+        return stripes[nodeId & mask];
+    }
+
+}
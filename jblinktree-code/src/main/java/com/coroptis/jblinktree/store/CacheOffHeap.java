@@ -0,0 +1,533 @@
+package com.coroptis.jblinktree.store;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.coroptis.jblinktree.JbNodeBuilder;
+import com.coroptis.jblinktree.JbTreeData;
+import com.coroptis.jblinktree.Node;
+import com.coroptis.jblinktree.util.JblinktreeException;
+
+/**
+ * Thread safe node cache which keeps node data outside of java heap. Node data
+ * are stored in slots of direct {@link ByteBuffer} slabs, so cached data are
+ * not visited by garbage collector. Just small per slot metadata stays on
+ * heap. Slot have length of the biggest node, it contains node data length
+ * followed by node data.
+ * <p>
+ * Nodes are split into stripes by node id, each stripe has own slabs, slot
+ * allocator, CLOCK eviction and lock. Slabs are allocated when they are needed
+ * for the first time. Node returned from cache is read-only view of data
+ * copied from slot.
+ * </p>
+ * <p>
+ * Node is loaded and evicted node is passed to
+ * {@link CacheListener#onUnload(Node, boolean)} while stripe is locked.
+ * </p>
+ *
+ * @author jajir
+ *
+ * @param <K>
+ *            key type
+ * @param <V>
+ *            value type
+ */
+public final class CacheOffHeap<K, V> implements Cache<K, V> {
+
+    /**
+     * Default maximal number of stripes.
+     */
+    public static final int DEFAULT_NUMBER_OF_STRIPES = 64;
+
+    /**
+     * Default slab size in bytes.
+     */
+    public static final int DEFAULT_SLAB_SIZE = 1024 * 1024;
+
+    /**
+     * Length of node data length stored at the beginning of slot.
+     */
+    private static final int DATA_LENGTH_LENGTH = 4;
+
+    /**
+     * Value of free slot in slot node ids.
+     */
+    private static final int NO_NODE = -1;
+
+    /**
+     * Part of cache with own slabs, slot allocator and CLOCK eviction. All
+     * operations are guarded by stripe monitor.
+     */
+    private static final class Stripe {
+
+        /**
+         * Maximal length of node data.
+         */
+        private final int maxFieldLength;
+
+        /**
+         * Slot length in bytes.
+         */
+        private final int slotLength;
+
+        /**
+         * Number of slots in one slab.
+         */
+        private final int slotsInSlab;
+
+        /**
+         * Slot of cached nodes.
+         */
+        private final Map<Integer, Integer> slotsByNodeId =
+                new HashMap<Integer, Integer>();
+
+        /**
+         * Slabs, slab is allocated when some slot in it is used for the first
+         * time.
+         */
+        private final ByteBuffer[] slabs;
+
+        /**
+         * Node id in each slot or {@link #NO_NODE}.
+         */
+        private final int[] nodeIds;
+
+        /**
+         * Information if node in slot was changed.
+         */
+        private final boolean[] changed;
+
+        /**
+         * CLOCK reference bits.
+         */
+        private final boolean[] referenced;
+
+        /**
+         * Stack of free slots.
+         */
+        private final int[] freeSlots;
+
+        /**
+         * Number of free slots in stack.
+         */
+        private int freeCount;
+
+        /**
+         * Number of slots which was ever used.
+         */
+        private int usedSlots;
+
+        /**
+         * Position of CLOCK hand.
+         */
+        private int hand;
+
+        /**
+         * Create stripe.
+         *
+         * @param capacity
+         *            required number of slots
+         * @param initMaxFieldLength
+         *            required maximal length of node data
+         * @param initSlotsInSlab
+         *            required number of slots in one slab
+         */
+        Stripe(final int capacity, final int initMaxFieldLength,
+                final int initSlotsInSlab) {
+            maxFieldLength = initMaxFieldLength;
+            slotLength = DATA_LENGTH_LENGTH + maxFieldLength;
+            slotsInSlab = initSlotsInSlab;
+            slabs = new ByteBuffer[(capacity + slotsInSlab - 1) / slotsInSlab];
+            nodeIds = new int[capacity];
+            changed = new boolean[capacity];
+            referenced = new boolean[capacity];
+            freeSlots = new int[capacity];
+            for (int i = 0; i < capacity; i++) {
+                nodeIds[i] = NO_NODE;
+            }
+        }
+
+        /**
+         * Write node data into slot.
+         *
+         * @param slot
+         *            required slot
+         * @param nodeData
+         *            required node data
+         */
+        void write(final int slot, final byte[] nodeData) {
+            if (nodeData.length > maxFieldLength) {
+                throw new JblinktreeException("Node data length '"
+                        + nodeData.length + "' is bigger than slot.");
+            }
+            final ByteBuffer slab = getSlab(slot);
+            slab.position((slot % slotsInSlab) * slotLength);
+            slab.putInt(nodeData.length);
+            slab.put(nodeData);
+        }
+
+        /**
+         * Read node data from slot.
+         *
+         * @param slot
+         *            required slot
+         * @return copy of node data
+         */
+        byte[] read(final int slot) {
+            final ByteBuffer slab = getSlab(slot);
+            slab.position((slot % slotsInSlab) * slotLength);
+            final byte[] out = new byte[slab.getInt()];
+            slab.get(out);
+            return out;
+        }
+
+        /**
+         * Get slab containing slot, allocate it when it's necessary.
+         *
+         * @param slot
+         *            required slot
+         * @return slab
+         */
+        private ByteBuffer getSlab(final int slot) {
+            final int index = slot / slotsInSlab;
+            if (slabs[index] == null) {
+                final int slots = Math.min(slotsInSlab,
+                        nodeIds.length - index * slotsInSlab);
+                slabs[index] = ByteBuffer.allocateDirect(slots * slotLength);
+            }
+            return slabs[index];
+        }
+
+    }
+
+    /**
+     * Node builder factory.
+     */
+    private final JbNodeBuilder<K, V> nodeBuilder;
+
+    /**
+     * Loader used when node is not in cache.
+     */
+    private final NodeLoader<K, V> nodeLoader;
+
+    /**
+     * Cache listeners.
+     */
+    private final List<CacheListener<K, V>> cacheListeners;
+
+    /**
+     * Cache stripes.
+     */
+    private final Stripe[] stripes;
+
+    /**
+     * Mask used to compute stripe index from node id.
+     */
+    private final int mask;
+
+    /**
+     * Create cache with default number of stripes and slab size.
+     *
+     * @param jbTreeData
+     *            required tree data
+     * @param jbNodeBuilder
+     *            required node builder factory
+     * @param maxNumberOfNodesInCache
+     *            required maximal number of cached nodes
+     * @param loader
+     *            required node loader
+     */
+    public CacheOffHeap(final JbTreeData<K, V> jbTreeData,
+            final JbNodeBuilder<K, V> jbNodeBuilder,
+            final int maxNumberOfNodesInCache, final NodeLoader<K, V> loader) {
+        this(jbTreeData, jbNodeBuilder, maxNumberOfNodesInCache, loader,
+                DEFAULT_NUMBER_OF_STRIPES, DEFAULT_SLAB_SIZE);
+    }
+
+    /**
+     * Create cache.
+     *
+     * @param jbTreeData
+     *            required tree data
+     * @param jbNodeBuilder
+     *            required node builder factory
+     * @param maxNumberOfNodesInCache
+     *            required maximal number of cached nodes
+     * @param loader
+     *            required node loader
+     * @param maxNumberOfStripes
+     *            required maximal number of stripes, it have to be power of
+     *            two. For small caches is used less stripes.
+     * @param slabSize
+     *            required slab size in bytes, slab contains at least one slot
+     */
+    public CacheOffHeap(final JbTreeData<K, V> jbTreeData,
+            final JbNodeBuilder<K, V> jbNodeBuilder,
+            final int maxNumberOfNodesInCache, final NodeLoader<K, V> loader,
+            final int maxNumberOfStripes, final int slabSize) {
+        Objects.requireNonNull(jbTreeData);
+        this.nodeBuilder = Objects.requireNonNull(jbNodeBuilder);
+        this.nodeLoader = Objects.requireNonNull(loader);
+        this.cacheListeners = new CopyOnWriteArrayList<CacheListener<K, V>>();
+        if (maxNumberOfNodesInCache < 1) {
+            throw new JblinktreeException(
+                    "Cache should hold at least one node.");
+        }
+        if (maxNumberOfStripes < 1
+                || Integer.bitCount(maxNumberOfStripes) != 1) {
+            throw new JblinktreeException("Number of stripes '"
+                    + maxNumberOfStripes + "' should be power of two.");
+        }
+        final int maxFieldLength = Math.max(
+                jbTreeData.getLeafNodeDescriptor().getFieldMaxLength(),
+                jbTreeData.getNonLeafNodeDescriptor().getFieldMaxLength());
+        final int slotsInSlab = Math.max(1,
+                slabSize / (DATA_LENGTH_LENGTH + maxFieldLength));
+        final int numberOfStripes = Math.min(maxNumberOfStripes,
+                Integer.highestOneBit(maxNumberOfNodesInCache));
+        final int stripeCapacity = maxNumberOfNodesInCache / numberOfStripes;
+        final int remainder = maxNumberOfNodesInCache % numberOfStripes;
+        stripes = new Stripe[numberOfStripes];
+        for (int i = 0; i < numberOfStripes; i++) {
+            if (i < remainder) {
+                stripes[i] = new Stripe(stripeCapacity + 1, maxFieldLength,
+                        slotsInSlab);
+            } else {
+                stripes[i] = new Stripe(stripeCapacity, maxFieldLength,
+                        slotsInSlab);
+            }
+        }
+        mask = numberOfStripes - 1;
+    }
+
+    @Override
+    public void put(final Node<K, V> node) {
+        final Integer idNode = Objects.requireNonNull(node.getId());
+        final Stripe stripe = getStripe(idNode);
+        synchronized (stripe) {
+            Integer slot = stripe.slotsByNodeId.get(idNode);
+            if (slot == null) {
+                slot = allocateSlot(stripe, idNode);
+            }
+            stripe.write(slot, node.getFieldBytes());
+            stripe.changed[slot] = true;
+            stripe.referenced[slot] = true;
+        }
+    }
+
+    @Override
+    public void remove(final Integer idNode) {
+        final Stripe stripe = getStripe(idNode);
+        synchronized (stripe) {
+            final Integer slot = stripe.slotsByNodeId.get(idNode);
+            if (slot != null) {
+                unload(stripe, slot);
+            }
+        }
+    }
+
+    @Override
+    public Node<K, V> get(final Integer idNode) {
+        final Stripe stripe = getStripe(idNode);
+        final byte[] nodeData;
+        synchronized (stripe) {
+            final Integer slot = stripe.slotsByNodeId.get(idNode);
+            if (slot == null) {
+                final Node<K, V> node = nodeLoader.load(idNode);
+                final int newSlot = allocateSlot(stripe, idNode);
+                stripe.write(newSlot, node.getFieldBytes());
+                stripe.changed[newSlot] = false;
+                return node;
+            }
+            stripe.referenced[slot] = true;
+            nodeData = stripe.read(slot);
+        }
+        return nodeBuilder.makeNodeView(idNode, nodeData);
+    }
+
+    @Override
+    public Node<K, V> getForScan(final Integer idNode) {
+        final Stripe stripe = getStripe(idNode);
+        final byte[] nodeData;
+        synchronized (stripe) {
+            final Integer slot = stripe.slotsByNodeId.get(idNode);
+            if (slot == null) {
+                return nodeLoader.load(idNode);
+            }
+            nodeData = stripe.read(slot);
+        }
+        return nodeBuilder.makeNodeView(idNode, nodeData);
+    }
+
+    @Override
+    public void addCacheListener(final CacheListener<K, V> cacheListener) {
+        cacheListeners.add(Objects.requireNonNull(cacheListener));
+    }
+
+    @Override
+    public void flush() {
+        /**
+         * Ids of changed nodes are collected first. Nodes are written in
+         * order of ids and stripe is locked just while one node is written.
+         */
+        final List<Integer> ids = new ArrayList<Integer>();
+        for (final Stripe stripe : stripes) {
+            synchronized (stripe) {
+                for (int slot = 0; slot < stripe.usedSlots; slot++) {
+                    if (stripe.nodeIds[slot] != NO_NODE
+                            && stripe.changed[slot]) {
+                        ids.add(stripe.nodeIds[slot]);
+                    }
+                }
+            }
+        }
+        Collections.sort(ids);
+        for (final Integer idNode : ids) {
+            final Stripe stripe = getStripe(idNode);
+            synchronized (stripe) {
+                final Integer slot = stripe.slotsByNodeId.get(idNode);
+                if (slot != null && stripe.changed[slot]) {
+                    final Node<K, V> node =
+                            nodeBuilder.makeNodeView(idNode, stripe.read(slot));
+                    for (final CacheListener<K, V> cacheListener
+                            : cacheListeners) {
+                        cacheListener.onFlush(node);
+                    }
+                    stripe.changed[slot] = false;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        for (final Stripe stripe : stripes) {
+            synchronized (stripe) {
+                for (int slot = 0; slot < stripe.usedSlots; slot++) {
+                    if (stripe.nodeIds[slot] != NO_NODE) {
+                        unload(stripe, slot);
+                    }
+                }
+                /**
+                 * Direct memory is released when slabs are garbage collected.
+                 */
+                for (int i = 0; i < stripe.slabs.length; i++) {
+                    stripe.slabs[i] = null;
+                }
+                stripe.freeCount = 0;
+                stripe.usedSlots = 0;
+                stripe.hand = 0;
+            }
+        }
+    }
+
+    /**
+     * Find slot for new node. When stripe is full than node is evicted.
+     *
+     * @param stripe
+     *            required locked stripe
+     * @param idNode
+     *            required node id
+     * @return allocated slot
+     */
+    private int allocateSlot(final Stripe stripe, final Integer idNode) {
+        final int slot;
+        if (stripe.freeCount > 0) {
+            stripe.freeCount--;
+            slot = stripe.freeSlots[stripe.freeCount];
+        } else if (stripe.usedSlots < stripe.nodeIds.length) {
+            slot = stripe.usedSlots;
+            stripe.usedSlots++;
+        } else {
+            slot = findVictim(stripe);
+            unload(stripe, slot);
+            stripe.freeCount--;
+        }
+        stripe.nodeIds[slot] = idNode;
+        stripe.referenced[slot] = true;
+        stripe.slotsByNodeId.put(idNode, slot);
+        return slot;
+    }
+
+    /**
+     * Move CLOCK hand to first slot which wasn't recently referenced.
+     *
+     * @param stripe
+     *            required full locked stripe
+     * @return slot of node which should be evicted
+     */
+    private int findVictim(final Stripe stripe) {
+        while (true) {
+            final int slot = stripe.hand;
+            stripe.hand = (stripe.hand + 1) % stripe.nodeIds.length;
+            if (stripe.referenced[slot]) {
+                stripe.referenced[slot] = false;
+            } else {
+                return slot;
+            }
+        }
+    }
+
+    /**
+     * Remove node from slot, put slot into free slots and pass node to
+     * listeners.
+     *
+     * @param stripe
+     *            required locked stripe
+     * @param slot
+     *            required used slot
+     */
+    private void unload(final Stripe stripe, final int slot) {
+        final Integer idNode = stripe.nodeIds[slot];
+        final Node<K, V> node =
+                nodeBuilder.makeNodeView(idNode, stripe.read(slot));
+        final boolean wasChanged = stripe.changed[slot];
+        stripe.slotsByNodeId.remove(idNode);
+        stripe.nodeIds[slot] = NO_NODE;
+        stripe.changed[slot] = false;
+        stripe.referenced[slot] = false;
+        stripe.freeSlots[stripe.freeCount] = slot;
+        stripe.freeCount++;
+        for (final CacheListener<K, V> cacheListener : cacheListeners) {
+            cacheListener.onUnload(node, wasChanged);
+        }
+    }
+
+    /**
+     * Get stripe for node.
+     *
+     * @param nodeId
+     *            required node id
+     * @return stripe
+     */
+    private Stripe getStripe(final Integer nodeId) {
+        return stripes[nodeId & mask];
+    }
+
+}
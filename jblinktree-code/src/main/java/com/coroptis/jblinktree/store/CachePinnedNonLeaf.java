@@ -0,0 +1,220 @@
+package com.coroptis.jblinktree.store;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.coroptis.jblinktree.JbNodeBuilder;
+import com.coroptis.jblinktree.Node;
+
+/**
+ * Cache keeping non-leaf nodes in separate tier where they are never evicted.
+ * Leaf nodes are cached in given leaf cache. Non-leaf levels are small and
+ * they are used by each descent, so finding leaf node doesn't read any
+ * non-leaf node from disk after it was read once.
+ * <p>
+ * Type of node is known after node is loaded, so non-leaf node is first
+ * loaded through leaf cache and than it's pinned. Pinned nodes are read
+ * without locking and written to storage on {@link #flush()} and
+ * {@link #close()}.
+ * </p>
+ *
+ * @author jajir
+ *
+ * @param <K>
+ *            key type
+ * @param <V>
+ *            value type
+ */
+public final class CachePinnedNonLeaf<K, V> implements Cache<K, V> {
+
+    /**
+     * Pinned non-leaf node data.
+     */
+    private static final class Entry {
+
+        /**
+         * Node data.
+         */
+        private volatile byte[] nodeData;
+
+        /**
+         * Is <code>true</code> when node was changed and have to be persisted.
+         * It's guarded by entry monitor.
+         */
+        private boolean changed;
+
+        /**
+         * Simple constructor.
+         *
+         * @param initNodeData
+         *            required node data
+         * @param wasChanged
+         *            if node was changed
+         */
+        Entry(final byte[] initNodeData, final boolean wasChanged) {
+            this.nodeData = initNodeData;
+            this.changed = wasChanged;
+        }
+
+    }
+
+    /**
+     * Node builder factory.
+     */
+    private final JbNodeBuilder<K, V> nodeBuilder;
+
+    /**
+     * Cache for leaf nodes.
+     */
+    private final Cache<K, V> leafCache;
+
+    /**
+     * Pinned non-leaf nodes.
+     */
+    private final ConcurrentHashMap<Integer, Entry> nonLeafNodes =
+            new ConcurrentHashMap<Integer, Entry>();
+
+    /**
+     * Cache listeners.
+     */
+    private final List<CacheListener<K, V>> cacheListeners =
+            new CopyOnWriteArrayList<CacheListener<K, V>>();
+
+    /**
+     * Simple constructor.
+     *
+     * @param jbNodeBuilder
+     *            required node builder factory
+     * @param initLeafCache
+     *            required cache for leaf nodes
+     */
+    public CachePinnedNonLeaf(final JbNodeBuilder<K, V> jbNodeBuilder,
+            final Cache<K, V> initLeafCache) {
+        this.nodeBuilder = Objects.requireNonNull(jbNodeBuilder);
+        this.leafCache = Objects.requireNonNull(initLeafCache);
+    }
+
+    @Override
+    public void put(final Node<K, V> node) {
+        if (node.isLeafNode()) {
+            leafCache.put(node);
+            return;
+        }
+        final Integer idNode = Objects.requireNonNull(node.getId());
+        final byte[] nodeData = node.getFieldBytes();
+        Entry entry = nonLeafNodes.get(idNode);
+        if (entry == null) {
+            entry = nonLeafNodes.putIfAbsent(idNode,
+                    new Entry(nodeData, true));
+            if (entry == null) {
+                return;
+            }
+        }
+        synchronized (entry) {
+            entry.nodeData = nodeData;
+            entry.changed = true;
+        }
+    }
+
+    @Override
+    public void remove(final Integer idNode) {
+        final Entry entry = nonLeafNodes.remove(idNode);
+        if (entry != null) {
+            synchronized (entry) {
+                final Node<K, V> node =
+                        nodeBuilder.makeNode(idNode, entry.nodeData);
+                for (final CacheListener<K, V> cacheListener : cacheListeners) {
+                    cacheListener.onUnload(node, entry.changed);
+                }
+            }
+        }
+        leafCache.remove(idNode);
+    }
+
+    @Override
+    public Node<K, V> get(final Integer idNode) {
+        final Entry entry = nonLeafNodes.get(idNode);
+        if (entry != null) {
+            return nodeBuilder.makeNode(idNode, entry.nodeData);
+        }
+        final Node<K, V> node = leafCache.get(idNode);
+        if (!node.isLeafNode()) {
+            /**
+             * Node was loaded from storage, so it's unchanged. When node was
+             * meanwhile changed than pinned entry already exists. Copy in
+             * leaf cache is no longer needed.
+             */
+            nonLeafNodes.putIfAbsent(idNode,
+                    new Entry(node.getFieldBytes(), false));
+            leafCache.remove(idNode);
+        }
+        return node;
+    }
+
+    @Override
+    public Node<K, V> getForScan(final Integer idNode) {
+        final Entry entry = nonLeafNodes.get(idNode);
+        if (entry != null) {
+            return nodeBuilder.makeNode(idNode, entry.nodeData);
+        }
+        return leafCache.getForScan(idNode);
+    }
+
+    @Override
+    public void addCacheListener(final CacheListener<K, V> cacheListener) {
+        cacheListeners.add(Objects.requireNonNull(cacheListener));
+        leafCache.addCacheListener(cacheListener);
+    }
+
+    @Override
+    public void flush() {
+        for (final Map.Entry<Integer, Entry> mapEntry : nonLeafNodes
+                .entrySet()) {
+            final Entry entry = mapEntry.getValue();
+            synchronized (entry) {
+                if (entry.changed) {
+                    final Node<K, V> node = nodeBuilder
+                            .makeNode(mapEntry.getKey(), entry.nodeData);
+                    for (final CacheListener<K, V> cacheListener
+                            : cacheListeners) {
+                        cacheListener.onFlush(node);
+                    }
+                    entry.changed = false;
+                }
+            }
+        }
+        leafCache.flush();
+    }
+
+    @Override
+    public void close() {
+        for (final Integer idNode : nonLeafNodes.keySet()) {
+            remove(idNode);
+        }
+        leafCache.close();
+    }
+
+}
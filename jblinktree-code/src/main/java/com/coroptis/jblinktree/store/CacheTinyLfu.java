@@ -0,0 +1,571 @@
+package com.coroptis.jblinktree.store;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.coroptis.jblinktree.JbNodeBuilder;
+import com.coroptis.jblinktree.Node;
+import com.coroptis.jblinktree.util.JblinktreeException;
+
+/**
+ * Thread safe node cache with W-TinyLFU admission policy. New nodes are placed
+ * into small LRU window. Node leaving window is admitted into main segmented
+ * LRU just when it was used more often than node which should be evicted from
+ * main part. Usage frequency is estimated by {@link FrequencySketch}.
+ * <p>
+ * Nodes read just once, for example during scan of all leaf nodes, don't get
+ * into main part and doesn't flush frequently used nodes.
+ * </p>
+ * <p>
+ * Nodes are split into stripes by node id, each stripe has own policy and lock.
+ * Node is loaded and evicted node is passed to
+ * {@link CacheListener#onUnload(Node, boolean)} while stripe is locked.
+ * </p>
+ *
+ * @author jajir
+ *
+ * @param <K>
+ *            key type
+ * @param <V>
+ *            value type
+ */
+public final class CacheTinyLfu<K, V> implements Cache<K, V> {
+
+    /**
+     * Default maximal number of stripes.
+     */
+    public static final int DEFAULT_NUMBER_OF_STRIPES = 16;
+
+    /**
+     * Stripes are not smaller than this number of nodes, small stripe can't
+     * estimate frequencies well.
+     */
+    private static final int MIN_STRIPE_CAPACITY = 32;
+
+    /**
+     * Window size in percents of stripe capacity.
+     */
+    private static final int WINDOW_PERCENT = 1;
+
+    /**
+     * Protected segment size in percents of main part capacity.
+     */
+    private static final int PROTECTED_PERCENT = 80;
+
+    /**
+     * Hundred percents.
+     */
+    private static final int ALL_PERCENT = 100;
+
+    /**
+     * Cached node data. It's also item of segment list.
+     */
+    private static final class Entry {
+
+        /**
+         * Node id.
+         */
+        private final Integer nodeId;
+
+        /**
+         * Node data.
+         */
+        private byte[] nodeData;
+
+        /**
+         * Is <code>true</code> when node was changed and have to be persisted.
+         */
+        private boolean changed;
+
+        /**
+         * Segment containing this entry.
+         */
+        private Segment segment;
+
+        /**
+         * Previous entry in segment.
+         */
+        private Entry prev;
+
+        /**
+         * Next entry in segment.
+         */
+        private Entry next;
+
+        /**
+         * Simple constructor.
+         *
+         * @param initNodeId
+         *            node id
+         * @param initNodeData
+         *            node data
+         * @param wasChanged
+         *            if node was changed
+         */
+        Entry(final Integer initNodeId, final byte[] initNodeData,
+                final boolean wasChanged) {
+            this.nodeId = initNodeId;
+            this.nodeData = initNodeData;
+            this.changed = wasChanged;
+        }
+
+    }
+
+    /**
+     * LRU list of entries. First entry is least recently used.
+     */
+    private static final class Segment {
+
+        /**
+         * List head, it's not an entry.
+         */
+        private final Entry head = new Entry(null, null, false);
+
+        /**
+         * Maximal number of entries.
+         */
+        private final int capacity;
+
+        /**
+         * Number of entries.
+         */
+        private int size;
+
+        /**
+         * Create empty segment.
+         *
+         * @param initCapacity
+         *            maximal number of entries
+         */
+        Segment(final int initCapacity) {
+            this.capacity = initCapacity;
+            head.prev = head;
+            head.next = head;
+        }
+
+        /**
+         * Add entry as most recently used.
+         *
+         * @param entry
+         *            required entry which is not in any segment
+         */
+        void addLast(final Entry entry) {
+            entry.prev = head.prev;
+            entry.next = head;
+            head.prev.next = entry;
+            head.prev = entry;
+            entry.segment = this;
+            size++;
+        }
+
+        /**
+         * Remove entry from segment.
+         *
+         * @param entry
+         *            required entry from this segment
+         */
+        void remove(final Entry entry) {
+            entry.prev.next = entry.next;
+            entry.next.prev = entry.prev;
+            entry.prev = null;
+            entry.next = null;
+            entry.segment = null;
+            size--;
+        }
+
+        /**
+         * Get least recently used entry.
+         *
+         * @return least recently used entry or <code>null</code> when segment
+         *         is empty
+         */
+        Entry first() {
+            if (size == 0) {
+                return null;
+            }
+            return head.next;
+        }
+
+        /**
+         * Return <code>true</code> when there is more entries than capacity
+         * allows.
+         *
+         * @return <code>true</code> when segment is too big
+         */
+        boolean isOverflowed() {
+            return size > capacity;
+        }
+
+    }
+
+    /**
+     * Part of cache with own policy. All operations are guarded by stripe
+     * monitor.
+     */
+    private static final class Stripe {
+
+        /**
+         * Cached entries.
+         */
+        private final Map<Integer, Entry> entries =
+                new HashMap<Integer, Entry>();
+
+        /**
+         * Usage frequency estimation.
+         */
+        private final FrequencySketch sketch;
+
+        /**
+         * Window for new nodes.
+         */
+        private final Segment window;
+
+        /**
+         * Main part, nodes used once after admission.
+         */
+        private final Segment probation;
+
+        /**
+         * Main part, nodes used repeatedly.
+         */
+        private final Segment protectedSegment;
+
+        /**
+         * Maximal number of nodes in main part.
+         */
+        private final int mainCapacity;
+
+        /**
+         * Create stripe.
+         *
+         * @param capacity
+         *            required maximal number of nodes in stripe
+         */
+        Stripe(final int capacity) {
+            final int windowCapacity =
+                    Math.max(1, capacity * WINDOW_PERCENT / ALL_PERCENT);
+            mainCapacity = capacity - windowCapacity;
+            sketch = new FrequencySketch(capacity);
+            window = new Segment(windowCapacity);
+            probation = new Segment(mainCapacity);
+            protectedSegment =
+                    new Segment(mainCapacity * PROTECTED_PERCENT / ALL_PERCENT);
+        }
+
+    }
+
+    /**
+     * Node builder factory.
+     */
+    private final JbNodeBuilder<K, V> nodeBuilder;
+
+    /**
+     * Loader used when node is not in cache.
+     */
+    private final NodeLoader<K, V> nodeLoader;
+
+    /**
+     * Cache listeners.
+     */
+    private final List<CacheListener<K, V>> cacheListeners;
+
+    /**
+     * Cache stripes.
+     */
+    private final Stripe[] stripes;
+
+    /**
+     * Mask used to compute stripe index from node id.
+     */
+    private final int mask;
+
+    /**
+     * Create cache with default number of stripes.
+     *
+     * @param jbNodeBuilder
+     *            required node builder factory
+     * @param maxNumberOfNodesInCache
+     *            required maximal number of cached nodes
+     * @param loader
+     *            required node loader
+     */
+    public CacheTinyLfu(final JbNodeBuilder<K, V> jbNodeBuilder,
+            final int maxNumberOfNodesInCache, final NodeLoader<K, V> loader) {
+        this(jbNodeBuilder, maxNumberOfNodesInCache, loader,
+                DEFAULT_NUMBER_OF_STRIPES);
+    }
+
+    /**
+     * Create cache.
+     *
+     * @param jbNodeBuilder
+     *            required node builder factory
+     * @param maxNumberOfNodesInCache
+     *            required maximal number of cached nodes
+     * @param loader
+     *            required node loader
+     * @param maxNumberOfStripes
+     *            required maximal number of stripes, it have to be power of
+     *            two. For small caches is used less stripes.
+     */
+    public CacheTinyLfu(final JbNodeBuilder<K, V> jbNodeBuilder,
+            final int maxNumberOfNodesInCache, final NodeLoader<K, V> loader,
+            final int maxNumberOfStripes) {
+        this.nodeBuilder = Objects.requireNonNull(jbNodeBuilder);
+        this.nodeLoader = Objects.requireNonNull(loader);
+        this.cacheListeners = new CopyOnWriteArrayList<CacheListener<K, V>>();
+        if (maxNumberOfNodesInCache < 1) {
+            throw new JblinktreeException(
+                    "Cache should hold at least one node.");
+        }
+        if (maxNumberOfStripes < 1
+                || Integer.bitCount(maxNumberOfStripes) != 1) {
+            throw new JblinktreeException("Number of stripes '"
+                    + maxNumberOfStripes + "' should be power of two.");
+        }
+        final int numberOfStripes = Math.min(maxNumberOfStripes, Integer
+                .highestOneBit(Math.max(1,
+                        maxNumberOfNodesInCache / MIN_STRIPE_CAPACITY)));
+        final int stripeCapacity = maxNumberOfNodesInCache / numberOfStripes;
+        final int remainder = maxNumberOfNodesInCache % numberOfStripes;
+        stripes = new Stripe[numberOfStripes];
+        for (int i = 0; i < numberOfStripes; i++) {
+            if (i < remainder) {
+                stripes[i] = new Stripe(stripeCapacity + 1);
+            } else {
+                stripes[i] = new Stripe(stripeCapacity);
+            }
+        }
+        mask = numberOfStripes - 1;
+    }
+
+    @Override
+    public void put(final Node<K, V> node) {
+        final Integer idNode = Objects.requireNonNull(node.getId());
+        final Stripe stripe = getStripe(idNode);
+        synchronized (stripe) {
+            stripe.sketch.increment(idNode);
+            final Entry entry = stripe.entries.get(idNode);
+            if (entry == null) {
+                admit(stripe, new Entry(idNode, node.getFieldBytes(), true));
+            } else {
+                entry.nodeData = node.getFieldBytes();
+                entry.changed = true;
+                onHit(stripe, entry);
+            }
+        }
+    }
+
+    @Override
+    public void remove(final Integer idNode) {
+        final Stripe stripe = getStripe(idNode);
+        synchronized (stripe) {
+            final Entry entry = stripe.entries.get(idNode);
+            if (entry != null) {
+                evict(stripe, entry);
+            }
+        }
+    }
+
+    @Override
+    public Node<K, V> get(final Integer idNode) {
+        final Stripe stripe = getStripe(idNode);
+        final byte[] nodeData;
+        synchronized (stripe) {
+            stripe.sketch.increment(idNode);
+            final Entry entry = stripe.entries.get(idNode);
+            if (entry == null) {
+                final Node<K, V> node = nodeLoader.load(idNode);
+                admit(stripe, new Entry(idNode, node.getFieldBytes(), false));
+                return node;
+            }
+            onHit(stripe, entry);
+            nodeData = entry.nodeData;
+        }
+        return nodeBuilder.makeNode(idNode, nodeData);
+    }
+
+    @Override
+    public Node<K, V> getForScan(final Integer idNode) {
+        final Stripe stripe = getStripe(idNode);
+        final byte[] nodeData;
+        synchronized (stripe) {
+            final Entry entry = stripe.entries.get(idNode);
+            if (entry == null) {
+                return nodeLoader.load(idNode);
+            }
+            nodeData = entry.nodeData;
+        }
+        return nodeBuilder.makeNode(idNode, nodeData);
+    }
+
+    @Override
+    public void addCacheListener(final CacheListener<K, V> cacheListener) {
+        this.cacheListeners.add(Objects.requireNonNull(cacheListener));
+    }
+
+    @Override
+    public void flush() {
+        /**
+         * Changed nodes are written in order of node ids. Each node is written
+         * while just stripe of the node is locked, so other threads are not
+         * blocked until whole stripe is written.
+         */
+        final List<Integer> ids = new ArrayList<Integer>();
+        for (final Stripe stripe : stripes) {
+            synchronized (stripe) {
+                for (final Entry entry : stripe.entries.values()) {
+                    if (entry.changed) {
+                        ids.add(entry.nodeId);
+                    }
+                }
+            }
+        }
+        Collections.sort(ids);
+        for (final Integer idNode : ids) {
+            final Stripe stripe = getStripe(idNode);
+            synchronized (stripe) {
+                final Entry entry = stripe.entries.get(idNode);
+                if (entry != null && entry.changed) {
+                    final Node<K, V> node =
+                            nodeBuilder.makeNode(idNode, entry.nodeData);
+                    for (final CacheListener<K, V> cacheListener
+                            : cacheListeners) {
+                        cacheListener.onFlush(node);
+                    }
+                    entry.changed = false;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        for (final Stripe stripe : stripes) {
+            synchronized (stripe) {
+                final List<Entry> entries =
+                        new ArrayList<Entry>(stripe.entries.values());
+                for (final Entry entry : entries) {
+                    evict(stripe, entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * Move used entry to the end of its LRU list. Entry used in probation
+     * segment is promoted to protected segment. Stripe have to be locked.
+     *
+     * @param stripe
+     *            required locked stripe
+     * @param entry
+     *            required used entry
+     */
+    private void onHit(final Stripe stripe, final Entry entry) {
+        final Segment segment = entry.segment;
+        segment.remove(entry);
+        if (segment == stripe.probation) {
+            stripe.protectedSegment.addLast(entry);
+            if (stripe.protectedSegment.isOverflowed()) {
+                final Entry demoted = stripe.protectedSegment.first();
+                stripe.protectedSegment.remove(demoted);
+                stripe.probation.addLast(demoted);
+            }
+        } else {
+            segment.addLast(entry);
+        }
+    }
+
+    /**
+     * Put new entry into window. When window is full than least recently used
+     * window entry becomes candidate for main part. Candidate is admitted when
+     * it's used more often than main part victim. Stripe have to be locked.
+     *
+     * @param stripe
+     *            required locked stripe
+     * @param entry
+     *            required new entry
+     */
+    private void admit(final Stripe stripe, final Entry entry) {
+        stripe.entries.put(entry.nodeId, entry);
+        stripe.window.addLast(entry);
+        if (!stripe.window.isOverflowed()) {
+            return;
+        }
+        final Entry candidate = stripe.window.first();
+        stripe.window.remove(candidate);
+        if (stripe.probation.size
+                + stripe.protectedSegment.size < stripe.mainCapacity) {
+            stripe.probation.addLast(candidate);
+            return;
+        }
+        Entry victim = stripe.probation.first();
+        if (victim == null) {
+            victim = stripe.protectedSegment.first();
+        }
+        if (victim != null && stripe.sketch.frequency(
+                candidate.nodeId) > stripe.sketch.frequency(victim.nodeId)) {
+            evict(stripe, victim);
+            stripe.probation.addLast(candidate);
+        } else {
+            evict(stripe, candidate);
+        }
+    }
+
+    /**
+     * Remove entry from stripe and notify listeners. Stripe have to be locked.
+     *
+     * @param stripe
+     *            required locked stripe
+     * @param entry
+     *            required removed entry
+     */
+    private void evict(final Stripe stripe, final Entry entry) {
+        stripe.entries.remove(entry.nodeId);
+        if (entry.segment != null) {
+            entry.segment.remove(entry);
+        }
+        final Node<K, V> node =
+                nodeBuilder.makeNode(entry.nodeId, entry.nodeData);
+        for (final CacheListener<K, V> cacheListener : cacheListeners) {
+            cacheListener.onUnload(node, entry.changed);
+        }
+    }
+
+    /**
+     * Find stripe for node.
+     *
+     * @param nodeId
+     *            required node id
+     * @return stripe
+     */
+    private Stripe getStripe(final Integer nodeId) {
+        return stripes[nodeId & mask];
+    }
+
+}
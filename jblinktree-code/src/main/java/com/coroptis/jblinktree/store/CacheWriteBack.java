@@ -0,0 +1,131 @@
+package com.coroptis.jblinktree.store;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import java.util.Objects;
+
+import com.coroptis.jblinktree.Node;
+import com.coroptis.jblinktree.util.JblinktreeException;
+import com.coroptis.jblinktree.util.PeriodicTask;
+
+/**
+ * Cache decorator which writes changed nodes in background. Background thread
+ * periodically calls {@link Cache#flush()} of given cache, so changed nodes
+ * are written ahead of eviction and thread which evicts node usually finds it
+ * unchanged. Nodes changed again before next pass are written just once.
+ * <p>
+ * Failed pass is logged and repeated in next pass, nodes which weren't
+ * written stay changed. When last pass failed than failure is reported when
+ * cache is closed.
+ * </p>
+ *
+ * @author jajir
+ *
+ * @param <K>
+ *            key type
+ * @param <V>
+ *            value type
+ */
+public final class CacheWriteBack<K, V> implements Cache<K, V> {
+
+    /**
+     * Name of background thread.
+     */
+    private static final String THREAD_NAME = "jblinktree-write-back";
+
+    /**
+     * Cache to which will be operations delegated.
+     */
+    private final Cache<K, V> next;
+
+    /**
+     * Background thread periodically flushing cache.
+     */
+    private final PeriodicTask writeBackTask;
+
+    /**
+     * Create cache and start background thread.
+     *
+     * @param cache
+     *            required cache to which will be operations delegated
+     * @param writeBackInterval
+     *            required interval in milliseconds between two passes of
+     *            background thread, it have to be positive
+     */
+    public CacheWriteBack(final Cache<K, V> cache,
+            final long writeBackInterval) {
+        this.next = Objects.requireNonNull(cache);
+        if (writeBackInterval < 1) {
+            throw new JblinktreeException(
+                    "Write back interval should be positive.");
+        }
+        writeBackTask = new PeriodicTask(THREAD_NAME, Thread.NORM_PRIORITY,
+                writeBackInterval, new Runnable() {
+                    @Override
+                    public void run() {
+                        next.flush();
+                    }
+                });
+        writeBackTask.start();
+    }
+
+    @Override
+    public void put(final Node<K, V> node) {
+        next.put(node);
+    }
+
+    @Override
+    public void remove(final Integer idNode) {
+        next.remove(idNode);
+    }
+
+    @Override
+    public Node<K, V> get(final Integer idNode) {
+        return next.get(idNode);
+    }
+
+    @Override
+    public Node<K, V> getForScan(final Integer idNode) {
+        return next.getForScan(idNode);
+    }
+
+    @Override
+    public void flush() {
+        next.flush();
+    }
+
+    @Override
+    public void close() {
+        final RuntimeException failure = writeBackTask.stop();
+        next.close();
+        if (failure != null) {
+            throw new JblinktreeException("Background write back failed.",
+                    failure);
+        }
+    }
+
+    @Override
+    public void addCacheListener(final CacheListener<K, V> cacheListener) {
+        next.addCacheListener(cacheListener);
+    }
+
+}
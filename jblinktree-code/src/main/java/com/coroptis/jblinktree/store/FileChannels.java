@@ -0,0 +1,90 @@
+package com.coroptis.jblinktree.store;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Positional reading and writing of whole buffers. Positional operations
+ * don't use shared file pointer so different parts of file could be read and
+ * written concurrently.
+ *
+ * @author jajir
+ *
+ */
+final class FileChannels {
+
+    /**
+     * Hidden constructor.
+     */
+    private FileChannels() {
+    }
+
+    /**
+     * Read bytes from given position until buffer is full.
+     *
+     * @param channel
+     *            required file channel
+     * @param buffer
+     *            required buffer which will be filled
+     * @param position
+     *            required position in file
+     * @throws IOException
+     *             when end of file is reached before buffer is full or in case
+     *             of I/O error
+     */
+    static void readFully(final FileChannel channel, final ByteBuffer buffer,
+            final long position) throws IOException {
+        long pos = position;
+        while (buffer.hasRemaining()) {
+            final int read = channel.read(buffer, pos);
+            if (read < 0) {
+                throw new EOFException(
+                        "Unexpected end of file at position " + pos);
+            }
+            pos += read;
+        }
+    }
+
+    /**
+     * Write all remaining bytes from buffer at given position.
+     *
+     * @param channel
+     *            required file channel
+     * @param buffer
+     *            required buffer with data
+     * @param position
+     *            required position in file
+     * @throws IOException
+     *             in case of I/O error
+     */
+    static void writeFully(final FileChannel channel, final ByteBuffer buffer,
+            final long position) throws IOException {
+        long pos = position;
+        while (buffer.hasRemaining()) {
+            pos += channel.write(buffer, pos);
+        }
+    }
+
+}
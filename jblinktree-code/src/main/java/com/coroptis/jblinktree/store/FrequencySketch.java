@@ -0,0 +1,218 @@
+package com.coroptis.jblinktree.store;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Count-min sketch estimating how often was node id used recently. Each
+ * counter has 4 bits, when number of increments reach sample size than all
+ * counters are halved, so old usage is slowly forgotten.
+ * <p>
+ * Class is not thread safe.
+ * </p>
+ *
+ * @author jajir
+ *
+ */
+final class FrequencySketch {
+
+    /**
+     * Seeds of hash functions, one for each counter row.
+     */
+    private static final long[] SEEDS = { 0xc3a5c85c97cb3127L,
+            0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+
+    /**
+     * Mask clearing highest bit of each counter after shift.
+     */
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    /**
+     * Maximal value of one counter.
+     */
+    private static final int MAX_COUNT = 15;
+
+    /**
+     * Number of bits in one counter.
+     */
+    private static final int COUNTER_BITS = 4;
+
+    /**
+     * Mask selecting one of 16 counters in long.
+     */
+    private static final int COUNTER_INDEX_MASK = 15;
+
+    /**
+     * How many increments per one tracked item cause reset.
+     */
+    private static final int SAMPLE_FACTOR = 10;
+
+    /**
+     * Shift used in hash mixing.
+     */
+    private static final int HALF_INT = 16;
+
+    /**
+     * Shift used in hash mixing.
+     */
+    private static final int HALF_LONG = 32;
+
+    /**
+     * Multiplier used in hash mixing.
+     */
+    private static final int MIX = 0x45d9f3b;
+
+    /**
+     * Counters, each long holds 16 counters.
+     */
+    private final long[] table;
+
+    /**
+     * Mask selecting index in table.
+     */
+    private final int tableMask;
+
+    /**
+     * Number of increments after which are counters halved.
+     */
+    private final int sampleSize;
+
+    /**
+     * Number of increments since last reset.
+     */
+    private int size;
+
+    /**
+     * Create sketch.
+     *
+     * @param maximumSize
+     *            required number of tracked items, usually cache size
+     */
+    FrequencySketch(final int maximumSize) {
+        final int tableLength =
+                Integer.highestOneBit(Math.max(1, maximumSize) * 2 - 1);
+        table = new long[tableLength];
+        tableMask = tableLength - 1;
+        sampleSize = Math.max(1, maximumSize) * SAMPLE_FACTOR;
+    }
+
+    /**
+     * Estimate how often was node id used.
+     *
+     * @param nodeId
+     *            node id
+     * @return estimated frequency, it's between 0 and 15
+     */
+    int frequency(final int nodeId) {
+        final int hash = spread(nodeId);
+        int out = MAX_COUNT;
+        for (int i = 0; i < SEEDS.length; i++) {
+            final long h = indexHash(hash, i);
+            final int count = (int) ((table[index(h)] >>> offset(h))
+                    & MAX_COUNT);
+            out = Math.min(out, count);
+        }
+        return out;
+    }
+
+    /**
+     * Increment node id usage.
+     *
+     * @param nodeId
+     *            node id
+     */
+    void increment(final int nodeId) {
+        final int hash = spread(nodeId);
+        boolean added = false;
+        for (int i = 0; i < SEEDS.length; i++) {
+            final long h = indexHash(hash, i);
+            final int index = index(h);
+            final int offset = offset(h);
+            if (((table[index] >>> offset) & MAX_COUNT) < MAX_COUNT) {
+                table[index] += 1L << offset;
+                added = true;
+            }
+        }
+        if (added && ++size >= sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * Halve all counters.
+     */
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size = size / 2;
+    }
+
+    /**
+     * Compute hash for one counter row.
+     *
+     * @param hash
+     *            spread item hash
+     * @param row
+     *            counter row
+     * @return row hash
+     */
+    private long indexHash(final int hash, final int row) {
+        long h = (hash + SEEDS[row]) * SEEDS[row];
+        h += h >>> HALF_LONG;
+        return h;
+    }
+
+    /**
+     * Get table index from row hash.
+     *
+     * @param h
+     *            row hash
+     * @return table index
+     */
+    private int index(final long h) {
+        return (int) h & tableMask;
+    }
+
+    /**
+     * Get counter offset in long from row hash.
+     *
+     * @param h
+     *            row hash
+     * @return bit offset of counter
+     */
+    private int offset(final long h) {
+        return (int) ((h >>> HALF_LONG) & COUNTER_INDEX_MASK) * COUNTER_BITS;
+    }
+
+    /**
+     * Mix bits of node id, node ids are usually sequential.
+     *
+     * @param nodeId
+     *            node id
+     * @return mixed value
+     */
+    private static int spread(final int nodeId) {
+        int x = ((nodeId >>> HALF_INT) ^ nodeId) * MIX;
+        x = ((x >>> HALF_INT) ^ x) * MIX;
+        return (x >>> HALF_INT) ^ x;
+    }
+
+}
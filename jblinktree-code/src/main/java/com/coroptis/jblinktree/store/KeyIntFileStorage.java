@@ -24,7 +24,8 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
-import java.util.Arrays;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Objects;
 
 import com.coroptis.jblinktree.JbNodeBuilder;
@@ -33,8 +34,9 @@ import com.coroptis.jblinktree.Node;
 import com.coroptis.jblinktree.util.JblinktreeException;
 
 /**
- * Simple thread safe node storage. Could be used just in case when values
- * associated with keys occupy 4 or less bytes.
+ * Simple thread safe node storage. File is accessed with positional reads and
+ * writes, so different nodes could be loaded and stored concurrently. Could be
+ * used just in case when values associated with keys occupy 4 or less bytes.
  *
  * @author jajir
  *
@@ -53,6 +55,11 @@ public final class KeyIntFileStorage<K> implements NodeFileStorage<K, Integer> {
      */
     private final RandomAccessFile raf;
 
+    /**
+     * File channel used for positional reading and writing.
+     */
+    private final FileChannel channel;
+
     /**
      * Non-leaf node definition.
      */
@@ -90,19 +97,22 @@ public final class KeyIntFileStorage<K> implements NodeFileStorage<K, Integer> {
         } catch (FileNotFoundException e) {
             throw new JblinktreeException(e.getMessage(), e);
         }
+        channel = raf.getChannel();
     }
 
     @Override
     public void store(final Node<K, Integer> node) {
+        final ByteBuffer buffer = ByteBuffer.allocate(
+                NUMBER_OF_KEYS_IN_NODE_LENGTH + nodeDef.getFieldMaxLength());
+        buffer.put((byte) node.getKeyCount());
+        /**
+         * Rest of record stays filled with zeros.
+         */
+        buffer.put(node.getFieldBytes());
+        buffer.clear();
         try {
-            raf.seek(getPosition(node.getId()));
-            raf.writeByte(node.getKeyCount());
-            byte[] bytes = node.getFieldBytes();
-            if (bytes.length < nodeDef.getFieldMaxLength()) {
-                // add zeros to record
-                bytes = Arrays.copyOf(bytes, nodeDef.getFieldMaxLength());
-            }
-            raf.write(bytes);
+            FileChannels.writeFully(channel, buffer,
+                    getPosition(node.getId()));
         } catch (IOException e) {
             throw new JblinktreeException(e.getMessage(), e);
         }
@@ -111,9 +121,9 @@ public final class KeyIntFileStorage<K> implements NodeFileStorage<K, Integer> {
     @Override
     public Node<K, Integer> load(final Integer nodeId) {
         try {
-            raf.seek(getPosition(nodeId));
             byte[] r = new byte[nodeDef.getFieldMaxLength() + 1];
-            raf.readFully(r);
+            FileChannels.readFully(channel, ByteBuffer.wrap(r),
+                    getPosition(nodeId));
             byte keys = r[0];
             int fieldSize = nodeDef.getFieldActualLength(keys);
             byte[] bytes = new byte[fieldSize];
@@ -125,9 +135,19 @@ public final class KeyIntFileStorage<K> implements NodeFileStorage<K, Integer> {
         }
     }
 
+    @Override
+    public void sync() {
+        try {
+            raf.getFD().sync();
+        } catch (IOException e) {
+            throw new JblinktreeException(e.getMessage(), e);
+        }
+    }
+
     @Override
     public void close() {
         try {
+            raf.getFD().sync();
             raf.close();
         } catch (IOException e) {
             throw new JblinktreeException(e.getMessage(), e);
@@ -151,4 +171,15 @@ public final class KeyIntFileStorage<K> implements NodeFileStorage<K, Integer> {
         return isNewlyCreated;
     }
 
+    @Override
+    public Integer getMaxNodeId() {
+        final long recordLength = NUMBER_OF_KEYS_IN_NODE_LENGTH
+                + nodeDef.getFieldMaxLength();
+        try {
+            return (int) ((channel.size() + recordLength - 1) / recordLength);
+        } catch (IOException e) {
+            throw new JblinktreeException(e.getMessage(), e);
+        }
+    }
+
 }
@@ -24,7 +24,8 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
-import java.util.Arrays;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Objects;
 
 import com.coroptis.jblinktree.JbNodeBuilder;
@@ -34,7 +35,8 @@ import com.coroptis.jblinktree.Node;
 import com.coroptis.jblinktree.util.JblinktreeException;
 
 /**
- * Simple thread unsafe node storage.
+ * Simple node storage. File is accessed with positional reads and writes,
+ * so different nodes could be loaded and stored concurrently.
  *
  * @author jajir
  *
@@ -65,6 +67,11 @@ public final class KeyValueFileStorage<K, V> implements NodeFileStorage<K, V> {
      */
     private final RandomAccessFile raf;
 
+    /**
+     * File channel used for positional reading and writing.
+     */
+    private final FileChannel channel;
+
     /**
      * Tree definition.
      */
@@ -109,24 +116,27 @@ public final class KeyValueFileStorage<K, V> implements NodeFileStorage<K, V> {
         } catch (FileNotFoundException e) {
             throw new JblinktreeException(e.getMessage(), e);
         }
+        channel = raf.getChannel();
     }
 
     @Override
     public void store(final Node<K, V> node) {
+        final ByteBuffer buffer = ByteBuffer
+                .allocate(NUMBER_OF_KEYS_IN_NODE_LENGTH + maxFieldLength);
+        if (node.isLeafNode()) {
+            buffer.put(LEAF_NODE);
+        } else {
+            buffer.put(NON_LEAF_NODE);
+        }
+        buffer.put((byte) node.getKeyCount());
+        /**
+         * Rest of record stays filled with zeros.
+         */
+        buffer.put(node.getFieldBytes());
+        buffer.clear();
         try {
-            raf.seek(getPosition(node.getId()));
-            if (node.isLeafNode()) {
-                raf.writeByte(LEAF_NODE);
-            } else {
-                raf.writeByte(NON_LEAF_NODE);
-            }
-            raf.writeByte(node.getKeyCount());
-            byte[] bytes = node.getFieldBytes();
-            if (bytes.length < maxFieldLength) {
-                // add zeros to record
-                bytes = Arrays.copyOf(bytes, maxFieldLength);
-            }
-            raf.write(bytes);
+            FileChannels.writeFully(channel, buffer,
+                    getPosition(node.getId()));
         } catch (IOException e) {
             throw new JblinktreeException(e.getMessage(), e);
         }
@@ -150,9 +160,9 @@ public final class KeyValueFileStorage<K, V> implements NodeFileStorage<K, V> {
     @Override
     public Node<K, V> load(final Integer nodeId) {
         try {
-            raf.seek(getPosition(nodeId));
             byte[] r = new byte[maxFieldLength + 2];
-            raf.readFully(r);
+            FileChannels.readFully(channel, ByteBuffer.wrap(r),
+                    getPosition(nodeId));
             final JbNodeDef<K, V> nodeDef = findNodeDef(r[0]);
             byte keys = r[1];
             int fieldSize = nodeDef.getFieldActualLength(keys);
@@ -165,9 +175,19 @@ public final class KeyValueFileStorage<K, V> implements NodeFileStorage<K, V> {
         }
     }
 
+    @Override
+    public void sync() {
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            throw new JblinktreeException(e.getMessage(), e);
+        }
+    }
+
     @Override
     public void close() {
         try {
+            channel.force(true);
             raf.close();
         } catch (IOException e) {
             throw new JblinktreeException(e.getMessage(), e);
@@ -190,4 +210,14 @@ public final class KeyValueFileStorage<K, V> implements NodeFileStorage<K, V> {
         return isNewlyCreated;
     }
 
+    @Override
+    public Integer getMaxNodeId() {
+        final long recordLength = NUMBER_OF_KEYS_IN_NODE_LENGTH + maxFieldLength;
+        try {
+            return (int) ((channel.size() + recordLength - 1) / recordLength);
+        } catch (IOException e) {
+            throw new JblinktreeException(e.getMessage(), e);
+        }
+    }
+
 }
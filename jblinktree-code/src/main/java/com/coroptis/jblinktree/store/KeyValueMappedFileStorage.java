@@ -0,0 +1,324 @@
+package com.coroptis.jblinktree.store;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Objects;
+
+import com.coroptis.jblinktree.JbNodeBuilder;
+import com.coroptis.jblinktree.JbNodeDef;
+import com.coroptis.jblinktree.JbTreeData;
+import com.coroptis.jblinktree.Node;
+import com.coroptis.jblinktree.util.JblinktreeException;
+
+/**
+ * Node storage using memory mapped file. Records have same layout as in
+ * {@link KeyValueFileStorage}. File is mapped in chunks, each chunk holds whole
+ * number of node records so record never cross chunk border. When node with
+ * higher id is stored new chunks are mapped and file grows.
+ * <p>
+ * Reading of already mapped node doesn't do any system call. Concurrent reading
+ * is safe, writing of the same node have to be guarded by caller.
+ * </p>
+ *
+ * @author jajir
+ *
+ * @param <K>
+ *            key type
+ * @param <V>
+ *            value type
+ */
+public final class KeyValueMappedFileStorage<K, V>
+        implements NodeFileStorage<K, V> {
+
+    /**
+     * Default size of one mapped chunk in bytes.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+
+    /**
+     * Leaf node identification byte.
+     */
+    private static final byte LEAF_NODE = 1;
+
+    /**
+     * Non-leaf node identification byte.
+     */
+    private static final byte NON_LEAF_NODE = 2;
+
+    /**
+     * how many byte occupy on disk information about node type and actual
+     * number of key value pairs in node.
+     */
+    private static final int NUMBER_OF_KEYS_IN_NODE_LENGTH = 2;
+
+    /**
+     * Node builder factory.
+     */
+    private final JbNodeBuilder<K, V> nodeBuilder;
+
+    /**
+     * Tree definition.
+     */
+    private final JbTreeData<K, V> treeData;
+
+    /**
+     * Random access file.
+     */
+    private final RandomAccessFile raf;
+
+    /**
+     * Channel used for mapping file chunks.
+     */
+    private final FileChannel channel;
+
+    /**
+     * Maximal length of nodes.
+     */
+    private final int maxFieldLength;
+
+    /**
+     * Zeros used for filling unused part of record.
+     */
+    private final byte[] zeros;
+
+    /**
+     * Length of one node record in bytes.
+     */
+    private final int recordLength;
+
+    /**
+     * Number of node records in one chunk.
+     */
+    private final int nodesInChunk;
+
+    /**
+     * Size of one chunk in bytes.
+     */
+    private final long chunkLength;
+
+    /**
+     * Mapped chunks. Array is never changed, when new chunk is mapped than new
+     * array is created.
+     */
+    private volatile MappedByteBuffer[] chunks = new MappedByteBuffer[0];
+
+    /**
+     * When it's <code>true</code> than tree is newly created.
+     */
+    private final boolean isNewlyCreated;
+
+    /**
+     * Create storage with default chunk size.
+     *
+     * @param file
+     *            required file
+     * @param jbTreeData
+     *            tree meta data
+     * @param jbNodeBuilder
+     *            node builder factory
+     */
+    public KeyValueMappedFileStorage(final File file,
+            final JbTreeData<K, V> jbTreeData,
+            final JbNodeBuilder<K, V> jbNodeBuilder) {
+        this(file, jbTreeData, jbNodeBuilder, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Simple constructor.
+     *
+     * @param file
+     *            required file
+     * @param jbTreeData
+     *            tree meta data
+     * @param jbNodeBuilder
+     *            node builder factory
+     * @param chunkSize
+     *            required size of mapped chunk in bytes, it's rounded down to
+     *            whole number of node records
+     */
+    public KeyValueMappedFileStorage(final File file,
+            final JbTreeData<K, V> jbTreeData,
+            final JbNodeBuilder<K, V> jbNodeBuilder, final int chunkSize) {
+        this.treeData = Objects.requireNonNull(jbTreeData);
+        this.nodeBuilder = Objects.requireNonNull(jbNodeBuilder);
+        Objects.requireNonNull(file);
+        maxFieldLength = Math.max(
+                treeData.getLeafNodeDescriptor().getFieldMaxLength(),
+                treeData.getNonLeafNodeDescriptor().getFieldMaxLength());
+        zeros = new byte[maxFieldLength];
+        recordLength = NUMBER_OF_KEYS_IN_NODE_LENGTH + maxFieldLength;
+        nodesInChunk = Math.max(1, chunkSize / recordLength);
+        chunkLength = (long) nodesInChunk * recordLength;
+        isNewlyCreated = !file.exists();
+        try {
+            raf = new RandomAccessFile(file, "rw");
+        } catch (FileNotFoundException e) {
+            throw new JblinktreeException(e.getMessage(), e);
+        }
+        channel = raf.getChannel();
+    }
+
+    @Override
+    public void store(final Node<K, V> node) {
+        final ByteBuffer buffer = getRecord(node.getId(), true);
+        if (node.isLeafNode()) {
+            buffer.put(LEAF_NODE);
+        } else {
+            buffer.put(NON_LEAF_NODE);
+        }
+        buffer.put((byte) node.getKeyCount());
+        final byte[] bytes = node.getFieldBytes();
+        buffer.put(bytes);
+        if (bytes.length < maxFieldLength) {
+            // add zeros to record
+            buffer.put(zeros, 0, maxFieldLength - bytes.length);
+        }
+    }
+
+    @Override
+    public Node<K, V> load(final Integer nodeId) {
+        final ByteBuffer buffer = getRecord(nodeId, false);
+        if (buffer == null) {
+            throw new JblinktreeException(
+                    "Can't find nodeId '" + nodeId + "'");
+        }
+        final byte flag = buffer.get();
+        final JbNodeDef<K, V> nodeDef;
+        if (LEAF_NODE == flag) {
+            nodeDef = treeData.getLeafNodeDescriptor();
+        } else if (NON_LEAF_NODE == flag) {
+            @SuppressWarnings("unchecked")
+            final JbNodeDef<K, V> nonLeafNodeDef =
+                    (JbNodeDef<K, V>) treeData.getNonLeafNodeDescriptor();
+            nodeDef = nonLeafNodeDef;
+        } else {
+            throw new JblinktreeException(
+                    "Can't find nodeId '" + nodeId + "'");
+        }
+        final byte keys = buffer.get();
+        final byte[] bytes = new byte[nodeDef.getFieldActualLength(keys)];
+        buffer.get(bytes);
+        return nodeBuilder.makeNode(nodeId, bytes, nodeDef);
+    }
+
+    /**
+     * Get buffer positioned at beginning of node record. Returned buffer is
+     * private view of mapped chunk, so it could be used concurrently.
+     *
+     * @param nodeId
+     *            required node id
+     * @param mapNewChunks
+     *            when it's <code>true</code> than missing chunks are mapped
+     *            and file grows
+     * @return buffer positioned at node record, when node is out of file and
+     *         new chunks should not be mapped than return <code>null</code>
+     */
+    private ByteBuffer getRecord(final Integer nodeId,
+            final boolean mapNewChunks) {
+        final int chunkIndex = nodeId / nodesInChunk;
+        MappedByteBuffer[] mapped = chunks;
+        if (chunkIndex >= mapped.length) {
+            if (!mapNewChunks && chunkIndex * chunkLength >= fileSize()) {
+                return null;
+            }
+            mapped = mapChunks(chunkIndex);
+        }
+        final ByteBuffer out = mapped[chunkIndex].duplicate();
+        out.position((nodeId % nodesInChunk) * recordLength);
+        return out;
+    }
+
+    /**
+     * Map all chunks up to given chunk index.
+     *
+     * @param chunkIndex
+     *            required index of last mapped chunk
+     * @return array of mapped chunks
+     */
+    private synchronized MappedByteBuffer[] mapChunks(final int chunkIndex) {
+        final MappedByteBuffer[] mapped = chunks;
+        if (chunkIndex < mapped.length) {
+            return mapped;
+        }
+        final MappedByteBuffer[] out = Arrays.copyOf(mapped, chunkIndex + 1);
+        try {
+            for (int i = mapped.length; i <= chunkIndex; i++) {
+                out[i] = channel.map(FileChannel.MapMode.READ_WRITE,
+                        i * chunkLength, chunkLength);
+            }
+        } catch (IOException e) {
+            throw new JblinktreeException(e.getMessage(), e);
+        }
+        chunks = out;
+        return out;
+    }
+
+    /**
+     * Get current file size.
+     *
+     * @return file size in bytes
+     */
+    private long fileSize() {
+        try {
+            return channel.size();
+        } catch (IOException e) {
+            throw new JblinktreeException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void sync() {
+        for (final MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        for (final MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+        try {
+            raf.close();
+        } catch (IOException e) {
+            throw new JblinktreeException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean isNewlyCreated() {
+        return isNewlyCreated;
+    }
+
+    @Override
+    public Integer getMaxNodeId() {
+        return (int) ((fileSize() + recordLength - 1) / recordLength);
+    }
+
+}
@@ -28,6 +28,9 @@ package com.coroptis.jblinktree.store;
  * <li>key data type description</li>
  * <li>value data type description</li>
  * <li>link data type description</li>
+ * <li>number of key value pairs stored in tree</li>
+ * <li>two checkpoint slots, they are present just while tree is opened</li>
+ * <li>ids of free nodes, they are present just while tree is closed</li>
  * </ul>
  *
  * @author jajir
@@ -39,4 +42,24 @@ public interface MetaDataStore {
      */
     void close();
 
+    /**
+     * Durably write root node id and max node id to one of two alternating
+     * checkpoint slots. When tree is not correctly closed than values from
+     * last correctly written slot are used.
+     *
+     * @param rootNodeId
+     *            required root node id
+     * @param maxNodeId
+     *            required max node id
+     */
+    void checkpoint(Integer rootNodeId, Integer maxNodeId);
+
+    /**
+     * Tells if tree wasn't correctly closed, so meta data were loaded from
+     * last checkpoint.
+     *
+     * @return <code>true</code> when tree wasn't correctly closed
+     */
+    boolean isRecoveredFromCheckpoint();
+
 }
@@ -23,8 +23,12 @@ package com.coroptis.jblinktree.store;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.zip.CRC32;
 
 import com.coroptis.jblinktree.JbTreeData;
 import com.coroptis.jblinktree.type.AbstractMetaType;
@@ -34,6 +38,18 @@ import com.coroptis.jblinktree.util.JblinktreeException;
 
 /**
  * Immutable implementation.
+ * <p>
+ * While tree is opened checkpoints are written to two alternating slots
+ * after meta data. Slot contains sequence number, root node id, max node id
+ * and checksum, so incompletely written slot is ignored and the other one is
+ * used. Correct close writes all meta data and removes slots, so slots found
+ * in opened file mean that tree wasn't correctly closed.
+ * </p>
+ * <p>
+ * Ids of free nodes are written at the same place by correct close. They are
+ * protected by checksum and removed when tree is opened, so after crash they
+ * can't be used again. Free nodes are lost after crash.
+ * </p>
  *
  * @author jajir
  *
@@ -59,6 +75,57 @@ public final class MetaDataStoreImpl<K, V> implements MetaDataStore {
      */
     private static final String HEADER = "jbTree-metadata";
 
+    /**
+     * Number of bytes used for storing number of values in tree.
+     */
+    private static final int VALUE_COUNT_LENGTH = 8;
+
+    /**
+     * Length of checkpoint slot. It's sequence number, root node id, max node
+     * id and checksum.
+     */
+    private static final int SLOT_LENGTH = 20;
+
+    /**
+     * Length of checkpoint slot data covered by checksum.
+     */
+    private static final int SLOT_DATA_LENGTH = 16;
+
+    /**
+     * Length of number of free node ids and checksum of list of free node ids.
+     */
+    private static final int FREE_NODE_IDS_OVERHEAD = 8;
+
+    /**
+     * Length of one free node id.
+     */
+    private static final int FREE_NODE_ID_LENGTH = 4;
+
+    /**
+     * Position of first checkpoint slot.
+     */
+    private long slotsPosition;
+
+    /**
+     * Sequence number of last written checkpoint.
+     */
+    private long checkpointSequence;
+
+    /**
+     * Root node id from last written checkpoint.
+     */
+    private Integer checkpointRootNodeId;
+
+    /**
+     * Max node id from last written checkpoint.
+     */
+    private Integer checkpointMaxNodeId;
+
+    /**
+     * Is <code>true</code> when tree wasn't correctly closed.
+     */
+    private boolean recoveredFromCheckpoint;
+
     /**
      *
      * @param file
@@ -92,30 +159,212 @@ public final class MetaDataStoreImpl<K, V> implements MetaDataStore {
     private void init(final boolean isFileNew) throws IOException {
         if (isFileNew) {
             writeHeader();
-            writeMeta();
+            slotsPosition = writeMeta() + VALUE_COUNT_LENGTH;
         } else {
             verifyHeader();
             treeData.setRootNodeId(loadInt(HEADER.length()));
             treeData.setMaxNodeId(
                     loadInt(HEADER.length() + treeData.getLeafNodeDescriptor()
                             .getLinkTypeDescriptor().getMaxLength()));
-            verifyDataTypes();
+            final int pos = verifyDataTypes();
+            slotsPosition = pos + VALUE_COUNT_LENGTH;
+            if (raf.length() >= pos + VALUE_COUNT_LENGTH) {
+                raf.seek(pos);
+                treeData.setValueCount(raf.readLong());
+            } else {
+                /**
+                 * File was created by previous version without value count.
+                 */
+                treeData.setValueCount(JbTreeData.UNKNOWN_VALUE_COUNT);
+            }
+            if (raf.length() > slotsPosition) {
+                final List<Integer> freeNodeIds = loadFreeNodeIds();
+                if (freeNodeIds == null) {
+                    loadCheckpoint();
+                } else {
+                    treeData.setFreeNodeIds(freeNodeIds);
+                    /**
+                     * Ids are used by opened tree, they can't be loaded again
+                     * after crash.
+                     */
+                    raf.setLength(slotsPosition);
+                    raf.getFD().sync();
+                }
+            }
         }
     }
 
     /**
-     * Write root node id and max used node id.
+     * Tree wasn't correctly closed. Use root node id and max node id from
+     * newest correctly written checkpoint slot.
      *
      * @throws IOException
      *             read or write IOException
      */
-    private void writeMeta() throws IOException {
+    private void loadCheckpoint() throws IOException {
+        recoveredFromCheckpoint = true;
+        ByteBuffer newest = null;
+        for (int slot = 0; slot < 2; slot++) {
+            final ByteBuffer buffer = readSlot(slot);
+            if (buffer != null && (newest == null
+                    || buffer.getLong(0) > newest.getLong(0))) {
+                newest = buffer;
+            }
+        }
+        if (newest != null) {
+            checkpointSequence = newest.getLong(0);
+            checkpointRootNodeId = newest.getInt(8);
+            checkpointMaxNodeId = newest.getInt(12);
+            treeData.setRootNodeId(newest.getInt(8));
+            treeData.setMaxNodeId(
+                    Math.max(newest.getInt(12), treeData.getMaxNodeId()));
+        }
+        /**
+         * Stored number of values is not valid, values will be counted again.
+         */
+        treeData.setValueCount(JbTreeData.UNKNOWN_VALUE_COUNT);
+    }
+
+    /**
+     * Load list of free node ids written by correct close.
+     *
+     * @return list of free node ids or <code>null</code> when file doesn't
+     *         end with correctly written list
+     * @throws IOException
+     *             read or write IOException
+     */
+    private List<Integer> loadFreeNodeIds() throws IOException {
+        final long length = raf.length() - slotsPosition;
+        if (length < FREE_NODE_IDS_OVERHEAD
+                || (length - FREE_NODE_IDS_OVERHEAD)
+                        % FREE_NODE_ID_LENGTH != 0
+                || length > Integer.MAX_VALUE) {
+            return null;
+        }
+        final byte[] b = new byte[(int) length];
+        raf.seek(slotsPosition);
+        raf.readFully(b);
+        final ByteBuffer buffer = ByteBuffer.wrap(b);
+        final int count = buffer.getInt();
+        if (count != (length - FREE_NODE_IDS_OVERHEAD)
+                / FREE_NODE_ID_LENGTH) {
+            return null;
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(b, 0, b.length - 4);
+        if ((int) crc.getValue() != buffer.getInt(b.length - 4)) {
+            return null;
+        }
+        final List<Integer> out = new ArrayList<Integer>(count);
+        for (int i = 0; i < count; i++) {
+            out.add(buffer.getInt());
+        }
+        return out;
+    }
+
+    /**
+     * Write list of free node ids with checksum after meta data.
+     *
+     * @param freeNodeIds
+     *            required list of free node ids
+     * @throws IOException
+     *             read or write IOException
+     */
+    private void writeFreeNodeIds(final List<Integer> freeNodeIds)
+            throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(FREE_NODE_IDS_OVERHEAD
+                + freeNodeIds.size() * FREE_NODE_ID_LENGTH);
+        buffer.putInt(freeNodeIds.size());
+        for (final Integer nodeId : freeNodeIds) {
+            buffer.putInt(nodeId);
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        raf.seek(slotsPosition);
+        raf.write(buffer.array());
+    }
+
+    /**
+     * Read checkpoint slot and verify its checksum.
+     *
+     * @param slot
+     *            required slot index
+     * @return slot data or <code>null</code> when slot is not correctly
+     *         written
+     * @throws IOException
+     *             read or write IOException
+     */
+    private ByteBuffer readSlot(final int slot) throws IOException {
+        final long position = slotsPosition + (long) slot * SLOT_LENGTH;
+        if (raf.length() < position + SLOT_LENGTH) {
+            return null;
+        }
+        final byte[] b = new byte[SLOT_LENGTH];
+        raf.seek(position);
+        raf.readFully(b);
+        final ByteBuffer buffer = ByteBuffer.wrap(b);
+        final CRC32 crc = new CRC32();
+        crc.update(b, 0, SLOT_DATA_LENGTH);
+        if ((int) crc.getValue() != buffer.getInt(SLOT_DATA_LENGTH)) {
+            return null;
+        }
+        return buffer;
+    }
+
+    @Override
+    public boolean isRecoveredFromCheckpoint() {
+        return recoveredFromCheckpoint;
+    }
+
+    @Override
+    public synchronized void checkpoint(final Integer rootNodeId,
+            final Integer maxNodeId) {
+        Objects.requireNonNull(rootNodeId);
+        Objects.requireNonNull(maxNodeId);
+        if (checkpointSequence > 0 && rootNodeId.equals(checkpointRootNodeId)
+                && maxNodeId.equals(checkpointMaxNodeId)) {
+            /**
+             * Last written slot contains the same values.
+             */
+            return;
+        }
+        checkpointSequence++;
+        checkpointRootNodeId = rootNodeId;
+        checkpointMaxNodeId = maxNodeId;
+        final ByteBuffer buffer = ByteBuffer.allocate(SLOT_LENGTH);
+        buffer.putLong(checkpointSequence);
+        buffer.putInt(rootNodeId);
+        buffer.putInt(maxNodeId);
+        final CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, SLOT_DATA_LENGTH);
+        buffer.putInt((int) crc.getValue());
+        try {
+            raf.seek(slotsPosition + (checkpointSequence % 2) * SLOT_LENGTH);
+            raf.write(buffer.array());
+            raf.getFD().sync();
+        } catch (IOException e) {
+            throw new JblinktreeException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Write root node id, max used node id, data types and number of values.
+     *
+     * @return position of number of values
+     * @throws IOException
+     *             read or write IOException
+     */
+    private int writeMeta() throws IOException {
         writeInt(HEADER.length(), treeData.getRootNodeId());
         writeInt(
                 HEADER.length() + treeData.getLeafNodeDescriptor()
                         .getLinkTypeDescriptor().getMaxLength(),
                 treeData.getMaxNodeId());
-        writeDataTypes();
+        final int pos = writeDataTypes();
+        raf.seek(pos);
+        raf.writeLong(treeData.getValueCount());
+        return pos;
     }
 
     /**
@@ -258,10 +507,11 @@ public final class MetaDataStoreImpl<K, V> implements MetaDataStore {
     /**
      * Write all data type descriptors from {@link JbTreeData}.
      *
+     * @return position in file after last written data type
      * @throws IOException
      *             read or write IOException
      */
-    private void writeDataTypes() throws IOException {
+    private int writeDataTypes() throws IOException {
         int pos = getDataTypePos();
         raf.seek(pos);
         pos += writeTypeDescriptor(
@@ -270,16 +520,18 @@ public final class MetaDataStoreImpl<K, V> implements MetaDataStore {
                 treeData.getLeafNodeDescriptor().getValueTypeDescriptor(), pos);
         pos += writeTypeDescriptor(
                 treeData.getLeafNodeDescriptor().getLinkTypeDescriptor(), pos);
+        return pos;
     }
 
     /**
      * Verify all data type descriptors from {@link JbTreeData} and from loaded
      * values.
      *
+     * @return position in file after last verified data type
      * @throws IOException
      *             read or write IOException
      */
-    private void verifyDataTypes() throws IOException {
+    private int verifyDataTypes() throws IOException {
         int pos = getDataTypePos();
         raf.seek(pos);
         pos += verifyTypeDescriptor(
@@ -288,12 +540,25 @@ public final class MetaDataStoreImpl<K, V> implements MetaDataStore {
                 treeData.getLeafNodeDescriptor().getValueTypeDescriptor(), pos);
         pos += verifyTypeDescriptor(
                 treeData.getLeafNodeDescriptor().getLinkTypeDescriptor(), pos);
+        return pos;
     }
 
     @Override
-    public void close() {
+    public synchronized void close() {
+        /**
+         * Last checkpoint protects meta data while they are rewritten.
+         */
+        checkpoint(treeData.getRootNodeId(), treeData.getMaxNodeId());
         try {
             writeMeta();
+            raf.getFD().sync();
+            raf.setLength(slotsPosition);
+            raf.getFD().sync();
+            final List<Integer> freeNodeIds = treeData.getFreeNodeIds();
+            if (!freeNodeIds.isEmpty()) {
+                writeFreeNodeIds(freeNodeIds);
+                raf.getFD().sync();
+            }
             raf.close();
         } catch (IOException e) {
             throw new JblinktreeException(e.getMessage(), e);
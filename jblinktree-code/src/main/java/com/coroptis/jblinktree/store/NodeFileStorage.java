@@ -23,7 +23,9 @@ package com.coroptis.jblinktree.store;
 import com.coroptis.jblinktree.Node;
 
 /**
- * Simple storing nodes to file and reading from file.
+ * Simple storing nodes to file and reading from file. Different nodes could be
+ * loaded and stored concurrently, storing of the same node have to be
+ * serialized by caller.
  *
  * @author jajir
  *
@@ -47,6 +49,11 @@ public interface NodeFileStorage<K, V> extends NodeLoader<K, V> {
      */
     void close();
 
+    /**
+     * Force all stored nodes to disk.
+     */
+    void sync();
+
     /**
      * When it's <code>true</code> than tree is newly created node storage.
      *
@@ -55,4 +62,12 @@ public interface NodeFileStorage<K, V> extends NodeLoader<K, V> {
      */
     boolean isNewlyCreated();
 
+    /**
+     * Get max node id computed from file length. No node with the same or
+     * bigger id is stored in file.
+     *
+     * @return max node id of stored nodes
+     */
+    Integer getMaxNodeId();
+
 }
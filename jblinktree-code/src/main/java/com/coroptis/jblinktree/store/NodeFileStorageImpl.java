@@ -146,6 +146,12 @@ public final class NodeFileStorageImpl<K, V> implements NodeFileStorage<K, V> {
         }
     }
 
+    @Override
+    public void sync() {
+        keyIntFileStorage.sync();
+        valueFileStorage.sync();
+    }
+
     @Override
     public void close() {
         keyIntFileStorage.close();
@@ -160,6 +166,14 @@ public final class NodeFileStorageImpl<K, V> implements NodeFileStorage<K, V> {
         return isNewlyCreated;
     }
 
+    @Override
+    public Integer getMaxNodeId() {
+        /**
+         * Keys of all nodes are stored in key file.
+         */
+        return keyIntFileStorage.getMaxNodeId();
+    }
+
     /**
      * Verify that all tree files exists or all of then doesn't exists.
      *
@@ -81,6 +81,16 @@ public final class NodeFileStorageLockDecorator<K, V>
         }
     }
 
+    @Override
+    public void sync() {
+        lock.lock();
+        try {
+            next.sync();
+        } finally {
+            lock.unlock();
+        }
+    }
+
     @Override
     public void close() {
         lock.lock();
@@ -96,4 +106,9 @@ public final class NodeFileStorageLockDecorator<K, V>
         return next.isNewlyCreated();
     }
 
+    @Override
+    public Integer getMaxNodeId() {
+        return next.getMaxNodeId();
+    }
+
 }
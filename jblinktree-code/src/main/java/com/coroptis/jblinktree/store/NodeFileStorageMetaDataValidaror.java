@@ -69,6 +69,22 @@ public final class NodeFileStorageMetaDataValidaror<K, V>
                 jbTreeData);
     }
 
+    /**
+     * Create decorator with given meta data store.
+     *
+     * @param initMetaDataStore
+     *            required meta data store, it's closed by this class
+     * @param nodeFileStorage
+     *            required node file storage to which will be operation
+     *            delegated
+     */
+    public NodeFileStorageMetaDataValidaror(
+            final MetaDataStore initMetaDataStore,
+            final NodeFileStorage<K, V> nodeFileStorage) {
+        this.next = Objects.requireNonNull(nodeFileStorage);
+        this.metaDataStore = Objects.requireNonNull(initMetaDataStore);
+    }
+
     /**
      * Create File object form file name and directory.
      *
@@ -94,8 +110,17 @@ public final class NodeFileStorageMetaDataValidaror<K, V>
 
     @Override
     public void close() {
-        metaDataStore.close();
+        /**
+         * Nodes are forced to disk before meta data are marked as correctly
+         * closed.
+         */
         next.close();
+        metaDataStore.close();
+    }
+
+    @Override
+    public void sync() {
+        next.sync();
     }
 
     /**
@@ -106,4 +131,9 @@ public final class NodeFileStorageMetaDataValidaror<K, V>
         return next.isNewlyCreated();
     }
 
+    @Override
+    public Integer getMaxNodeId() {
+        return next.getMaxNodeId();
+    }
+
 }
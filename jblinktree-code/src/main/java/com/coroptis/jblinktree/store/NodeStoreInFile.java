@@ -22,6 +22,7 @@ import java.util.Objects;
  * #L%
  */
 
+import com.coroptis.jblinktree.JbNodeBuilder;
 import com.coroptis.jblinktree.JbNodeLockProvider;
 import com.coroptis.jblinktree.Node;
 import com.coroptis.jblinktree.NodeStore;
@@ -54,6 +55,23 @@ public final class NodeStoreInFile<K, V> implements NodeStore<K> {
     private final NodeFileStorage<K, V> fileStorage;
 
     /**
+     * Node builder factory.
+     */
+    private final JbNodeBuilder<K, V> nodeBuilder;
+
+    /**
+     * When it's <code>false</code> than nodes read during scans are not put
+     * into cache.
+     */
+    private final boolean cacheScannedNodes;
+
+    /**
+     * Optional write ahead log, it could be <code>null</code>.
+     */
+    private final WriteAheadLog<K, V> writeAheadLog;
+
+    /**
+     * Create store which caches scanned nodes.
      *
      * @param cache
      *            required cache implentation
@@ -61,10 +79,66 @@ public final class NodeStoreInFile<K, V> implements NodeStore<K> {
      *            node file storage
      * @param jbNodeLockProvider
      *            required node lock provider
+     * @param jbNodeBuilder
+     *            required node builder factory
      */
     public NodeStoreInFile(final Cache<K, V> cache,
             final NodeFileStorage<K, V> nodeFileStorage,
-            final JbNodeLockProvider jbNodeLockProvider) {
+            final JbNodeLockProvider jbNodeLockProvider,
+            final JbNodeBuilder<K, V> jbNodeBuilder) {
+        this(cache, nodeFileStorage, jbNodeLockProvider, jbNodeBuilder, true);
+    }
+
+    /**
+     *
+     * @param cache
+     *            required cache implentation
+     * @param nodeFileStorage
+     *            node file storage
+     * @param jbNodeLockProvider
+     *            required node lock provider
+     * @param jbNodeBuilder
+     *            required node builder factory
+     * @param isCachingScannedNodes
+     *            when it's <code>false</code> than nodes read during scans are
+     *            not put into cache
+     */
+    public NodeStoreInFile(final Cache<K, V> cache,
+            final NodeFileStorage<K, V> nodeFileStorage,
+            final JbNodeLockProvider jbNodeLockProvider,
+            final JbNodeBuilder<K, V> jbNodeBuilder,
+            final boolean isCachingScannedNodes) {
+        this(cache, nodeFileStorage, jbNodeLockProvider, jbNodeBuilder,
+                isCachingScannedNodes, null);
+    }
+
+    /**
+     *
+     * @param cache
+     *            required cache implentation
+     * @param nodeFileStorage
+     *            node file storage
+     * @param jbNodeLockProvider
+     *            required node lock provider
+     * @param jbNodeBuilder
+     *            required node builder factory
+     * @param isCachingScannedNodes
+     *            when it's <code>false</code> than nodes read during scans are
+     *            not put into cache
+     * @param wal
+     *            optional write ahead log, when it's not <code>null</code>
+     *            than each written node is durably logged before it's put
+     *            into cache
+     */
+    public NodeStoreInFile(final Cache<K, V> cache,
+            final NodeFileStorage<K, V> nodeFileStorage,
+            final JbNodeLockProvider jbNodeLockProvider,
+            final JbNodeBuilder<K, V> jbNodeBuilder,
+            final boolean isCachingScannedNodes,
+            final WriteAheadLog<K, V> wal) {
+        this.writeAheadLog = wal;
+        this.cacheScannedNodes = isCachingScannedNodes;
+        this.nodeBuilder = Objects.requireNonNull(jbNodeBuilder);
         this.fileStorage = Objects.requireNonNull(nodeFileStorage);
         this.nodeCache = Objects.requireNonNull(cache);
         this.nodeLocks = Objects.requireNonNull(jbNodeLockProvider);
@@ -87,17 +161,37 @@ public final class NodeStoreInFile<K, V> implements NodeStore<K> {
         return node;
     }
 
+    @Override
+    public <S> Node<K, S> getForScan(final Integer nodeId) {
+        if (cacheScannedNodes) {
+            return get(nodeId);
+        }
+        @SuppressWarnings("unchecked")
+        final Node<K, S> node = (Node<K, S>) nodeCache
+                .getForScan(Objects.requireNonNull(nodeId));
+        return node;
+    }
+
     @Override
     public <S> Node<K, S> getAndLock(final Integer nodeId) {
         lockNode(nodeId);
-        return get(nodeId);
+        /**
+         * Locked node will be changed, node builder makes copy of cached data.
+         */
+        return nodeBuilder.makeNode(nodeId, get(nodeId).getFieldBytes());
     }
 
     @Override
     public <S> void writeNode(final Node<K, S> node) {
         Objects.requireNonNull(node.getId());
         Objects.requireNonNull(node);
-        nodeCache.put((Node<K, V>) node);
+        @SuppressWarnings("unchecked")
+        final Node<K, V> storedNode = (Node<K, V>) node;
+        if (writeAheadLog == null) {
+            nodeCache.put(storedNode);
+        } else {
+            writeAheadLog.write(storedNode, nodeCache);
+        }
     }
 
     @Override
@@ -114,6 +208,12 @@ public final class NodeStoreInFile<K, V> implements NodeStore<K> {
     public void close() {
         nodeCache.close();
         fileStorage.close();
+        if (writeAheadLog != null) {
+            /**
+             * All nodes are already forced to file storage.
+             */
+            writeAheadLog.close();
+        }
     }
 
     @Override
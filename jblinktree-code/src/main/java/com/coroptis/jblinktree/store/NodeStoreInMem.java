@@ -83,18 +83,38 @@ public final class NodeStoreInMem<K, V> implements NodeStore<K> {
 
     @Override
     public <S> Node<K, S> get(final Integer nodeId) {
-        byte[] field = nodes.get(Objects.requireNonNull(nodeId));
-        if (field == null) {
-            throw new JblinktreeException(
-                    "There is no node with id '" + nodeId + "'");
-        }
-        return nodeBuilder.makeNode(nodeId, field);
+        return nodeBuilder.makeNodeView(nodeId, loadField(nodeId));
+    }
+
+    @Override
+    public <S> Node<K, S> getForScan(final Integer nodeId) {
+        return get(nodeId);
     }
 
     @Override
     public <S> Node<K, S> getAndLock(final Integer nodeId) {
         lockNode(nodeId);
-        return get(nodeId);
+        /**
+         * Locked node will be changed, node builder makes copy of published
+         * data.
+         */
+        return nodeBuilder.makeNode(nodeId, loadField(nodeId));
+    }
+
+    /**
+     * Get published node data.
+     *
+     * @param nodeId
+     *            required node id
+     * @return node data
+     */
+    private byte[] loadField(final Integer nodeId) {
+        final byte[] field = nodes.get(Objects.requireNonNull(nodeId));
+        if (field == null) {
+            throw new JblinktreeException(
+                    "There is no node with id '" + nodeId + "'");
+        }
+        return field;
     }
 
     @Override
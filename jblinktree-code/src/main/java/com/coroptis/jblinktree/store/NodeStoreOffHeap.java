@@ -0,0 +1,418 @@
+package com.coroptis.jblinktree.store;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.locks.StampedLock;
+
+import com.coroptis.jblinktree.JbNodeBuilder;
+import com.coroptis.jblinktree.JbNodeLockProvider;
+import com.coroptis.jblinktree.JbTreeData;
+import com.coroptis.jblinktree.Node;
+import com.coroptis.jblinktree.NodeStore;
+import com.coroptis.jblinktree.util.JblinktreeException;
+
+/**
+ * Implementation of {@link NodeStore} which keeps nodes in memory out of java
+ * heap. Node data are stored in fixed size slots of direct {@link ByteBuffer}
+ * chunks. Slot have length of the biggest node, it contains node data length
+ * followed by node data. On heap is just table translating node id to slot,
+ * so there is no object per node.
+ * <p>
+ * Nodes are split into stripes by node id, each stripe has own chunks, slot
+ * table, free slots and {@link StampedLock}. Node is written into its slot
+ * under write lock. Readers don't lock, they copy node data with optimistic
+ * read and try it again with read lock when some node in stripe was written
+ * meanwhile.
+ * </p>
+ * <p>
+ * Tree never deletes nodes from store, slot stays assigned to node id. Memory
+ * is reused just when empty nodes are removed, see
+ * {@link com.coroptis.jblinktree.TreeBuilder#setRemoveEmptyNodes(boolean)},
+ * node with reused id is written into the same slot. Otherwise store grows
+ * with the highest node id. Slot freed by {@link #deleteNode(Integer)} is
+ * given to next node without slot in the same stripe.
+ * </p>
+ *
+ * @author jajir
+ *
+ * @param <K>
+ *            key type
+ * @param <V>
+ *            value type
+ */
+public final class NodeStoreOffHeap<K, V> implements NodeStore<K> {
+
+    /**
+     * Default number of stripes.
+     */
+    public static final int DEFAULT_NUMBER_OF_STRIPES = 64;
+
+    /**
+     * Default chunk size in bytes.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+
+    /**
+     * Length of node data length stored at the beginning of slot.
+     */
+    private static final int DATA_LENGTH_LENGTH = 4;
+
+    /**
+     * Initial length of slot table.
+     */
+    private static final int INITIAL_TABLE_LENGTH = 16;
+
+    /**
+     * Part of store with own chunks, slot table and lock.
+     */
+    private static final class Stripe {
+
+        /**
+         * Guards all stripe fields and data in its chunks.
+         */
+        private final StampedLock lock = new StampedLock();
+
+        /**
+         * Chunks containing slots.
+         */
+        private ByteBuffer[] chunks = new ByteBuffer[0];
+
+        /**
+         * Slot of node increased by one, zero means that there is no node.
+         * It's indexed by node id divided by number of stripes.
+         */
+        private int[] slots = new int[INITIAL_TABLE_LENGTH];
+
+        /**
+         * Stack of free slots.
+         */
+        private int[] freeSlots = new int[INITIAL_TABLE_LENGTH];
+
+        /**
+         * Number of free slots in stack.
+         */
+        private int freeCount;
+
+        /**
+         * Number of slots which was ever used.
+         */
+        private int usedSlots;
+
+    }
+
+    /**
+     * Manage node locks.
+     */
+    private final JbNodeLockProvider nodeLocks;
+
+    /**
+     * Node builder factory.
+     */
+    private final JbNodeBuilder<K, V> nodeBuilder;
+
+    /**
+     * Maximal length of node data.
+     */
+    private final int maxFieldLength;
+
+    /**
+     * Slot length in bytes.
+     */
+    private final int slotLength;
+
+    /**
+     * Number of slots in one chunk.
+     */
+    private final int slotsInChunk;
+
+    /**
+     * Store stripes.
+     */
+    private final Stripe[] stripes;
+
+    /**
+     * Number of bits used for stripe index.
+     */
+    private final int stripeShift;
+
+    /**
+     * Mask used to compute stripe index from node id.
+     */
+    private final int mask;
+
+    /**
+     * Create store with default number of stripes and chunk size.
+     *
+     * @param jbTreeData
+     *            required tree data
+     * @param jbNodeBuilder
+     *            required node builder factory
+     * @param jbNodeLockProvider
+     *            required node lock provider
+     */
+    public NodeStoreOffHeap(final JbTreeData<K, V> jbTreeData,
+            final JbNodeBuilder<K, V> jbNodeBuilder,
+            final JbNodeLockProvider jbNodeLockProvider) {
+        this(jbTreeData, jbNodeBuilder, jbNodeLockProvider,
+                DEFAULT_NUMBER_OF_STRIPES, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Create store.
+     *
+     * @param jbTreeData
+     *            required tree data
+     * @param jbNodeBuilder
+     *            required node builder factory
+     * @param jbNodeLockProvider
+     *            required node lock provider
+     * @param numberOfStripes
+     *            required number of stripes, it have to be power of two
+     * @param chunkSize
+     *            required chunk size in bytes, chunk contains at least one
+     *            slot
+     */
+    public NodeStoreOffHeap(final JbTreeData<K, V> jbTreeData,
+            final JbNodeBuilder<K, V> jbNodeBuilder,
+            final JbNodeLockProvider jbNodeLockProvider,
+            final int numberOfStripes, final int chunkSize) {
+        Objects.requireNonNull(jbTreeData);
+        this.nodeBuilder = Objects.requireNonNull(jbNodeBuilder);
+        this.nodeLocks = Objects.requireNonNull(jbNodeLockProvider);
+        if (numberOfStripes < 1 || Integer.bitCount(numberOfStripes) != 1) {
+            throw new JblinktreeException("Number of stripes '"
+                    + numberOfStripes + "' should be power of two.");
+        }
+        maxFieldLength = Math.max(
+                jbTreeData.getLeafNodeDescriptor().getFieldMaxLength(),
+                jbTreeData.getNonLeafNodeDescriptor().getFieldMaxLength());
+        slotLength = DATA_LENGTH_LENGTH + maxFieldLength;
+        slotsInChunk = Math.max(1, chunkSize / slotLength);
+        stripes = new Stripe[numberOfStripes];
+        for (int i = 0; i < numberOfStripes; i++) {
+            stripes[i] = new Stripe();
+        }
+        stripeShift = Integer.numberOfTrailingZeros(numberOfStripes);
+        mask = numberOfStripes - 1;
+    }
+
+    @Override
+    public void lockNode(final Integer nodeId) {
+        nodeLocks.lockNode(Objects.requireNonNull(nodeId));
+    }
+
+    @Override
+    public void unlockNode(final Integer nodeId) {
+        nodeLocks.unlockNode(Objects.requireNonNull(nodeId));
+    }
+
+    @Override
+    public <S> Node<K, S> get(final Integer nodeId) {
+        return nodeBuilder.makeNodeView(nodeId, loadField(nodeId));
+    }
+
+    @Override
+    public <S> Node<K, S> getForScan(final Integer nodeId) {
+        return get(nodeId);
+    }
+
+    @Override
+    public <S> Node<K, S> getAndLock(final Integer nodeId) {
+        lockNode(nodeId);
+        /**
+         * Node data are copied from slot, so they could be changed.
+         */
+        return nodeBuilder.makeNode(nodeId, loadField(nodeId));
+    }
+
+    /**
+     * Get copy of node data.
+     *
+     * @param nodeId
+     *            required node id
+     * @return node data
+     */
+    private byte[] loadField(final Integer nodeId) {
+        final int id = Objects.requireNonNull(nodeId);
+        final Stripe stripe = stripes[id & mask];
+        final int index = id >>> stripeShift;
+        long stamp = stripe.lock.tryOptimisticRead();
+        byte[] field = null;
+        if (stamp != 0) {
+            field = readField(stripe, index);
+        }
+        if (!stripe.lock.validate(stamp)) {
+            stamp = stripe.lock.readLock();
+            try {
+                field = readField(stripe, index);
+            } finally {
+                stripe.lock.unlockRead(stamp);
+            }
+        }
+        if (field == null) {
+            throw new JblinktreeException(
+                    "There is no node with id '" + nodeId + "'");
+        }
+        return field;
+    }
+
+    /**
+     * Read node data from slot. During optimistic read stripe could be
+     * changed, so all values are checked and <code>null</code> is returned
+     * instead of failing.
+     *
+     * @param stripe
+     *            required stripe
+     * @param index
+     *            required node index in stripe
+     * @return copy of node data or <code>null</code> when there is no such node
+     */
+    private byte[] readField(final Stripe stripe, final int index) {
+        final int[] slots = stripe.slots;
+        if (index >= slots.length || slots[index] == 0) {
+            return null;
+        }
+        final int slot = slots[index] - 1;
+        final ByteBuffer[] chunks = stripe.chunks;
+        final int chunk = slot / slotsInChunk;
+        if (chunk >= chunks.length || chunks[chunk] == null) {
+            return null;
+        }
+        final ByteBuffer buffer = chunks[chunk].duplicate();
+        buffer.position((slot % slotsInChunk) * slotLength);
+        final int length = buffer.getInt();
+        if (length < 0 || length > maxFieldLength) {
+            return null;
+        }
+        final byte[] field = new byte[length];
+        buffer.get(field);
+        return field;
+    }
+
+    @Override
+    public <S> void writeNode(final Node<K, S> node) {
+        Objects.requireNonNull(node);
+        final int id = Objects.requireNonNull(node.getId());
+        final byte[] field = node.getFieldBytes();
+        if (field.length > maxFieldLength) {
+            throw new JblinktreeException("Node data length '" + field.length
+                    + "' is bigger than slot.");
+        }
+        final Stripe stripe = stripes[id & mask];
+        final int index = id >>> stripeShift;
+        final long stamp = stripe.lock.writeLock();
+        try {
+            if (index >= stripe.slots.length) {
+                stripe.slots = Arrays.copyOf(stripe.slots,
+                        Math.max(index + 1, stripe.slots.length * 2));
+            }
+            if (stripe.slots[index] == 0) {
+                stripe.slots[index] = allocateSlot(stripe) + 1;
+            }
+            final int slot = stripe.slots[index] - 1;
+            final ByteBuffer buffer =
+                    stripe.chunks[slot / slotsInChunk].duplicate();
+            buffer.position((slot % slotsInChunk) * slotLength);
+            buffer.putInt(field.length);
+            buffer.put(field);
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Get free slot or new one, new chunk is allocated when it's necessary.
+     *
+     * @param stripe
+     *            required write locked stripe
+     * @return slot
+     */
+    private int allocateSlot(final Stripe stripe) {
+        if (stripe.freeCount > 0) {
+            stripe.freeCount--;
+            return stripe.freeSlots[stripe.freeCount];
+        }
+        final int slot = stripe.usedSlots;
+        if (slot / slotsInChunk >= stripe.chunks.length) {
+            final ByteBuffer[] chunks = Arrays.copyOf(stripe.chunks,
+                    stripe.chunks.length + 1);
+            chunks[chunks.length - 1] =
+                    ByteBuffer.allocateDirect(slotsInChunk * slotLength);
+            stripe.chunks = chunks;
+        }
+        stripe.usedSlots++;
+        return slot;
+    }
+
+    @Override
+    public void deleteNode(final Integer idNode) {
+        final int id = Objects.requireNonNull(idNode);
+        final Stripe stripe = stripes[id & mask];
+        final int index = id >>> stripeShift;
+        final long stamp = stripe.lock.writeLock();
+        try {
+            if (index < stripe.slots.length && stripe.slots[index] != 0) {
+                if (stripe.freeCount == stripe.freeSlots.length) {
+                    stripe.freeSlots = Arrays.copyOf(stripe.freeSlots,
+                            stripe.freeSlots.length * 2);
+                }
+                stripe.freeSlots[stripe.freeCount] = stripe.slots[index] - 1;
+                stripe.freeCount++;
+                stripe.slots[index] = 0;
+            }
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public int countLockedNodes() {
+        return nodeLocks.countLockedThreads();
+    }
+
+    @Override
+    public void close() {
+        for (final Stripe stripe : stripes) {
+            final long stamp = stripe.lock.writeLock();
+            try {
+                /**
+                 * Direct memory is released when chunks are garbage collected.
+                 */
+                stripe.chunks = new ByteBuffer[0];
+                stripe.slots = new int[INITIAL_TABLE_LENGTH];
+                stripe.freeSlots = new int[INITIAL_TABLE_LENGTH];
+                stripe.freeCount = 0;
+                stripe.usedSlots = 0;
+            } finally {
+                stripe.lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    @Override
+    public boolean isNewlyCreated() {
+        return true;
+    }
+
+}
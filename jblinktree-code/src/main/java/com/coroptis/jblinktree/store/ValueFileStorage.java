@@ -57,4 +57,9 @@ public interface ValueFileStorage<K, V> {
      */
     void close();
 
+    /**
+     * Force all stored values to disk.
+     */
+    void sync();
+
 }
@@ -24,6 +24,8 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Objects;
 
 import com.coroptis.jblinktree.Node;
@@ -32,7 +34,8 @@ import com.coroptis.jblinktree.util.JblinktreeException;
 
 /**
  * Immutable class store just values from key value pairs. Class doesn't use any
- * caching.
+ * caching. File is accessed with positional reads and writes, so values of
+ * different nodes could be loaded and stored concurrently.
  * <p>
  * When node A is stored with 3 values and later with just 1 value than
  * physically unused values are still stored.
@@ -53,6 +56,11 @@ public final class ValueFileStorageImpl<K, V>
      */
     private final RandomAccessFile raf;
 
+    /**
+     * File channel used for positional reading and writing.
+     */
+    private final FileChannel channel;
+
     /**
      * Value type descriptor.
      */
@@ -81,12 +89,22 @@ public final class ValueFileStorageImpl<K, V>
         } catch (FileNotFoundException e) {
             throw new JblinktreeException(e.getMessage(), e);
         }
+        channel = raf.getChannel();
+    }
 
+    @Override
+    public void sync() {
+        try {
+            raf.getFD().sync();
+        } catch (IOException e) {
+            throw new JblinktreeException(e.getMessage(), e);
+        }
     }
 
     @Override
     public void close() {
         try {
+            raf.getFD().sync();
             raf.close();
         } catch (IOException e) {
             throw new JblinktreeException(e.getMessage(), e);
@@ -108,7 +126,6 @@ public final class ValueFileStorageImpl<K, V>
     public void storeValues(final Node<K, V> node) {
         verifyLeafNode(node);
         try {
-            raf.seek(filePosition(node.getId()));
             final int keyCount = node.getKeyCount();
             byte[] data = new byte[valueTypeDescriptor.getMaxLength()
                     * node.getNodeDef().getL()];
@@ -117,7 +134,8 @@ public final class ValueFileStorageImpl<K, V>
                         valueTypeDescriptor.getMaxLength() * i,
                         node.getValue(i));
             }
-            raf.write(data);
+            FileChannels.writeFully(channel, ByteBuffer.wrap(data),
+                    filePosition(node.getId()));
         } catch (IOException e) {
             throw new JblinktreeException(e.getMessage(), e);
         }
@@ -127,10 +145,10 @@ public final class ValueFileStorageImpl<K, V>
     public Node<K, V> loadValues(final Node<K, V> node) {
         verifyLeafNode(node);
         try {
-            raf.seek(filePosition(node.getId()));
             byte[] data = new byte[valueTypeDescriptor.getMaxLength()
                     * node.getNodeDef().getL()];
-            raf.readFully(data);
+            FileChannels.readFully(channel, ByteBuffer.wrap(data),
+                    filePosition(node.getId()));
             for (int i = 0; i < node.getKeyCount(); i++) {
                 node.setValue(i, valueTypeDescriptor.load(data,
                         valueTypeDescriptor.getMaxLength() * i));
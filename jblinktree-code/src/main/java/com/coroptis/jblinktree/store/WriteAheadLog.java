@@ -0,0 +1,617 @@
+package com.coroptis.jblinktree.store;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+import com.coroptis.jblinktree.JbNodeBuilder;
+import com.coroptis.jblinktree.JbNodeDef;
+import com.coroptis.jblinktree.JbTreeData;
+import com.coroptis.jblinktree.Node;
+import com.coroptis.jblinktree.util.JblinktreeException;
+
+/**
+ * Append only redo log of written nodes. Each record contains whole node
+ * together with actual root node id and max node id, so replaying log after
+ * crash restores both nodes and tree meta data.
+ * <p>
+ * Writers are committed in groups. First waiting writer becomes leader, it
+ * optionally waits given maximal delay for other writers, than writes all
+ * pending records and calls single <code>fsync</code>. Writers which come
+ * during <code>fsync</code> form next group.
+ * </p>
+ * <p>
+ * Log is written to files of increasing generations. Checkpoint switches log
+ * to next generation by {@link #rotate()} and when nodes from cache are
+ * durably stored than files of previous generations are deleted. Log is
+ * deleted when tree is correctly closed. Log could be replayed to node file
+ * storage when tree is opened again. Incompletely written records at the end
+ * of log are ignored.
+ * </p>
+ * <p>
+ * Without checkpoints log is never rotated, it grows with each written node
+ * until tree is closed.
+ * </p>
+ *
+ * @author jajir
+ *
+ * @param <K>
+ *            key type
+ * @param <V>
+ *            value type
+ */
+public final class WriteAheadLog<K, V> {
+
+    /**
+     * Prefix of log file names, it's followed by generation.
+     */
+    private static final String FILE_PREFIX = "wal-";
+
+    /**
+     * Suffix of log file names.
+     */
+    private static final String FILE_SUFFIX = ".str";
+
+    /**
+     * Leaf node identification byte.
+     */
+    private static final byte LEAF_NODE = 1;
+
+    /**
+     * Non-leaf node identification byte.
+     */
+    private static final byte NON_LEAF_NODE = 2;
+
+    /**
+     * Record header length. It's field length, node id, node type byte, root
+     * node id and max node id.
+     */
+    private static final int HEADER_LENGTH = 17;
+
+    /**
+     * Length of record checksum.
+     */
+    private static final int CHECKSUM_LENGTH = 4;
+
+    /**
+     * Tree definition.
+     */
+    private final JbTreeData<K, V> treeData;
+
+    /**
+     * Node builder factory.
+     */
+    private final JbNodeBuilder<K, V> nodeBuilder;
+
+    /**
+     * Directory with log files.
+     */
+    private final File directory;
+
+    /**
+     * Generations of log files which are not written anymore. Guarded by
+     * this.
+     */
+    private final List<Long> previousGenerations = new ArrayList<Long>();
+
+    /**
+     * Generation of current log file. Guarded by this.
+     */
+    private long generation;
+
+    /**
+     * Random access file of current generation.
+     */
+    private RandomAccessFile raf;
+
+    /**
+     * File channel used for writing and forcing records.
+     */
+    private FileChannel channel;
+
+    /**
+     * Node is written under read lock from appending until it's put into
+     * cache. Log is rotated under write lock, so after rotation all nodes
+     * from previous generations are in cache.
+     */
+    private final ReadWriteLock rotationLock = new ReentrantReadWriteLock();
+
+    /**
+     * How long could leader wait for another writers in nanoseconds.
+     */
+    private final long maxDelayNanos;
+
+    /**
+     * Records which are not written yet. Guarded by this.
+     */
+    private final ByteArrayOutputStream pending =
+            new ByteArrayOutputStream();
+
+    /**
+     * Sequence number of last appended record. Guarded by this.
+     */
+    private long appended;
+
+    /**
+     * Sequence number of last record forced to disk. Guarded by this.
+     */
+    private long durable;
+
+    /**
+     * It's <code>true</code> when some leader writes group of records.
+     * Guarded by this.
+     */
+    private boolean flushing;
+
+    /**
+     * When it's not <code>null</code> than writing to log failed and log
+     * can't be used anymore. Guarded by this.
+     */
+    private IOException failure;
+
+    /**
+     * Position where next group of records will be written. It's used just
+     * by leader.
+     */
+    private long position;
+
+    /**
+     * Open existing log or create new one. Log files of older generations are
+     * kept until they are replayed and checkpoint is done.
+     *
+     * @param logDirectory
+     *            required directory with log files
+     * @param jbTreeData
+     *            required tree definition
+     * @param jbNodeBuilder
+     *            required node builder factory
+     * @param maxDelayMicros
+     *            how long in microseconds could group commit wait for
+     *            another writers, zero means that group contains just writers
+     *            waiting for previous <code>fsync</code>
+     */
+    public WriteAheadLog(final File logDirectory,
+            final JbTreeData<K, V> jbTreeData,
+            final JbNodeBuilder<K, V> jbNodeBuilder,
+            final long maxDelayMicros) {
+        this.directory = Objects.requireNonNull(logDirectory);
+        this.treeData = Objects.requireNonNull(jbTreeData);
+        this.nodeBuilder = Objects.requireNonNull(jbNodeBuilder);
+        if (maxDelayMicros < 0) {
+            throw new JblinktreeException(
+                    "Group commit delay can't be negative.");
+        }
+        this.maxDelayNanos = TimeUnit.MICROSECONDS.toNanos(maxDelayMicros);
+        final List<Long> generations = findGenerations();
+        if (!generations.isEmpty()) {
+            generation = generations.remove(generations.size() - 1);
+            previousGenerations.addAll(generations);
+        }
+        open(generation);
+    }
+
+    /**
+     * Get log file of given generation.
+     *
+     * @param logDirectory
+     *            required directory with log files
+     * @param logGeneration
+     *            required generation
+     * @return log file
+     */
+    public static File getLogFile(final File logDirectory,
+            final long logGeneration) {
+        return new File(logDirectory,
+                FILE_PREFIX + logGeneration + FILE_SUFFIX);
+    }
+
+    /**
+     * Find generations of all log files in directory.
+     *
+     * @return sorted generations
+     */
+    private List<Long> findGenerations() {
+        final List<Long> out = new ArrayList<Long>();
+        final String[] names = directory.list();
+        if (names != null) {
+            for (final String name : names) {
+                if (name.startsWith(FILE_PREFIX)
+                        && name.endsWith(FILE_SUFFIX)) {
+                    try {
+                        out.add(Long.parseLong(name.substring(
+                                FILE_PREFIX.length(),
+                                name.length() - FILE_SUFFIX.length())));
+                    } catch (NumberFormatException e) {
+                        /**
+                         * It's not log file.
+                         */
+                    }
+                }
+            }
+        }
+        Collections.sort(out);
+        return out;
+    }
+
+    /**
+     * Open log file of given generation for writing at its end.
+     *
+     * @param logGeneration
+     *            required generation
+     */
+    private void open(final long logGeneration) {
+        try {
+            raf = new RandomAccessFile(getLogFile(directory, logGeneration),
+                    "rw");
+            channel = raf.getChannel();
+            position = channel.size();
+        } catch (IOException e) {
+            throw new JblinktreeException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Store all correctly written records from all generations to given node
+     * file storage. Tree root node id and max node id are set from last
+     * record. Number of values is set as unknown, because it's not logged.
+     * Incomplete records at the end of log are cut off. Should be called
+     * before any record is appended.
+     *
+     * @param nodeFileStorage
+     *            required node file storage
+     * @return number of replayed records
+     */
+    public synchronized int replay(
+            final NodeFileStorage<K, V> nodeFileStorage) {
+        Objects.requireNonNull(nodeFileStorage);
+        final Replay replay = new Replay();
+        for (final Long previous : previousGenerations) {
+            replay.replayFile(getLogFile(directory, previous),
+                    nodeFileStorage);
+        }
+        final long validLength = replay.replayFile(
+                getLogFile(directory, generation), nodeFileStorage);
+        if (replay.records > 0) {
+            treeData.setRootNodeId(replay.rootNodeId);
+            treeData.setMaxNodeId(
+                    Math.max(replay.maxNodeId, treeData.getMaxNodeId()));
+            treeData.setValueCount(JbTreeData.UNKNOWN_VALUE_COUNT);
+        }
+        try {
+            channel.truncate(validLength);
+        } catch (IOException e) {
+            throw new JblinktreeException(e.getMessage(), e);
+        }
+        position = validLength;
+        return replay.records;
+    }
+
+    /**
+     * State of log replay.
+     */
+    private final class Replay {
+
+        /**
+         * Number of replayed records.
+         */
+        private int records;
+
+        /**
+         * Root node id from last record.
+         */
+        private int rootNodeId;
+
+        /**
+         * Max node id from last record.
+         */
+        private int maxNodeId;
+
+        /**
+         * Store all correctly written records from file.
+         *
+         * @param file
+         *            required log file
+         * @param nodeFileStorage
+         *            required node file storage
+         * @return length of correctly written records
+         */
+        private long replayFile(final File file,
+                final NodeFileStorage<K, V> nodeFileStorage) {
+            final int maxFieldLength = Math.max(
+                    treeData.getLeafNodeDescriptor().getFieldMaxLength(),
+                    treeData.getNonLeafNodeDescriptor().getFieldMaxLength());
+            /**
+             * Node builder makes non-leaf node from non-leaf definition
+             * regardless of value type.
+             */
+            @SuppressWarnings("unchecked")
+            final JbNodeDef<K, V> nonLeafNodeDef = (JbNodeDef<K, V>) treeData
+                    .getNonLeafNodeDescriptor();
+            final byte[] header = new byte[HEADER_LENGTH];
+            final CRC32 crc = new CRC32();
+            long validLength = 0;
+            try (InputStream in =
+                    new BufferedInputStream(new FileInputStream(file))) {
+                final DataInputStream din = new DataInputStream(in);
+                while (true) {
+                    din.readFully(header);
+                    final ByteBuffer h = ByteBuffer.wrap(header);
+                    final int fieldLength = h.getInt();
+                    if (fieldLength < 0 || fieldLength > maxFieldLength) {
+                        break;
+                    }
+                    final byte[] field = new byte[fieldLength];
+                    din.readFully(field);
+                    final int checksum = din.readInt();
+                    crc.reset();
+                    crc.update(header);
+                    crc.update(field);
+                    if ((int) crc.getValue() != checksum) {
+                        break;
+                    }
+                    final Integer nodeId = h.getInt();
+                    final byte flag = h.get();
+                    rootNodeId = h.getInt();
+                    maxNodeId = h.getInt();
+                    final JbNodeDef<K, V> nodeDef;
+                    if (NON_LEAF_NODE == flag) {
+                        nodeDef = nonLeafNodeDef;
+                    } else {
+                        nodeDef = treeData.getLeafNodeDescriptor();
+                    }
+                    nodeFileStorage.store(nodeBuilder.<V>makeNode(nodeId,
+                            field, nodeDef));
+                    validLength +=
+                            HEADER_LENGTH + fieldLength + CHECKSUM_LENGTH;
+                    records++;
+                }
+            } catch (EOFException e) {
+                /**
+                 * Last record was not completely written, it's ignored.
+                 */
+            } catch (IOException e) {
+                throw new JblinktreeException(e.getMessage(), e);
+            }
+            return validLength;
+        }
+
+    }
+
+    /**
+     * Durably log node and put it into cache.
+     *
+     * @param node
+     *            required node
+     * @param cache
+     *            required cache where will be node put
+     */
+    public void write(final Node<K, V> node, final Cache<K, V> cache) {
+        rotationLock.readLock().lock();
+        try {
+            commit(append(node));
+            cache.put(node);
+        } finally {
+            rotationLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Append node to log. Node is not durable until {@link #commit(long)} with
+     * returned sequence number returns.
+     *
+     * @param node
+     *            required node
+     * @return sequence number of record
+     */
+    public long append(final Node<K, ?> node) {
+        final byte[] field = node.getFieldBytes();
+        final ByteBuffer record = ByteBuffer
+                .allocate(HEADER_LENGTH + field.length + CHECKSUM_LENGTH);
+        record.putInt(field.length);
+        record.putInt(node.getId());
+        record.put(node.isLeafNode() ? LEAF_NODE : NON_LEAF_NODE);
+        final CRC32 crc = new CRC32();
+        synchronized (this) {
+            /**
+             * Root node id is read under log lock, so later records never
+             * contain older root node id.
+             */
+            record.putInt(treeData.getRootNodeId());
+            record.putInt(treeData.getMaxNodeId());
+            record.put(field);
+            crc.update(record.array(), 0, record.position());
+            record.putInt((int) crc.getValue());
+            pending.write(record.array(), 0, record.position());
+            return ++appended;
+        }
+    }
+
+    /**
+     * Wait until record with given sequence number is forced to disk. Thread
+     * could be leader which writes group of records or it waits for another
+     * leader.
+     *
+     * @param sequence
+     *            required record sequence number
+     */
+    public void commit(final long sequence) {
+        final byte[] group;
+        final long groupSequence;
+        boolean interrupted = false;
+        synchronized (this) {
+            while (durable < sequence && flushing && failure == null) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (failure != null) {
+                throw new JblinktreeException(failure.getMessage(), failure);
+            }
+            if (durable >= sequence) {
+                restoreInterrupt(interrupted);
+                return;
+            }
+            flushing = true;
+            if (maxDelayNanos > 0) {
+                /**
+                 * Leader gives another writers chance to join group.
+                 */
+                final long deadline = System.nanoTime() + maxDelayNanos;
+                long remaining = maxDelayNanos;
+                while (remaining > 0) {
+                    try {
+                        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                    remaining = deadline - System.nanoTime();
+                }
+            }
+            group = pending.toByteArray();
+            pending.reset();
+            groupSequence = appended;
+        }
+        try {
+            FileChannels.writeFully(channel, ByteBuffer.wrap(group),
+                    position);
+            position += group.length;
+            channel.force(false);
+        } catch (IOException e) {
+            synchronized (this) {
+                failure = e;
+                flushing = false;
+                notifyAll();
+            }
+            throw new JblinktreeException(e.getMessage(), e);
+        }
+        synchronized (this) {
+            durable = groupSequence;
+            flushing = false;
+            notifyAll();
+        }
+        restoreInterrupt(interrupted);
+    }
+
+    /**
+     * Restore thread interrupt flag.
+     *
+     * @param interrupted
+     *            when it's <code>true</code> than current thread will be
+     *            interrupted
+     */
+    private void restoreInterrupt(final boolean interrupted) {
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Switch log to next generation. When method returns all nodes logged in
+     * previous generations are in cache. Empty log is not switched.
+     */
+    public void rotate() {
+        rotationLock.writeLock().lock();
+        try {
+            synchronized (this) {
+                /**
+                 * All writers are out of log, so there is no pending record
+                 * and no leader.
+                 */
+                if (position == 0) {
+                    return;
+                }
+                closeFile();
+                previousGenerations.add(generation);
+                generation++;
+                open(generation);
+            }
+        } finally {
+            rotationLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Delete log files of previous generations. All nodes from them have to
+     * be durably stored in node file storage before.
+     */
+    public synchronized void deletePreviousGenerations() {
+        for (final Long previous : previousGenerations) {
+            delete(getLogFile(directory, previous));
+        }
+        previousGenerations.clear();
+    }
+
+    /**
+     * Close and delete log. All logged nodes have to be durably stored in
+     * node file storage before.
+     */
+    public synchronized void close() {
+        closeFile();
+        deletePreviousGenerations();
+        delete(getLogFile(directory, generation));
+    }
+
+    /**
+     * Close file of current generation.
+     */
+    private void closeFile() {
+        try {
+            raf.close();
+        } catch (IOException e) {
+            throw new JblinktreeException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Delete log file.
+     *
+     * @param file
+     *            required log file
+     */
+    private void delete(final File file) {
+        if (file.exists() && !file.delete()) {
+            throw new JblinktreeException(
+                    "Unable to delete log file '" + file + "'");
+        }
+    }
+
+}
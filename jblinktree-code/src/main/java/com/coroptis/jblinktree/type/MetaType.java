@@ -46,6 +46,21 @@ public interface MetaType<T> {
      */
     byte TYPE_BYTE = 3;
 
+    /**
+     * Long type id.
+     */
+    byte TYPE_LONG = 4;
+
+    /**
+     * Double type id.
+     */
+    byte TYPE_DOUBLE = 5;
+
+    /**
+     * Fixed length byte array type id.
+     */
+    byte TYPE_FIXED_BYTES = 6;
+
     /**
      * Return type unique data type code. It allows to detect which data type is
      * stored.
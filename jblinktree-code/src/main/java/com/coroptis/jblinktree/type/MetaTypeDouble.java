@@ -0,0 +1,68 @@
+package com.coroptis.jblinktree.type;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Class holding meta data about Double data type.
+ *
+ * @author jajir
+ *
+ */
+public final class MetaTypeDouble
+        extends AbstractMetaType<TypeDescriptorDouble> {
+
+    @Override
+    public byte getCode() {
+        return MetaType.TYPE_DOUBLE;
+    }
+
+    @Override
+    public Class<TypeDescriptorDouble> getMetaTypeClass() {
+        return TypeDescriptorDouble.class;
+    }
+
+    @Override
+    public TypeDescriptorDouble getInstance() {
+        return new TypeDescriptorDouble();
+    }
+
+    @Override
+    public int getMaxLength() {
+        return 0;
+    }
+
+    @Override
+    public void save(final byte[] data, final int from,
+            final Wrapper<TypeDescriptorDouble> value) {
+        throw new UnsupportedOperationException("It's not alowed.");
+    }
+
+    @Override
+    public byte[] getBytes(final TypeDescriptorDouble value) {
+        throw new UnsupportedOperationException("It's not alowed.");
+    }
+
+    @Override
+    public TypeDescriptorDouble load(final byte[] data, final int from) {
+        throw new UnsupportedOperationException("It's not alowed.");
+    }
+
+}
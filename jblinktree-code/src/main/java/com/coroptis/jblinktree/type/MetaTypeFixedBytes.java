@@ -0,0 +1,78 @@
+package com.coroptis.jblinktree.type;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Class holding meta data about fixed length byte array data type. Length of
+ * byte array is stored as meta type parameter.
+ *
+ * @author jajir
+ *
+ */
+public final class MetaTypeFixedBytes
+        extends AbstractMetaType<TypeDescriptorFixedBytes> {
+
+    /**
+     * Type descriptor for working with integers.
+     */
+    private final TypeDescriptor<Integer> tdInteger =
+            new TypeDescriptorInteger();
+
+    @Override
+    public byte getCode() {
+        return MetaType.TYPE_FIXED_BYTES;
+    }
+
+    @Override
+    public int getMaxLength() {
+        return tdInteger.getMaxLength();
+    }
+
+    @Override
+    public TypeDescriptorFixedBytes load(final byte[] data, final int from) {
+        return new TypeDescriptorFixedBytes(tdInteger.load(data, from));
+    }
+
+    @Override
+    public void save(final byte[] data, final int from,
+            final Wrapper<TypeDescriptorFixedBytes> wrapper) {
+        System.arraycopy(wrapper.getBytes(), 0, data, from,
+                wrapper.getBytes().length);
+    }
+
+    @Override
+    public byte[] getBytes(final TypeDescriptorFixedBytes value) {
+        final byte[] out = new byte[getMaxLength()];
+        tdInteger.save(out, 0, value.getMaxLength());
+        return out;
+    }
+
+    @Override
+    public Class<TypeDescriptorFixedBytes> getMetaTypeClass() {
+        return TypeDescriptorFixedBytes.class;
+    }
+
+    @Override
+    public TypeDescriptorFixedBytes getInstance() {
+        return new TypeDescriptorFixedBytes(1);
+    }
+
+}
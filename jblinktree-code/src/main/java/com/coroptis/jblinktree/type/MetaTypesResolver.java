@@ -38,6 +38,9 @@ public final class MetaTypesResolver {
         metaTypesResolver.addMetaType(new MetaTypeByte());
         metaTypesResolver.addMetaType(new MetaTypeString());
         metaTypesResolver.addMetaType(new MetaTypeInteger());
+        metaTypesResolver.addMetaType(new MetaTypeLong());
+        metaTypesResolver.addMetaType(new MetaTypeDouble());
+        metaTypesResolver.addMetaType(new MetaTypeFixedBytes());
     }
 
     /**
@@ -0,0 +1,59 @@
+package com.coroptis.jblinktree.type;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Comparator;
+import java.util.Objects;
+
+/**
+ * Comparator which orders values in same way as they are ordered in tree. It
+ * use {@link TypeDescriptor#cmp(byte[], int, Wrapper)}.
+ *
+ * @author jajir
+ *
+ * @param <T>
+ *            compared type
+ */
+public final class TypeDescriptorComparator<T> implements Comparator<T> {
+
+    /**
+     * Type descriptor.
+     */
+    private final TypeDescriptor<T> typeDescriptor;
+
+    /**
+     * Simple constructor.
+     *
+     * @param initTypeDescriptor
+     *            required type descriptor
+     */
+    public TypeDescriptorComparator(
+            final TypeDescriptor<T> initTypeDescriptor) {
+        this.typeDescriptor = Objects.requireNonNull(initTypeDescriptor);
+    }
+
+    @Override
+    public int compare(final T o1, final T o2) {
+        return typeDescriptor.cmp(typeDescriptor.getBytes(o1), 0,
+                Wrapper.make(o2, typeDescriptor));
+    }
+
+}
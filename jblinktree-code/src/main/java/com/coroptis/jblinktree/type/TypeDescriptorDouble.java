@@ -0,0 +1,118 @@
+package com.coroptis.jblinktree.type;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.coroptis.jblinktree.util.JblinktreeException;
+
+/**
+ * Double type descriptor. Value is stored as big-endian IEEE 754 bits. Sign bit
+ * of positive numbers is flipped and all bits of negative numbers are
+ * inverted, so stored values could be compared as unsigned bytes. Order is
+ * same as {@link Double#compare(double, double)}.
+ *
+ * @author jajir
+ *
+ */
+public final class TypeDescriptorDouble implements TypeDescriptor<Double> {
+
+    /**
+     * Default hash code.
+     */
+    private static final int DEFAULT_HASHCODE = 6350217;
+
+    @Override
+    public int getMaxLength() {
+        return Double.BYTES;
+    }
+
+    @Override
+    public void save(final byte[] data, final int from, final Double value) {
+        final long bits = Double.doubleToLongBits(value);
+        if (bits < 0) {
+            UnsignedBytes.writeLong(data, from, ~bits);
+        } else {
+            UnsignedBytes.writeLong(data, from, bits ^ Long.MIN_VALUE);
+        }
+    }
+
+    @Override
+    public void save(final byte[] data, final int from,
+            final Wrapper<Double> value) {
+        System.arraycopy(value.getBytes(), 0, data, from, Double.BYTES);
+    }
+
+    @Override
+    public Double load(final byte[] data, final int from) {
+        final long stored = UnsignedBytes.readLong(data, from);
+        if (stored < 0) {
+            return Double.longBitsToDouble(stored ^ Long.MIN_VALUE);
+        } else {
+            return Double.longBitsToDouble(~stored);
+        }
+    }
+
+    @Override
+    public void verifyType(final Object object) {
+        if (!(object instanceof Double)) {
+            throw new JblinktreeException("Object of wrong type ("
+                    + object.getClass().getName() + ")");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TypeDescriptorDouble{maxLength=8}";
+    }
+
+    /**
+     * Always return same number. All instances of this class are same.
+     */
+    @Override
+    public int hashCode() {
+        return DEFAULT_HASHCODE;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null) {
+            return false;
+        }
+        return getClass() == obj.getClass();
+    }
+
+    @Override
+    public int cmp(final byte[] node, final int start,
+            final Wrapper<Double> wrapper) {
+        return UnsignedBytes.compare(node, start, wrapper.getBytes(), 0,
+                Double.BYTES);
+    }
+
+    @Override
+    public byte[] getBytes(final Double value) {
+        final byte[] out = new byte[Double.BYTES];
+        save(out, 0, value);
+        return out;
+    }
+
+}
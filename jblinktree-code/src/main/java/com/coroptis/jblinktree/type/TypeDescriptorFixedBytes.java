@@ -0,0 +1,129 @@
+package com.coroptis.jblinktree.type;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import com.coroptis.jblinktree.util.JblinktreeException;
+
+/**
+ * Type descriptor for byte arrays of fixed length, for example UUID. Arrays
+ * are stored without any metadata and compared as unsigned bytes.
+ *
+ * @author jajir
+ *
+ */
+public final class TypeDescriptorFixedBytes implements TypeDescriptor<byte[]> {
+
+    /**
+     * Length of stored byte arrays.
+     */
+    private final int length;
+
+    /**
+     * Create type descriptor.
+     *
+     * @param initLength
+     *            required length of stored byte arrays
+     */
+    public TypeDescriptorFixedBytes(final int initLength) {
+        if (initLength < 1) {
+            throw new JblinktreeException(
+                    "Length of byte array should be at least 1.");
+        }
+        this.length = initLength;
+    }
+
+    @Override
+    public int getMaxLength() {
+        return length;
+    }
+
+    @Override
+    public void save(final byte[] data, final int from, final byte[] value) {
+        verifyType(value);
+        System.arraycopy(value, 0, data, from, length);
+    }
+
+    @Override
+    public void save(final byte[] data, final int from,
+            final Wrapper<byte[]> value) {
+        System.arraycopy(value.getBytes(), 0, data, from, length);
+    }
+
+    @Override
+    public byte[] load(final byte[] data, final int from) {
+        return Arrays.copyOfRange(data, from, from + length);
+    }
+
+    @Override
+    public void verifyType(final Object object) {
+        Objects.requireNonNull(object);
+        if (!(object instanceof byte[])) {
+            throw new JblinktreeException("Object of wrong type ("
+                    + object.getClass().getName() + ")");
+        }
+        if (((byte[]) object).length != length) {
+            throw new JblinktreeException(
+                    "Byte array should have length " + length + " but it's "
+                            + ((byte[]) object).length);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TypeDescriptorFixedBytes{maxLength=" + length + "}";
+    }
+
+    @Override
+    public int hashCode() {
+        return length;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        return length == ((TypeDescriptorFixedBytes) obj).length;
+    }
+
+    @Override
+    public int cmp(final byte[] node, final int start,
+            final Wrapper<byte[]> wrapper) {
+        return UnsignedBytes.compare(node, start, wrapper.getBytes(), 0,
+                length);
+    }
+
+    @Override
+    public byte[] getBytes(final byte[] value) {
+        verifyType(value);
+        return Arrays.copyOf(value, length);
+    }
+
+}
@@ -28,7 +28,8 @@ import com.coroptis.jblinktree.util.JblinktreeException;
  * @author jajir
  *
  */
-public final class TypeDescriptorInteger implements TypeDescriptor<Integer> {
+public final class TypeDescriptorInteger
+        implements TypeDescriptorPrimitive<Integer> {
 
     /**
      * How many bytes is required to store Integer.
@@ -84,6 +85,24 @@ public final class TypeDescriptorInteger implements TypeDescriptor<Integer> {
 
     @Override
     public Integer load(final byte[] data, final int from) {
+        return loadInt(data, from);
+    }
+
+    @Override
+    public long loadPrimitive(final byte[] data, final int from) {
+        return loadInt(data, from);
+    }
+
+    /**
+     * Load integer from byte array.
+     *
+     * @param data
+     *            required byte array
+     * @param from
+     *            required position from where will be integer loaded
+     * @return loaded integer
+     */
+    private int loadInt(final byte[] data, final int from) {
         int pos = from;
         return data[pos++] << BYTE_SHIFT_24
                 | (data[pos++] & BYTE_MASK) << BYTE_SHIFT_16
@@ -127,8 +146,16 @@ public final class TypeDescriptorInteger implements TypeDescriptor<Integer> {
     public int cmp(final byte[] node, final int start,
             final Wrapper<Integer> wrapper) {
         byte[] value = wrapper.getBytes();
-        for (int i = 0; i < REQUIRED_BYTES; i++) {
-            final int cmp = node[start + i] - value[i];
+        /**
+         * First byte holds sign so it's compared as signed, all other bytes
+         * are compared as unsigned.
+         */
+        int cmp = node[start] - value[0];
+        if (cmp != 0) {
+            return cmp;
+        }
+        for (int i = 1; i < REQUIRED_BYTES; i++) {
+            cmp = (node[start + i] & BYTE_MASK) - (value[i] & BYTE_MASK);
             if (cmp != 0) {
                 return cmp;
             }
@@ -0,0 +1,111 @@
+package com.coroptis.jblinktree.type;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.coroptis.jblinktree.util.JblinktreeException;
+
+/**
+ * Long type descriptor. Value is stored in big-endian order with flipped sign
+ * bit, so stored values could be compared as unsigned bytes.
+ *
+ * @author jajir
+ *
+ */
+public final class TypeDescriptorLong implements TypeDescriptorPrimitive<Long> {
+
+    /**
+     * Default hash code.
+     */
+    private static final int DEFAULT_HASHCODE = 5219834;
+
+    @Override
+    public int getMaxLength() {
+        return Long.BYTES;
+    }
+
+    @Override
+    public void save(final byte[] data, final int from, final Long value) {
+        UnsignedBytes.writeLong(data, from, value ^ Long.MIN_VALUE);
+    }
+
+    @Override
+    public void save(final byte[] data, final int from,
+            final Wrapper<Long> value) {
+        System.arraycopy(value.getBytes(), 0, data, from, Long.BYTES);
+    }
+
+    @Override
+    public Long load(final byte[] data, final int from) {
+        return loadPrimitive(data, from);
+    }
+
+    @Override
+    public long loadPrimitive(final byte[] data, final int from) {
+        return UnsignedBytes.readLong(data, from) ^ Long.MIN_VALUE;
+    }
+
+    @Override
+    public void verifyType(final Object object) {
+        if (!(object instanceof Long)) {
+            throw new JblinktreeException("Object of wrong type ("
+                    + object.getClass().getName() + ")");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TypeDescriptorLong{maxLength=8}";
+    }
+
+    /**
+     * Always return same number. All instances of this class are same.
+     */
+    @Override
+    public int hashCode() {
+        return DEFAULT_HASHCODE;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null) {
+            return false;
+        }
+        return getClass() == obj.getClass();
+    }
+
+    @Override
+    public int cmp(final byte[] node, final int start,
+            final Wrapper<Long> wrapper) {
+        return UnsignedBytes.compare(node, start, wrapper.getBytes(), 0,
+                Long.BYTES);
+    }
+
+    @Override
+    public byte[] getBytes(final Long value) {
+        final byte[] out = new byte[Long.BYTES];
+        save(out, 0, value);
+        return out;
+    }
+
+}
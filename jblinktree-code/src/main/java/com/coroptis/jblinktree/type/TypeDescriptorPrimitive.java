@@ -0,0 +1,46 @@
+package com.coroptis.jblinktree.type;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Type descriptor of type which could be represented by primitive
+ * <code>long</code>. It allows to read stored values without creating objects.
+ *
+ * @author jajir
+ *
+ * @param <T>
+ *            described type
+ */
+public interface TypeDescriptorPrimitive<T> extends TypeDescriptor<T> {
+
+    /**
+     * Load value from byte array as primitive number. Order of loaded numbers
+     * is same as order defined by {@link #cmp(byte[], int, Wrapper)}.
+     *
+     * @param data
+     *            required byte field where is value stored
+     * @param from
+     *            required position from where will be value loaded
+     * @return loaded value
+     */
+    long loadPrimitive(byte[] data, int from);
+
+}
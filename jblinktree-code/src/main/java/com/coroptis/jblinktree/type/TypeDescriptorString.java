@@ -157,16 +157,21 @@ public final class TypeDescriptorString implements TypeDescriptor<String> {
     public int cmp(final byte[] node, final int start,
             final Wrapper<String> wrapper) {
         byte[] value = wrapper.getBytes();
-        final Integer currentLength = typeDescriptorInteger.load(value, 0);
+        final int currentLength = typeDescriptorInteger.load(value, 0);
+        final int nodeLength = typeDescriptorInteger.load(node, start);
         final int start2 = typeDescriptorInteger.getMaxLength() + start;
-        for (int i = 0; i < currentLength; i++) {
+        final int length = Math.min(currentLength, nodeLength);
+        for (int i = 0; i < length; i++) {
             final int cmp = node[start2 + i]
                     - value[i + typeDescriptorInteger.getMaxLength()];
             if (cmp != 0) {
                 return cmp;
             }
         }
-        return 0;
+        /**
+         * When one string is prefix of another one than shorter is smaller.
+         */
+        return nodeLength - currentLength;
     }
 
     @Override
@@ -65,4 +65,33 @@ public final class Types {
         return new TypeDescriptorByte();
     }
 
+    /**
+     * Create long type descriptor.
+     *
+     * @return long type descriptor
+     */
+    public static TypeDescriptor<Long> longType() {
+        return new TypeDescriptorLong();
+    }
+
+    /**
+     * Create double type descriptor.
+     *
+     * @return double type descriptor
+     */
+    public static TypeDescriptor<Double> doubleType() {
+        return new TypeDescriptorDouble();
+    }
+
+    /**
+     * Create fixed length byte array type descriptor.
+     *
+     * @param length
+     *            required length of byte array
+     * @return fixed length byte array type descriptor
+     */
+    public static TypeDescriptor<byte[]> fixedBytes(final int length) {
+        return new TypeDescriptorFixedBytes(length);
+    }
+
 }
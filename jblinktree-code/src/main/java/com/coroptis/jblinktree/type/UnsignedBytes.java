@@ -0,0 +1,111 @@
+package com.coroptis.jblinktree.type;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Helper methods for types stored in order preserving encoding. Such values
+ * are compared as unsigned byte arrays.
+ *
+ * @author jajir
+ *
+ */
+final class UnsignedBytes {
+
+    /**
+     * With byte AND allows to select required part of bytes.
+     */
+    private static final int BYTE_MASK = 0xFF;
+
+    /**
+     * Number of bits in byte.
+     */
+    private static final int BITS_IN_BYTE = 8;
+
+    /**
+     * Hidden constructor.
+     */
+    private UnsignedBytes() {
+    }
+
+    /**
+     * Compare two byte arrays of same length as unsigned numbers.
+     *
+     * @param a
+     *            required first byte array
+     * @param fromA
+     *            required position of first compared byte in first array
+     * @param b
+     *            required second byte array
+     * @param fromB
+     *            required position of first compared byte in second array
+     * @param length
+     *            required number of compared bytes
+     * @return comparison result
+     */
+    static int compare(final byte[] a, final int fromA, final byte[] b,
+            final int fromB, final int length) {
+        for (int i = 0; i < length; i++) {
+            final int cmp =
+                    (a[fromA + i] & BYTE_MASK) - (b[fromB + i] & BYTE_MASK);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Write long in big-endian order.
+     *
+     * @param data
+     *            required byte array
+     * @param from
+     *            required position where will be value written
+     * @param value
+     *            value
+     */
+    static void writeLong(final byte[] data, final int from,
+            final long value) {
+        long v = value;
+        for (int i = Long.BYTES - 1; i >= 0; i--) {
+            data[from + i] = (byte) (v & BYTE_MASK);
+            v >>>= BITS_IN_BYTE;
+        }
+    }
+
+    /**
+     * Read long stored in big-endian order.
+     *
+     * @param data
+     *            required byte array
+     * @param from
+     *            required position from where will be value loaded
+     * @return loaded value
+     */
+    static long readLong(final byte[] data, final int from) {
+        long out = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            out = out << BITS_IN_BYTE | data[from + i] & BYTE_MASK;
+        }
+        return out;
+    }
+
+}
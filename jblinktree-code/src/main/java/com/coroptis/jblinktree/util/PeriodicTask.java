@@ -0,0 +1,169 @@
+package com.coroptis.jblinktree.util;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Objects;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Daemon thread which runs given task repeatedly with fixed delay between
+ * runs. Failed run is logged and task is run again after next delay. Thread
+ * ends when it's stopped.
+ *
+ * @author jajir
+ *
+ */
+public final class PeriodicTask {
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER =
+            LoggerFactory.getLogger(PeriodicTask.class);
+
+    /**
+     * Task which is run periodically.
+     */
+    private final Runnable task;
+
+    /**
+     * How long in milliseconds waits thread between two runs.
+     */
+    private final long interval;
+
+    /**
+     * Background thread.
+     */
+    private final Thread thread;
+
+    /**
+     * Is <code>true</code> when task is stopped. Guarded by this.
+     */
+    private boolean stopped;
+
+    /**
+     * When it's not <code>null</code> than last run failed.
+     */
+    private volatile RuntimeException failure;
+
+    /**
+     * Create task, thread is not started.
+     *
+     * @param threadName
+     *            required name of background thread
+     * @param priority
+     *            required priority of background thread
+     * @param delay
+     *            required delay in milliseconds between two runs, it have
+     *            to be positive
+     * @param periodicTask
+     *            required task
+     */
+    public PeriodicTask(final String threadName, final int priority,
+            final long delay, final Runnable periodicTask) {
+        Objects.requireNonNull(threadName);
+        this.task = Objects.requireNonNull(periodicTask);
+        if (delay < 1) {
+            throw new JblinktreeException("Delay should be positive.");
+        }
+        this.interval = delay;
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                runPeriodically();
+            }
+        }, threadName);
+        thread.setDaemon(true);
+        thread.setPriority(priority);
+    }
+
+    /**
+     * Start background thread.
+     */
+    public void start() {
+        thread.start();
+    }
+
+    /**
+     * Background thread loop.
+     */
+    private void runPeriodically() {
+        while (waitForNextRun()) {
+            try {
+                task.run();
+                failure = null;
+            } catch (RuntimeException e) {
+                LOGGER.error("Task in thread '" + thread.getName()
+                        + "' failed, it will be run again.", e);
+                failure = e;
+            }
+        }
+    }
+
+    /**
+     * Wait for delay or until task is stopped.
+     *
+     * @return <code>true</code> when task should be run
+     */
+    private synchronized boolean waitForNextRun() {
+        final long deadline = System.currentTimeMillis() + interval;
+        long remaining = interval;
+        while (!stopped && remaining > 0) {
+            try {
+                wait(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            remaining = deadline - System.currentTimeMillis();
+        }
+        return !stopped;
+    }
+
+    /**
+     * Stop background thread and wait until it ends. Running task is
+     * finished.
+     *
+     * @return failure of last run or <code>null</code> when last run didn't
+     *         fail
+     */
+    public RuntimeException stop() {
+        synchronized (this) {
+            stopped = true;
+            notifyAll();
+        }
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return failure;
+    }
+
+}
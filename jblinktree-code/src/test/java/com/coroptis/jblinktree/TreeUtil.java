@@ -22,13 +22,16 @@ package com.coroptis.jblinktree;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
+import com.coroptis.jblinktree.type.Wrapper;
 import com.coroptis.jblinktree.util.JblinktreeException;
 import com.google.common.base.Charsets;
 import com.google.common.io.Files;
 
 /**
- * Provide printing of dot files.
+ * Provide printing of dot files and listing of tree nodes.
  *
  * @author jajir
  *
@@ -135,4 +138,56 @@ public class TreeUtil {
         return buff.toString();
     }
 
+    /**
+     * Get all nodes in order in which they are visited, root node is first.
+     *
+     * @return list of nodes
+     */
+    public List<Node<Integer, Integer>> getNodes() {
+        final List<Node<Integer, Integer>> out =
+                new ArrayList<Node<Integer, Integer>>();
+        ((TreeMapImpl<Integer, Integer>) jbTree)
+                .visit(new JbTreeVisitor<Integer, Integer>() {
+
+                    @Override
+                    public boolean visitedLeaf(
+                            final Node<Integer, Integer> node) {
+                        out.add(node);
+                        return true;
+                    }
+
+                    @Override
+                    public boolean visitedNonLeaf(
+                            final Node<Integer, Integer> node) {
+                        out.add(node);
+                        return true;
+                    }
+                });
+        return out;
+    }
+
+    /**
+     * Get leaf nodes sorted by their max key. Empty leaf nodes are skipped,
+     * they don't have max key and node could be emptied by concurrently
+     * running merge.
+     *
+     * @return list of not empty leaf nodes
+     */
+    public List<Node<Integer, Integer>> getLeafNodes() {
+        final java.util.TreeMap<Integer, Node<Integer, Integer>> out =
+                new java.util.TreeMap<Integer, Node<Integer, Integer>>();
+        for (final Node<Integer, Integer> node : getNodes()) {
+            if (node.isLeafNode()) {
+                /**
+                 * Max key is read just once, node could change meanwhile.
+                 */
+                final Wrapper<Integer> maxKey = node.getMaxKey();
+                if (maxKey != null) {
+                    out.put(maxKey.getValue(), node);
+                }
+            }
+        }
+        return new ArrayList<Node<Integer, Integer>>(out.values());
+    }
+
 }
@@ -45,7 +45,7 @@ import com.coroptis.jblinktree.util.JblinktreeException;
 
 /**
  * Writes and load multiple nodes in highly concurrent environment. Test verify
- * that nodeStore serialize all requests.
+ * that file storage positional I/O doesn't mix concurrent requests.
  *
  * @author jajir
  *
@@ -63,11 +63,6 @@ public class FileStoreConcurrencyTest {
 	
 
 	@Test
-	public void mock() throws Exception {
-		//FIXME
-	}
-
-	//FIXME add test here
 	public void testForThreadClash() throws Exception {
 		final int cycleCount = 1000 * 1;
 		final int threadCount = 100;
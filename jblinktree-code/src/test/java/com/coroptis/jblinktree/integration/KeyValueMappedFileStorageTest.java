@@ -0,0 +1,210 @@
+package com.coroptis.jblinktree.integration;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.charset.Charset;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.coroptis.jblinktree.JbNodeBuilder;
+import com.coroptis.jblinktree.JbNodeBuilderShort;
+import com.coroptis.jblinktree.JbNodeDef;
+import com.coroptis.jblinktree.JbNodeDefImpl;
+import com.coroptis.jblinktree.JbNodeService;
+import com.coroptis.jblinktree.JbNodeServiceImpl;
+import com.coroptis.jblinktree.JbTreeData;
+import com.coroptis.jblinktree.JbTreeDataImpl;
+import com.coroptis.jblinktree.Node;
+import com.coroptis.jblinktree.TreeBuilder;
+import com.coroptis.jblinktree.TreeMap;
+import com.coroptis.jblinktree.store.KeyValueMappedFileStorage;
+import com.coroptis.jblinktree.type.TypeDescriptor;
+import com.coroptis.jblinktree.type.TypeDescriptorInteger;
+import com.coroptis.jblinktree.type.TypeDescriptorString;
+import com.coroptis.jblinktree.type.Types;
+import com.coroptis.jblinktree.type.Wrapper;
+import com.coroptis.jblinktree.util.JblinktreeException;
+import com.google.common.io.Files;
+
+/**
+ * Verify storing nodes into memory mapped file.
+ *
+ * @author jajir
+ *
+ */
+public class KeyValueMappedFileStorageTest {
+
+    private KeyValueMappedFileStorage<String, String> storage;
+
+    private JbNodeService<String, String> nodeService;
+
+    private File tempDirectory;
+
+    private File file;
+
+    private JbTreeData<String, String> treeData;
+
+    private JbNodeBuilder<String, String> nodeBuilder;
+
+    private TypeDescriptor<String> tdKey;
+
+    @Test
+    public void test_read_and_write() throws Exception {
+        assertTrue(storage.isNewlyCreated());
+        for (int i = 0; i < 10; i++) {
+            storage.store(createNode(i));
+        }
+
+        for (int i = 0; i < 10; i++) {
+            verifyNode(storage.load(i), i);
+        }
+    }
+
+    @Test
+    public void test_close_and_reopen() throws Exception {
+        for (int i = 9; i >= 0; i--) {
+            storage.store(createNode(i));
+        }
+        storage.close();
+
+        storage = makeStorage();
+        assertFalse(storage.isNewlyCreated());
+        for (int i = 0; i < 10; i++) {
+            verifyNode(storage.load(i), i);
+        }
+    }
+
+    @Test
+    public void test_load_missing_node() throws Exception {
+        storage.store(createNode(0));
+
+        try {
+            storage.load(1);
+            fail();
+        } catch (JblinktreeException e) {
+            // it's ok
+        }
+        try {
+            storage.load(1000);
+            fail();
+        } catch (JblinktreeException e) {
+            // it's ok
+        }
+    }
+
+    @Test
+    public void test_tree_close_and_reopen() throws Exception {
+        final File treeDirectory = Files.createTempDir();
+        TreeMap<Integer, String> tree = makeTree(treeDirectory);
+        for (int i = 0; i < 500; i++) {
+            tree.put(i, "val-" + i);
+        }
+        tree.close();
+
+        tree = makeTree(treeDirectory);
+        assertEquals(500, tree.size());
+        for (int i = 0; i < 500; i++) {
+            assertEquals("val-" + i, tree.get(i));
+        }
+        tree.close();
+    }
+
+    private TreeMap<Integer, String> makeTree(final File directory) {
+        return TreeBuilder.builder().setKeyType(Types.integer())
+                .setValueType(Types.string(10)).setL(3)
+                .setNodeStoreInFileBuilder(
+                        TreeBuilder.getNodeStoreInFileBuilder()
+                                .setFileName(directory.getAbsolutePath())
+                                .setNoOfCachedNodes(5).setMemoryMapped(true))
+                .build();
+    }
+
+    private void verifyNode(final Node<String, String> n, final int i) {
+        assertTrue(n.isLeafNode());
+        assertEquals(1, n.getKeyCount());
+        assertEquals("Ahoj lidi!" + i, n.getKey(0));
+        assertEquals("Jde to!" + i, n.getValue(0));
+        assertEquals(Integer.valueOf(-i * 100), n.getLink());
+    }
+
+    private Node<String, String> createNode(final Integer i) {
+        Node<String, String> n = nodeBuilder.makeEmptyLeafNode(i);
+        nodeService.insert(n, Wrapper.make("Ahoj lidi!" + i, tdKey),
+                "Jde to!" + i);
+        n.setLink(-i * 100);
+        return n;
+    }
+
+    /**
+     * Chunk is small, so nodes are stored in many chunks.
+     */
+    private KeyValueMappedFileStorage<String, String> makeStorage() {
+        return new KeyValueMappedFileStorage<String, String>(file, treeData,
+                nodeBuilder, 300);
+    }
+
+    @Before
+    public void setup() {
+        tempDirectory = Files.createTempDir();
+        file = new File(tempDirectory, "key.str");
+        tdKey = new TypeDescriptorString(13, Charset.forName("ISO-8859-1"));
+        TypeDescriptor<String> tdValue = new TypeDescriptorString(9,
+                Charset.forName("ISO-8859-1"));
+        TypeDescriptor<Integer> tdLink = new TypeDescriptorInteger();
+
+        final JbNodeDefImpl.Initializator<String, String> init1 =
+                new JbNodeDefImpl.InitializatorShort<String, String>();
+        final JbNodeDef<String, String> leafNodeDescriptor =
+                new JbNodeDefImpl<String, String>(5, tdKey, tdValue, tdLink,
+                        init1);
+
+        final JbNodeDefImpl.Initializator<String, Integer> init2 =
+                new JbNodeDefImpl.InitializatorShort<String, Integer>();
+        final JbNodeDef<String, Integer> nonLeafNodeDescriptor =
+                new JbNodeDefImpl<String, Integer>(5, tdKey, tdLink, tdLink,
+                        init2);
+
+        treeData = new JbTreeDataImpl<String, String>(0, 2, leafNodeDescriptor,
+                nonLeafNodeDescriptor);
+
+        nodeBuilder = new JbNodeBuilderShort<String, String>(treeData);
+        storage = makeStorage();
+        nodeService = new JbNodeServiceImpl<String, String>();
+    }
+
+    @After
+    public void tearDown() {
+        storage.close();
+        storage = null;
+        tempDirectory = null;
+        file = null;
+        treeData = null;
+        nodeService = null;
+        nodeBuilder = null;
+        tdKey = null;
+    }
+
+}
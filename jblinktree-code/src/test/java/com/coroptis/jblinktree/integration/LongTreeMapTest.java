@@ -0,0 +1,179 @@
+package com.coroptis.jblinktree.integration;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.File;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import com.coroptis.jblinktree.LongTreeMap;
+import com.coroptis.jblinktree.TreeBuilder;
+import com.coroptis.jblinktree.util.JblinktreeException;
+import com.google.common.io.Files;
+
+/**
+ * Verify tree with primitive long keys and values.
+ *
+ * @author jajir
+ *
+ */
+public class LongTreeMapTest extends TestCase {
+
+    private LongTreeMap tree;
+
+    @Test
+    public void test_empty_tree() throws Exception {
+        assertEquals(-1, tree.get(3, -1));
+        assertFalse(tree.containsKey(3));
+        assertFalse(tree.remove(3));
+        assertEquals(0, tree.size());
+    }
+
+    @Test
+    public void test_put_get() throws Exception {
+        for (long i = -500; i < 500; i += 2) {
+            tree.put(i, -i);
+        }
+
+        assertEquals(500, tree.size());
+        for (long i = -510; i < 510; i++) {
+            if (i % 2 == 0 && i >= -500 && i < 500) {
+                assertEquals(-i, tree.get(i, Long.MIN_VALUE));
+                assertTrue(tree.containsKey(i));
+            } else {
+                assertEquals(Long.MIN_VALUE, tree.get(i, Long.MIN_VALUE));
+                assertFalse(tree.containsKey(i));
+            }
+        }
+    }
+
+    @Test
+    public void test_put_replace_remove() throws Exception {
+        tree.put(Long.MAX_VALUE, 1L);
+        tree.put(Long.MIN_VALUE, 2L);
+        tree.put(Long.MAX_VALUE, 3L);
+
+        assertEquals(3, tree.get(Long.MAX_VALUE, 0));
+        assertEquals(2, tree.get(Long.MIN_VALUE, 0));
+        assertTrue(tree.remove(Long.MAX_VALUE));
+        assertFalse(tree.containsKey(Long.MAX_VALUE));
+        assertEquals(1, tree.size());
+        assertEquals(Long.valueOf(2), tree.asMap().get(Long.MIN_VALUE));
+    }
+
+    @Test
+    public void test_random_keys() throws Exception {
+        final Random random = new Random(1L);
+        final java.util.Map<Long, Long> expected =
+                new java.util.HashMap<Long, Long>();
+        for (long i = 0; i < 2000; i++) {
+            final long key = random.nextLong();
+            tree.put(key, i);
+            expected.put(key, i);
+        }
+        for (final java.util.Map.Entry<Long, Long> entry : expected
+                .entrySet()) {
+            assertEquals(entry.getValue().longValue(),
+                    tree.get(entry.getKey(), -1));
+        }
+    }
+
+    @Test
+    public void test_get_closed_tree() throws Exception {
+        tree.close();
+        try {
+            tree.get(1, 0);
+            fail();
+        } catch (JblinktreeException e) {
+            // it's ok
+        }
+        tree = TreeBuilder.builder().setL(3).buildLongTreeMap();
+    }
+
+    @Test
+    public void test_put_remove_size_closed_tree() throws Exception {
+        tree.put(1, 10);
+        tree.close();
+        try {
+            tree.put(2, 20);
+            fail();
+        } catch (JblinktreeException e) {
+            // it's ok
+        }
+        try {
+            tree.remove(1);
+            fail();
+        } catch (JblinktreeException e) {
+            // it's ok
+        }
+        try {
+            tree.size();
+            fail();
+        } catch (JblinktreeException e) {
+            // it's ok
+        }
+        tree = TreeBuilder.builder().setL(3).buildLongTreeMap();
+    }
+
+    @Test
+    public void test_close_and_reopen_file_store() throws Exception {
+        final File tempDirectory = Files.createTempDir();
+        LongTreeMap fileTree = makeFileTree(tempDirectory);
+        for (long i = 0; i < 100; i++) {
+            fileTree.put(i * 1000000000000L, -i);
+        }
+        fileTree.close();
+
+        fileTree = makeFileTree(tempDirectory);
+        for (long i = 0; i < 100; i++) {
+            assertEquals(-i, fileTree.get(i * 1000000000000L, 1));
+        }
+        assertEquals(1, fileTree.get(1, 1));
+        fileTree.close();
+    }
+
+    private LongTreeMap makeFileTree(final File tempDirectory) {
+        return TreeBuilder.builder().setL(3)
+                .setNodeStoreInFileBuilder(
+                        TreeBuilder.getNodeStoreInFileBuilder()
+                                .setFileName(tempDirectory.getAbsolutePath())
+                                .setNoOfCachedNodes(2))
+                .buildLongTreeMap();
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        tree = TreeBuilder.builder().setL(3).buildLongTreeMap();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        assertEquals("All locks should be unlocked ", 0,
+                tree.asMap().countLockedNodes());
+        tree = null;
+        super.tearDown();
+    }
+
+}
@@ -0,0 +1,213 @@
+package com.coroptis.jblinktree.integration;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.File;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import com.coroptis.jblinktree.TreeBuilder;
+import com.coroptis.jblinktree.TreeMap;
+import com.coroptis.jblinktree.store.CacheBudget;
+import com.coroptis.jblinktree.type.Types;
+import com.coroptis.jblinktree.util.JblinktreeException;
+import com.google.common.io.Files;
+
+/**
+ * Verify building tree from sorted key value pairs.
+ *
+ * @author jajir
+ *
+ */
+public class TreeBulkLoadTest extends TestCase {
+
+    private TreeMap<Integer, Integer> tree;
+
+    private File tempDirectory;
+
+    @Test
+    public void test_bulkLoad() throws Exception {
+        tree = builder().bulkLoad(entries(0, 1000));
+
+        assertEquals(1000, tree.size());
+        verify(0, 1000);
+        assertEquals(Integer.valueOf(0), tree.firstKey());
+        assertEquals(Integer.valueOf(999), tree.lastKey());
+        assertEquals(Integer.valueOf(500), tree.ceilingKey(500));
+    }
+
+    @Test
+    public void test_bulkLoad_fillFactor() throws Exception {
+        tree = builder().setFillFactor(0.5).bulkLoad(entries(0, 1000));
+
+        assertEquals(1000, tree.size());
+        verify(0, 1000);
+    }
+
+    @Test
+    public void test_bulkLoad_and_modify() throws Exception {
+        tree = builder().bulkLoad(entries(0, 1000));
+        for (int i = 0; i < 1000; i += 2) {
+            tree.remove(i);
+        }
+        for (int i = -100; i < 1100; i += 3) {
+            tree.put(i, -i);
+        }
+
+        for (int i = -100; i < 1100; i++) {
+            if ((i + 100) % 3 == 0) {
+                assertEquals(Integer.valueOf(-i), tree.get(i));
+            } else if (i >= 0 && i < 1000 && i % 2 == 1) {
+                assertEquals(Integer.valueOf(-i), tree.get(i));
+            } else {
+                assertNull(tree.get(i));
+            }
+        }
+        final List<Integer> keys = new ArrayList<Integer>(tree.keySet());
+        final List<Integer> sorted = new ArrayList<Integer>(keys);
+        Collections.sort(sorted);
+        assertEquals(sorted, keys);
+        assertEquals(keys.size(), tree.size());
+    }
+
+    @Test
+    public void test_bulkLoad_empty() throws Exception {
+        tree = builder().bulkLoad(entries(0, 0));
+
+        assertTrue(tree.isEmpty());
+        tree.put(3, -3);
+        assertEquals(Integer.valueOf(-3), tree.get(3));
+    }
+
+    @Test
+    public void test_bulkLoad_notSorted() throws Exception {
+        final List<Map.Entry<Integer, Integer>> list =
+                new ArrayList<Map.Entry<Integer, Integer>>();
+        list.add(new AbstractMap.SimpleEntry<Integer, Integer>(2, -2));
+        list.add(new AbstractMap.SimpleEntry<Integer, Integer>(1, -1));
+        try {
+            builder().bulkLoad(list.iterator());
+            fail();
+        } catch (JblinktreeException e) {
+            assertTrue(true);
+        }
+    }
+
+    @Test
+    public void test_bulkLoad_notSorted_closes_store() throws Exception {
+        tempDirectory = Files.createTempDir();
+        final CacheBudget budget = new CacheBudget(4096);
+        final List<Map.Entry<Integer, Integer>> list =
+                new ArrayList<Map.Entry<Integer, Integer>>();
+        list.add(new AbstractMap.SimpleEntry<Integer, Integer>(2, -2));
+        list.add(new AbstractMap.SimpleEntry<Integer, Integer>(1, -1));
+        try {
+            budgetBuilder(budget).bulkLoad(list.iterator());
+            fail();
+        } catch (JblinktreeException e) {
+            assertTrue(true);
+        }
+
+        /**
+         * Budget is released just when failed tree was closed.
+         */
+        tempDirectory = Files.createTempDir();
+        tree = budgetBuilder(budget).build();
+        tree.put(1, -1);
+        assertEquals(Integer.valueOf(-1), tree.get(1));
+    }
+
+    @Test
+    public void test_bulkLoad_file_and_reopen() throws Exception {
+        tempDirectory = Files.createTempDir();
+        tree = fileBuilder().bulkLoad(entries(0, 500));
+        tree.close();
+
+        tree = fileBuilder().build();
+        assertEquals(500, tree.size());
+        verify(0, 500);
+        tree.close();
+
+        try {
+            fileBuilder().bulkLoad(entries(500, 600));
+            fail();
+        } catch (JblinktreeException e) {
+            assertTrue(true);
+        }
+        tree = fileBuilder().build();
+    }
+
+    private void verify(final int from, final int to) {
+        for (int i = from; i < to; i++) {
+            assertEquals(Integer.valueOf(-i), tree.get(i));
+        }
+    }
+
+    private Iterator<Map.Entry<Integer, Integer>> entries(final int from,
+            final int to) {
+        final List<Map.Entry<Integer, Integer>> list =
+                new ArrayList<Map.Entry<Integer, Integer>>();
+        for (int i = from; i < to; i++) {
+            list.add(new AbstractMap.SimpleEntry<Integer, Integer>(i, -i));
+        }
+        return list.iterator();
+    }
+
+    private TreeBuilder builder() {
+        return TreeBuilder.builder().setL(4).setKeyType(Types.integer())
+                .setValueType(Types.integer());
+    }
+
+    private TreeBuilder fileBuilder() {
+        return builder().setNodeStoreInFileBuilder(
+                TreeBuilder.getNodeStoreInFileBuilder()
+                        .setFileName(tempDirectory.getAbsolutePath())
+                        .setNoOfCachedNodes(3));
+    }
+
+    private TreeBuilder budgetBuilder(final CacheBudget budget) {
+        return builder().setNodeStoreInFileBuilder(
+                TreeBuilder.getNodeStoreInFileBuilder()
+                        .setFileName(tempDirectory.getAbsolutePath())
+                        .setCacheBudget(budget));
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (tree != null) {
+            assertEquals("All locks should be unlocked ", 0,
+                    tree.countLockedNodes());
+            tree.close();
+        }
+        tree = null;
+        tempDirectory = null;
+        super.tearDown();
+    }
+
+}
@@ -0,0 +1,196 @@
+package com.coroptis.jblinktree.integration;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import com.coroptis.jblinktree.Node;
+import com.coroptis.jblinktree.TreeBuilder;
+import com.coroptis.jblinktree.TreeMap;
+import com.coroptis.jblinktree.TreeUtil;
+import com.coroptis.jblinktree.store.CacheBudget;
+import com.coroptis.jblinktree.type.Types;
+import com.coroptis.jblinktree.util.JblinktreeException;
+import com.google.common.io.Files;
+
+/**
+ * Verify rewriting of tree stored in file into new directory.
+ *
+ * @author jajir
+ *
+ */
+public class TreeCompactTest extends TestCase {
+
+    private TreeMap<Integer, Integer> tree;
+
+    private File sourceDirectory;
+
+    private File targetDirectory;
+
+    @Test
+    public void test_compact() throws Exception {
+        tree = builder(sourceDirectory).build();
+        final Random random = new Random(42);
+        final List<Integer> keys = new ArrayList<Integer>();
+        for (int i = 0; i < 2000; i++) {
+            keys.add(i);
+        }
+        Collections.shuffle(keys, random);
+        for (final Integer key : keys) {
+            tree.put(key, -key);
+        }
+        for (int i = 0; i < 2000; i += 3) {
+            tree.remove(i);
+        }
+        tree.close();
+
+        tree = builder(sourceDirectory).setFillFactor(1)
+                .compact(targetDirectory.getAbsolutePath());
+        verify();
+        final List<Node<Integer, Integer>> leafs =
+                new TreeUtil(tree).getLeafNodes();
+        for (int i = 0; i < leafs.size(); i++) {
+            assertEquals(Integer.valueOf(i), leafs.get(i).getId());
+            if (i < leafs.size() - 1) {
+                assertEquals(4, leafs.get(i).getKeyCount());
+                assertEquals(Integer.valueOf(i + 1), leafs.get(i).getLink());
+            }
+        }
+        tree.close();
+
+        tree = builder(targetDirectory).build();
+        verify();
+        tree.put(0, 0);
+        assertEquals(Integer.valueOf(0), tree.get(0));
+    }
+
+    @Test
+    public void test_compact_with_cache_budget() throws Exception {
+        final CacheBudget budget = new CacheBudget(4096);
+        tree = builder(sourceDirectory).build();
+        for (int i = 0; i < 2000; i++) {
+            tree.put(i, -i);
+        }
+        for (int i = 0; i < 2000; i += 3) {
+            tree.remove(i);
+        }
+        tree.close();
+
+        tree = budgetBuilder(sourceDirectory, budget)
+                .compact(targetDirectory.getAbsolutePath());
+        verify();
+        assertTrue(budget.getNumberOfNodes() > 0);
+        tree.close();
+
+        tree = budgetBuilder(targetDirectory, budget).build();
+        verify();
+    }
+
+    @Test
+    public void test_compact_missing_source() throws Exception {
+        try {
+            builder(sourceDirectory)
+                    .compact(targetDirectory.getAbsolutePath());
+            fail();
+        } catch (JblinktreeException e) {
+            assertTrue(true);
+        }
+    }
+
+    @Test
+    public void test_compact_into_existing_tree() throws Exception {
+        tree = builder(sourceDirectory).build();
+        tree.put(1, -1);
+        tree.close();
+        tree = builder(targetDirectory).build();
+        tree.put(2, -2);
+        tree.close();
+
+        try {
+            builder(sourceDirectory)
+                    .compact(targetDirectory.getAbsolutePath());
+            fail();
+        } catch (JblinktreeException e) {
+            assertTrue(true);
+        }
+        tree = builder(sourceDirectory).build();
+        assertEquals(Integer.valueOf(-1), tree.get(1));
+    }
+
+    private void verify() {
+        assertEquals(1333, tree.size());
+        for (int i = 0; i < 2000; i++) {
+            if (i % 3 == 0) {
+                assertNull(tree.get(i));
+            } else {
+                assertEquals(Integer.valueOf(-i), tree.get(i));
+            }
+        }
+    }
+
+    private TreeBuilder budgetBuilder(final File directory,
+            final CacheBudget budget) {
+        return TreeBuilder.builder().setL(4).setKeyType(Types.integer())
+                .setValueType(Types.integer())
+                .setNodeStoreInFileBuilder(TreeBuilder
+                        .getNodeStoreInFileBuilder()
+                        .setFileName(directory.getAbsolutePath())
+                        .setCacheBudget(budget));
+    }
+
+    private TreeBuilder builder(final File directory) {
+        return TreeBuilder.builder().setL(4).setKeyType(Types.integer())
+                .setValueType(Types.integer())
+                .setNodeStoreInFileBuilder(TreeBuilder
+                        .getNodeStoreInFileBuilder()
+                        .setFileName(directory.getAbsolutePath())
+                        .setNoOfCachedNodes(3));
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        sourceDirectory = Files.createTempDir();
+        targetDirectory = Files.createTempDir();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (tree != null) {
+            assertEquals("All locks should be unlocked ", 0,
+                    tree.countLockedNodes());
+            tree.close();
+        }
+        tree = null;
+        sourceDirectory = null;
+        targetDirectory = null;
+        super.tearDown();
+    }
+
+}
@@ -2,6 +2,7 @@ package com.coroptis.jblinktree.integration;
 
 import static org.junit.Assert.*;
 import java.io.File;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.After;
 import org.junit.Before;
@@ -31,7 +32,10 @@ import org.junit.Test;
 import com.coroptis.jblinktree.JbDataVisitor;
 import com.coroptis.jblinktree.TreeBuilder;
 import com.coroptis.jblinktree.TreeMap;
+import com.coroptis.jblinktree.store.CacheBudget;
+import com.coroptis.jblinktree.store.WriteAheadLog;
 import com.coroptis.jblinktree.type.Types;
+import com.coroptis.jblinktree.util.JblinktreeException;
 import com.google.common.io.Files;
 
 /**
@@ -84,6 +88,223 @@ public class TreeFileStorageTest {
         verifyMoves(10);
     }
 
+    @Test
+    public void test_size_after_reopen() throws Exception {
+        insertMoves(0);
+        tree.remove(3);
+        assertEquals(NUMBER_OF_CYCLES - 1, tree.size());
+        tree.close();
+        tree = makeTree();
+        assertEquals(NUMBER_OF_CYCLES - 1, tree.size());
+        insertMoves(10);
+        assertEquals(NUMBER_OF_CYCLES * 2 - 1, tree.size());
+    }
+
+    @Test
+    public void test_tinyLfu_cache_and_not_cached_scans() throws Exception {
+        tree.close();
+        tree = makeTinyLfuTree();
+        for (int i = 0; i < 200; i++) {
+            tree.put(i, "Old monkey-" + i);
+        }
+        final AtomicInteger visited = new AtomicInteger();
+        tree.visit(new JbDataVisitor<Integer, String>() {
+
+            @Override
+            public boolean visited(final Integer key, final String value) {
+                assertEquals("Old monkey-" + key, value);
+                visited.incrementAndGet();
+                return true;
+            }
+        });
+        assertEquals(200, visited.get());
+        tree.close();
+        tree = makeTinyLfuTree();
+        assertEquals(200, tree.size());
+        for (int i = 0; i < 200; i++) {
+            assertEquals("Old monkey-" + i, tree.get(i));
+        }
+    }
+
+    @Test
+    public void test_pinned_nonLeaf_nodes() throws Exception {
+        tree.close();
+        tree = makePinnedTree();
+        for (int i = 0; i < 200; i++) {
+            tree.put(i, "Old monkey-" + i);
+        }
+        for (int i = 0; i < 200; i += 2) {
+            tree.remove(i);
+        }
+        tree.close();
+        tree = makePinnedTree();
+        assertEquals(100, tree.size());
+        for (int i = 0; i < 200; i++) {
+            if (i % 2 == 0) {
+                assertNull(tree.get(i));
+            } else {
+                assertEquals("Old monkey-" + i, tree.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void test_cache_budget() throws Exception {
+        tree.close();
+        final CacheBudget budget = new CacheBudget(4096);
+        tree = makeBudgetTree(budget);
+        for (int i = 0; i < 200; i++) {
+            tree.put(i, "Old monkey-" + i);
+        }
+        assertTrue(budget.getUsedBytes() <= 4096);
+        assertTrue(budget.getNumberOfNodes() > 1);
+        budget.setMaxBytes(1024);
+        assertTrue(budget.getUsedBytes() <= 1024);
+        for (int i = 0; i < 200; i++) {
+            assertEquals("Old monkey-" + i, tree.get(i));
+        }
+        tree.close();
+        assertEquals(0, budget.getUsedBytes());
+        tree = makeBudgetTree(budget);
+        assertEquals(200, tree.size());
+        assertEquals("Old monkey-7", tree.get(7));
+    }
+
+    @Test
+    public void test_write_ahead_log_recovery() throws Exception {
+        tree.close();
+        tree = makeWalTree();
+        for (int i = 0; i < 200; i++) {
+            tree.put(i, "Old monkey-" + i);
+        }
+        /**
+         * Tree is abandoned without closing, dirty nodes stay in cache.
+         */
+        tree = makeWalTree();
+        assertEquals(200, tree.size());
+        for (int i = 0; i < 200; i++) {
+            assertEquals("Old monkey-" + i, tree.get(i));
+        }
+        tree.put(200, "Old monkey-200");
+        tree.close();
+        assertFalse(WriteAheadLog.getLogFile(tempDirectory, 0).exists());
+        tree = makeTree();
+        assertEquals(201, tree.size());
+    }
+
+    @Test
+    public void test_checkpoint_without_write_ahead_log() throws Exception {
+        final File directory = Files.createTempDir();
+        try {
+            makeCheckpointTree(directory, false);
+            fail();
+        } catch (JblinktreeException e) {
+            assertTrue(true);
+        }
+        assertEquals(0, directory.listFiles().length);
+    }
+
+    @Test
+    public void test_checkpoint_with_write_ahead_log() throws Exception {
+        tree.close();
+        tree = makeCheckpointTree(tempDirectory, true);
+        for (int i = 0; i < 200; i++) {
+            tree.put(i, "Old monkey-" + i);
+        }
+        Thread.sleep(300);
+        /**
+         * Log was shortened by checkpoints.
+         */
+        assertTrue(countLogFiles(tempDirectory) <= 1);
+        /**
+         * Copy of files of opened tree is the same as files after crash.
+         */
+        final File crashed = copyDirectory(tempDirectory);
+        final TreeMap<Integer, String> recovered =
+                makeCheckpointTree(crashed, true);
+        assertEquals(200, recovered.size());
+        for (int i = 0; i < 200; i++) {
+            assertEquals("Old monkey-" + i, recovered.get(i));
+        }
+        recovered.put(200, "Old monkey-200");
+        recovered.close();
+        assertEquals(0, countLogFiles(crashed));
+    }
+
+    private int countLogFiles(final File directory) {
+        int count = 0;
+        for (final File file : directory.listFiles()) {
+            if (file.getName().startsWith("wal-") && file.length() > 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private File copyDirectory(final File directory) throws Exception {
+        final File copy = Files.createTempDir();
+        for (final File file : directory.listFiles()) {
+            java.nio.file.Files.copy(file.toPath(),
+                    new File(copy, file.getName()).toPath());
+        }
+        return copy;
+    }
+
+    private TreeMap<Integer, String> makeCheckpointTree(final File directory,
+            final boolean writeAheadLog) {
+        return TreeBuilder.builder().setKeyType(Types.integer())
+                .setValueType(Types.string(14)).setL(2)
+                .setNodeStoreInFileBuilder(TreeBuilder
+                        .getNodeStoreInFileBuilder()
+                        .setFileName(directory.getAbsolutePath())
+                        .setNoOfCachedNodes(1000)
+                        .setWriteAheadLog(writeAheadLog)
+                        .setCheckpointInterval(10))
+                .build();
+    }
+
+    private TreeMap<Integer, String> makeWalTree() {
+        return TreeBuilder.builder().setKeyType(Types.integer())
+                .setValueType(Types.string(14)).setL(2)
+                .setNodeStoreInFileBuilder(TreeBuilder
+                        .getNodeStoreInFileBuilder()
+                        .setFileName(tempDirectory.getAbsolutePath())
+                        .setNoOfCachedNodes(1000).setWriteAheadLog(true)
+                        .setGroupCommitDelay(10))
+                .build();
+    }
+
+    private TreeMap<Integer, String> makeBudgetTree(final CacheBudget budget) {
+        return TreeBuilder.builder().setKeyType(Types.integer())
+                .setValueType(Types.string(14)).setL(2)
+                .setNodeStoreInFileBuilder(TreeBuilder
+                        .getNodeStoreInFileBuilder()
+                        .setFileName(tempDirectory.getAbsolutePath())
+                        .setCacheBudget(budget))
+                .build();
+    }
+
+    private TreeMap<Integer, String> makePinnedTree() {
+        return TreeBuilder.builder().setKeyType(Types.integer())
+                .setValueType(Types.string(14)).setL(2)
+                .setNodeStoreInFileBuilder(TreeBuilder
+                        .getNodeStoreInFileBuilder()
+                        .setFileName(tempDirectory.getAbsolutePath())
+                        .setNoOfCachedNodes(2).setPinNonLeafNodes(true))
+                .build();
+    }
+
+    private TreeMap<Integer, String> makeTinyLfuTree() {
+        return TreeBuilder.builder().setKeyType(Types.integer())
+                .setValueType(Types.string(14)).setL(2)
+                .setNodeStoreInFileBuilder(TreeBuilder
+                        .getNodeStoreInFileBuilder()
+                        .setFileName(tempDirectory.getAbsolutePath())
+                        .setNoOfCachedNodes(10).setTinyLfuCache(true)
+                        .setCacheScannedNodes(false))
+                .build();
+    }
+
     private TreeMap<Integer, String> makeTree() {
         return TreeBuilder.builder().setKeyType(Types.integer())
                 .setValueType(Types.string(14)).setL(2)
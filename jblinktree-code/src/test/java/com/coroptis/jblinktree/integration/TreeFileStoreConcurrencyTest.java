@@ -0,0 +1,197 @@
+package com.coroptis.jblinktree.integration;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import com.coroptis.jblinktree.TreeBuilder;
+import com.coroptis.jblinktree.TreeMap;
+import com.coroptis.jblinktree.type.Types;
+import com.google.common.io.Files;
+
+/**
+ * Verify that file stored tree with small node cache could be concurrently
+ * changed and read.
+ *
+ * @author jajir
+ *
+ */
+public class TreeFileStoreConcurrencyTest extends TestCase {
+
+    private static final int THREAD_COUNT = 8;
+
+    private static final int KEYS_PER_THREAD = 500;
+
+    private File tempDirectory;
+
+    private TreeMap<Integer, Integer> tree;
+
+    private boolean tinyLfuCache;
+
+    private boolean pinNonLeafNodes;
+
+    private boolean offHeapCache;
+
+    private boolean writeAheadLog;
+
+    private long writeBackInterval;
+
+    private long checkpointInterval;
+
+    @Test
+    public void test_concurrent_put_and_get() throws Exception {
+        putAndGetConcurrently();
+    }
+
+    @Test
+    public void test_concurrent_put_and_get_tinyLfu() throws Exception {
+        tree.close();
+        tinyLfuCache = true;
+        tree = makeTree();
+        putAndGetConcurrently();
+    }
+
+    @Test
+    public void test_concurrent_put_and_get_pinned() throws Exception {
+        tree.close();
+        pinNonLeafNodes = true;
+        tree = makeTree();
+        putAndGetConcurrently();
+    }
+
+    @Test
+    public void test_concurrent_put_and_get_offHeap() throws Exception {
+        tree.close();
+        offHeapCache = true;
+        tree = makeTree();
+        putAndGetConcurrently();
+    }
+
+    @Test
+    public void test_concurrent_put_and_get_writeAheadLog() throws Exception {
+        tree.close();
+        writeAheadLog = true;
+        tree = makeTree();
+        putAndGetConcurrently();
+    }
+
+    @Test
+    public void test_concurrent_put_and_get_writeBack() throws Exception {
+        tree.close();
+        writeBackInterval = 1;
+        tree = makeTree();
+        putAndGetConcurrently();
+    }
+
+    @Test
+    public void test_concurrent_put_and_get_checkpoint() throws Exception {
+        tree.close();
+        writeAheadLog = true;
+        checkpointInterval = 1;
+        tree = makeTree();
+        putAndGetConcurrently();
+    }
+
+    private void putAndGetConcurrently() throws Exception {
+        final AtomicReference<Throwable> failure =
+                new AtomicReference<Throwable>();
+        final List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < THREAD_COUNT; i++) {
+            final int thread = i;
+            threads.add(new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        for (int j = 0; j < KEYS_PER_THREAD; j++) {
+                            final Integer key = j * THREAD_COUNT + thread;
+                            tree.put(key, -key);
+                            assertEquals(Integer.valueOf(-key), tree.get(key));
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            }, "TestThread" + i));
+        }
+        for (final Thread thread : threads) {
+            thread.start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+        assertEquals("Some locks wasn't unlocked", 0, tree.countLockedNodes());
+        verifyAll();
+
+        tree.close();
+        tree = makeTree();
+        verifyAll();
+    }
+
+    private void verifyAll() {
+        assertEquals(THREAD_COUNT * KEYS_PER_THREAD, tree.size());
+        for (int i = 0; i < THREAD_COUNT * KEYS_PER_THREAD; i++) {
+            assertEquals(Integer.valueOf(-i), tree.get(i));
+        }
+    }
+
+    private TreeMap<Integer, Integer> makeTree() {
+        return TreeBuilder.builder().setKeyType(Types.integer())
+                .setValueType(Types.integer()).setL(5)
+                .setNodeStoreInFileBuilder(
+                        TreeBuilder.getNodeStoreInFileBuilder()
+                                .setFileName(tempDirectory.getAbsolutePath())
+                                .setNoOfCachedNodes(20)
+                                .setTinyLfuCache(tinyLfuCache)
+                                .setPinNonLeafNodes(pinNonLeafNodes)
+                                .setOffHeapCache(offHeapCache)
+                                .setWriteAheadLog(writeAheadLog)
+                                .setWriteBackInterval(writeBackInterval)
+                                .setCheckpointInterval(checkpointInterval))
+                .build();
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        tempDirectory = Files.createTempDir();
+        tree = makeTree();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        tree.close();
+        tree = null;
+        tempDirectory = null;
+        super.tearDown();
+    }
+
+}
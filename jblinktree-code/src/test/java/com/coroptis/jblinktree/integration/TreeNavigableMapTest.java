@@ -0,0 +1,228 @@
+package com.coroptis.jblinktree.integration;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import com.coroptis.jblinktree.TreeBuilder;
+import com.coroptis.jblinktree.TreeMap;
+import com.coroptis.jblinktree.type.Types;
+
+/**
+ * Verify {@link java.util.concurrent.ConcurrentNavigableMap} operations of
+ * tree map.
+ *
+ * @author jajir
+ *
+ */
+public class TreeNavigableMapTest extends TestCase {
+
+    private TreeMap<Integer, Integer> tree;
+
+    @Test
+    public void test_first_last() throws Exception {
+        insert(100);
+
+        assertEquals(Integer.valueOf(0), tree.firstKey());
+        assertEquals(Integer.valueOf(99), tree.lastKey());
+        assertEquals(Integer.valueOf(-990), tree.lastEntry().getValue());
+    }
+
+    @Test
+    public void test_first_emptyTree() throws Exception {
+        assertNull(tree.firstEntry());
+        assertNull(tree.lastEntry());
+        assertTrue(tree.isEmpty());
+        try {
+            tree.firstKey();
+            fail();
+        } catch (NoSuchElementException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void test_floor_ceiling() throws Exception {
+        for (int i = 0; i < 100; i += 10) {
+            tree.put(i, -i * 10);
+        }
+
+        assertEquals(Integer.valueOf(20), tree.floorKey(25));
+        assertEquals(Integer.valueOf(20), tree.floorKey(20));
+        assertEquals(Integer.valueOf(10), tree.lowerKey(20));
+        assertEquals(Integer.valueOf(30), tree.ceilingKey(25));
+        assertEquals(Integer.valueOf(20), tree.ceilingKey(20));
+        assertEquals(Integer.valueOf(30), tree.higherKey(20));
+        assertNull(tree.lowerKey(0));
+        assertNull(tree.higherKey(90));
+        assertEquals(Integer.valueOf(90), tree.floorKey(1000));
+    }
+
+    @Test
+    public void test_headMap_tailMap() throws Exception {
+        insert(100);
+
+        assertEquals(10, tree.headMap(10).size());
+        assertEquals(11, tree.headMap(10, true).size());
+        assertEquals(10, tree.tailMap(90).size());
+        assertEquals(9, tree.tailMap(90, false).size());
+        assertEquals(Integer.valueOf(91), tree.tailMap(90, false).firstKey());
+        assertEquals(Integer.valueOf(9), tree.headMap(10).lastKey());
+    }
+
+    @Test
+    public void test_subMap_outOfRange() throws Exception {
+        insert(100);
+        final NavigableMap<Integer, Integer> map = tree.subMap(20, true, 30,
+                false);
+
+        assertNull(map.get(30));
+        try {
+            map.put(30, 1);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void test_descendingMap() throws Exception {
+        insert(20);
+        final Iterator<Integer> iterator = tree.descendingMap().keySet()
+                .iterator();
+
+        for (int i = 19; i >= 0; i--) {
+            assertTrue(iterator.hasNext());
+            assertEquals(Integer.valueOf(i), iterator.next());
+        }
+        assertFalse(iterator.hasNext());
+        assertEquals(Integer.valueOf(19), tree.descendingMap().firstKey());
+    }
+
+    @Test
+    public void test_entrySet_iterator_remove() throws Exception {
+        insert(50);
+        final Iterator<Map.Entry<Integer, Integer>> iterator = tree.entrySet()
+                .iterator();
+
+        while (iterator.hasNext()) {
+            final Map.Entry<Integer, Integer> entry = iterator.next();
+            assertEquals(Integer.valueOf(-entry.getKey() * 10),
+                    entry.getValue());
+            if (entry.getKey() % 2 == 0) {
+                iterator.remove();
+            }
+        }
+        assertEquals(25, tree.size());
+        assertNull(tree.get(10));
+        assertEquals(Integer.valueOf(-110), tree.get(11));
+    }
+
+    @Test
+    public void test_navigableKeySet() throws Exception {
+        insert(30);
+        final NavigableSet<Integer> keys = tree.navigableKeySet();
+
+        assertEquals(30, keys.size());
+        assertEquals(Integer.valueOf(12), keys.ceiling(12));
+        assertEquals(5, keys.subSet(10, 15).size());
+    }
+
+    @Test
+    public void test_pollFirst_pollLast() throws Exception {
+        insert(10);
+
+        assertEquals(Integer.valueOf(0), tree.pollFirstEntry().getKey());
+        assertEquals(Integer.valueOf(9), tree.pollLastEntry().getKey());
+        assertEquals(8, tree.size());
+        assertEquals(Integer.valueOf(1), tree.firstKey());
+    }
+
+    @Test
+    public void test_clear() throws Exception {
+        insert(100);
+
+        tree.clear();
+        assertTrue(tree.isEmpty());
+        assertEquals(0, tree.size());
+    }
+
+    @Test
+    public void test_conditional_operations() throws Exception {
+        insert(10);
+
+        assertEquals(Integer.valueOf(-50), tree.putIfAbsent(5, 1));
+        assertNull(tree.putIfAbsent(50, 1));
+        assertFalse(tree.replace(5, 1, 2));
+        assertTrue(tree.replace(5, -50, 2));
+        assertEquals(Integer.valueOf(2), tree.get(5));
+        assertFalse(tree.remove(5, -50));
+        assertTrue(tree.remove(5, 2));
+        assertFalse(tree.containsKey(5));
+    }
+
+    @Test
+    public void test_remove_and_insert_again() throws Exception {
+        insert(100);
+        for (int i = 0; i < 100; i += 3) {
+            tree.remove(i);
+        }
+        for (int i = 0; i < 100; i += 3) {
+            tree.put(i, -i * 10);
+        }
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(Integer.valueOf(-i * 10), tree.get(i));
+        }
+        assertEquals(Integer.valueOf(0), tree.firstKey());
+        assertEquals(Integer.valueOf(99), tree.lastKey());
+    }
+
+    private void insert(final int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            tree.put(i, -i * 10);
+        }
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        tree = TreeBuilder.builder().setL(3).setKeyType(Types.integer())
+                .setValueType(Types.integer()).build();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        assertEquals("All locks should be unlocked ", 0,
+                tree.countLockedNodes());
+        tree = null;
+        super.tearDown();
+    }
+
+}
@@ -0,0 +1,130 @@
+package com.coroptis.jblinktree.integration;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import com.coroptis.jblinktree.JbDataVisitor;
+import com.coroptis.jblinktree.TreeBuilder;
+import com.coroptis.jblinktree.TreeMap;
+import com.coroptis.jblinktree.type.Types;
+
+/**
+ * Verify that in memory tree with nodes stored out of java heap could be
+ * concurrently changed and read.
+ *
+ * @author jajir
+ *
+ */
+public class TreeOffHeapNodeStoreTest extends TestCase {
+
+    private static final int THREAD_COUNT = 8;
+
+    private static final int KEYS_PER_THREAD = 500;
+
+    private TreeMap<Integer, String> tree;
+
+    @Test
+    public void test_put_remove_and_visit() throws Exception {
+        for (int i = 0; i < 1000; i++) {
+            tree.put(i, "value-" + i);
+        }
+        for (int i = 0; i < 1000; i += 3) {
+            assertEquals("value-" + i, tree.remove(i));
+        }
+        final List<Integer> keys = new ArrayList<Integer>();
+        tree.visit(new JbDataVisitor<Integer, String>() {
+
+            @Override
+            public boolean visited(final Integer key, final String value) {
+                assertEquals("value-" + key, value);
+                keys.add(key);
+                return true;
+            }
+        });
+        assertEquals(666, keys.size());
+        for (int i = 1; i < keys.size(); i++) {
+            assertTrue(keys.get(i - 1) < keys.get(i));
+            assertTrue(keys.get(i) % 3 != 0);
+        }
+    }
+
+    @Test
+    public void test_concurrent_put_and_get() throws Exception {
+        final AtomicReference<Throwable> failure =
+                new AtomicReference<Throwable>();
+        final List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < THREAD_COUNT; i++) {
+            final int thread = i;
+            threads.add(new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        for (int j = 0; j < KEYS_PER_THREAD; j++) {
+                            final Integer key = j * THREAD_COUNT + thread;
+                            tree.put(key, "v" + key);
+                            assertEquals("v" + key, tree.get(key));
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            }, "TestThread" + i));
+        }
+        for (final Thread thread : threads) {
+            thread.start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+        assertEquals("Some locks wasn't unlocked", 0, tree.countLockedNodes());
+        assertEquals(THREAD_COUNT * KEYS_PER_THREAD, tree.size());
+        for (int i = 0; i < THREAD_COUNT * KEYS_PER_THREAD; i++) {
+            assertEquals("v" + i, tree.get(i));
+        }
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        tree = TreeBuilder.builder().setKeyType(Types.integer())
+                .setValueType(Types.string(12)).setL(5)
+                .setOffHeapNodeStore(true).build();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        tree.close();
+        tree = null;
+        super.tearDown();
+    }
+
+}
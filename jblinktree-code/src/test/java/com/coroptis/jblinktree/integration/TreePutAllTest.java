@@ -0,0 +1,132 @@
+package com.coroptis.jblinktree.integration;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import com.coroptis.jblinktree.TreeBuilder;
+import com.coroptis.jblinktree.TreeMap;
+import com.coroptis.jblinktree.type.Types;
+
+/**
+ * Verify batch insert of key value pairs.
+ *
+ * @author jajir
+ *
+ */
+public class TreePutAllTest extends TestCase {
+
+    private TreeMap<Integer, Integer> tree;
+
+    @Test
+    public void test_putAll_emptyTree() throws Exception {
+        final Map<Integer, Integer> map = new HashMap<Integer, Integer>();
+        for (int i = 0; i < 1000; i++) {
+            map.put(i, -i);
+        }
+
+        tree.putAll(map);
+
+        assertEquals(1000, tree.size());
+        verify(map);
+        assertEquals(Integer.valueOf(0), tree.firstKey());
+        assertEquals(Integer.valueOf(999), tree.lastKey());
+    }
+
+    @Test
+    public void test_putAll_existingKeys() throws Exception {
+        for (int i = 0; i < 100; i += 2) {
+            tree.put(i, i);
+        }
+        final Map<Integer, Integer> map = new HashMap<Integer, Integer>();
+        for (int i = 50; i < 150; i++) {
+            map.put(i, -i);
+        }
+
+        tree.putAll(map);
+
+        assertEquals(125, tree.size());
+        verify(map);
+        assertEquals(Integer.valueOf(48), tree.get(48));
+        assertEquals(Integer.valueOf(-50), tree.get(50));
+    }
+
+    @Test
+    public void test_putAll_random() throws Exception {
+        final Random random = new Random(7);
+        final Map<Integer, Integer> all = new HashMap<Integer, Integer>();
+        for (int round = 0; round < 20; round++) {
+            final Map<Integer, Integer> map = new HashMap<Integer, Integer>();
+            for (int i = 0; i < 50; i++) {
+                map.put(random.nextInt(500), random.nextInt());
+            }
+            for (int i = 0; i < 5; i++) {
+                final Integer key = random.nextInt(500);
+                tree.remove(key);
+                all.remove(key);
+            }
+            tree.putAll(map);
+            all.putAll(map);
+        }
+
+        assertEquals(all.size(), tree.size());
+        verify(all);
+        assertEquals(new ArrayList<Integer>(new TreeSet<Integer>(all.keySet())),
+                new ArrayList<Integer>(tree.keySet()));
+    }
+
+    @Test
+    public void test_putAll_empty() throws Exception {
+        tree.putAll(new HashMap<Integer, Integer>());
+
+        assertTrue(tree.isEmpty());
+    }
+
+    private void verify(final Map<Integer, Integer> map) {
+        for (final Map.Entry<Integer, Integer> entry : map.entrySet()) {
+            assertEquals(entry.getValue(), tree.get(entry.getKey()));
+        }
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        tree = TreeBuilder.builder().setL(3).setKeyType(Types.integer())
+                .setValueType(Types.integer()).build();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        assertEquals("All locks should be unlocked ", 0,
+                tree.countLockedNodes());
+        tree = null;
+        super.tearDown();
+    }
+
+}
@@ -0,0 +1,280 @@
+package com.coroptis.jblinktree.integration;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import com.coroptis.jblinktree.Executer;
+import com.coroptis.jblinktree.Node;
+import com.coroptis.jblinktree.TreeBuilder;
+import com.coroptis.jblinktree.TreeMap;
+import com.coroptis.jblinktree.TreeUtil;
+import com.coroptis.jblinktree.Worker;
+import com.coroptis.jblinktree.type.Types;
+import com.google.common.io.Files;
+
+/**
+ * Verify that empty nodes are removed from tree and that their ids are used
+ * again.
+ *
+ * @author jajir
+ *
+ */
+public class TreeRemoveEmptyNodesTest extends TestCase {
+
+    private TreeMap<Integer, Integer> tree;
+
+    private File tempDirectory;
+
+    private Random random;
+
+    @Test
+    public void test_remove_middle() throws Exception {
+        tree = builder().build();
+        for (int i = 0; i < 1000; i++) {
+            tree.put(i, -i);
+        }
+        final int nodes = countNodes();
+        for (int i = 1; i < 999; i++) {
+            assertEquals(Integer.valueOf(-i), tree.remove(i));
+        }
+
+        assertEquals(2, tree.size());
+        assertEquals(Integer.valueOf(0), tree.get(0));
+        assertEquals(Integer.valueOf(-999), tree.get(999));
+        assertEquals(Integer.valueOf(0), tree.firstKey());
+        assertEquals(Integer.valueOf(999), tree.lastKey());
+        assertTrue(countNodes() < nodes / 10);
+        for (int i = 0; i < 1000; i++) {
+            tree.put(i, -i);
+        }
+        verify(0, 1000);
+        assertTrue(getMaxNodeId() <= nodes * 2);
+    }
+
+    @Test
+    public void test_remove_keeps_key_ranges_of_subtrees() throws Exception {
+        tree = builder().build();
+        for (int i = 0; i < 1000; i++) {
+            tree.put(i, -i);
+        }
+        for (int i = 0; i < 1000; i++) {
+            if (i % 100 > 10) {
+                assertEquals(Integer.valueOf(-i), tree.remove(i));
+            }
+        }
+        verifyKeyRanges();
+        for (int i = 0; i < 1000; i++) {
+            tree.put(i, -i);
+        }
+
+        verifyKeyRanges();
+        verify(0, 1000);
+    }
+
+    @Test
+    public void test_sliding_window() throws Exception {
+        tree = builder().build();
+        for (int i = 0; i < 5000; i++) {
+            tree.put(i, -i);
+            if (i >= 100) {
+                assertEquals(Integer.valueOf(100 - i), tree.remove(i - 100));
+            }
+        }
+
+        assertEquals(100, tree.size());
+        verify(4900, 5000);
+        final List<Integer> keys = new ArrayList<Integer>(tree.keySet());
+        final List<Integer> sorted = new ArrayList<Integer>(keys);
+        Collections.sort(sorted);
+        assertEquals(sorted, keys);
+        assertEquals(Integer.valueOf(4900), tree.firstKey());
+        assertEquals(Integer.valueOf(4901), tree.higherKey(4900));
+        assertEquals(Integer.valueOf(4999), tree.floorKey(100000));
+        assertTrue(getMaxNodeId() < 500);
+    }
+
+    @Test
+    public void test_free_node_ids_in_file_and_reopen() throws Exception {
+        tempDirectory = Files.createTempDir();
+        tree = fileBuilder().build();
+        for (int i = 0; i < 1000; i++) {
+            tree.put(i, -i);
+        }
+        for (int i = 1; i < 999; i++) {
+            tree.remove(i);
+        }
+        final int maxNodeId = getMaxNodeId();
+        tree.close();
+
+        tree = fileBuilder().build();
+        assertEquals(2, tree.size());
+        for (int i = 1; i < 999; i++) {
+            tree.put(i, -i);
+        }
+        verify(0, 1000);
+        assertTrue(getMaxNodeId() <= maxNodeId * 2);
+    }
+
+    @Test
+    public void test_concurrent_put_and_remove() throws Exception {
+        tree = builder().build();
+        random = new Random();
+        final int cycleCount = 300;
+        final int threadCount = 20;
+        final CountDownLatch doneLatch = new CountDownLatch(
+                cycleCount * threadCount);
+        final CountDownLatch startLatch = new CountDownLatch(1);
+
+        for (int i = 0; i < threadCount; ++i) {
+            final Runnable runner = new Executer(new Worker() {
+
+                @Override
+                public void doWork() {
+                    final Integer key = random.nextInt(500);
+                    if (random.nextBoolean()) {
+                        tree.put(key, -key);
+                    } else {
+                        tree.remove(key);
+                    }
+                    final Integer value = tree.get(key);
+                    if (value != null) {
+                        assertEquals(Integer.valueOf(-key), value);
+                    }
+                    tree.ceilingKey(key);
+                }
+            }, startLatch, doneLatch, cycleCount);
+            new Thread(runner, "TestThread" + i).start();
+        }
+
+        startLatch.countDown();
+        doneLatch.await(2, TimeUnit.MINUTES);
+        assertEquals("Some thread didn't finished work", 0,
+                doneLatch.getCount());
+        final List<Integer> keys = new ArrayList<Integer>(tree.keySet());
+        final List<Integer> sorted = new ArrayList<Integer>(keys);
+        Collections.sort(sorted);
+        assertEquals(sorted, keys);
+        assertEquals(keys.size(), tree.size());
+        for (final Integer key : keys) {
+            assertEquals(Integer.valueOf(-key), tree.get(key));
+        }
+    }
+
+    private int countNodes() {
+        return new TreeUtil(tree).getNodes().size();
+    }
+
+    private int getMaxNodeId() {
+        int max = 0;
+        for (final Node<Integer, Integer> node : new TreeUtil(tree)
+                .getNodes()) {
+            max = Math.max(max, node.getId());
+        }
+        return max;
+    }
+
+    /**
+     * Verify that keys of each node are sorted and that they are in key
+     * range given by parent nodes.
+     */
+    private void verifyKeyRanges() {
+        final Map<Integer, Node<Integer, Integer>> nodes =
+                new HashMap<Integer, Node<Integer, Integer>>();
+        final List<Node<Integer, Integer>> visited =
+                new TreeUtil(tree).getNodes();
+        for (final Node<Integer, Integer> node : visited) {
+            nodes.put(node.getId(), node);
+        }
+        verifyKeyRange(nodes, visited.get(0).getId(), null, null);
+    }
+
+    private void verifyKeyRange(
+            final Map<Integer, Node<Integer, Integer>> nodes,
+            final Integer nodeId, final Integer low, final Integer high) {
+        final Node<Integer, Integer> node = nodes.get(nodeId);
+        Integer previous = low;
+        for (int i = 0; i < node.getKeyCount(); i++) {
+            final Integer key = node.getKey(i);
+            /**
+             * Last pointer of rightmost node covers all bigger keys.
+             */
+            final boolean isLastPointer = !node.isLeafNode()
+                    && i == node.getMaxKeyIndex() && high == null;
+            if (previous != null && !isLastPointer) {
+                assertTrue("Key " + key + " of node " + nodeId
+                        + " is not bigger than " + previous, key > previous);
+            }
+            if (high != null) {
+                assertTrue("Key " + key + " of node " + nodeId
+                        + " is bigger than " + high, key <= high);
+            }
+            if (!node.isLeafNode()) {
+                verifyKeyRange(nodes, node.getValue(i), previous,
+                        isLastPointer ? null : key);
+            }
+            previous = key;
+        }
+    }
+
+    private void verify(final int from, final int to) {
+        for (int i = from; i < to; i++) {
+            assertEquals(Integer.valueOf(-i), tree.get(i));
+        }
+    }
+
+    private TreeBuilder builder() {
+        return TreeBuilder.builder().setL(4).setKeyType(Types.integer())
+                .setValueType(Types.integer()).setRemoveEmptyNodes(true);
+    }
+
+    private TreeBuilder fileBuilder() {
+        return builder().setNodeStoreInFileBuilder(
+                TreeBuilder.getNodeStoreInFileBuilder()
+                        .setFileName(tempDirectory.getAbsolutePath())
+                        .setNoOfCachedNodes(3));
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (tree != null) {
+            assertEquals("All locks should be unlocked ", 0,
+                    tree.countLockedNodes());
+            tree.close();
+        }
+        tree = null;
+        tempDirectory = null;
+        super.tearDown();
+    }
+
+}
@@ -0,0 +1,203 @@
+package com.coroptis.jblinktree.integration;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import com.coroptis.jblinktree.Executer;
+import com.coroptis.jblinktree.Node;
+import com.coroptis.jblinktree.TreeBuilder;
+import com.coroptis.jblinktree.TreeMap;
+import com.coroptis.jblinktree.TreeUtil;
+import com.coroptis.jblinktree.Worker;
+import com.coroptis.jblinktree.type.Types;
+import com.coroptis.jblinktree.util.JblinktreeException;
+import com.google.common.io.Files;
+
+/**
+ * Verify that sparse leaf nodes are re-packed in background.
+ *
+ * @author jajir
+ *
+ */
+public class TreeRepackTest extends TestCase {
+
+    private TreeMap<Integer, Integer> tree;
+
+    private File tempDirectory;
+
+    private Random random;
+
+    @Test
+    public void test_repack() throws Exception {
+        tree = builder().build();
+        for (int i = 0; i < 2000; i++) {
+            tree.put(i, -i);
+        }
+        waitForRepacking();
+        assertTrue(new TreeUtil(tree).getLeafNodes().size() < 2000 / 2);
+
+        verify(0, 2000);
+        assertEquals(Integer.valueOf(0), tree.firstKey());
+        assertEquals(Integer.valueOf(1999), tree.lastKey());
+        final List<Integer> keys = new ArrayList<Integer>(tree.keySet());
+        final List<Integer> sorted = new ArrayList<Integer>(keys);
+        Collections.sort(sorted);
+        assertEquals(sorted, keys);
+        assertEquals(2000, keys.size());
+    }
+
+    @Test
+    public void test_repack_in_file_and_reopen() throws Exception {
+        tempDirectory = Files.createTempDir();
+        tree = fileBuilder().build();
+        for (int i = 0; i < 1000; i++) {
+            tree.put(i, -i);
+        }
+        waitForRepacking();
+        tree.close();
+
+        tree = fileBuilder().build();
+        assertEquals(1000, tree.size());
+        verify(0, 1000);
+    }
+
+    @Test
+    public void test_repack_concurrently() throws Exception {
+        tree = builder().build();
+        random = new Random();
+        final int cycleCount = 300;
+        final int threadCount = 20;
+        final CountDownLatch doneLatch = new CountDownLatch(
+                cycleCount * threadCount);
+        final CountDownLatch startLatch = new CountDownLatch(1);
+
+        for (int i = 0; i < threadCount; ++i) {
+            final Runnable runner = new Executer(new Worker() {
+
+                @Override
+                public void doWork() {
+                    final Integer key = random.nextInt(1000);
+                    if (random.nextInt(3) > 0) {
+                        tree.put(key, -key);
+                    } else {
+                        tree.remove(key);
+                    }
+                    final Integer value = tree.get(key);
+                    if (value != null) {
+                        assertEquals(Integer.valueOf(-key), value);
+                    }
+                    tree.ceilingKey(key);
+                }
+            }, startLatch, doneLatch, cycleCount);
+            new Thread(runner, "TestThread" + i).start();
+        }
+
+        startLatch.countDown();
+        doneLatch.await(2, TimeUnit.MINUTES);
+        assertEquals("Some thread didn't finished work", 0,
+                doneLatch.getCount());
+        final List<Integer> keys = new ArrayList<Integer>(tree.keySet());
+        final List<Integer> sorted = new ArrayList<Integer>(keys);
+        Collections.sort(sorted);
+        assertEquals(sorted, keys);
+        assertEquals(keys.size(), tree.size());
+        for (final Integer key : keys) {
+            assertEquals(Integer.valueOf(-key), tree.get(key));
+        }
+    }
+
+    @Test
+    public void test_negative_interval() throws Exception {
+        try {
+            TreeBuilder.builder().setRepackInterval(-1);
+            fail();
+        } catch (JblinktreeException e) {
+            assertTrue(true);
+        }
+    }
+
+    private void waitForRepacking() throws Exception {
+        final long deadline = System.currentTimeMillis() + 10000;
+        while (!isRepacked()) {
+            assertTrue("Leaf nodes were not re-packed",
+                    System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Leftmost leaf node is never merged with its neighbour.
+     */
+    private boolean isRepacked() {
+        final List<Node<Integer, Integer>> leafs =
+                new TreeUtil(tree).getLeafNodes();
+        for (int i = 2; i < leafs.size(); i++) {
+            if (leafs.get(i - 1).getKeyCount()
+                    + leafs.get(i).getKeyCount() <= 4) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void verify(final int from, final int to) {
+        for (int i = from; i < to; i++) {
+            assertEquals(Integer.valueOf(-i), tree.get(i));
+        }
+    }
+
+    private TreeBuilder builder() {
+        return TreeBuilder.builder().setL(4).setKeyType(Types.integer())
+                .setValueType(Types.integer()).setFillFactor(1)
+                .setRepackInterval(1);
+    }
+
+    private TreeBuilder fileBuilder() {
+        return builder().setNodeStoreInFileBuilder(
+                TreeBuilder.getNodeStoreInFileBuilder()
+                        .setFileName(tempDirectory.getAbsolutePath())
+                        .setNoOfCachedNodes(3));
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (tree != null) {
+            assertEquals("All locks should be unlocked ", 0,
+                    tree.countLockedNodes());
+            tree.close();
+        }
+        tree = null;
+        tempDirectory = null;
+        super.tearDown();
+    }
+
+}
@@ -0,0 +1,154 @@
+package com.coroptis.jblinktree.integration;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import com.coroptis.jblinktree.JbDataVisitor;
+import com.coroptis.jblinktree.TreeBuilder;
+import com.coroptis.jblinktree.TreeMap;
+import com.coroptis.jblinktree.type.Types;
+
+/**
+ * Verify range scanning over leaf nodes.
+ *
+ * @author jajir
+ *
+ */
+public class TreeScanTest extends TestCase {
+
+    private TreeMap<Integer, Integer> tree;
+
+    @Test
+    public void test_scan_range() throws Exception {
+        insert(100);
+
+        final List<Integer> keys = scan(20, 30);
+        assertEquals(10, keys.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(Integer.valueOf(20 + i), keys.get(i));
+        }
+    }
+
+    @Test
+    public void test_scan_unbounded() throws Exception {
+        insert(100);
+
+        assertEquals(100, scan(null, null).size());
+        assertEquals(10, scan(null, 10).size());
+        assertEquals(10, scan(90, null).size());
+    }
+
+    @Test
+    public void test_scan_empty_range() throws Exception {
+        insert(100);
+
+        assertTrue(scan(30, 30).isEmpty());
+        assertTrue(scan(200, 300).isEmpty());
+        assertTrue(scan(-20, -10).isEmpty());
+    }
+
+    @Test
+    public void test_scan_empty_tree() throws Exception {
+        assertTrue(scan(null, null).isEmpty());
+        assertTrue(scan(1, 10).isEmpty());
+    }
+
+    @Test
+    public void test_scan_after_remove() throws Exception {
+        insert(100);
+        for (int i = 20; i < 40; i++) {
+            tree.remove(i);
+        }
+
+        final List<Integer> keys = scan(15, 45);
+        assertEquals(10, keys.size());
+        assertEquals(Integer.valueOf(19), keys.get(4));
+        assertEquals(Integer.valueOf(40), keys.get(5));
+    }
+
+    @Test
+    public void test_scan_stop_visiting() throws Exception {
+        insert(100);
+        final List<Integer> keys = new ArrayList<Integer>();
+        tree.scan(10, null, new JbDataVisitor<Integer, Integer>() {
+            @Override
+            public boolean visited(final Integer key, final Integer value) {
+                keys.add(key);
+                return keys.size() < 3;
+            }
+        });
+        assertEquals(3, keys.size());
+    }
+
+    @Test
+    public void test_subMap() throws Exception {
+        insert(100);
+
+        final Map<Integer, Integer> map = tree.subMap(250, 260);
+        assertTrue(map.isEmpty());
+
+        final Map<Integer, Integer> map2 = tree.subMap(50, 53);
+        assertEquals(3, map2.size());
+        assertEquals(Integer.valueOf(-510), map2.get(51));
+    }
+
+    private void insert(final int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            tree.put(i, -i * 10);
+        }
+    }
+
+    private List<Integer> scan(final Integer from, final Integer to) {
+        final List<Integer> keys = new ArrayList<Integer>();
+        tree.scan(from, to, new JbDataVisitor<Integer, Integer>() {
+            @Override
+            public boolean visited(final Integer key, final Integer value) {
+                assertEquals(Integer.valueOf(-key * 10), value);
+                keys.add(key);
+                return true;
+            }
+        });
+        return keys;
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        tree = TreeBuilder.builder().setL(3).setKeyType(Types.integer())
+                .setValueType(Types.integer()).build();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        assertEquals("All locks should be unlocked ", 0,
+                tree.countLockedNodes());
+        tree = null;
+        super.tearDown();
+    }
+
+}
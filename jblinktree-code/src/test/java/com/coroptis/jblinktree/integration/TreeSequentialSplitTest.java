@@ -0,0 +1,158 @@
+package com.coroptis.jblinktree.integration;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import com.coroptis.jblinktree.Executer;
+import com.coroptis.jblinktree.TreeBuilder;
+import com.coroptis.jblinktree.TreeMap;
+import com.coroptis.jblinktree.TreeUtil;
+import com.coroptis.jblinktree.Worker;
+import com.coroptis.jblinktree.type.Types;
+
+/**
+ * Verify that nodes are split near insertion point when keys are inserted in
+ * increasing order.
+ *
+ * @author jajir
+ *
+ */
+public class TreeSequentialSplitTest extends TestCase {
+
+    private TreeMap<Integer, Integer> tree;
+
+    @Test
+    public void test_sequential_inserts() throws Exception {
+        tree = builder(1).build();
+        for (int i = 0; i < 1000; i++) {
+            tree.put(i, -i);
+        }
+
+        assertEquals(100, new TreeUtil(tree).getLeafNodes().size());
+        verify(1000);
+    }
+
+    @Test
+    public void test_sequential_inserts_fill_factor() throws Exception {
+        tree = builder(0.8).build();
+        for (int i = 0; i < 1000; i++) {
+            tree.put(i, -i);
+        }
+
+        assertEquals(125, new TreeUtil(tree).getLeafNodes().size());
+        verify(1000);
+    }
+
+    @Test
+    public void test_sequential_inserts_split_in_half() throws Exception {
+        tree = TreeBuilder.builder().setL(10).setKeyType(Types.integer())
+                .setValueType(Types.integer()).build();
+        for (int i = 0; i < 1000; i++) {
+            tree.put(i, -i);
+        }
+
+        assertTrue(new TreeUtil(tree).getLeafNodes().size() > 1000 / 6);
+        verify(1000);
+    }
+
+    @Test
+    public void test_random_inserts() throws Exception {
+        tree = builder(1).build();
+        final List<Integer> keys = new ArrayList<Integer>();
+        for (int i = 0; i < 1000; i++) {
+            keys.add(i);
+        }
+        Collections.shuffle(keys, new Random(7));
+        for (final Integer key : keys) {
+            tree.put(key, -key);
+        }
+
+        verify(1000);
+    }
+
+    @Test
+    public void test_sequential_inserts_concurrently() throws Exception {
+        tree = builder(1).build();
+        final AtomicInteger counter = new AtomicInteger();
+        final int cycleCount = 100;
+        final int threadCount = 10;
+        final CountDownLatch doneLatch = new CountDownLatch(
+                cycleCount * threadCount);
+        final CountDownLatch startLatch = new CountDownLatch(1);
+
+        for (int i = 0; i < threadCount; ++i) {
+            final Runnable runner = new Executer(new Worker() {
+
+                @Override
+                public void doWork() {
+                    final Integer key = counter.getAndIncrement();
+                    tree.put(key, -key);
+                    assertEquals(Integer.valueOf(-key), tree.get(key));
+                }
+            }, startLatch, doneLatch, cycleCount);
+            new Thread(runner, "TestThread" + i).start();
+        }
+
+        startLatch.countDown();
+        doneLatch.await(1, TimeUnit.MINUTES);
+        assertEquals("Some thread didn't finished work", 0,
+                doneLatch.getCount());
+        verify(cycleCount * threadCount);
+    }
+
+    private void verify(final int count) {
+        assertEquals(count, tree.size());
+        final List<Integer> keys = new ArrayList<Integer>(tree.keySet());
+        assertEquals(count, keys.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(Integer.valueOf(i), keys.get(i));
+            assertEquals(Integer.valueOf(-i), tree.get(i));
+        }
+    }
+
+    private TreeBuilder builder(final double fillFactor) {
+        return TreeBuilder.builder().setL(10).setKeyType(Types.integer())
+                .setValueType(Types.integer()).setFillFactor(fillFactor)
+                .setSequentialSplit(true);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (tree != null) {
+            assertEquals("All locks should be unlocked ", 0,
+                    tree.countLockedNodes());
+            tree.close();
+        }
+        tree = null;
+        super.tearDown();
+    }
+
+}
@@ -313,6 +313,54 @@ public abstract class AbstractNodeTest {
                 node2.getMaxKey().getValue());
     }
 
+    @Test
+    public void test_moveDataTo() throws Exception {
+        Node<Integer, Integer> n = getNb().setL(10).setNodeId(3)
+                .setLeafNode(true).setLink(100).addKeyValuePair(1, 10)
+                .addKeyValuePair(2, 20).addKeyValuePair(3, 30)
+                .addKeyValuePair(4, 40).build();
+        Node<Integer, Integer> node2 =
+                getNb().setL(10).setNodeId(11).setLeafNode(true).build();
+
+        n.moveDataTo(node2, 3);
+
+        assertEquals(3, n.getKeyCount());
+        assertEquals(Integer.valueOf(11), n.getLink());
+        assertEquals(Integer.valueOf(3), n.getMaxKey().getValue());
+        assertEquals(1, node2.getKeyCount());
+        assertTrue(node2.isLeafNode());
+        assertEquals(Integer.valueOf(100), node2.getLink());
+        assertEquals(Integer.valueOf(4), node2.getMaxKey().getValue());
+        assertEquals(Integer.valueOf(40), node2.getValue(0));
+    }
+
+    @Test
+    public void test_moveDataTo_nothingToMove() throws Exception {
+        Node<Integer, Integer> n = getNb().setL(10).setNodeId(3)
+                .setLeafNode(true).setLink(100).addKeyValuePair(1, 10)
+                .addKeyValuePair(2, 20).build();
+        Node<Integer, Integer> node2 =
+                getNb().setL(10).setNodeId(11).setLeafNode(true).build();
+
+        n.moveDataTo(node2, 2);
+
+        assertEquals(2, n.getKeyCount());
+        assertEquals(Integer.valueOf(11), n.getLink());
+        assertTrue(node2.isEmpty());
+        assertTrue(node2.isLeafNode());
+        assertEquals(Integer.valueOf(100), node2.getLink());
+    }
+
+    @Test(expected = JblinktreeException.class)
+    public void test_moveDataTo_invalidPosition() throws Exception {
+        Node<Integer, Integer> n = getNb().setL(10).setNodeId(3)
+                .setLeafNode(true).addKeyValuePair(1, 10).build();
+        Node<Integer, Integer> node2 =
+                getNb().setL(10).setNodeId(11).setLeafNode(true).build();
+
+        n.moveDataTo(node2, 2);
+    }
+
     @Test
     public void test_isEmpty() throws Exception {
         Node<Integer, Integer> n = getNb().build();
@@ -0,0 +1,200 @@
+package com.coroptis.jblinktree.junit;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import static org.easymock.EasyMock.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.coroptis.jblinktree.Node;
+import com.coroptis.jblinktree.store.CacheBudget;
+import com.coroptis.jblinktree.store.CacheLruBytes;
+import com.coroptis.jblinktree.util.JblinktreeException;
+
+public class CacheLruBytesTest extends AbstractMockingTest {
+
+    private static final int NODE_BYTES = 23 + CacheLruBytes.ENTRY_OVERHEAD;
+
+    private CacheLruBytes<Integer, Integer> cache;
+
+    private CacheBudget budget;
+
+    private byte[] bytes;
+
+    @Test
+    public void test_get_simple() throws Exception {
+        loadNode(23, n1);
+        replay();
+        Node<Integer, Integer> ret = cache.get(23);
+
+        verify();
+        assertSame(ret, n1);
+        assertEquals(NODE_BYTES, budget.getUsedBytes());
+        assertEquals(1, budget.getNumberOfNodes());
+    }
+
+    @Test
+    public void test_get_cached() throws Exception {
+        loadNode(23, n1);
+        expect(nodeBuilder.makeNode(23, bytes)).andReturn((Node) n1);
+        replay();
+        cache.get(23);
+        Node<Integer, Integer> ret = cache.get(23);
+
+        verify();
+        assertSame(ret, n1);
+    }
+
+    @Test
+    public void test_get_evicting_order() throws Exception {
+        loadNode(11, n1);
+        loadNode(22, n2);
+        loadNode(33, n3);
+        expect(nodeBuilder.makeNode(11, bytes)).andReturn((Node) n1);
+        // evicting 2, 1 was used recently
+        expect(nodeBuilder.makeNode(22, bytes)).andReturn((Node) n2);
+        cacheListener.onUnload(n2, false);
+        replay();
+        cache.get(11);
+        cache.get(22);
+        cache.get(11);
+        Node<Integer, Integer> ret = cache.get(33);
+
+        verify();
+        assertSame(ret, n3);
+        assertEquals(2 * NODE_BYTES, budget.getUsedBytes());
+        assertEquals(2, budget.getNumberOfNodes());
+    }
+
+    @Test
+    public void test_put_bigger_node() throws Exception {
+        final byte[] bigBytes = new byte[100];
+        loadNode(11, n1);
+        loadNode(22, n2);
+        expect(n2.getId()).andReturn(22);
+        expect(n2.getFieldBytes()).andReturn(bigBytes);
+        expect(nodeBuilder.makeNode(11, bytes)).andReturn((Node) n1);
+        cacheListener.onUnload(n1, false);
+        replay();
+        cache.get(11);
+        cache.get(22);
+        cache.put(n2);
+
+        verify();
+        assertEquals(100 + CacheLruBytes.ENTRY_OVERHEAD,
+                budget.getUsedBytes());
+        assertEquals(1, budget.getNumberOfNodes());
+    }
+
+    @Test
+    public void test_shrink_budget() throws Exception {
+        loadNode(11, n1);
+        loadNode(22, n2);
+        expect(nodeBuilder.makeNode(11, bytes)).andReturn((Node) n1);
+        cacheListener.onUnload(n1, false);
+        replay();
+        cache.get(11);
+        cache.get(22);
+        budget.setMaxBytes(NODE_BYTES);
+
+        verify();
+        assertEquals(NODE_BYTES, budget.getUsedBytes());
+        assertEquals(1, budget.getNumberOfNodes());
+    }
+
+    @Test
+    public void test_node_bigger_than_budget_is_kept() throws Exception {
+        loadNode(11, n1);
+        replay();
+        budget.setMaxBytes(1);
+        cache.get(11);
+
+        verify();
+        assertEquals(1, budget.getNumberOfNodes());
+    }
+
+    @Test
+    public void test_flush_and_close() throws Exception {
+        expect(n1.getId()).andReturn(23);
+        expect(n1.getFieldBytes()).andReturn(bytes);
+        expect(nodeBuilder.makeNode(23, bytes)).andReturn((Node) n1)
+                .times(2);
+        cacheListener.onFlush(n1);
+        cacheListener.onUnload(n1, false);
+        replay();
+        cache.put(n1);
+        cache.flush();
+        cache.close();
+
+        verify();
+        assertEquals(0, budget.getUsedBytes());
+        assertEquals(0, budget.getNumberOfNodes());
+    }
+
+    @Test(expected = JblinktreeException.class)
+    public void test_budget_used_twice() throws Exception {
+        new CacheLruBytes<Integer, Integer>(nodeBuilder, budget, nodeLoader);
+    }
+
+    @Test
+    public void test_budget_used_after_close() throws Exception {
+        replay();
+        cache.close();
+        new CacheLruBytes<Integer, Integer>(nodeBuilder, budget, nodeLoader);
+
+        verify();
+    }
+
+    @Test(expected = JblinktreeException.class)
+    public void test_invalid_budget() throws Exception {
+        budget.setMaxBytes(0);
+    }
+
+    private void loadNode(final Integer nodeId, Node<Integer, Integer> node) {
+        expect(nodeLoader.load(nodeId)).andReturn(node);
+        expect(node.getFieldBytes()).andReturn(bytes);
+    }
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        bytes = new byte[23];
+        budget = new CacheBudget(2 * NODE_BYTES);
+        cache = new CacheLruBytes<Integer, Integer>(nodeBuilder, budget,
+                nodeLoader);
+        cache.addCacheListener(cacheListener);
+    }
+
+    @Override
+    @After
+    public void tearDown() throws Exception {
+        cache = null;
+        budget = null;
+        bytes = null;
+        super.tearDown();
+    }
+
+}
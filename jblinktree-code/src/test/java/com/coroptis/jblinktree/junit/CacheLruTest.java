@@ -151,6 +151,21 @@ public class CacheLruTest extends AbstractMockingTest {
         verify();
     }
 
+    @Test
+    public void test_flush() throws Exception {
+        expect(n1.getId()).andReturn(23).times(1);
+        expect(n1.getFieldBytes()).andReturn(bytes);
+        expect(nodeBuilder.makeNode(23, bytes)).andReturn((Node) n1);
+        cacheListener.onFlush(n1);
+        replay();
+        cache.put(n1);
+        cache.flush();
+        // node is not changed any more
+        cache.flush();
+
+        verify();
+    }
+
     private void loadNode(final Integer nodeId, Node<Integer, Integer> node) {
         expect(nodeLoader.load(nodeId)).andReturn(node);
         expect(node.getFieldBytes()).andReturn(bytes);
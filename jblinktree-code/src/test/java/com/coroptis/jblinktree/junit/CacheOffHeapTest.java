@@ -0,0 +1,203 @@
+package com.coroptis.jblinktree.junit;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.coroptis.jblinktree.JbNodeBuilder;
+import com.coroptis.jblinktree.JbNodeBuilderShort;
+import com.coroptis.jblinktree.JbNodeDef;
+import com.coroptis.jblinktree.JbNodeDefImpl;
+import com.coroptis.jblinktree.JbTreeData;
+import com.coroptis.jblinktree.JbTreeDataImpl;
+import com.coroptis.jblinktree.Node;
+import com.coroptis.jblinktree.store.CacheListener;
+import com.coroptis.jblinktree.store.CacheOffHeap;
+import com.coroptis.jblinktree.store.NodeLoader;
+import com.coroptis.jblinktree.type.TypeDescriptorInteger;
+import com.coroptis.jblinktree.type.Wrapper;
+
+/**
+ * Tests for {@link CacheOffHeap}. Cache have one stripe with three slots, slab
+ * have two slots.
+ *
+ * @author jajir
+ *
+ */
+public class CacheOffHeapTest {
+
+    private final TypeDescriptorInteger tdi = new TypeDescriptorInteger();
+
+    private JbTreeData<Integer, Integer> treeData;
+
+    private JbNodeBuilder<Integer, Integer> nodeBuilder;
+
+    private CacheOffHeap<Integer, Integer> cache;
+
+    private List<Integer> loaded;
+
+    private List<String> events;
+
+    @Test
+    public void test_get_miss_and_hit() throws Exception {
+        final Node<Integer, Integer> n1 = cache.get(1);
+        final Node<Integer, Integer> n2 = cache.get(1);
+
+        assertEquals(1, loaded.size());
+        assertEquals(Integer.valueOf(1), n2.getId());
+        assertArrayEquals(n1.getFieldBytes(), n2.getFieldBytes());
+    }
+
+    @Test
+    public void test_put_bigger_node_and_get() throws Exception {
+        final Node<Integer, Integer> node = makeNode(1, 3);
+        cache.put(node);
+        final Node<Integer, Integer> ret = cache.get(1);
+
+        assertEquals(0, loaded.size());
+        assertEquals(3, ret.getKeyCount());
+        assertArrayEquals(node.getFieldBytes(), ret.getFieldBytes());
+    }
+
+    @Test
+    public void test_evicting_changed_node() throws Exception {
+        cache.put(makeNode(1, 2));
+        cache.get(2);
+        cache.get(3);
+        cache.get(4);
+
+        assertEquals(1, events.size());
+        assertEquals("unload 1 2 true", events.get(0));
+    }
+
+    @Test
+    public void test_clock_gives_second_chance() throws Exception {
+        cache.get(1);
+        cache.get(2);
+        cache.get(3);
+        // all reference bits are cleared, node 1 is evicted
+        cache.get(4);
+        cache.get(2);
+        // node 2 was referenced, node 3 is evicted
+        cache.get(5);
+
+        assertEquals(2, events.size());
+        assertEquals("unload 1 0 false", events.get(0));
+        assertEquals("unload 3 0 false", events.get(1));
+        cache.get(2);
+        assertEquals(5, loaded.size());
+    }
+
+    @Test
+    public void test_remove_and_reuse_slot() throws Exception {
+        cache.get(1);
+        cache.get(2);
+        cache.get(3);
+        cache.remove(2);
+        cache.get(4);
+
+        assertEquals(1, events.size());
+        assertEquals("unload 2 0 false", events.get(0));
+    }
+
+    @Test
+    public void test_flush_and_close() throws Exception {
+        cache.put(makeNode(1, 1));
+        cache.get(2);
+        cache.flush();
+        cache.flush();
+        cache.close();
+
+        assertEquals(3, events.size());
+        assertEquals("flush 1 1", events.get(0));
+        assertEquals("unload 1 1 false", events.get(1));
+        assertEquals("unload 2 0 false", events.get(2));
+        cache.get(1);
+        assertEquals(2, loaded.size());
+    }
+
+    private Node<Integer, Integer> makeNode(final int idNode,
+            final int keys) {
+        final Node<Integer, Integer> node =
+                nodeBuilder.makeEmptyLeafNode(idNode);
+        for (int i = 0; i < keys; i++) {
+            node.insertAtPosition(Wrapper.make(i, tdi), i * 10, i);
+        }
+        return node;
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        final JbNodeDefImpl.Initializator<Integer, Integer> init =
+                new JbNodeDefImpl.InitializatorShort<Integer, Integer>();
+        final JbNodeDef<Integer, Integer> leafNodeDescriptor =
+                new JbNodeDefImpl<Integer, Integer>(5, tdi, tdi, tdi, init);
+        final JbNodeDef<Integer, Integer> nonLeafNodeDescriptor =
+                new JbNodeDefImpl<Integer, Integer>(5, tdi, tdi, tdi, init);
+        treeData = new JbTreeDataImpl<Integer, Integer>(1, 5,
+                leafNodeDescriptor, nonLeafNodeDescriptor);
+        nodeBuilder = new JbNodeBuilderShort<Integer, Integer>(treeData);
+        loaded = new ArrayList<Integer>();
+        events = new ArrayList<String>();
+        cache = new CacheOffHeap<Integer, Integer>(treeData, nodeBuilder, 3,
+                new NodeLoader<Integer, Integer>() {
+
+                    @Override
+                    public Node<Integer, Integer> load(final Integer idNode) {
+                        loaded.add(idNode);
+                        return nodeBuilder.makeEmptyLeafNode(idNode);
+                    }
+                }, 1, 2 * (4 + leafNodeDescriptor.getFieldMaxLength()));
+        cache.addCacheListener(new CacheListener<Integer, Integer>() {
+
+            @Override
+            public void onUnload(final Node<Integer, Integer> node,
+                    final boolean wasChanged) {
+                events.add("unload " + node.getId() + " "
+                        + node.getKeyCount() + " " + wasChanged);
+            }
+
+            @Override
+            public void onFlush(final Node<Integer, Integer> node) {
+                events.add("flush " + node.getId() + " "
+                        + node.getKeyCount());
+            }
+        });
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        cache = null;
+        nodeBuilder = null;
+        treeData = null;
+        loaded = null;
+        events = null;
+    }
+
+}
@@ -0,0 +1,167 @@
+package com.coroptis.jblinktree.junit;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertSame;
+
+import static org.easymock.EasyMock.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.coroptis.jblinktree.Node;
+import com.coroptis.jblinktree.store.CacheLru;
+import com.coroptis.jblinktree.store.CachePinnedNonLeaf;
+
+public class CachePinnedNonLeafTest extends AbstractMockingTest {
+
+    private CachePinnedNonLeaf<Integer, Integer> cache;
+
+    private byte[] bytes;
+
+    @Test
+    public void test_get_nonLeaf_is_pinned() throws Exception {
+        loadNode(23, n1);
+        expect(n1.isLeafNode()).andReturn(false);
+        expect(n1.getFieldBytes()).andReturn(bytes);
+        // copy is removed from leaf cache
+        expect(nodeBuilder.makeNode(23, bytes)).andReturn((Node) n1);
+        cacheListener.onUnload(n1, false);
+        loadNode(12, n2);
+        expect(n2.isLeafNode()).andReturn(true);
+        loadNode(33, n3);
+        expect(n3.isLeafNode()).andReturn(true);
+        // evicting 12
+        expect(nodeBuilder.makeNode(12, bytes)).andReturn((Node) n2);
+        cacheListener.onUnload(n2, false);
+        // pinned node
+        expect(nodeBuilder.makeNode(23, bytes)).andReturn((Node) n1);
+        replay();
+        cache.get(23);
+        cache.get(12);
+        cache.get(33);
+        Node<Integer, Integer> ret = cache.get(23);
+
+        verify();
+        assertSame(ret, n1);
+    }
+
+    @Test
+    public void test_get_leaf() throws Exception {
+        loadNode(23, n1);
+        expect(n1.isLeafNode()).andReturn(true).times(2);
+        expect(nodeBuilder.makeNode(23, bytes)).andReturn((Node) n1);
+        replay();
+        cache.get(23);
+        Node<Integer, Integer> ret = cache.get(23);
+
+        verify();
+        assertSame(ret, n1);
+    }
+
+    @Test
+    public void test_getForScan_pinned() throws Exception {
+        putNonLeaf(23, n1);
+        expect(nodeBuilder.makeNode(23, bytes)).andReturn((Node) n1);
+        replay();
+        cache.put(n1);
+        Node<Integer, Integer> ret = cache.getForScan(23);
+
+        verify();
+        assertSame(ret, n1);
+    }
+
+    @Test
+    public void test_put_leaf() throws Exception {
+        expect(n1.isLeafNode()).andReturn(true);
+        expect(n1.getId()).andReturn(23);
+        expect(n1.getFieldBytes()).andReturn(bytes);
+        expect(nodeBuilder.makeNode(23, bytes)).andReturn((Node) n1);
+        cacheListener.onUnload(n1, true);
+        replay();
+        cache.put(n1);
+        cache.close();
+
+        verify();
+    }
+
+    @Test
+    public void test_flush_and_close() throws Exception {
+        putNonLeaf(23, n1);
+        // flush
+        expect(nodeBuilder.makeNode(23, bytes)).andReturn((Node) n1);
+        cacheListener.onFlush(n1);
+        // close
+        expect(nodeBuilder.makeNode(23, bytes)).andReturn((Node) n1);
+        cacheListener.onUnload(n1, false);
+        replay();
+        cache.put(n1);
+        cache.flush();
+        cache.flush();
+        cache.close();
+
+        verify();
+    }
+
+    @Test
+    public void test_remove_changed() throws Exception {
+        putNonLeaf(23, n1);
+        expect(nodeBuilder.makeNode(23, bytes)).andReturn((Node) n1);
+        cacheListener.onUnload(n1, true);
+        replay();
+        cache.put(n1);
+        cache.remove(23);
+        cache.close();
+
+        verify();
+    }
+
+    private void putNonLeaf(final Integer nodeId,
+            Node<Integer, Integer> node) {
+        expect(node.isLeafNode()).andReturn(false);
+        expect(node.getId()).andReturn(nodeId);
+        expect(node.getFieldBytes()).andReturn(bytes);
+    }
+
+    private void loadNode(final Integer nodeId, Node<Integer, Integer> node) {
+        expect(nodeLoader.load(nodeId)).andReturn(node);
+        expect(node.getFieldBytes()).andReturn(bytes);
+    }
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        bytes = new byte[23];
+        cache = new CachePinnedNonLeaf<Integer, Integer>(nodeBuilder,
+                new CacheLru<Integer, Integer>(nodeBuilder, 1, nodeLoader));
+        cache.addCacheListener(cacheListener);
+    }
+
+    @Override
+    @After
+    public void tearDown() throws Exception {
+        cache = null;
+        bytes = null;
+        super.tearDown();
+    }
+
+}
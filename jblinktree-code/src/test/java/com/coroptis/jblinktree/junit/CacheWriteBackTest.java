@@ -0,0 +1,179 @@
+package com.coroptis.jblinktree.junit;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.easymock.EasyMock.createMock;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.coroptis.jblinktree.Node;
+import com.coroptis.jblinktree.store.Cache;
+import com.coroptis.jblinktree.store.CacheListener;
+import com.coroptis.jblinktree.store.CacheWriteBack;
+import com.coroptis.jblinktree.util.JblinktreeException;
+
+/**
+ * Tests for {@link CacheWriteBack}. Background thread flushes simple counting
+ * cache.
+ *
+ * @author jajir
+ *
+ */
+public class CacheWriteBackTest {
+
+    private final AtomicInteger flushes = new AtomicInteger();
+
+    private final AtomicInteger closes = new AtomicInteger();
+
+    private CountDownLatch flushed;
+
+    private volatile RuntimeException flushFailure;
+
+    private Node<Integer, Integer> node;
+
+    private Cache<Integer, Integer> next;
+
+    @Test
+    public void test_background_flush() throws Exception {
+        final Cache<Integer, Integer> cache =
+                new CacheWriteBack<Integer, Integer>(next, 5);
+        assertTrue(flushed.await(10, TimeUnit.SECONDS));
+        cache.close();
+        final int afterClose = flushes.get();
+        Thread.sleep(50);
+
+        assertEquals(afterClose, flushes.get());
+        assertEquals(1, closes.get());
+    }
+
+    @Test
+    public void test_operations_are_delegated() throws Exception {
+        final Cache<Integer, Integer> cache =
+                new CacheWriteBack<Integer, Integer>(next, 1000000);
+        assertSame(node, cache.get(1));
+        assertSame(node, cache.getForScan(1));
+        cache.flush();
+        assertEquals(1, flushes.get());
+        cache.close();
+        assertEquals(1, closes.get());
+    }
+
+    @Test
+    public void test_failure_is_reported_on_close() throws Exception {
+        flushFailure = new JblinktreeException("Disk is full");
+        final Cache<Integer, Integer> cache =
+                new CacheWriteBack<Integer, Integer>(next, 5);
+        assertTrue(flushed.await(10, TimeUnit.SECONDS));
+        try {
+            cache.close();
+            fail();
+        } catch (JblinktreeException e) {
+            assertSame(flushFailure, e.getCause());
+        }
+        assertEquals(1, closes.get());
+    }
+
+    @Test
+    public void test_failed_pass_is_repeated() throws Exception {
+        flushFailure = new JblinktreeException("Disk is full");
+        final Cache<Integer, Integer> cache =
+                new CacheWriteBack<Integer, Integer>(next, 5);
+        assertTrue(flushed.await(10, TimeUnit.SECONDS));
+        flushFailure = null;
+        final int failedPasses = flushes.get();
+        final long deadline = System.currentTimeMillis() + 10000;
+        while (flushes.get() < failedPasses + 2) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+        cache.close();
+        assertEquals(1, closes.get());
+    }
+
+    @Test(expected = JblinktreeException.class)
+    public void test_zero_interval() throws Exception {
+        new CacheWriteBack<Integer, Integer>(next, 0);
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        flushed = new CountDownLatch(2);
+        node = createMock(Node.class);
+        next = new Cache<Integer, Integer>() {
+
+            @Override
+            public void put(final Node<Integer, Integer> n) {
+            }
+
+            @Override
+            public void remove(final Integer idNode) {
+            }
+
+            @Override
+            public Node<Integer, Integer> get(final Integer idNode) {
+                return node;
+            }
+
+            @Override
+            public Node<Integer, Integer> getForScan(final Integer idNode) {
+                return node;
+            }
+
+            @Override
+            public void flush() {
+                flushes.incrementAndGet();
+                flushed.countDown();
+                if (flushFailure != null) {
+                    flushed.countDown();
+                    throw flushFailure;
+                }
+            }
+
+            @Override
+            public void close() {
+                closes.incrementAndGet();
+            }
+
+            @Override
+            public void addCacheListener(
+                    final CacheListener<Integer, Integer> cacheListener) {
+            }
+
+        };
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        next = null;
+        node = null;
+    }
+
+}
@@ -0,0 +1,116 @@
+package com.coroptis.jblinktree.junit;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.coroptis.jblinktree.JbNodeLockProvider;
+import com.coroptis.jblinktree.JbNodeLockProviderStriped;
+import com.coroptis.jblinktree.util.JblinktreeException;
+
+/**
+ * Junit test for {@link JbNodeLockProviderStriped}.
+ *
+ * @author jajir
+ *
+ */
+public class JbNodeLockProviderStripedTest {
+
+    private JbNodeLockProvider service;
+
+    @Test(expected = IllegalMonitorStateException.class)
+    public void test_unlock_already_unlocked_node() throws Exception {
+        service.lockNode(3);
+
+        service.unlockNode(3);
+        service.unlockNode(3);
+    }
+
+    @Test
+    public void test_lock_is_reentrant() throws Exception {
+        service.lockNode(3);
+        service.lockNode(3);
+        assertEquals(1, service.countLockedThreads());
+
+        service.unlockNode(3);
+        assertEquals(1, service.countLockedThreads());
+        service.unlockNode(3);
+        assertEquals(0, service.countLockedThreads());
+    }
+
+    @Test
+    public void test_nodes_in_same_stripe_are_independent() throws Exception {
+        service.lockNode(3);
+        service.lockNode(7);
+        assertEquals(2, service.countLockedThreads());
+        service.unlockNode(3);
+        service.unlockNode(7);
+        assertEquals(0, service.countLockedThreads());
+    }
+
+    @Test
+    public void test_other_thread_waits_for_node() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch locked = new CountDownLatch(1);
+        service.lockNode(3);
+        final Thread thread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                started.countDown();
+                service.lockNode(3);
+                locked.countDown();
+                service.unlockNode(3);
+            }
+        });
+        thread.start();
+        started.await();
+        assertFalse(locked.await(100, TimeUnit.MILLISECONDS));
+        service.unlockNode(3);
+        assertTrue(locked.await(10, TimeUnit.SECONDS));
+        thread.join();
+        assertEquals(0, service.countLockedThreads());
+    }
+
+    @Test(expected = JblinktreeException.class)
+    public void test_invalid_number_of_stripes() throws Exception {
+        new JbNodeLockProviderStriped(3);
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        service = new JbNodeLockProviderStriped(4);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        service = null;
+    }
+}
@@ -36,6 +36,7 @@ import com.coroptis.jblinktree.NodeShort;
 import com.coroptis.jblinktree.NodeUtilRule;
 import com.coroptis.jblinktree.type.TypeDescriptorInteger;
 import com.coroptis.jblinktree.type.Wrapper;
+import com.coroptis.jblinktree.util.JblinktreeException;
 
 /**
  * Test verify that correct data are returned. It use real object.
@@ -221,6 +222,48 @@ public class JbNodeService2Test {
                 ID);
     }
 
+    @Test
+    public void test_insertSplitNode() throws Exception {
+        nodeService.insertSplitNode(node, Wrapper.make(5, tdi), 6,
+                makeRightNode(6));
+        nodeUtil.verifyNode(node,
+                new Integer[][] { { 2, 2 }, { 4, 4 }, { 5, 6 }, { 6, 99 },
+                        { 8, 8 }, { 10, 10 }, { 12, 12 } },
+                false, LINK, ID);
+    }
+
+    @Test
+    public void test_insertSplitNode_rightmostNode() throws Exception {
+        node.setLink(Node.EMPTY_INT);
+        nodeService.insertSplitNode(node, Wrapper.make(13, tdi), 12,
+                makeRightNode(20));
+        nodeUtil.verifyNode(node,
+                new Integer[][] { { 2, 2 }, { 4, 4 }, { 6, 6 }, { 8, 8 },
+                        { 10, 10 }, { 13, 12 }, { 20, 99 } },
+                false, Node.EMPTY_INT, ID);
+    }
+
+    @Test(expected = JblinktreeException.class)
+    public void test_insertSplitNode_leafNode() throws Exception {
+        node = new NodeShort<Integer, Integer>(ID, true, nodeDef);
+        node.insertAtPosition(Wrapper.make(2, tdi), 2, 0);
+        nodeService.insertSplitNode(node, Wrapper.make(1, tdi), 2,
+                makeRightNode(2));
+    }
+
+    @Test(expected = JblinktreeException.class)
+    public void test_insertSplitNode_missingSplitNode() throws Exception {
+        nodeService.insertSplitNode(node, Wrapper.make(5, tdi), 7,
+                makeRightNode(6));
+    }
+
+    private Node<Integer, Integer> makeRightNode(final Integer maxKey) {
+        final Node<Integer, Integer> out = new NodeShort<Integer, Integer>(99,
+                true, nodeDef);
+        out.insertAtPosition(Wrapper.make(maxKey, tdi), maxKey, 0);
+        return out;
+    }
+
     @Before
     public void setup() throws Exception {
         tdi = new TypeDescriptorInteger();
@@ -66,7 +66,7 @@ public class JbTreeHelperTest extends AbstractMockingTest {
     public void setUp() throws Exception {
         super.setUp();
         treeHelper = new JbTreeHelperImpl<Integer, Integer>(nodeStore, treeTool,
-                jbTreeService, treeData);
+                jbTreeService, treeData, nodeService);
     }
 
     @Override
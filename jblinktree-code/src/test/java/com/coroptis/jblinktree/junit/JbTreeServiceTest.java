@@ -75,6 +75,19 @@ public class JbTreeServiceTest extends AbstractMockingTest {
         verify();
     }
 
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    @Test
+    public void test_lockParentNode() throws Exception {
+        EasyMock.expect(nodeStore.getAndLock(12)).andReturn((Node) n2);
+        EasyMock.expect(treeTraversingService.moveRightNonLeafNode(n2, w1))
+                .andReturn(n3);
+        replay();
+        Node<Integer, Integer> ret = tested.lockParentNode(w1, 12);
+
+        assertEquals(n3, ret);
+        verify();
+    }
+
     @Override
     @Before
     public void setUp() throws Exception {
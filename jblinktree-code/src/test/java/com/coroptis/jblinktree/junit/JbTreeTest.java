@@ -81,6 +81,7 @@ public class JbTreeTest extends AbstractMockingTest {
     public void test_insert_new_key() throws Exception {
         record_find_node();
         expect(nodeService.getValueByKey(n2, w1)).andReturn(null);
+        treeData.incrementValueCount();
         expect(treeHelper.insertToLeafNode(eq(n2), eq(w1), eq(-99),
                 (JbStack) anyObject())).andReturn(null);
 
@@ -110,6 +111,8 @@ public class JbTreeTest extends AbstractMockingTest {
         expect(nodeStore.getAndLock(11)).andReturn((Node) n1);
         expect(treeTraversingService.moveRightLeafNode(n1, w1))
                 .andReturn((Node) n2);
+        expect(treeHelper.moveRightEmptyLeafNode(eq(n2), eq(w1),
+                (JbStack) anyObject())).andReturn(n2);
     }
 
     @Override
@@ -22,6 +22,8 @@ package com.coroptis.jblinktree.junit;
 import static org.junit.Assert.*;
 import static org.easymock.EasyMock.*;
 
+import java.util.Arrays;
+
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -50,6 +52,8 @@ public class JbTreeToolTest extends AbstractMockingTest {
 
     private JbTreeTool<Integer, Integer> tested;
 
+    private JbTreeData<Integer, Integer> td;
+
     @Test
     public void test_canMoveToNextNode_pass() throws Exception {
         expect(n1.getLink()).andReturn(4);
@@ -74,10 +78,45 @@ public class JbTreeToolTest extends AbstractMockingTest {
         assertFalse(ret);
     }
 
+    @SuppressWarnings({ "unchecked", "rawtypes" })
     @Test
     public void test_canMoveToNextNodenodeIsEmpty() throws Exception {
         expect(n1.getLink()).andReturn(4);
         expect(n1.isEmpty()).andReturn(true);
+        expect(n1.getId()).andReturn(1);
+        expect(nodeStore.get(4)).andReturn((Node) n2);
+        expect(n2.isEmpty()).andReturn(false);
+        expect(n2.compareKey(0, w1)).andReturn(-1);
+        replay();
+
+        boolean ret = tested.canMoveToNextNode(n1, w1);
+        verify();
+        assertTrue(ret);
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    @Test
+    public void test_canMoveToNextNodenodeIsEmpty_nextNodeIsBigger()
+            throws Exception {
+        expect(n1.getLink()).andReturn(4);
+        expect(n1.isEmpty()).andReturn(true);
+        expect(n1.getId()).andReturn(1);
+        expect(nodeStore.get(4)).andReturn((Node) n2);
+        expect(n2.isEmpty()).andReturn(false);
+        expect(n2.compareKey(0, w1)).andReturn(1);
+        replay();
+
+        boolean ret = tested.canMoveToNextNode(n1, w1);
+        verify();
+        assertFalse(ret);
+    }
+
+    @Test
+    public void test_canMoveToNextNode_removed_node() throws Exception {
+        td.freeNodeId(1);
+        expect(n1.getLink()).andReturn(4);
+        expect(n1.isEmpty()).andReturn(true);
+        expect(n1.getId()).andReturn(1);
         replay();
 
         boolean ret = tested.canMoveToNextNode(n1, w1);
@@ -135,11 +174,10 @@ public class JbTreeToolTest extends AbstractMockingTest {
     public void test_splitNonLeafNode_insertToHigherNode() throws Exception {
         expect(nodeBuilder.makeEmptyNonLeafNode(0)).andReturn(n2);
         n1.moveTopHalfOfDataTo(n2);
-        expect(n1.getMaxKeyIndex()).andReturn(3);
-        expect(n1.compareKey(3, w3)).andReturn(-1);
-        expect(nodeService.insert(n2, w3, -100)).andReturn(null);
+        expect(nodeService.getNodeIds(n1)).andReturn(Arrays.asList(1, 2));
+        nodeService.insertSplitNode(n2, w3, 3, n3);
         replay();
-        Node<Integer, Integer> ret = tested.splitNonLeafNode(n1, w3, -100);
+        Node<Integer, Integer> ret = tested.splitNonLeafNode(n1, w3, 3, n3);
 
         assertSame(ret, n2);
         verify();
@@ -149,11 +187,10 @@ public class JbTreeToolTest extends AbstractMockingTest {
     public void test_splitNonLeafNode_insertToLowerNode() throws Exception {
         expect(nodeBuilder.makeEmptyNonLeafNode(0)).andReturn(n2);
         n1.moveTopHalfOfDataTo(n2);
-        expect(n1.getMaxKeyIndex()).andReturn(3);
-        expect(n1.compareKey(3, w3)).andReturn(1);
-        expect(nodeService.insert(n1, w3, -100)).andReturn(null);
+        expect(nodeService.getNodeIds(n1)).andReturn(Arrays.asList(1, 2));
+        nodeService.insertSplitNode(n1, w3, 2, n3);
         replay();
-        Node<Integer, Integer> ret = tested.splitNonLeafNode(n1, w3, -100);
+        Node<Integer, Integer> ret = tested.splitNonLeafNode(n1, w3, 2, n3);
 
         assertSame(ret, n2);
         verify();
@@ -187,6 +224,66 @@ public class JbTreeToolTest extends AbstractMockingTest {
         verify();
     }
 
+    @Test
+    public void test_splitLeafNode_sequential() throws Exception {
+        tested = new JbTreeToolImpl<Integer, Integer>(nodeStore, td,
+                nodeBuilder, nodeService, 0.9);
+        expect(nodeBuilder.makeEmptyLeafNode(0)).andReturn(n2);
+        expect(n1.getLink()).andReturn(Node.EMPTY_INT);
+        expect(n1.getMaxKeyIndex()).andReturn(2);
+        expect(n1.compareKey(2, w3)).andReturn(-1);
+        expect(n1.getKeyCount()).andReturn(3);
+        n1.moveDataTo(n2, 3);
+        expect(nodeService.insert(n2, w3, -100)).andReturn(null);
+        replay();
+        Node<Integer, Integer> ret = tested.splitLeafNode(n1, w3, -100);
+
+        assertSame(ret, n2);
+        verify();
+    }
+
+    @Test
+    public void test_splitLeafNode_sequential_notRightmostNode()
+            throws Exception {
+        tested = new JbTreeToolImpl<Integer, Integer>(nodeStore, td,
+                nodeBuilder, nodeService, 0.9);
+        expect(nodeBuilder.makeEmptyLeafNode(0)).andReturn(n2);
+        expect(n1.getLink()).andReturn(7);
+        n1.moveTopHalfOfDataTo(n2);
+        expect(n1.getMaxKeyIndex()).andReturn(3);
+        expect(n1.compareKey(3, w3)).andReturn(-1);
+        expect(nodeService.insert(n2, w3, -100)).andReturn(null);
+        replay();
+        Node<Integer, Integer> ret = tested.splitLeafNode(n1, w3, -100);
+
+        assertSame(ret, n2);
+        verify();
+    }
+
+    @Test
+    public void test_splitNonLeafNode_sequential() throws Exception {
+        tested = new JbTreeToolImpl<Integer, Integer>(nodeStore, td,
+                nodeBuilder, nodeService, 1);
+        expect(nodeBuilder.makeEmptyNonLeafNode(0)).andReturn(n2);
+        expect(n1.getLink()).andReturn(Node.EMPTY_INT);
+        expect(n1.getMaxKeyIndex()).andReturn(2);
+        expect(n1.getValue(2)).andReturn(3);
+        expect(n1.getKeyCount()).andReturn(3);
+        n1.moveDataTo(n2, 2);
+        nodeService.insertSplitNode(n2, w3, 3, n3);
+        replay();
+        Node<Integer, Integer> ret = tested.splitNonLeafNode(n1, w3, 3, n3);
+
+        assertSame(ret, n2);
+        verify();
+    }
+
+    @Test(expected = JblinktreeException.class)
+    public void test_invalidAppendFillFactor() throws Exception {
+        new JbTreeToolImpl<Integer, Integer>(nodeStore, td, nodeBuilder,
+                nodeService, 1.5);
+    }
+
     @Override
     @Before
     public void setUp() throws Exception {
@@ -199,7 +296,7 @@ public class JbTreeToolTest extends AbstractMockingTest {
         final JbNodeDef<Integer, Integer> nonLeafNodeDescriptor = new JbNodeDefImpl<Integer, Integer>(
                 5, tdInt, tdInt, tdInt, init);
 
-        JbTreeData<Integer, Integer> td = new JbTreeDataImpl<Integer, Integer>(
+        td = new JbTreeDataImpl<Integer, Integer>(
                 0, 3, leafNodeDescriptor, nonLeafNodeDescriptor);
         tested = new JbTreeToolImpl<Integer, Integer>(nodeStore, td,
                 nodeBuilder, nodeService);
@@ -209,6 +306,7 @@ public class JbTreeToolTest extends AbstractMockingTest {
     @After
     public void tearDown() throws Exception {
         tested = null;
+        td = null;
         super.tearDown();
     }
 
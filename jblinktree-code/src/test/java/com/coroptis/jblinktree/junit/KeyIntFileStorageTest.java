@@ -65,6 +65,15 @@ public class KeyIntFileStorageTest {
         assertEquals(node, n);
     }
 
+    @Test
+    public void test_getMaxNodeId() throws Exception {
+        assertEquals(Integer.valueOf(0), valueStorage.getMaxNodeId());
+
+        valueStorage.store(node);
+
+        assertEquals(Integer.valueOf(15), valueStorage.getMaxNodeId());
+    }
+
     @Before
     public void setup() throws Exception {
         tempDirectory = Files.createTempDir();
@@ -24,6 +24,7 @@ import static org.junit.Assert.*;
 import java.io.File;
 import java.io.RandomAccessFile;
 import java.nio.charset.Charset;
+import java.util.Arrays;
 
 import org.junit.After;
 import org.junit.Before;
@@ -61,9 +62,106 @@ public class MetaDataStoreTest {
 	public void test_reopen() throws Exception {
 		metaDataStore.close();
 
+		treeData.setValueCount(0);
 		metaDataStore = new MetaDataStoreImpl<Integer, String>(metaFile, treeData);
 		assertEquals(Integer.valueOf(8765), treeData.getRootNodeId());
 		assertEquals(Integer.valueOf(31), treeData.getMaxNodeId());
+		assertEquals(1234L, treeData.getValueCount());
+		metaDataStore.close();
+	}
+
+	@Test
+	public void test_reopen_withoutValueCount() throws Exception {
+		metaDataStore.close();
+
+		try (RandomAccessFile raf = new RandomAccessFile(metaFile, "rw")) {
+			raf.setLength(raf.length() - 8);
+		}
+
+		metaDataStore = new MetaDataStoreImpl<Integer, String>(metaFile, treeData);
+		assertEquals(Integer.valueOf(8765), treeData.getRootNodeId());
+		assertEquals(JbTreeData.UNKNOWN_VALUE_COUNT, treeData.getValueCount());
+		metaDataStore.close();
+	}
+
+	@Test
+	public void test_reopen_after_checkpoint() throws Exception {
+		metaDataStore.checkpoint(55, 77);
+		metaDataStore.checkpoint(66, 88);
+		// store is not closed, like after crash
+
+		metaDataStore = new MetaDataStoreImpl<Integer, String>(metaFile, treeData);
+		assertEquals(Integer.valueOf(66), treeData.getRootNodeId());
+		assertEquals(Integer.valueOf(88), treeData.getMaxNodeId());
+		assertEquals(JbTreeData.UNKNOWN_VALUE_COUNT, treeData.getValueCount());
+		assertTrue(metaDataStore.isRecoveredFromCheckpoint());
+		metaDataStore.close();
+	}
+
+	@Test
+	public void test_reopen_with_damaged_checkpoint() throws Exception {
+		metaDataStore.checkpoint(55, 77);
+		metaDataStore.checkpoint(66, 88);
+		final long length = metaFile.length();
+
+		try (RandomAccessFile raf = new RandomAccessFile(metaFile, "rw")) {
+			// second checkpoint is in first slot
+			raf.seek(length - 40 + 9);
+			raf.write(0xFF);
+		}
+
+		metaDataStore = new MetaDataStoreImpl<Integer, String>(metaFile, treeData);
+		assertEquals(Integer.valueOf(55), treeData.getRootNodeId());
+		assertEquals(Integer.valueOf(77), treeData.getMaxNodeId());
+		metaDataStore.close();
+	}
+
+	@Test
+	public void test_close_removes_checkpoints() throws Exception {
+		metaDataStore.checkpoint(55, 77);
+		treeData.setRootNodeId(66);
+		treeData.setMaxNodeId(88);
+		metaDataStore.close();
+
+		treeData.setValueCount(0);
+		metaDataStore = new MetaDataStoreImpl<Integer, String>(metaFile, treeData);
+		assertEquals(Integer.valueOf(66), treeData.getRootNodeId());
+		assertEquals(Integer.valueOf(88), treeData.getMaxNodeId());
+		assertEquals(1234L, treeData.getValueCount());
+		assertFalse(metaDataStore.isRecoveredFromCheckpoint());
+		metaDataStore.close();
+	}
+
+	@Test
+	public void test_reopen_with_free_node_ids() throws Exception {
+		final long length = metaFile.length();
+		treeData.setFreeNodeIds(Arrays.asList(3, 7, 12));
+		metaDataStore.close();
+		assertTrue(metaFile.length() > length);
+
+		treeData.setFreeNodeIds(Arrays.<Integer>asList());
+		metaDataStore = new MetaDataStoreImpl<Integer, String>(metaFile, treeData);
+		assertEquals(Arrays.asList(3, 7, 12), treeData.getFreeNodeIds());
+		assertEquals(length, metaFile.length());
+		assertEquals(Integer.valueOf(8765), treeData.getRootNodeId());
+		assertEquals(1234L, treeData.getValueCount());
+		metaDataStore.close();
+	}
+
+	@Test
+	public void test_reopen_with_damaged_free_node_ids() throws Exception {
+		treeData.setFreeNodeIds(Arrays.asList(3, 7, 12));
+		metaDataStore.close();
+
+		try (RandomAccessFile raf = new RandomAccessFile(metaFile, "rw")) {
+			raf.seek(raf.length() - 6);
+			raf.write(0xFF);
+		}
+
+		treeData.setFreeNodeIds(Arrays.<Integer>asList());
+		metaDataStore = new MetaDataStoreImpl<Integer, String>(metaFile, treeData);
+		assertTrue(treeData.getFreeNodeIds().isEmpty());
+		assertEquals(Integer.valueOf(8765), treeData.getRootNodeId());
 		metaDataStore.close();
 	}
 
@@ -97,6 +195,7 @@ public class MetaDataStoreTest {
 		treeData = new JbTreeDataImpl<Integer, String>(0, 2, leafNodeDescriptor, nonLeafNodeDescriptor);
 		treeData.setRootNodeId(8765);
 		treeData.setMaxNodeId(31);
+		treeData.setValueCount(1234);
 		metaDataStore = new MetaDataStoreImpl<Integer, String>(metaFile, treeData);
 	}
 
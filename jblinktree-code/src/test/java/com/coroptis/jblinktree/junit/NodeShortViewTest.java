@@ -0,0 +1,111 @@
+package com.coroptis.jblinktree.junit;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.coroptis.jblinktree.Node;
+import com.coroptis.jblinktree.NodeBuilder;
+import com.coroptis.jblinktree.NodeBuilder.NodeImpl;
+import com.coroptis.jblinktree.NodeShortView;
+import com.coroptis.jblinktree.NodeUtilRule;
+import com.coroptis.jblinktree.type.TypeDescriptorInteger;
+import com.coroptis.jblinktree.type.Wrapper;
+import com.coroptis.jblinktree.util.JblinktreeException;
+
+/**
+ * Junit test for {@link NodeShortView}.
+ *
+ * @author jajir
+ *
+ */
+public class NodeShortViewTest {
+
+    @Rule
+    public NodeUtilRule nodeUtil = new NodeUtilRule();
+
+    private TypeDescriptorInteger tdi;
+
+    private Node<Integer, Integer> node;
+
+    private Node<Integer, Integer> tested;
+
+    @Test
+    public void test_read() throws Exception {
+        nodeUtil.verifyNode(tested,
+                new Integer[][] { { 1, 10 }, { 3, 30 }, { 5, 50 } }, true, 98,
+                45);
+        assertEquals(0, tested.compareKey(1, Wrapper.make(3, tdi)));
+        assertEquals(Integer.valueOf(5), tested.getMaxKey().getValue());
+    }
+
+    @Test
+    public void test_field_is_not_copied() throws Exception {
+        assertSame(node.getFieldBytes(), tested.getFieldBytes());
+    }
+
+    @Test
+    public void test_equals() throws Exception {
+        assertEquals(node, tested);
+        assertEquals(tested, node);
+    }
+
+    @Test(expected = JblinktreeException.class)
+    public void test_setValue() throws Exception {
+        tested.setValue(0, 20);
+    }
+
+    @Test(expected = JblinktreeException.class)
+    public void test_insertAtPosition() throws Exception {
+        tested.insertAtPosition(Wrapper.make(2, tdi), 20, 1);
+    }
+
+    @Test(expected = JblinktreeException.class)
+    public void test_setLink() throws Exception {
+        tested.setLink(3);
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        tdi = new TypeDescriptorInteger();
+        node = NodeBuilder.builder().setL(3).setKeyTypeDescriptor(tdi)
+                .setValueTypeDescriptor(tdi)
+                .setImplementation(NodeImpl.variableLength).setNodeId(45)
+                .setLink(98).setLeafNode(true).addKeyValuePair(1, 10)
+                .addKeyValuePair(3, 30).addKeyValuePair(5, 50).build();
+        tested = new NodeShortView<Integer, Integer>(45, node.getFieldBytes(),
+                node.getNodeDef());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        tested = null;
+        node = null;
+        tdi = null;
+    }
+
+}
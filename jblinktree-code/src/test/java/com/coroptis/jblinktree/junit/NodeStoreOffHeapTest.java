@@ -0,0 +1,153 @@
+package com.coroptis.jblinktree.junit;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.coroptis.jblinktree.JbNodeBuilder;
+import com.coroptis.jblinktree.JbNodeBuilderShort;
+import com.coroptis.jblinktree.JbNodeDef;
+import com.coroptis.jblinktree.JbNodeDefImpl;
+import com.coroptis.jblinktree.JbNodeLockProviderImpl;
+import com.coroptis.jblinktree.JbTreeData;
+import com.coroptis.jblinktree.JbTreeDataImpl;
+import com.coroptis.jblinktree.Node;
+import com.coroptis.jblinktree.store.NodeStoreOffHeap;
+import com.coroptis.jblinktree.type.TypeDescriptorInteger;
+import com.coroptis.jblinktree.type.Wrapper;
+import com.coroptis.jblinktree.util.JblinktreeException;
+
+/**
+ * Tests for {@link NodeStoreOffHeap}. Store have two stripes and chunk have
+ * two slots.
+ *
+ * @author jajir
+ *
+ */
+public class NodeStoreOffHeapTest {
+
+    private final TypeDescriptorInteger tdi = new TypeDescriptorInteger();
+
+    private JbNodeBuilder<Integer, Integer> nodeBuilder;
+
+    private NodeStoreOffHeap<Integer, Integer> tested;
+
+    @Test
+    public void test_write_and_get() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            tested.writeNode(makeNode(i, i % 5));
+        }
+        for (int i = 0; i < 20; i++) {
+            final Node<Integer, Integer> node = tested.get(i);
+            assertEquals(Integer.valueOf(i), node.getId());
+            assertArrayEquals(makeNode(i, i % 5).getFieldBytes(),
+                    node.getFieldBytes());
+        }
+    }
+
+    @Test
+    public void test_rewrite_node() throws Exception {
+        tested.writeNode(makeNode(3, 1));
+        tested.writeNode(makeNode(3, 4));
+        assertEquals(4, tested.get(3).getKeyCount());
+        tested.writeNode(makeNode(3, 0));
+        assertEquals(0, tested.get(3).getKeyCount());
+    }
+
+    @Test
+    public void test_getAndLock_returns_copy() throws Exception {
+        tested.writeNode(makeNode(3, 2));
+        final Node<Integer, Integer> node = tested.getAndLock(3);
+        node.removeAtPosition(0);
+        tested.unlockNode(3);
+
+        assertEquals(2, tested.get(3).getKeyCount());
+    }
+
+    @Test(expected = JblinktreeException.class)
+    public void test_get_missing_node() throws Exception {
+        tested.writeNode(makeNode(3, 2));
+        tested.get(1000);
+    }
+
+    @Test
+    public void test_delete_and_reuse_slot() throws Exception {
+        tested.writeNode(makeNode(0, 1));
+        tested.writeNode(makeNode(2, 2));
+        tested.deleteNode(0);
+        tested.writeNode(makeNode(4, 3));
+
+        assertEquals(2, tested.get(2).getKeyCount());
+        assertEquals(3, tested.get(4).getKeyCount());
+        try {
+            tested.get(0);
+        } catch (JblinktreeException e) {
+            return;
+        }
+        throw new AssertionError("Deleted node was found.");
+    }
+
+    @Test(expected = JblinktreeException.class)
+    public void test_close() throws Exception {
+        tested.writeNode(makeNode(3, 2));
+        tested.close();
+        tested.get(3);
+    }
+
+    private Node<Integer, Integer> makeNode(final int idNode,
+            final int keys) {
+        final Node<Integer, Integer> node =
+                nodeBuilder.makeEmptyLeafNode(idNode);
+        for (int i = 0; i < keys; i++) {
+            node.insertAtPosition(Wrapper.make(i, tdi), i * 10, i);
+        }
+        return node;
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        final JbNodeDefImpl.Initializator<Integer, Integer> init =
+                new JbNodeDefImpl.InitializatorShort<Integer, Integer>();
+        final JbNodeDef<Integer, Integer> leafNodeDescriptor =
+                new JbNodeDefImpl<Integer, Integer>(5, tdi, tdi, tdi, init);
+        final JbNodeDef<Integer, Integer> nonLeafNodeDescriptor =
+                new JbNodeDefImpl<Integer, Integer>(5, tdi, tdi, tdi, init);
+        final JbTreeData<Integer, Integer> treeData =
+                new JbTreeDataImpl<Integer, Integer>(1, 5, leafNodeDescriptor,
+                        nonLeafNodeDescriptor);
+        nodeBuilder = new JbNodeBuilderShort<Integer, Integer>(treeData);
+        tested = new NodeStoreOffHeap<Integer, Integer>(treeData, nodeBuilder,
+                new JbNodeLockProviderImpl(), 2,
+                2 * (4 + leafNodeDescriptor.getFieldMaxLength()));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        tested = null;
+        nodeBuilder = null;
+    }
+
+}
@@ -0,0 +1,121 @@
+package com.coroptis.jblinktree.junit;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.coroptis.jblinktree.util.JblinktreeException;
+import com.coroptis.jblinktree.util.PeriodicTask;
+
+/**
+ * Tests for {@link PeriodicTask}.
+ *
+ * @author jajir
+ *
+ */
+public class PeriodicTaskTest {
+
+    private final AtomicInteger runs = new AtomicInteger();
+
+    private CountDownLatch ran;
+
+    private volatile RuntimeException runFailure;
+
+    private PeriodicTask task;
+
+    @Test
+    public void test_run_and_stop() throws Exception {
+        task.start();
+        assertTrue(ran.await(10, TimeUnit.SECONDS));
+        assertNull(task.stop());
+        final int afterStop = runs.get();
+        Thread.sleep(50);
+
+        assertEquals(afterStop, runs.get());
+    }
+
+    @Test
+    public void test_stop_not_started() throws Exception {
+        assertNull(task.stop());
+        assertEquals(0, runs.get());
+    }
+
+    @Test
+    public void test_failure_of_last_run() throws Exception {
+        runFailure = new JblinktreeException("Disk is full");
+        task.start();
+        assertTrue(ran.await(10, TimeUnit.SECONDS));
+
+        assertSame(runFailure, task.stop());
+    }
+
+    @Test
+    public void test_failed_run_is_repeated() throws Exception {
+        runFailure = new JblinktreeException("Disk is full");
+        task.start();
+        assertTrue(ran.await(10, TimeUnit.SECONDS));
+        runFailure = null;
+        final int failedRuns = runs.get();
+        final long deadline = System.currentTimeMillis() + 10000;
+        while (runs.get() < failedRuns + 2) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+
+        assertNull(task.stop());
+    }
+
+    @Test(expected = JblinktreeException.class)
+    public void test_zero_delay() throws Exception {
+        new PeriodicTask("test", Thread.NORM_PRIORITY, 0, new Runnable() {
+            @Override
+            public void run() {
+            }
+        });
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        ran = new CountDownLatch(2);
+        task = new PeriodicTask("test-periodic-task", Thread.NORM_PRIORITY, 5,
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        runs.incrementAndGet();
+                        ran.countDown();
+                        if (runFailure != null) {
+                            throw runFailure;
+                        }
+                    }
+                });
+    }
+
+}
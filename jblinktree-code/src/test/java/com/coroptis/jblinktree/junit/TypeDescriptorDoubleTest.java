@@ -0,0 +1,101 @@
+package com.coroptis.jblinktree.junit;
+
+import static org.junit.Assert.*;
+
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.coroptis.jblinktree.type.TypeDescriptor;
+import com.coroptis.jblinktree.type.TypeDescriptorDouble;
+import com.coroptis.jblinktree.type.Wrapper;
+import com.coroptis.jblinktree.util.JblinktreeException;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+/**
+ * Junit test for {@link TypeDescriptorDouble}.
+ *
+ * @author jajir
+ *
+ */
+public class TypeDescriptorDoubleTest {
+
+    TypeDescriptor<Double> td;
+
+    /**
+     * Values in ascending order.
+     */
+    private final double[] sorted = new double[] { Double.NEGATIVE_INFINITY,
+            -Double.MAX_VALUE, -1.5D, -Double.MIN_VALUE, -0D, 0D,
+            Double.MIN_VALUE, 1D, 1.5D, Double.MAX_VALUE,
+            Double.POSITIVE_INFINITY, Double.NaN };
+
+    @Test
+    public void test_save_load() throws Exception {
+        byte[] b = new byte[10];
+        for (final double value : sorted) {
+            td.save(b, 1, value);
+            assertEquals(Double.valueOf(value), td.load(b, 1));
+        }
+        assertEquals(0, b[0]);
+        assertEquals(0, b[9]);
+    }
+
+    @Test
+    public void test_verifyType_pass() throws Exception {
+        td.verifyType(-4D);
+        td.verifyType(Double.NaN);
+    }
+
+    @Test(expected = JblinktreeException.class)
+    public void test_verifyType_false() throws Exception {
+        td.verifyType(4L);
+    }
+
+    @Test
+    public void test_toString() throws Exception {
+        assertEquals("TypeDescriptorDouble{maxLength=8}", td.toString());
+    }
+
+    @Test
+    public void test_cmp() throws Exception {
+        byte[] b = new byte[10];
+        for (int i = 0; i < sorted.length; i++) {
+            td.save(b, 1, sorted[i]);
+            for (int j = 0; j < sorted.length; j++) {
+                assertEquals(Integer.signum(Double.compare(sorted[i], sorted[j])),
+                        Integer.signum(td.cmp(b, 1, Wrapper.make(sorted[j], td))));
+            }
+        }
+    }
+
+    @Before
+    public void setup() {
+        td = new TypeDescriptorDouble();
+    }
+
+    @After
+    public void tearDown() {
+        td = null;
+    }
+
+}
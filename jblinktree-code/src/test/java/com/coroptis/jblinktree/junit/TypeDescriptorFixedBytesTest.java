@@ -0,0 +1,106 @@
+package com.coroptis.jblinktree.junit;
+
+import static org.junit.Assert.*;
+
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.coroptis.jblinktree.type.TypeDescriptor;
+import com.coroptis.jblinktree.type.TypeDescriptorFixedBytes;
+import com.coroptis.jblinktree.type.Wrapper;
+import com.coroptis.jblinktree.util.JblinktreeException;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+/**
+ * Junit test for {@link TypeDescriptorFixedBytes}.
+ *
+ * @author jajir
+ *
+ */
+public class TypeDescriptorFixedBytesTest {
+
+    TypeDescriptor<byte[]> td;
+
+    @Test
+    public void test_save_load() throws Exception {
+        byte[] b = new byte[5];
+        td.save(b, 1, new byte[] { 1, -2, 3 });
+
+        assertArrayEquals(new byte[] { 0, 1, -2, 3, 0 }, b);
+        assertArrayEquals(new byte[] { 1, -2, 3 }, td.load(b, 1));
+    }
+
+    @Test
+    public void test_verifyType_pass() throws Exception {
+        td.verifyType(new byte[3]);
+    }
+
+    @Test(expected = JblinktreeException.class)
+    public void test_verifyType_wrong_length() throws Exception {
+        td.verifyType(new byte[4]);
+    }
+
+    @Test(expected = JblinktreeException.class)
+    public void test_verifyType_false() throws Exception {
+        td.verifyType("abc");
+    }
+
+    @Test(expected = JblinktreeException.class)
+    public void test_constructor_invalid_length() throws Exception {
+        new TypeDescriptorFixedBytes(0);
+    }
+
+    @Test
+    public void test_toString() throws Exception {
+        assertEquals("TypeDescriptorFixedBytes{maxLength=3}", td.toString());
+    }
+
+    @Test
+    public void test_equals() throws Exception {
+        assertEquals(new TypeDescriptorFixedBytes(3), td);
+        assertFalse(new TypeDescriptorFixedBytes(4).equals(td));
+    }
+
+    @Test
+    public void test_cmp() throws Exception {
+        byte[] b = new byte[5];
+        td.save(b, 1, new byte[] { 1, -128, 3 });
+
+        assertTrue(td.cmp(b, 1, Wrapper.make(new byte[] { 1, 127, 3 }, td)) > 0);
+        assertTrue(td.cmp(b, 1, Wrapper.make(new byte[] { 1, -1, 0 }, td)) < 0);
+        assertTrue(td.cmp(b, 1, Wrapper.make(new byte[] { 2, 0, 0 }, td)) < 0);
+        assertEquals(0,
+                td.cmp(b, 1, Wrapper.make(new byte[] { 1, -128, 3 }, td)));
+    }
+
+    @Before
+    public void setup() {
+        td = new TypeDescriptorFixedBytes(3);
+    }
+
+    @After
+    public void tearDown() {
+        td = null;
+    }
+
+}
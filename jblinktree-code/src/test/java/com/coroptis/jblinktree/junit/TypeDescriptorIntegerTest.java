@@ -8,6 +8,7 @@ import org.junit.Test;
 
 import com.coroptis.jblinktree.type.TypeDescriptor;
 import com.coroptis.jblinktree.type.TypeDescriptorInteger;
+import com.coroptis.jblinktree.type.Wrapper;
 import com.coroptis.jblinktree.util.JblinktreeException;
 
 /*
@@ -63,6 +64,15 @@ public class TypeDescriptorIntegerTest {
         assertEquals(Integer.valueOf(16909060), td.load(b, 1));
     }
 
+    @Test
+    public void test_loadPrimitive() throws Exception {
+        byte[] b = new byte[6];
+        td.save(b, 1, -16909060);
+
+        assertEquals(-16909060L,
+                ((TypeDescriptorInteger) td).loadPrimitive(b, 1));
+    }
+
     @Test
     public void test_verifyType_pass() throws Exception {
         td.verifyType(-4);
@@ -79,6 +89,18 @@ public class TypeDescriptorIntegerTest {
 		assertEquals("TypeDescriptorInteger{maxLength=4}", td.toString());
 	}
     
+    @Test
+    public void test_cmp() throws Exception {
+        byte[] b = new byte[6];
+        td.save(b, 1, 128);
+
+        assertTrue(td.cmp(b, 1, Wrapper.make(127, td)) > 0);
+        assertTrue(td.cmp(b, 1, Wrapper.make(129, td)) < 0);
+        assertTrue(td.cmp(b, 1, Wrapper.make(-128, td)) > 0);
+        assertTrue(td.cmp(b, 1, Wrapper.make(1023, td)) < 0);
+        assertEquals(0, td.cmp(b, 1, Wrapper.make(128, td)));
+    }
+
     @Before
     public void setup() {
         td = new TypeDescriptorInteger();
@@ -0,0 +1,115 @@
+package com.coroptis.jblinktree.junit;
+
+import static org.junit.Assert.*;
+
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.coroptis.jblinktree.type.TypeDescriptor;
+import com.coroptis.jblinktree.type.TypeDescriptorLong;
+import com.coroptis.jblinktree.type.Wrapper;
+import com.coroptis.jblinktree.util.JblinktreeException;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+/**
+ * Junit test for {@link TypeDescriptorLong}.
+ *
+ * @author jajir
+ *
+ */
+public class TypeDescriptorLongTest {
+
+    TypeDescriptor<Long> td;
+
+    @Test
+    public void test_save() throws Exception {
+        byte[] b = new byte[10];
+        td.save(b, 1, -1L);
+
+        assertEquals(0, b[0]);
+        assertEquals(127, b[1]);
+        for (int i = 2; i < 9; i++) {
+            assertEquals(-1, b[i]);
+        }
+        assertEquals(0, b[9]);
+    }
+
+    @Test
+    public void test_save_load() throws Exception {
+        byte[] b = new byte[10];
+        for (final long value : new long[] { 0L, 1L, -1L, 72623859790382856L,
+                Long.MIN_VALUE, Long.MAX_VALUE }) {
+            td.save(b, 1, value);
+            assertEquals(Long.valueOf(value), td.load(b, 1));
+        }
+    }
+
+    @Test
+    public void test_loadPrimitive() throws Exception {
+        byte[] b = new byte[10];
+        td.save(b, 1, -72623859790382856L);
+
+        assertEquals(-72623859790382856L,
+                ((TypeDescriptorLong) td).loadPrimitive(b, 1));
+    }
+
+    @Test
+    public void test_verifyType_pass() throws Exception {
+        td.verifyType(-4L);
+        td.verifyType(Long.MAX_VALUE);
+    }
+
+    @Test(expected = JblinktreeException.class)
+    public void test_verifyType_false() throws Exception {
+        td.verifyType(4);
+    }
+
+    @Test
+    public void test_toString() throws Exception {
+        assertEquals("TypeDescriptorLong{maxLength=8}", td.toString());
+    }
+
+    @Test
+    public void test_cmp() throws Exception {
+        byte[] b = new byte[10];
+        td.save(b, 1, 128L);
+
+        assertTrue(td.cmp(b, 1, Wrapper.make(127L, td)) > 0);
+        assertTrue(td.cmp(b, 1, Wrapper.make(129L, td)) < 0);
+        assertTrue(td.cmp(b, 1, Wrapper.make(-128L, td)) > 0);
+        assertTrue(td.cmp(b, 1, Wrapper.make(Long.MIN_VALUE, td)) > 0);
+        assertTrue(td.cmp(b, 1, Wrapper.make(Long.MAX_VALUE, td)) < 0);
+        assertEquals(0, td.cmp(b, 1, Wrapper.make(128L, td)));
+    }
+
+    @Before
+    public void setup() {
+        td = new TypeDescriptorLong();
+    }
+
+    @After
+    public void tearDown() {
+        td = null;
+    }
+
+}
@@ -0,0 +1,274 @@
+package com.coroptis.jblinktree.junit;
+
+/*
+ * #%L
+ * jblinktree
+ * %%
+ * Copyright (C) 2015 coroptis
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.coroptis.jblinktree.JbNodeBuilder;
+import com.coroptis.jblinktree.JbNodeBuilderShort;
+import com.coroptis.jblinktree.JbNodeDef;
+import com.coroptis.jblinktree.JbNodeDefImpl;
+import com.coroptis.jblinktree.JbTreeData;
+import com.coroptis.jblinktree.JbTreeDataImpl;
+import com.coroptis.jblinktree.Node;
+import com.coroptis.jblinktree.store.Cache;
+import com.coroptis.jblinktree.store.NodeFileStorage;
+import com.coroptis.jblinktree.store.WriteAheadLog;
+import com.coroptis.jblinktree.type.TypeDescriptorInteger;
+import com.coroptis.jblinktree.type.Wrapper;
+import com.coroptis.jblinktree.util.JblinktreeException;
+import com.google.common.io.Files;
+
+/**
+ * Tests for {@link WriteAheadLog}. Crash is simulated by opening log again
+ * without closing previous instance.
+ *
+ * @author jajir
+ *
+ */
+public class WriteAheadLogTest {
+
+    private final TypeDescriptorInteger tdi = new TypeDescriptorInteger();
+
+    private File tempDirectory;
+
+    private File file;
+
+    private JbTreeData<Integer, Integer> treeData;
+
+    private JbNodeBuilder<Integer, Integer> nodeBuilder;
+
+    private Map<Integer, Node<Integer, Integer>> stored;
+
+    private NodeFileStorage<Integer, Integer> storage;
+
+    @Test
+    public void test_replay_committed_nodes() throws Exception {
+        final WriteAheadLog<Integer, Integer> wal = makeLog(0);
+        for (int i = 0; i < 10; i++) {
+            treeData.getNextId();
+            wal.commit(wal.append(makeNode(i, i % 5)));
+        }
+        treeData.setRootNodeId(7);
+        wal.commit(wal.append(makeNode(3, 4)));
+
+        treeData.setRootNodeId(0);
+        treeData.setMaxNodeId(0);
+        assertEquals(11, makeLog(0).replay(storage));
+        assertEquals(10, stored.size());
+        for (int i = 0; i < 10; i++) {
+            final int keys = i == 3 ? 4 : i % 5;
+            assertArrayEquals(makeNode(i, keys).getFieldBytes(),
+                    stored.get(i).getFieldBytes());
+        }
+        assertEquals(Integer.valueOf(7), treeData.getRootNodeId());
+        assertEquals(Integer.valueOf(10), treeData.getMaxNodeId());
+        assertEquals(JbTreeData.UNKNOWN_VALUE_COUNT, treeData.getValueCount());
+    }
+
+    @Test
+    public void test_incomplete_record_is_ignored() throws Exception {
+        final WriteAheadLog<Integer, Integer> wal = makeLog(0);
+        for (int i = 0; i < 3; i++) {
+            wal.commit(wal.append(makeNode(i, 2)));
+        }
+        final long length = file.length();
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(new byte[] { 0, 0, 0, 12, 0, 0 });
+        }
+
+        final WriteAheadLog<Integer, Integer> reopened = makeLog(0);
+        assertEquals(3, reopened.replay(storage));
+        assertEquals(length, file.length());
+        reopened.commit(reopened.append(makeNode(5, 1)));
+        stored.clear();
+        assertEquals(4, makeLog(0).replay(storage));
+        assertEquals(4, stored.size());
+    }
+
+    @Test
+    public void test_close_deletes_log() throws Exception {
+        final WriteAheadLog<Integer, Integer> wal = makeLog(0);
+        wal.commit(wal.append(makeNode(1, 2)));
+        wal.close();
+
+        assertFalse(file.exists());
+        assertEquals(0, makeLog(0).replay(storage));
+        assertEquals(0, stored.size());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void test_rotate_and_delete_previous_generations()
+            throws Exception {
+        final Node<Integer, Integer> n1 = makeNode(1, 2);
+        final Node<Integer, Integer> n2 = makeNode(2, 2);
+        final Node<Integer, Integer> n3 = makeNode(1, 3);
+        final Cache<Integer, Integer> cache = createMock(Cache.class);
+        cache.put(n1);
+        cache.put(n2);
+        cache.put(n3);
+        replay(cache);
+        final WriteAheadLog<Integer, Integer> wal = makeLog(0);
+        wal.write(n1, cache);
+        wal.write(n2, cache);
+        wal.rotate();
+        wal.write(n3, cache);
+        verify(cache);
+        assertTrue(WriteAheadLog.getLogFile(tempDirectory, 1).exists());
+
+        assertEquals(3, makeLog(0).replay(storage));
+        assertEquals(3, stored.get(1).getKeyCount());
+
+        wal.deletePreviousGenerations();
+        assertFalse(file.exists());
+        stored.clear();
+        assertEquals(1, makeLog(0).replay(storage));
+        assertEquals(3, stored.get(1).getKeyCount());
+    }
+
+    @Test
+    public void test_group_commit_of_concurrent_writers() throws Exception {
+        final WriteAheadLog<Integer, Integer> wal = makeLog(200);
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        final Future<?>[] futures = new Future<?>[8];
+        for (int t = 0; t < futures.length; t++) {
+            final int first = t * 50;
+            futures[t] = executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = first; i < first + 50; i++) {
+                        wal.commit(wal.append(makeNode(i, i % 5)));
+                    }
+                }
+            });
+        }
+        for (final Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(400, makeLog(0).replay(storage));
+        assertEquals(400, stored.size());
+    }
+
+    @Test(expected = JblinktreeException.class)
+    public void test_negative_delay() throws Exception {
+        makeLog(-1);
+    }
+
+    private WriteAheadLog<Integer, Integer> makeLog(final long delay) {
+        return new WriteAheadLog<Integer, Integer>(tempDirectory, treeData,
+                nodeBuilder, delay);
+    }
+
+    private Node<Integer, Integer> makeNode(final int idNode,
+            final int keys) {
+        final Node<Integer, Integer> node =
+                nodeBuilder.makeEmptyLeafNode(idNode);
+        for (int i = 0; i < keys; i++) {
+            node.insertAtPosition(Wrapper.make(i, tdi), i * 10, i);
+        }
+        return node;
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        tempDirectory = Files.createTempDir();
+        file = WriteAheadLog.getLogFile(tempDirectory, 0);
+        final JbNodeDefImpl.Initializator<Integer, Integer> init =
+                new JbNodeDefImpl.InitializatorShort<Integer, Integer>();
+        final JbNodeDef<Integer, Integer> leafNodeDescriptor =
+                new JbNodeDefImpl<Integer, Integer>(5, tdi, tdi, tdi, init);
+        final JbNodeDef<Integer, Integer> nonLeafNodeDescriptor =
+                new JbNodeDefImpl<Integer, Integer>(5, tdi, tdi, tdi, init);
+        treeData = new JbTreeDataImpl<Integer, Integer>(0, 5,
+                leafNodeDescriptor, nonLeafNodeDescriptor);
+        nodeBuilder = new JbNodeBuilderShort<Integer, Integer>(treeData);
+        stored = new HashMap<Integer, Node<Integer, Integer>>();
+        storage = new NodeFileStorage<Integer, Integer>() {
+
+            @Override
+            public Node<Integer, Integer> load(final Integer nodeId) {
+                return stored.get(nodeId);
+            }
+
+            @Override
+            public void store(final Node<Integer, Integer> node) {
+                stored.put(node.getId(), node);
+            }
+
+            @Override
+            public void close() {
+            }
+
+            @Override
+            public void sync() {
+            }
+
+            @Override
+            public boolean isNewlyCreated() {
+                return false;
+            }
+
+            @Override
+            public Integer getMaxNodeId() {
+                int out = 0;
+                for (final Integer nodeId : stored.keySet()) {
+                    out = Math.max(out, nodeId + 1);
+                }
+                return out;
+            }
+
+        };
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for (final File f : tempDirectory.listFiles()) {
+            f.delete();
+        }
+        tempDirectory.delete();
+        storage = null;
+        nodeBuilder = null;
+        treeData = null;
+    }
+
+}